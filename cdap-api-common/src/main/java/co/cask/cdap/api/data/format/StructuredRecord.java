@@ -20,24 +20,39 @@ import co.cask.cdap.api.annotation.Beta;
 import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.data.schema.Schema;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
 /**
- * Instance of a record structured by a {@link Schema}. Fields are accessible by name.
+ * Instance of a record structured by a {@link Schema}. Fields are accessible by name or by their position in the
+ * schema. Field values are stored in an array in the order of {@link Schema#getFields()}.
  */
 @Beta
 public class StructuredRecord implements Serializable {
-  private final Schema schema;
-  private final Map<String, Object> fields;
 
   private static final long serialVersionUID = -4648752378975451591L;
 
-  private StructuredRecord(Schema schema, Map<String, Object> fields) {
+  // Keep the serialized form as a map of field values, which is what it used to be
+  private static final ObjectStreamField[] serialPersistentFields = {
+    new ObjectStreamField("schema", Schema.class),
+    new ObjectStreamField("fields", Map.class)
+  };
+
+  // Not final to allow deserialization through readObject
+  private Schema schema;
+  private Object[] values;
+
+  private StructuredRecord(Schema schema, Object[] values) {
     this.schema = schema;
-    this.fields = fields;
+    this.values = values;
   }
 
   /**
@@ -54,11 +69,95 @@ public class StructuredRecord implements Serializable {
    *
    * @param fieldName field to get.
    * @param <T> type of object of the field value.
-   * @return value of the field.
+   * @return value of the field, or {@code null} if the field is not in the schema.
    */
   @SuppressWarnings("unchecked")
   public <T> T get(String fieldName) {
-    return (T) fields.get(fieldName);
+    int idx = schema.getFieldIndex(fieldName);
+    return idx < 0 ? null : (T) values[idx];
+  }
+
+  /**
+   * Get the value of a field in the record by its position in the schema. This avoids the field name lookup
+   * and is preferable when the same fields are read from many records of the same schema.
+   *
+   * @param fieldIndex position of the field in {@link Schema#getFields()}.
+   * @param <T> type of object of the field value.
+   * @return value of the field.
+   * @throws IndexOutOfBoundsException if the index is not a valid field position.
+   * @see Schema#getFieldIndex(String)
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T get(int fieldIndex) {
+    return (T) values[fieldIndex];
+  }
+
+  /**
+   * Get the value of an int field in the record.
+   *
+   * @param fieldName field to get.
+   * @return value of the field.
+   * @throws UnexpectedFormatException if the field is not in the schema or the value is not an int.
+   */
+  public int getInt(String fieldName) {
+    return getNonNull(fieldName, Integer.class);
+  }
+
+  /**
+   * Get the value of a long field in the record.
+   *
+   * @param fieldName field to get.
+   * @return value of the field.
+   * @throws UnexpectedFormatException if the field is not in the schema or the value is not a long.
+   */
+  public long getLong(String fieldName) {
+    return getNonNull(fieldName, Long.class);
+  }
+
+  /**
+   * Get the value of a float field in the record.
+   *
+   * @param fieldName field to get.
+   * @return value of the field.
+   * @throws UnexpectedFormatException if the field is not in the schema or the value is not a float.
+   */
+  public float getFloat(String fieldName) {
+    return getNonNull(fieldName, Float.class);
+  }
+
+  /**
+   * Get the value of a double field in the record.
+   *
+   * @param fieldName field to get.
+   * @return value of the field.
+   * @throws UnexpectedFormatException if the field is not in the schema or the value is not a double.
+   */
+  public double getDouble(String fieldName) {
+    return getNonNull(fieldName, Double.class);
+  }
+
+  /**
+   * Get the value of a boolean field in the record.
+   *
+   * @param fieldName field to get.
+   * @return value of the field.
+   * @throws UnexpectedFormatException if the field is not in the schema or the value is not a boolean.
+   */
+  public boolean getBoolean(String fieldName) {
+    return getNonNull(fieldName, Boolean.class);
+  }
+
+  private <T> T getNonNull(String fieldName, Class<T> type) {
+    int idx = schema.getFieldIndex(fieldName);
+    if (idx < 0) {
+      throw new UnexpectedFormatException("field " + fieldName + " is not in the schema.");
+    }
+    Object value = values[idx];
+    if (!type.isInstance(value)) {
+      throw new UnexpectedFormatException("field " + fieldName + " is not of type " + type.getSimpleName() +
+                                            ", value is " + value);
+    }
+    return type.cast(value);
   }
 
   /**
@@ -81,11 +180,17 @@ public class StructuredRecord implements Serializable {
    */
   public static class Builder {
     private final Schema schema;
-    private Map<String, Object> fields;
+    private final List<Schema.Field> schemaFields;
+    private final boolean[] fieldsSet;
+    private Object[] values;
+    // Whether the values array has been handed to a record, in which case it must be copied before modification
+    private boolean built;
 
     private Builder(Schema schema) {
       this.schema = schema;
-      this.fields = new HashMap<>();
+      this.schemaFields = schema.getFields();
+      this.fieldsSet = new boolean[schemaFields.size()];
+      this.values = new Object[schemaFields.size()];
     }
 
     /**
@@ -98,8 +203,7 @@ public class StructuredRecord implements Serializable {
      *                                   value is given.
      */
     public Builder set(String fieldName, Object value) {
-      validateAndGetField(fieldName, value);
-      fields.put(fieldName, value);
+      setValue(validateAndGetFieldIndex(fieldName, value), value);
       return this;
     }
 
@@ -114,8 +218,8 @@ public class StructuredRecord implements Serializable {
      *                                   value is given, or the string cannot be converted to the type for the field.
      */
     public Builder convertAndSet(String fieldName, String strVal) throws UnexpectedFormatException {
-      Schema.Field field = validateAndGetField(fieldName, strVal);
-      fields.put(fieldName, convertString(field.getSchema(), strVal));
+      int idx = validateAndGetFieldIndex(fieldName, strVal);
+      setValue(idx, convertString(schemaFields.get(idx).getSchema(), strVal));
       return this;
     }
 
@@ -126,20 +230,23 @@ public class StructuredRecord implements Serializable {
      * @throws UnexpectedFormatException if there is at least one non-nullable field without a value.
      */
     public StructuredRecord build() throws UnexpectedFormatException {
-      // check that all non-nullable fields have a value.
-      for (Schema.Field field : schema.getFields()) {
-        String fieldName = field.getName();
-        if (!fields.containsKey(fieldName)) {
-          // if the field is not nullable and there is no value set for the field, this is invalid.
-          if (!field.getSchema().isNullable()) {
-            throw new UnexpectedFormatException("Field " + fieldName + " must contain a value.");
-          } else {
-            // otherwise, set the value for the field to null
-            fields.put(fieldName, null);
-          }
+      // check that all non-nullable fields have a value. Fields without a value are left as null.
+      for (int i = 0; i < fieldsSet.length; i++) {
+        if (!fieldsSet[i] && !schemaFields.get(i).getSchema().isNullable()) {
+          throw new UnexpectedFormatException("Field " + schemaFields.get(i).getName() + " must contain a value.");
         }
       }
-      return new StructuredRecord(schema, fields);
+      built = true;
+      return new StructuredRecord(schema, values);
+    }
+
+    private void setValue(int idx, Object value) {
+      if (built) {
+        values = Arrays.copyOf(values, values.length);
+        built = false;
+      }
+      values[idx] = value;
+      fieldsSet[idx] = true;
     }
 
     private Object convertString(Schema schema, String strVal) throws UnexpectedFormatException {
@@ -181,15 +288,39 @@ public class StructuredRecord implements Serializable {
       }
     }
 
-    private Schema.Field validateAndGetField(String fieldName, Object val) {
-      Schema.Field field = schema.getField(fieldName);
-      if (field == null) {
+    private int validateAndGetFieldIndex(String fieldName, Object val) {
+      int idx = schema.getFieldIndex(fieldName);
+      if (idx < 0) {
         throw new UnexpectedFormatException("field " + fieldName + " is not in the schema.");
       }
-      if (!field.getSchema().isNullable() && val == null) {
+      if (val == null && !schemaFields.get(idx).getSchema().isNullable()) {
         throw new UnexpectedFormatException("field " + fieldName + " cannot be set to a null value.");
       }
-      return field;
+      return idx;
+    }
+  }
+
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    List<Schema.Field> schemaFields = schema.getFields();
+    Map<String, Object> fields = new HashMap<>();
+    for (int i = 0; i < values.length; i++) {
+      fields.put(schemaFields.get(i).getName(), values[i]);
+    }
+    ObjectOutputStream.PutField putField = out.putFields();
+    putField.put("schema", schema);
+    putField.put("fields", fields);
+    out.writeFields();
+  }
+
+  @SuppressWarnings("unchecked")
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    ObjectInputStream.GetField getField = in.readFields();
+    schema = (Schema) getField.get("schema", null);
+    Map<String, Object> fields = (Map<String, Object>) getField.get("fields", null);
+    List<Schema.Field> schemaFields = schema.getFields();
+    values = new Object[schemaFields.size()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = fields.get(schemaFields.get(i).getName());
     }
   }
 
@@ -204,12 +335,12 @@ public class StructuredRecord implements Serializable {
 
     StructuredRecord that = (StructuredRecord) o;
 
-    return Objects.equals(schema, that.schema) && Objects.equals(fields, that.fields);
+    return Objects.equals(schema, that.schema) && Arrays.equals(values, that.values);
 
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(schema, fields);
+    return 31 * Objects.hashCode(schema) + Arrays.hashCode(values);
   }
 }
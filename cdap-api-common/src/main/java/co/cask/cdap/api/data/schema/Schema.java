@@ -381,6 +381,8 @@ public final class Schema implements Serializable {
   // No need to serialize the schemaString to save space
   // It can be recomputed on demand (and usually it is not used in the context that serialization is used)
   private transient String schemaString;
+  // Lazily computed mapping from record field name to its position in the fields list
+  private transient volatile Map<String, Integer> fieldIndexes;
   private SchemaHash schemaHash;
 
   private Schema(Type type, Set<String> enumValues, Schema componentSchema, Schema keySchema, Schema valueSchema,
@@ -485,6 +487,29 @@ public final class Schema implements Serializable {
     return fieldMap.get(name);
   }
 
+  /**
+   * Returns the position of the record {@link Field} of the given name in the list returned by {@link #getFields()}.
+   *
+   * @param name Name of the field
+   * @return The 0-base index of the field or {@code -1} if there is no such field in this record
+   *         or this is not a {@link Type#RECORD RECORD} schema.
+   */
+  public int getFieldIndex(String name) {
+    if (fields == null) {
+      return -1;
+    }
+    Map<String, Integer> indexes = fieldIndexes;
+    if (indexes == null) {
+      indexes = new HashMap<>();
+      for (int i = 0; i < fields.size(); i++) {
+        indexes.put(fields.get(i).getName(), i);
+      }
+      fieldIndexes = indexes;
+    }
+    Integer idx = indexes.get(name);
+    return idx == null ? -1 : idx;
+  }
+
   /**
    * @return An immutable {@link List} of schemas inside this union
    *         or {@code null} if this is not a {@link Type#UNION UNION} schema.
@@ -36,6 +36,7 @@ import co.cask.cdap.data.runtime.DataSetsModules;
 import co.cask.cdap.data.stream.StreamAdminModules;
 import co.cask.cdap.data.view.ViewAdminModules;
 import co.cask.cdap.data2.audit.AuditModule;
+import co.cask.cdap.data2.metadata.writer.BufferedLineageWriter;
 import co.cask.cdap.data2.metadata.writer.LineageWriter;
 import co.cask.cdap.data2.registry.RuntimeUsageRegistry;
 import co.cask.cdap.explore.client.ExploreClient;
@@ -94,8 +95,17 @@ public class DistributedProgramRunnableModule {
     return Modules.override(combined).with(new AbstractModule() {
       @Override
       protected void configure() {
-        bind(LineageWriter.class).to(RemoteLineageWriter.class);
-        bind(RuntimeUsageRegistry.class).to(RemoteRuntimeUsageRegistry.class).in(Scopes.SINGLETON);
+        bind(LineageWriter.class)
+          .annotatedWith(Names.named(BufferedLineageWriter.LINEAGE_WRITER_DELEGATE))
+          .to(RemoteLineageWriter.class);
+        bind(RuntimeUsageRegistry.class)
+          .annotatedWith(Names.named(BufferedLineageWriter.USAGE_REGISTRY_DELEGATE))
+          .to(RemoteRuntimeUsageRegistry.class).in(Scopes.SINGLETON);
+        // records are only buffered while the BufferedLineageWriter service is running, which is the case in
+        // program containers; everywhere else they are written through to the remote writers
+        bind(BufferedLineageWriter.class).in(Scopes.SINGLETON);
+        bind(LineageWriter.class).to(BufferedLineageWriter.class);
+        bind(RuntimeUsageRegistry.class).to(BufferedLineageWriter.class);
       }
     });
   }
@@ -18,6 +18,7 @@ package co.cask.cdap.gateway.handlers.meta;
 
 import co.cask.cdap.common.internal.remote.MethodArgument;
 import co.cask.cdap.data2.metadata.lineage.AccessType;
+import co.cask.cdap.data2.metadata.lineage.DataAccess;
 import co.cask.cdap.data2.metadata.writer.LineageWriter;
 import co.cask.cdap.proto.id.DatasetId;
 import co.cask.cdap.proto.id.NamespacedEntityId;
@@ -25,10 +26,13 @@ import co.cask.cdap.proto.id.ProgramRunId;
 import co.cask.cdap.proto.id.StreamId;
 import co.cask.http.HttpResponder;
 import com.google.inject.Inject;
+import com.google.inject.TypeLiteral;
 import org.jboss.netty.handler.codec.http.HttpRequest;
 import org.jboss.netty.handler.codec.http.HttpResponseStatus;
 
+import java.lang.reflect.Type;
 import java.util.Iterator;
+import java.util.List;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 
@@ -38,6 +42,8 @@ import javax.ws.rs.Path;
 @Path(AbstractRemoteSystemOpsHandler.VERSION + "/execute")
 public class RemoteLineageWriterHandler extends AbstractRemoteSystemOpsHandler {
 
+  private static final Type LIST_OF_DATA_ACCESSES = new TypeLiteral<List<DataAccess>>() { }.getType();
+
   private final LineageWriter lineageWriter;
 
   @Inject
@@ -72,4 +78,15 @@ public class RemoteLineageWriterHandler extends AbstractRemoteSystemOpsHandler {
 
     responder.sendStatus(HttpResponseStatus.OK);
   }
+
+  @POST
+  @Path("/addAccesses")
+  public void addAccesses(HttpRequest request, HttpResponder responder) throws Exception {
+    Iterator<MethodArgument> arguments = parseArguments(request);
+
+    List<DataAccess> accesses = deserializeNext(arguments, LIST_OF_DATA_ACCESSES);
+    lineageWriter.addAccesses(accesses);
+
+    responder.sendStatus(HttpResponseStatus.OK);
+  }
 }
@@ -17,16 +17,20 @@
 package co.cask.cdap.gateway.handlers.meta;
 
 import co.cask.cdap.common.internal.remote.MethodArgument;
+import co.cask.cdap.data2.registry.DataUsage;
 import co.cask.cdap.data2.registry.UsageRegistry;
 import co.cask.cdap.proto.id.DatasetId;
 import co.cask.cdap.proto.id.ProgramId;
 import co.cask.cdap.proto.id.StreamId;
 import co.cask.http.HttpResponder;
 import com.google.inject.Inject;
+import com.google.inject.TypeLiteral;
 import org.jboss.netty.handler.codec.http.HttpRequest;
 import org.jboss.netty.handler.codec.http.HttpResponseStatus;
 
+import java.lang.reflect.Type;
 import java.util.Iterator;
+import java.util.List;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 
@@ -36,6 +40,8 @@ import javax.ws.rs.Path;
 @Path(AbstractRemoteSystemOpsHandler.VERSION + "/execute")
 public class RemoteUsageRegistryHandler extends AbstractRemoteSystemOpsHandler {
 
+  private static final Type LIST_OF_DATA_USAGES = new TypeLiteral<List<DataUsage>>() { }.getType();
+
   private final UsageRegistry usageRegistry;
 
   @Inject
@@ -66,4 +72,15 @@ public class RemoteUsageRegistryHandler extends AbstractRemoteSystemOpsHandler {
 
     responder.sendStatus(HttpResponseStatus.OK);
   }
+
+  @POST
+  @Path("/registerUsages")
+  public void registerUsages(HttpRequest request, HttpResponder responder) throws Exception {
+    Iterator<MethodArgument> arguments = parseArguments(request);
+
+    List<DataUsage> usages = deserializeNext(arguments, LIST_OF_DATA_USAGES);
+    usageRegistry.registerAll(usages);
+
+    responder.sendStatus(HttpResponseStatus.OK);
+  }
 }
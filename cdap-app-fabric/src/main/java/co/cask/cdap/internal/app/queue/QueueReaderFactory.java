@@ -26,6 +26,7 @@ import co.cask.cdap.security.spi.authentication.AuthenticationContext;
 import co.cask.cdap.security.spi.authorization.AuthorizationEnforcer;
 import com.google.common.base.Function;
 import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.inject.Inject;
 
 import java.nio.ByteBuffer;
@@ -46,11 +47,30 @@ public final class QueueReaderFactory {
 
   public <T> QueueReader<T> createQueueReader(Supplier<QueueConsumer> consumerSupplier,
                                               int batchSize, Function<ByteBuffer, T> decoder) {
+    return createQueueReader(consumerSupplier, Suppliers.ofInstance(batchSize), decoder);
+  }
+
+  /**
+   * Creates a {@link QueueReader} for reading from queue, with the batch size for each dequeue provided by
+   * the given {@link Supplier}.
+   */
+  public <T> QueueReader<T> createQueueReader(Supplier<QueueConsumer> consumerSupplier,
+                                              Supplier<Integer> batchSize, Function<ByteBuffer, T> decoder) {
     return new SingleQueue2Reader<>(consumerSupplier, batchSize, decoder);
   }
 
   public <T> QueueReader<T> createStreamReader(StreamId streamId, Supplier<StreamConsumer> consumerSupplier,
                                                int batchSize, Function<StreamEvent, T> transformer) throws Exception {
+    return createStreamReader(streamId, consumerSupplier, Suppliers.ofInstance(batchSize), transformer);
+  }
+
+  /**
+   * Creates a {@link QueueReader} for reading from stream, with the batch size for each dequeue provided by
+   * the given {@link Supplier}.
+   */
+  public <T> QueueReader<T> createStreamReader(StreamId streamId, Supplier<StreamConsumer> consumerSupplier,
+                                               Supplier<Integer> batchSize,
+                                               Function<StreamEvent, T> transformer) throws Exception {
     authorizationEnforcer.enforce(streamId, authenticationContext.getPrincipal(), Action.READ);
     return new StreamQueueReader<>(streamId, consumerSupplier, batchSize, transformer, authenticationContext,
                                    authorizationEnforcer);
@@ -20,6 +20,7 @@ import co.cask.cdap.api.metrics.MetricsCollectionService;
 import co.cask.cdap.app.guice.DistributedProgramRunnableModule;
 import co.cask.cdap.app.runtime.ProgramOptions;
 import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.data2.metadata.writer.BufferedLineageWriter;
 import co.cask.cdap.internal.app.runtime.ProgramOptionConstants;
 import co.cask.cdap.internal.app.runtime.SystemArguments;
 import co.cask.cdap.internal.app.runtime.batch.MapReduceClassLoader;
@@ -49,6 +50,7 @@ public final class DistributedMapReduceTaskContextProvider extends MapReduceTask
   private final KafkaClientService kafkaClientService;
   private final MetricsCollectionService metricsCollectionService;
   private final AuthorizationEnforcementService authorizationEnforcementService;
+  private final BufferedLineageWriter lineageWriter;
   private final MapReduceContextConfig mapReduceContextConfig;
   private final LogAppenderInitializer logAppenderInitializer;
 
@@ -62,6 +64,7 @@ public final class DistributedMapReduceTaskContextProvider extends MapReduceTask
     this.metricsCollectionService = injector.getInstance(MetricsCollectionService.class);
     this.logAppenderInitializer = injector.getInstance(LogAppenderInitializer.class);
     this.authorizationEnforcementService = injector.getInstance(AuthorizationEnforcementService.class);
+    this.lineageWriter = injector.getInstance(BufferedLineageWriter.class);
     this.mapReduceContextConfig = new MapReduceContextConfig(hConf);
   }
 
@@ -72,12 +75,13 @@ public final class DistributedMapReduceTaskContextProvider extends MapReduceTask
       List<ListenableFuture<State>> startFutures = Services.chainStart(zkClientService,
                                                                        kafkaClientService,
                                                                        metricsCollectionService,
-                                                                       authorizationEnforcementService).get();
+                                                                       authorizationEnforcementService,
+                                                                       lineageWriter).get();
       // All services should be started
       for (ListenableFuture<State> future : startFutures) {
-        Preconditions.checkState(future.get() == State.RUNNING, "Failed to start services: %s, %s, %s, %s",
+        Preconditions.checkState(future.get() == State.RUNNING, "Failed to start services: %s, %s, %s, %s, %s",
                                  zkClientService, kafkaClientService, metricsCollectionService,
-                                 authorizationEnforcementService);
+                                 authorizationEnforcementService, lineageWriter);
       }
       logAppenderInitializer.initialize();
       ProgramOptions programOptions = mapReduceContextConfig.getProgramOptions();
@@ -103,7 +107,7 @@ public final class DistributedMapReduceTaskContextProvider extends MapReduceTask
       failure = e;
     }
     try {
-      Services.chainStop(metricsCollectionService, kafkaClientService, zkClientService,
+      Services.chainStop(lineageWriter, metricsCollectionService, kafkaClientService, zkClientService,
                          authorizationEnforcementService).get();
     } catch (Exception e) {
       if (failure != null) {
@@ -30,6 +30,7 @@ import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.io.Locations;
 import co.cask.cdap.common.lang.jar.BundleJarUtil;
 import co.cask.cdap.data.stream.StreamCoordinatorClient;
+import co.cask.cdap.data2.metadata.writer.BufferedLineageWriter;
 import co.cask.cdap.internal.app.ApplicationSpecificationAdapter;
 import co.cask.cdap.internal.app.runtime.AbstractListener;
 import co.cask.cdap.internal.app.runtime.BasicArguments;
@@ -116,6 +117,7 @@ public abstract class AbstractProgramTwillRunnable<T extends ProgramRunner> impl
   private CConfiguration cConf;
   private List<Service> coreServices;
   private LogAppenderInitializer logAppenderInitializer;
+  private BufferedLineageWriter lineageWriter;
   private CountDownLatch runLatch;
 
   /**
@@ -182,6 +184,8 @@ public abstract class AbstractProgramTwillRunnable<T extends ProgramRunner> impl
       coreServices.add(injector.getInstance(MetricsCollectionService.class));
       coreServices.add(injector.getInstance(StreamCoordinatorClient.class));
       coreServices.add(injector.getInstance(AuthorizationEnforcementService.class));
+      lineageWriter = injector.getInstance(BufferedLineageWriter.class);
+      coreServices.add(lineageWriter);
 
       // Initialize log appender
       logAppenderInitializer = injector.getInstance(LogAppenderInitializer.class);
@@ -292,6 +296,13 @@ public abstract class AbstractProgramTwillRunnable<T extends ProgramRunner> impl
       @Override
       public void alive() {
         runLatch.countDown();
+        // write the lineage recorded while the program was starting
+        lineageWriter.flush();
+      }
+
+      @Override
+      public void suspended() {
+        lineageWriter.flush();
       }
 
       @Override
@@ -305,17 +316,20 @@ public abstract class AbstractProgramTwillRunnable<T extends ProgramRunner> impl
 
       @Override
       public void completed() {
+        lineageWriter.flush();
         state.set(ProgramController.State.COMPLETED);
       }
 
       @Override
       public void killed() {
+        lineageWriter.flush();
         state.set(ProgramController.State.KILLED);
       }
 
       @Override
       public void error(Throwable cause) {
         LOG.error("Program runner error out.", cause);
+        lineageWriter.flush();
         state.setException(cause);
       }
     }, MoreExecutors.sameThreadExecutor());
@@ -0,0 +1,127 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.internal.app.runtime.flow;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+
+import java.util.concurrent.TimeUnit;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Tunes the dequeue batch size of a batch process method based on the observed time of each
+ * dequeue-process-commit cycle. The batch size keeps doubling as long as the cost per event doesn't get worse
+ * and a cycle stays within the target time. It is halved when a cycle takes longer than the target time,
+ * when the cost per event gets worse, or when processing failed.
+ *
+ * Instance of this class is only accessed from the flowlet process thread.
+ */
+@NotThreadSafe
+final class BatchSizeController implements Supplier<Integer> {
+
+  // Tolerance of per event cost increase before considering the batch size being too large, in percent
+  private static final int COST_TOLERANCE_PERCENT = 10;
+
+  // Number of cycles to stay at the current batch size after a shrink before probing a larger size again
+  private static final int HOLD_CYCLES = 100;
+
+  private final int minBatchSize;
+  private final int maxBatchSize;
+  private final long targetCycleNanos;
+
+  private int batchSize;
+  private long lastCostPerEvent;
+  private int holdCycles;
+
+  /**
+   * Creates an instance.
+   *
+   * @param initialBatchSize the batch size to start with
+   * @param maxBatchSize upper bound of the batch size
+   * @param targetCycleMillis target time in milliseconds for a dequeue-process-commit cycle
+   */
+  BatchSizeController(int initialBatchSize, int maxBatchSize, long targetCycleMillis) {
+    Preconditions.checkArgument(initialBatchSize > 0, "Initial batch size must be > 0");
+    Preconditions.checkArgument(targetCycleMillis > 0, "Target cycle time must be > 0");
+    this.minBatchSize = 1;
+    this.maxBatchSize = Math.max(initialBatchSize, maxBatchSize);
+    this.targetCycleNanos = TimeUnit.MILLISECONDS.toNanos(targetCycleMillis);
+    this.batchSize = initialBatchSize;
+  }
+
+  /**
+   * Returns the batch size to use for the next dequeue.
+   */
+  @Override
+  public Integer get() {
+    return batchSize;
+  }
+
+  /**
+   * Updates the batch size based on a successful cycle.
+   *
+   * @param events number of events processed in the cycle
+   * @param cycleNanos time in nanoseconds spent in the cycle
+   */
+  void completed(int events, long cycleNanos) {
+    if (cycleNanos > targetCycleNanos) {
+      shrink();
+      return;
+    }
+
+    // If the dequeue returned less than the batch size, the flowlet is bounded by the input rate,
+    // hence there is nothing to learn from this cycle.
+    if (events <= 0 || events < batchSize) {
+      return;
+    }
+
+    long costPerEvent = cycleNanos / events;
+    if (lastCostPerEvent > 0 && costPerEvent > lastCostPerEvent * (100 + COST_TOLERANCE_PERCENT) / 100) {
+      shrink();
+      return;
+    }
+
+    lastCostPerEvent = costPerEvent;
+    if (holdCycles > 0) {
+      holdCycles--;
+      return;
+    }
+    batchSize = (int) Math.min((long) batchSize * 2, maxBatchSize);
+  }
+
+  /**
+   * Updates the batch size based on a failed cycle.
+   */
+  void failed() {
+    shrink();
+  }
+
+  private void shrink() {
+    batchSize = Math.max(minBatchSize, batchSize / 2);
+    lastCostPerEvent = 0;
+    holdCycles = HOLD_CYCLES;
+  }
+
+  @Override
+  public String toString() {
+    return Objects.toStringHelper(this)
+      .add("batchSize", batchSize)
+      .add("maxBatchSize", maxBatchSize)
+      .toString();
+  }
+}
@@ -67,6 +67,7 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
   private final Callback txCallback;
   private final LoggingContext loggingContext;
   private final PriorityQueue<FlowletProcessEntry<?>> processQueue;
+  private final LoadingCache<String, MetricsContext> queueMetricsContexts;
 
   private Thread runThread;
   private ExecutorService processExecutor;
@@ -79,6 +80,7 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
     this.dataFabricFacade = dataFabricFacade;
     this.txCallback = txCallback;
     this.loggingContext = flowletContext.getLoggingContext();
+    this.queueMetricsContexts = createQueueMetricsContexts(flowletContext);
 
     processQueue = new PriorityQueue<>(processSpecifications.size());
     for (ProcessSpecification<?> spec : processSpecifications) {
@@ -97,6 +99,7 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
     this.dataFabricFacade = other.dataFabricFacade;
     this.txCallback = other.txCallback;
     this.loggingContext = other.loggingContext;
+    this.queueMetricsContexts = other.queueMetricsContexts;
     this.processQueue = new PriorityQueue<>(other.processQueue.size());
     Iterables.addAll(processQueue, other.processQueue);
   }
@@ -140,10 +143,6 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
         continue;
       }
 
-      processList.clear();
-      // Drain the process queue so that all entries in the queue will be inspected to see if it's time to process
-      drainQueue(processQueue, processList);
-
       // Execute the process method and block until it finished.
       Future<?> processFuture = processExecutor.submit(processRunner);
       while (!processFuture.isDone()) {
@@ -181,7 +180,9 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
   }
 
   /**
-   * Creates a {@link Runnable} for execution of calling flowlet process methods.
+   * Creates a {@link Runnable} for execution of calling flowlet process methods. The {@link Runnable} keeps
+   * running dequeue-process-commit cycles back to back for as long as there are entries ready to be processed,
+   * so that the driver thread is only involved when it needs to wait for the next entry.
    */
   private Runnable createProcessRunner(final PriorityQueue<FlowletProcessEntry<?>> processQueue,
                                        final List<FlowletProcessEntry<?>> processList,
@@ -190,15 +191,21 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
       @Override
       public void run() {
         Thread.currentThread().setContextClassLoader(classLoader);
-        for (FlowletProcessEntry<?> entry : processList) {
-          if (!handleProcessEntry(entry, processQueue)) {
-            // If an entry is not processed (because it's not the time yet), just put it back to the queue
-            // Otherwise, it's up to the process result callback to handle re-enqueue of the entry. The callback
-            // will determine what entry to put it back, as it can be the original entry or a retry entry wrapper,
-            // depending on the process result.
-            processQueue.offer(entry);
+        do {
+          processList.clear();
+          // Drain the process queue so that all entries in the queue will be inspected to see if it's time to process
+          drainQueue(processQueue, processList);
+
+          for (FlowletProcessEntry<?> entry : processList) {
+            if (!handleProcessEntry(entry, processQueue)) {
+              // If an entry is not processed (because it's not the time yet), just put it back to the queue
+              // Otherwise, it's up to the process result callback to handle re-enqueue of the entry. The callback
+              // will determine what entry to put it back, as it can be the original entry or a retry entry wrapper,
+              // depending on the process result.
+              processQueue.offer(entry);
+            }
           }
-        }
+        } while (isRunning() && !Thread.currentThread().isInterrupted() && processQueue.peek().shouldProcess());
       }
     };
   }
@@ -230,7 +237,9 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
       startTx(txContext);
 
       try {
+        long dequeueStart = System.nanoTime();
         InputDatum<T> input = entry.getProcessSpec().getQueueReader().dequeue(0, TimeUnit.MILLISECONDS);
+        long processStart = System.nanoTime();
         if (!input.needProcess()) {
           entry.backOff();
           // End the transaction if nothing in the queue
@@ -244,7 +253,9 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
         // Call the process method and commit the transaction. The current process entry will put
         // back to queue in the postProcess method (either a retry copy or itself).
         ProcessMethod.ProcessResult<?> result = processMethod.invoke(input);
-        postProcess(processMethodCallback(processQueue, entry, input), txContext, input, result);
+        long processEnd = System.nanoTime();
+        postProcess(processMethodCallback(processQueue, entry, input), txContext, input, result,
+                    new CycleTimings(entry.getProcessSpec(), processStart - dequeueStart, processEnd - processStart));
         return true;
 
       } catch (Throwable t) {
@@ -276,10 +287,11 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
    * Process the process result. This method never throws.
    */
   private void postProcess(ProcessMethodCallback callback, TransactionContext txContext,
-                           InputDatum input, ProcessMethod.ProcessResult result) {
+                           InputDatum input, ProcessMethod.ProcessResult result, CycleTimings timings) {
     InputContext inputContext = input.getInputContext();
     Throwable failureCause = null;
     FailureReason.Type failureType = FailureReason.Type.IO_ERROR;
+    long commitStart = System.nanoTime();
     try {
       if (result.isSuccess()) {
         // If it is a retry input, force the dequeued entries into current transaction.
@@ -306,6 +318,7 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
         LOG.error("Fail to abort transaction: {}", inputContext, ex);
       }
     }
+    recordCycle(input, timings, System.nanoTime() - commitStart, failureCause == null);
 
     try {
       if (failureCause == null) {
@@ -320,6 +333,33 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
     }
   }
 
+  /**
+   * Emits the time spent in each phase of a dequeue-process-commit cycle and updates the batch size of the
+   * process method if it is adaptive.
+   */
+  private void recordCycle(InputDatum input, CycleTimings timings, long commitNanos, boolean success) {
+    MetricsContext metrics = flowletContext.getProgramMetrics();
+    metrics.increment("process.dequeue.time.us", TimeUnit.NANOSECONDS.toMicros(timings.dequeueNanos));
+    metrics.increment("process.invoke.time.us", TimeUnit.NANOSECONDS.toMicros(timings.processNanos));
+    metrics.increment("process.commit.time.us", TimeUnit.NANOSECONDS.toMicros(commitNanos));
+
+    BatchSizeController batchSizeController = timings.processSpec.getBatchSizeController();
+    if (batchSizeController == null) {
+      return;
+    }
+    if (success) {
+      batchSizeController.completed(input.size(), timings.dequeueNanos + timings.processNanos + commitNanos);
+    } else {
+      batchSizeController.failed();
+    }
+
+    QueueName queueName = input.getQueueName();
+    if (queueName != null) {
+      metrics = queueMetricsContexts.getUnchecked(queueName.getSimpleName());
+    }
+    metrics.gauge("process.batch.size", batchSizeController.get());
+  }
+
   private InputAcknowledger createInputAcknowledger(final InputDatum input) {
     return new InputAcknowledger() {
       @Override
@@ -332,6 +372,18 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
     };
   }
 
+  private static LoadingCache<String, MetricsContext> createQueueMetricsContexts(
+    final BasicFlowletContext flowletContext) {
+    return CacheBuilder.newBuilder()
+      .expireAfterAccess(1, TimeUnit.HOURS)
+      .build(new CacheLoader<String, MetricsContext>() {
+        @Override
+        public MetricsContext load(String key) throws Exception {
+          return flowletContext.getProgramMetrics().childContext(Constants.Metrics.Tag.FLOWLET_QUEUE, key);
+        }
+      });
+  }
+
   private <T> ProcessMethodCallback processMethodCallback(final PriorityQueue<FlowletProcessEntry<?>> processQueue,
                                                           final FlowletProcessEntry<T> processEntry,
                                                           final InputDatum<T> input) {
@@ -339,15 +391,6 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
     final int processedCount = processEntry.getProcessSpec().getProcessMethod().needsInput() ? input.size() : 1;
 
     return new ProcessMethodCallback() {
-      private final LoadingCache<String, MetricsContext> queueMetricsCollectors = CacheBuilder.newBuilder()
-        .expireAfterAccess(1, TimeUnit.HOURS)
-        .build(new CacheLoader<String, MetricsContext>() {
-          @Override
-          public MetricsContext load(String key) throws Exception {
-            return flowletContext.getProgramMetrics().childContext(Constants.Metrics.Tag.FLOWLET_QUEUE, key);
-          }
-        });
-
       @Override
       public void onSuccess(Object object, InputContext inputContext) {
         try {
@@ -414,10 +457,25 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
         } else if (inputQueueName == null) {
           flowletContext.getProgramMetrics().increment("process.events.processed", processedCount);
         } else {
-          queueMetricsCollectors.getUnchecked(inputQueueName.getSimpleName())
+          queueMetricsContexts.getUnchecked(inputQueueName.getSimpleName())
             .increment("process.events.processed", processedCount);
         }
       }
     };
   }
+
+  /**
+   * Time spent in the dequeue and process phases of a cycle.
+   */
+  private static final class CycleTimings {
+    private final ProcessSpecification<?> processSpec;
+    private final long dequeueNanos;
+    private final long processNanos;
+
+    private CycleTimings(ProcessSpecification<?> processSpec, long dequeueNanos, long processNanos) {
+      this.processSpec = processSpec;
+      this.dequeueNanos = dequeueNanos;
+      this.processNanos = processNanos;
+    }
+  }
 }
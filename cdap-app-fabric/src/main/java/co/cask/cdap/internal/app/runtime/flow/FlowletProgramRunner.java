@@ -90,6 +90,8 @@ import co.cask.common.io.ByteBufferInputStream;
 import com.google.common.base.Function;
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
@@ -347,6 +349,7 @@ public final class FlowletProgramRunner implements ProgramRunner {
         TypeToken<?> dataType;
         ConsumerConfig consumerConfig;
         int batchSize = 1;
+        BatchSizeController batchSizeController = null;
 
         if (tickAnnotation != null) {
           inputNames = ImmutableSet.of();
@@ -371,6 +374,11 @@ public final class FlowletProgramRunner implements ProgramRunner {
               dataType = flowletType.resolveType(((ParameterizedType) dataType.getType()).getActualTypeArguments()[0]);
             }
             batchSize = processBatchSize;
+            if (cConf.getBoolean(Constants.AppFabric.FLOWLET_ADAPTIVE_BATCH_ENABLED)) {
+              batchSizeController = new BatchSizeController(
+                batchSize, cConf.getInt(Constants.AppFabric.FLOWLET_ADAPTIVE_BATCH_MAX_SIZE),
+                cConf.getLong(Constants.AppFabric.FLOWLET_ADAPTIVE_BATCH_TARGET_MS));
+            }
           }
 
           try {
@@ -381,7 +389,8 @@ public final class FlowletProgramRunner implements ProgramRunner {
         }
 
         ProcessSpecification processSpec = processSpecFactory.create(inputNames, schema, dataType, processMethod,
-                                                                     consumerConfig, batchSize, tickAnnotation);
+                                                                     consumerConfig, batchSize, batchSizeController,
+                                                                     tickAnnotation);
         // Add processSpec
         if (processSpec != null) {
           result.add(processSpec);
@@ -541,10 +550,11 @@ public final class FlowletProgramRunner implements ProgramRunner {
   }
 
   private ProcessMethodFactory processMethodFactory(final Flowlet flowlet) {
+    final ProcessMethodInvokerFactory invokerFactory = new ProcessMethodInvokerFactory();
     return new ProcessMethodFactory() {
       @Override
       public <T> ProcessMethod<T> create(Method method, int maxRetries) {
-        return ReflectionProcessMethod.create(flowlet, method, maxRetries);
+        return ReflectionProcessMethod.create(flowlet, method, maxRetries, invokerFactory);
       }
     };
   }
@@ -560,8 +570,11 @@ public final class FlowletProgramRunner implements ProgramRunner {
       @Override
       public <T> ProcessSpecification create(Set<String> inputNames, Schema schema, TypeToken<T> dataType,
                                              ProcessMethod<T> method, ConsumerConfig consumerConfig, int batchSize,
+                                             @Nullable BatchSizeController batchSizeController,
                                              Tick tickAnnotation) throws Exception {
         List<QueueReader<T>> queueReaders = Lists.newLinkedList();
+        Supplier<Integer> batchSizeSupplier = batchSizeController == null
+          ? Suppliers.ofInstance(batchSize) : batchSizeController;
 
         for (Map.Entry<Node, Set<QueueSpecification>> entry : queueSpecs.column(flowletName).entrySet()) {
           for (QueueSpecification queueSpec : entry.getValue()) {
@@ -589,7 +602,7 @@ public final class FlowletProgramRunner implements ProgramRunner {
                 });
 
                 queueReaders.add(queueReaderFactory.createStreamReader(queueName.toStreamId(), consumerSupplier,
-                                                                       batchSize, decoder));
+                                                                       batchSizeSupplier, decoder));
 
               } else {
                 int numGroups = getNumGroups(Iterables.concat(queueSpecs.row(entry.getKey()).values()), queueName);
@@ -602,7 +615,7 @@ public final class FlowletProgramRunner implements ProgramRunner {
                                                                                            dataFabricFacade, queueName,
                                                                                            consumerConfig, numGroups);
                 queueConsumerSupplierBuilder.add(consumerSupplier);
-                queueReaders.add(queueReaderFactory.createQueueReader(consumerSupplier, batchSize, decoder));
+                queueReaders.add(queueReaderFactory.createQueueReader(consumerSupplier, batchSizeSupplier, decoder));
               }
             }
           }
@@ -612,7 +625,8 @@ public final class FlowletProgramRunner implements ProgramRunner {
         if (!inputNames.isEmpty() && queueReaders.isEmpty()) {
           return null;
         }
-        return new ProcessSpecification<>(new RoundRobinQueueReader<>(queueReaders), method, tickAnnotation);
+        return new ProcessSpecification<>(new RoundRobinQueueReader<>(queueReaders), method, tickAnnotation,
+                                          batchSizeController);
       }
     };
   }
@@ -729,6 +743,7 @@ public final class FlowletProgramRunner implements ProgramRunner {
      */
     <T> ProcessSpecification create(Set<String> inputNames, Schema schema, TypeToken<T> dataType,
                                     ProcessMethod<T> method, ConsumerConfig consumerConfig, int batchSize,
+                                    @Nullable BatchSizeController batchSizeController,
                                     Tick tickAnnotation) throws Exception;
   }
 
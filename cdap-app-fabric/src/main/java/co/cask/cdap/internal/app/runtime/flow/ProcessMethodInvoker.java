@@ -0,0 +1,36 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.internal.app.runtime.flow;
+
+import co.cask.cdap.api.flow.flowlet.InputContext;
+
+/**
+ * Invokes a flowlet process method for a single event. Implementations are either generated by
+ * {@link ProcessMethodInvokerGenerator} or backed by Java reflection.
+ */
+public interface ProcessMethodInvoker {
+
+  /**
+   * Calls the process method on the given flowlet instance. Exceptions raised by the process method
+   * are propagated as is.
+   *
+   * @param flowlet the flowlet instance
+   * @param event the event to process; ignored if the process method takes no parameter
+   * @param inputContext the {@link InputContext} of the event; ignored if the process method doesn't take it
+   */
+  void invoke(Object flowlet, Object event, InputContext inputContext) throws Exception;
+}
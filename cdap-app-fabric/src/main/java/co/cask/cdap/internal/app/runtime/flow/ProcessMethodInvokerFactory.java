@@ -0,0 +1,116 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.internal.app.runtime.flow;
+
+import co.cask.cdap.api.flow.flowlet.InputContext;
+import co.cask.cdap.internal.asm.ByteCodeClassLoader;
+import co.cask.cdap.internal.asm.ClassDefinition;
+import com.google.common.base.Throwables;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * A factory for creating {@link ProcessMethodInvoker}. It generates a class that calls the process method
+ * directly, and falls back to reflection if the method is not accessible from generated code or
+ * if the class generation failed.
+ */
+public final class ProcessMethodInvokerFactory {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ProcessMethodInvokerFactory.class);
+
+  private final boolean generateEnabled;
+
+  public ProcessMethodInvokerFactory() {
+    this(true);
+  }
+
+  /**
+   * Creates an instance.
+   *
+   * @param generateEnabled {@code true} to generate invoker classes; {@code false} to always use reflection
+   */
+  public ProcessMethodInvokerFactory(boolean generateEnabled) {
+    this.generateEnabled = generateEnabled;
+  }
+
+  /**
+   * Creates a {@link ProcessMethodInvoker} for the given process method.
+   */
+  public ProcessMethodInvoker create(Method method) {
+    if (generateEnabled && ProcessMethodInvokerGenerator.isSupported(method)) {
+      try {
+        return generate(method);
+      } catch (Throwable t) {
+        LOG.warn("Failed to generate invoker for process method {}. Using reflection instead.", method, t);
+      }
+    } else {
+      LOG.debug("Using reflection to invoke process method {}", method);
+    }
+    return new ReflectionInvoker(method);
+  }
+
+  private ProcessMethodInvoker generate(Method method) throws Exception {
+    ClassDefinition classDefinition = new ProcessMethodInvokerGenerator().generate(method);
+
+    // The ClassLoader of the generated invoker has CDAP system ClassLoader as parent.
+    // The ClassDefinition contains list of classes that should not be loaded by the generated class ClassLoader
+    ByteCodeClassLoader classLoader = new ByteCodeClassLoader(ProcessMethodInvokerFactory.class.getClassLoader());
+    classLoader.addClass(classDefinition);
+    Class<?> cls = classLoader.loadClass(classDefinition.getClassName());
+    return (ProcessMethodInvoker) cls.newInstance();
+  }
+
+  /**
+   * A {@link ProcessMethodInvoker} that calls the process method through reflection.
+   */
+  private static final class ReflectionInvoker implements ProcessMethodInvoker {
+
+    private final Method method;
+    private final boolean hasParam;
+    private final boolean needContext;
+
+    ReflectionInvoker(Method method) {
+      this.method = method;
+      this.hasParam = method.getParameterTypes().length > 0;
+      this.needContext = method.getParameterTypes().length == 2;
+
+      if (!method.isAccessible()) {
+        method.setAccessible(true);
+      }
+    }
+
+    @Override
+    public void invoke(Object flowlet, Object event, InputContext inputContext) throws Exception {
+      try {
+        if (needContext) {
+          method.invoke(flowlet, event, inputContext);
+        } else if (hasParam) {
+          method.invoke(flowlet, event);
+        } else {
+          method.invoke(flowlet);
+        }
+      } catch (InvocationTargetException e) {
+        Throwable cause = e.getCause();
+        Throwables.propagateIfPossible(cause, Exception.class);
+        throw e;
+      }
+    }
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.internal.app.runtime.flow;
+
+import co.cask.cdap.api.flow.flowlet.InputContext;
+import co.cask.cdap.internal.asm.ClassDefinition;
+import co.cask.cdap.internal.asm.Methods;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.hash.Hashing;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.commons.GeneratorAdapter;
+import org.objectweb.asm.commons.Method;
+
+import java.lang.reflect.Modifier;
+import java.util.List;
+
+/**
+ * Class for generating {@link ProcessMethodInvoker} bytecodes using ASM. For a process method
+ * {@code void process(String event, InputContext context)} declared in class {@code MyFlowlet}, the
+ * generated class looks like this:
+ * <pre>
+ * {@code
+ *
+ *   public final class MyFlowlet$processInvoker<md5> implements ProcessMethodInvoker {
+ *     public void invoke(Object flowlet, Object event, InputContext inputContext) throws Exception {
+ *       ((MyFlowlet) flowlet).process((String) event, inputContext);
+ *     }
+ *   }
+ * }
+ * </pre>
+ */
+final class ProcessMethodInvokerGenerator {
+
+  /**
+   * Returns {@code true} if the given method can be called from a generated class loaded by a different
+   * {@link ClassLoader}, which requires the method, its declaring class and all parameter types to be public.
+   */
+  static boolean isSupported(java.lang.reflect.Method method) {
+    if (!Modifier.isPublic(method.getModifiers()) || Modifier.isStatic(method.getModifiers())
+      || !isPublic(method.getDeclaringClass())) {
+      return false;
+    }
+    for (Class<?> paramType : method.getParameterTypes()) {
+      if (!isPublic(paramType)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Generates a {@link ProcessMethodInvoker} class that calls the given process method.
+   *
+   * @param method the process method
+   * @return A {@link ClassDefinition} that contains generated class information.
+   */
+  ClassDefinition generate(java.lang.reflect.Method method) {
+    Preconditions.checkArgument(isSupported(method), "Process method %s is not accessible", method);
+    Class<?> declaringClass = method.getDeclaringClass();
+    Class<?>[] paramTypes = method.getParameterTypes();
+    Preconditions.checkArgument(paramTypes.length <= 2, "Process method %s has too many parameters", method);
+
+    // The declaring class and parameter types may come from the program ClassLoader
+    List<Class<?>> preservedClasses = Lists.newArrayList();
+    preservedClasses.add(declaringClass);
+    for (Class<?> paramType : paramTypes) {
+      while (paramType.isArray()) {
+        paramType = paramType.getComponentType();
+      }
+      if (!paramType.isPrimitive()) {
+        preservedClasses.add(paramType);
+      }
+    }
+
+    String internalName = Type.getInternalName(declaringClass);
+    String className = internalName + "$" + method.getName() + "Invoker"
+      + Hashing.md5().hashString(method.toGenericString());
+    Type declaringType = Type.getType(declaringClass);
+
+    ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+    classWriter.visit(Opcodes.V1_6, Opcodes.ACC_PUBLIC + Opcodes.ACC_FINAL + Opcodes.ACC_SYNTHETIC,
+                      className, null, Type.getInternalName(Object.class),
+                      new String[] { Type.getInternalName(ProcessMethodInvoker.class) });
+
+    // Default constructor
+    Method constructor = Methods.getMethod(void.class, "<init>");
+    GeneratorAdapter mg = new GeneratorAdapter(Opcodes.ACC_PUBLIC, constructor, null, null, classWriter);
+    mg.loadThis();
+    mg.invokeConstructor(Type.getType(Object.class), constructor);
+    mg.returnValue();
+    mg.endMethod();
+
+    // public void invoke(Object flowlet, Object event, InputContext inputContext) throws Exception
+    Method invoke = Methods.getMethod(void.class, "invoke", Object.class, Object.class, InputContext.class);
+    mg = new GeneratorAdapter(Opcodes.ACC_PUBLIC, invoke, null,
+                              new Type[] { Type.getType(Exception.class) }, classWriter);
+
+    // ((DeclaringClass) flowlet).method(...)
+    mg.loadArg(0);
+    mg.checkCast(declaringType);
+    for (int i = 0; i < paramTypes.length; i++) {
+      // First parameter is the event, second one is the InputContext
+      mg.loadArg(i + 1);
+      mg.unbox(Type.getType(paramTypes[i]));
+    }
+    mg.invokeVirtual(declaringType, Method.getMethod(method));
+
+    // Discard the return value, if any
+    Type returnType = Type.getReturnType(method);
+    if (returnType.getSize() == 1) {
+      mg.pop();
+    } else if (returnType.getSize() == 2) {
+      mg.pop2();
+    }
+    mg.returnValue();
+    mg.endMethod();
+
+    classWriter.visitEnd();
+
+    ClassDefinition classDefinition = new ClassDefinition(classWriter.toByteArray(), className, preservedClasses);
+    // DEBUG block. Uncomment for debug
+//    co.cask.cdap.internal.asm.Debugs.debugByteCode(classDefinition, new java.io.PrintWriter(System.out));
+    // End DEBUG block
+    return classDefinition;
+  }
+
+  private static boolean isPublic(Class<?> cls) {
+    while (cls.isArray()) {
+      cls = cls.getComponentType();
+    }
+    return cls.isPrimitive() || Modifier.isPublic(cls.getModifiers());
+  }
+}
@@ -21,6 +21,7 @@ import co.cask.cdap.app.queue.QueueReader;
 import com.google.common.base.Objects;
 
 import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 
 /**
  *
@@ -31,12 +32,19 @@ final class ProcessSpecification<T> {
   private final ProcessMethod<T> processMethod;
   private final Tick tickAnnotation;
   private final boolean isTick;
+  private final BatchSizeController batchSizeController;
 
   ProcessSpecification(QueueReader<T> queueReader, ProcessMethod<T> processMethod, Tick tickAnnotation) {
+    this(queueReader, processMethod, tickAnnotation, null);
+  }
+
+  ProcessSpecification(QueueReader<T> queueReader, ProcessMethod<T> processMethod, Tick tickAnnotation,
+                       @Nullable BatchSizeController batchSizeController) {
     this.queueReader = queueReader;
     this.processMethod = processMethod;
     this.tickAnnotation = tickAnnotation;
     this.isTick = tickAnnotation != null;
+    this.batchSizeController = batchSizeController;
   }
 
   QueueReader<T> getQueueReader() {
@@ -63,6 +71,15 @@ final class ProcessSpecification<T> {
     return isTick;
   }
 
+  /**
+   * Returns the {@link BatchSizeController} for tuning the dequeue batch size or {@code null} if the batch size
+   * is fixed.
+   */
+  @Nullable
+  BatchSizeController getBatchSizeController() {
+    return batchSizeController;
+  }
+
   private long convertToNano(long time, TimeUnit unit) {
     return TimeUnit.NANOSECONDS.convert(time, unit);
   }
@@ -72,6 +89,7 @@ final class ProcessSpecification<T> {
     return Objects.toStringHelper(this)
       .add("queue", queueReader)
       .add("method", processMethod)
+      .add("batchSize", batchSizeController)
       .toString();
   }
 }
@@ -25,12 +25,15 @@ import com.google.common.reflect.TypeToken;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Iterator;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
 
 /**
- * Represents a {@link ProcessMethod} that invocation is done through reflection.
+ * Represents a {@link ProcessMethod} that is introspected through reflection. The actual invocation is
+ * done through a {@link ProcessMethodInvoker}.
  * @param <T> Type of input accepted by this process method.
  */
 @NotThreadSafe
@@ -40,30 +43,31 @@ public final class ReflectionProcessMethod<T> implements ProcessMethod<T> {
 
   private final Flowlet flowlet;
   private final Method method;
+  private final ProcessMethodInvoker invoker;
   private final boolean hasParam;
   private final boolean batch;
   private final boolean needsIterator;
-  private final boolean needContext;
   private final int maxRetries;
 
   public static <T> ReflectionProcessMethod<T> create(Flowlet flowlet, Method method, int maxRetries) {
-    return new ReflectionProcessMethod<>(flowlet, method, maxRetries);
+    return create(flowlet, method, maxRetries, new ProcessMethodInvokerFactory());
   }
 
-  private ReflectionProcessMethod(Flowlet flowlet, Method method, int maxRetries) {
+  public static <T> ReflectionProcessMethod<T> create(Flowlet flowlet, Method method, int maxRetries,
+                                                      ProcessMethodInvokerFactory invokerFactory) {
+    return new ReflectionProcessMethod<>(flowlet, method, maxRetries, invokerFactory.create(method));
+  }
+
+  private ReflectionProcessMethod(Flowlet flowlet, Method method, int maxRetries, ProcessMethodInvoker invoker) {
     this.flowlet = flowlet;
     this.method = method;
+    this.invoker = invoker;
     this.maxRetries = maxRetries;
 
     this.hasParam = method.getGenericParameterTypes().length > 0;
     this.batch = method.isAnnotationPresent(Batch.class);
     this.needsIterator = hasParam &&
       TypeToken.of(method.getGenericParameterTypes()[0]).getRawType().equals(Iterator.class);
-    this.needContext = method.getGenericParameterTypes().length == 2;
-
-    if (!this.method.isAccessible()) {
-      this.method.setAccessible(true);
-    }
   }
 
   @Override
@@ -85,14 +89,14 @@ public final class ReflectionProcessMethod<T> implements ProcessMethod<T> {
 
       if (hasParam) {
         if (needsIterator) {
-          invoke(method, input.iterator(), inputContext);
+          invoke(input.iterator(), inputContext);
         } else {
           for (T event : input) {
-            invoke(method, event, inputContext);
+            invoke(event, inputContext);
           }
         }
       } else {
-        method.invoke(flowlet);
+        invoke(null, inputContext);
       }
 
       return createResult(input, null);
@@ -107,13 +111,14 @@ public final class ReflectionProcessMethod<T> implements ProcessMethod<T> {
   }
 
   /**
-   * Calls the user process method.
+   * Calls the user process method. Failures raised by the process method are wrapped with
+   * {@link InvocationTargetException}, so that they can be told apart from failures in reading the input.
    */
-  private void invoke(Method method, Object event, InputContext inputContext) throws Exception {
-    if (needContext) {
-      method.invoke(flowlet, event, inputContext);
-    } else {
-      method.invoke(flowlet, event);
+  private void invoke(@Nullable Object event, InputContext inputContext) throws InvocationTargetException {
+    try {
+      invoker.invoke(flowlet, event, inputContext);
+    } catch (Throwable t) {
+      throw new InvocationTargetException(t);
     }
   }
 
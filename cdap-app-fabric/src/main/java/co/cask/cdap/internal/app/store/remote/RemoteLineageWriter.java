@@ -19,6 +19,7 @@ package co.cask.cdap.internal.app.store.remote;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.internal.remote.RemoteOpsClient;
 import co.cask.cdap.data2.metadata.lineage.AccessType;
+import co.cask.cdap.data2.metadata.lineage.DataAccess;
 import co.cask.cdap.data2.metadata.writer.BasicLineageWriter;
 import co.cask.cdap.data2.metadata.writer.LineageWriter;
 import co.cask.cdap.proto.id.DatasetId;
@@ -28,6 +29,9 @@ import co.cask.cdap.proto.id.StreamId;
 import com.google.inject.Inject;
 import org.apache.twill.discovery.DiscoveryServiceClient;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import javax.annotation.Nullable;
@@ -75,6 +79,20 @@ public class RemoteLineageWriter extends RemoteOpsClient implements LineageWrite
     executeRequest("addStreamAccess", run, stream, accessType, component);
   }
 
+  @Override
+  public void addAccesses(Collection<DataAccess> accesses) {
+    List<DataAccess> toAdd = new ArrayList<>(accesses.size());
+    for (DataAccess access : accesses) {
+      NamespacedEntityId data = access.getDataset() != null ? access.getDataset() : access.getStream();
+      if (!alreadyRegistered(access.getRun(), data, access.getAccessType(), access.getComponent())) {
+        toAdd.add(access);
+      }
+    }
+    if (!toAdd.isEmpty()) {
+      executeRequest("addAccesses", toAdd);
+    }
+  }
+
   private boolean alreadyRegistered(ProgramRunId run, NamespacedEntityId data, AccessType accessType,
                                     @Nullable NamespacedEntityId component) {
     return registered.putIfAbsent(new BasicLineageWriter.DataAccessKey(run, data, accessType, component), true) != null;
@@ -18,6 +18,7 @@ package co.cask.cdap.internal.app.store.remote;
 
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.internal.remote.RemoteOpsClient;
+import co.cask.cdap.data2.registry.DataUsage;
 import co.cask.cdap.data2.registry.DatasetUsageKey;
 import co.cask.cdap.data2.registry.RuntimeUsageRegistry;
 import co.cask.cdap.proto.id.DatasetId;
@@ -27,6 +28,9 @@ import co.cask.cdap.proto.id.StreamId;
 import com.google.inject.Inject;
 import org.apache.twill.discovery.DiscoveryServiceClient;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
@@ -84,6 +88,19 @@ public class RemoteRuntimeUsageRegistry extends RemoteOpsClient implements Runti
     executeRequest("registerStream", programId, streamId);
   }
 
+  @Override
+  public void registerAll(Collection<DataUsage> usages) {
+    List<DataUsage> toRegister = new ArrayList<>(usages.size());
+    for (DataUsage usage : usages) {
+      if (usage.getDataset() == null || !alreadyRegistered(usage.getDataset(), usage.getProgram())) {
+        toRegister.add(usage);
+      }
+    }
+    if (!toRegister.isEmpty()) {
+      executeRequest("registerUsages", toRegister);
+    }
+  }
+
   private boolean alreadyRegistered(DatasetId dataset, ProgramId owner) {
     return registered.putIfAbsent(new DatasetUsageKey(dataset, owner), true) != null;
   }
@@ -66,22 +66,6 @@ import javax.annotation.Nullable;
 public class LineageAdmin {
   private static final Logger LOG = LoggerFactory.getLogger(LineageAdmin.class);
 
-  private static final Function<Relation, ProgramId> RELATION_TO_PROGRAM_FUNCTION =
-    new Function<Relation, ProgramId>() {
-      @Override
-      public ProgramId apply(Relation input) {
-        return input.getProgram();
-      }
-    };
-
-  private static final Function<Relation, NamespacedEntityId> RELATION_TO_DATA_FUNCTION =
-    new Function<Relation, NamespacedEntityId>() {
-      @Override
-      public NamespacedEntityId apply(Relation input) {
-        return input.getData();
-      }
-    };
-
   private static final Predicate<Relation> UNKNOWN_TYPE_FILTER = new Predicate<Relation>() {
     @Override
     public boolean apply(Relation relation) {
@@ -324,36 +308,34 @@ public class LineageAdmin {
     toVisitDatasets.add(sourceData);
     for (int i = 0; i < levels; ++i) {
       LOG.trace("Level {}", i);
+      // Fetch related programs of all datasets in this level with a single read
+      toVisitDatasets.removeAll(visitedDatasets);
+      visitedDatasets.addAll(toVisitDatasets);
+      LOG.trace("Visiting datasets {}", toVisitDatasets);
+      Set<Relation> programRelations = lineageStoreReader.getRelations(toVisitDatasets, scanRange.getStart(),
+                                                                       scanRange.getEnd(), scanRange.getFilter());
+      LOG.trace("Got program relations {}", programRelations);
       toVisitPrograms.clear();
-      for (NamespacedEntityId d : toVisitDatasets) {
-        if (visitedDatasets.add(d)) {
-          LOG.trace("Visiting dataset {}", d);
-          // Fetch related programs
-          Iterable<Relation> programRelations = getProgramRelations(d, scanRange.getStart(), scanRange.getEnd(),
-                                                                    scanRange.getFilter());
-          LOG.trace("Got program relations {}", programRelations);
-          for (Relation relation : programRelations) {
-            relations.put(new RelationKey(relation), relation);
-          }
-          Iterables.addAll(toVisitPrograms, Iterables.transform(programRelations, RELATION_TO_PROGRAM_FUNCTION));
-        }
+      for (Relation relation : programRelations) {
+        relations.put(new RelationKey(relation), relation);
+        toVisitPrograms.add(relation.getProgram());
       }
 
+      // Fetch related datasets of all programs in this level with a single read
+      toVisitPrograms.removeAll(visitedPrograms);
+      visitedPrograms.addAll(toVisitPrograms);
+      LOG.trace("Visiting programs {}", toVisitPrograms);
+      Set<Relation> datasetRelations = lineageStoreReader.getRelations(toVisitPrograms, scanRange.getStart(),
+                                                                       scanRange.getEnd(), scanRange.getFilter());
+      LOG.trace("Got data relations {}", datasetRelations);
       toVisitDatasets.clear();
-      for (ProgramId p : toVisitPrograms) {
-        if (visitedPrograms.add(p)) {
-          LOG.trace("Visiting program {}", p);
-          // Fetch related datasets
-          Iterable<Relation> datasetRelations = lineageStoreReader.getRelations(p, scanRange.getStart(),
-                                                                                scanRange.getEnd(),
-                                                                                scanRange.getFilter());
-          LOG.trace("Got data relations {}", datasetRelations);
-          for (Relation relation : datasetRelations) {
-            relations.put(new RelationKey(relation), relation);
-          }
-          Iterables.addAll(toVisitDatasets,
-                           Iterables.transform(datasetRelations, RELATION_TO_DATA_FUNCTION));
-        }
+      for (Relation relation : datasetRelations) {
+        relations.put(new RelationKey(relation), relation);
+        toVisitDatasets.add(relation.getData());
+      }
+
+      if (toVisitDatasets.isEmpty()) {
+        break;
       }
     }
 
@@ -367,19 +349,6 @@ public class LineageAdmin {
     return lineage;
   }
 
-  private Iterable<Relation> getProgramRelations(NamespacedEntityId data, long start, long end,
-                                                 Predicate<Relation> filter) {
-    if (data instanceof DatasetId) {
-      return lineageStoreReader.getRelations((DatasetId) data, start, end, filter);
-    }
-
-    if (data instanceof StreamId) {
-      return lineageStoreReader.getRelations((StreamId) data, start, end, filter);
-    }
-
-    throw new IllegalStateException("Unknown data type " + data);
-  }
-
   /**
    * Convert a set of runIds into a scan range based on earliest runtime and latest runtime of runIds.
    * Also, add a scan filter to include only runIds in the given set.
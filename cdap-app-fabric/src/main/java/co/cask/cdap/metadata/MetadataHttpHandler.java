@@ -865,11 +865,6 @@ public class MetadataHttpHandler extends AbstractHttpHandler {
       types = ImmutableSet.copyOf(Iterables.transform(targets, STRING_TO_TARGET_TYPE));
     }
     SortInfo sortInfo = SortInfo.of(URLDecoder.decode(sort, "UTF-8"));
-    if (SortInfo.DEFAULT.equals(sortInfo)) {
-      if (!(cursor.isEmpty()) || 0 != numCursors) {
-        throw new BadRequestException("Cursors are not supported when sort info is not specified.");
-      }
-    }
     try {
       MetadataSearchResponse response =
         metadataAdmin.search(namespaceId, URLDecoder.decode(searchQuery, "UTF-8"), types,
@@ -0,0 +1,92 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.internal.app.runtime.flow;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for {@link BatchSizeController}.
+ */
+public class BatchSizeControllerTest {
+
+  private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  @Test
+  public void testGrowAndLimit() {
+    BatchSizeController controller = new BatchSizeController(10, 100, 1000);
+    Assert.assertEquals(10, (int) controller.get());
+
+    // Constant cost per event, batch size should keep doubling up to the max
+    controller.completed(10, 10 * MS);
+    Assert.assertEquals(20, (int) controller.get());
+    controller.completed(20, 20 * MS);
+    Assert.assertEquals(40, (int) controller.get());
+    controller.completed(40, 40 * MS);
+    Assert.assertEquals(80, (int) controller.get());
+    controller.completed(80, 80 * MS);
+    Assert.assertEquals(100, (int) controller.get());
+    controller.completed(100, 100 * MS);
+    Assert.assertEquals(100, (int) controller.get());
+  }
+
+  @Test
+  public void testInputBound() {
+    BatchSizeController controller = new BatchSizeController(10, 100, 1000);
+
+    // Partial batches shouldn't change the batch size
+    controller.completed(5, 5 * MS);
+    Assert.assertEquals(10, (int) controller.get());
+    controller.completed(0, MS);
+    Assert.assertEquals(10, (int) controller.get());
+  }
+
+  @Test
+  public void testShrink() {
+    BatchSizeController controller = new BatchSizeController(64, 1000, 1000);
+
+    // Exceeding the target cycle time
+    controller.completed(64, 2000 * MS);
+    Assert.assertEquals(32, (int) controller.get());
+
+    // Failure
+    controller.failed();
+    Assert.assertEquals(16, (int) controller.get());
+
+    // Cost per event gets worse after growing
+    controller = new BatchSizeController(10, 1000, 1000);
+    controller.completed(10, 10 * MS);
+    Assert.assertEquals(20, (int) controller.get());
+    controller.completed(20, 40 * MS);
+    Assert.assertEquals(10, (int) controller.get());
+
+    // It should stay at the same size for a while before growing again
+    for (int i = 0; i < 100; i++) {
+      controller.completed(10, 10 * MS);
+      Assert.assertEquals(10, (int) controller.get());
+    }
+    controller.completed(10, 10 * MS);
+    Assert.assertEquals(20, (int) controller.get());
+
+    // Never goes below one
+    controller = new BatchSizeController(1, 1000, 1000);
+    controller.failed();
+    Assert.assertEquals(1, (int) controller.get());
+  }
+}
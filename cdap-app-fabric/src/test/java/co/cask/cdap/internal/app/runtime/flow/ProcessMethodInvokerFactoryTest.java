@@ -0,0 +1,168 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.internal.app.runtime.flow;
+
+import co.cask.cdap.api.flow.flowlet.InputContext;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Unit tests for {@link ProcessMethodInvokerFactory}.
+ */
+public class ProcessMethodInvokerFactoryTest {
+
+  @Test
+  public void testGenerated() throws Exception {
+    ProcessMethodInvokerFactory factory = new ProcessMethodInvokerFactory();
+    RecordingFlowlet flowlet = new RecordingFlowlet();
+
+    ProcessMethodInvoker invoker = factory.create(RecordingFlowlet.class.getMethod("process", String.class));
+    Assert.assertFalse(isReflection(invoker));
+    invoker.invoke(flowlet, "a", null);
+
+    invoker = factory.create(RecordingFlowlet.class.getMethod("processWithContext", String.class,
+                                                              InputContext.class));
+    Assert.assertFalse(isReflection(invoker));
+    invoker.invoke(flowlet, "b", null);
+
+    invoker = factory.create(RecordingFlowlet.class.getMethod("processInt", int.class));
+    Assert.assertFalse(isReflection(invoker));
+    invoker.invoke(flowlet, 3, null);
+
+    invoker = factory.create(RecordingFlowlet.class.getMethod("processLong", long.class));
+    Assert.assertFalse(isReflection(invoker));
+    invoker.invoke(flowlet, 4L, null);
+
+    invoker = factory.create(RecordingFlowlet.class.getMethod("processBatch", Iterator.class));
+    Assert.assertFalse(isReflection(invoker));
+    invoker.invoke(flowlet, ImmutableList.of("c", "d").iterator(), null);
+
+    invoker = factory.create(RecordingFlowlet.class.getMethod("tick"));
+    Assert.assertFalse(isReflection(invoker));
+    invoker.invoke(flowlet, null, null);
+
+    Assert.assertEquals(ImmutableList.of("a", "b", "3", "4", "c", "d", "tick"), flowlet.events);
+  }
+
+  @Test
+  public void testReflectionFallback() throws Exception {
+    ProcessMethodInvokerFactory factory = new ProcessMethodInvokerFactory();
+    RecordingFlowlet flowlet = new RecordingFlowlet();
+
+    // Non-public method cannot be called from generated class
+    ProcessMethodInvoker invoker = factory.create(RecordingFlowlet.class.getDeclaredMethod("processPrivate",
+                                                                                         String.class));
+    Assert.assertTrue(isReflection(invoker));
+    invoker.invoke(flowlet, "a", null);
+
+    // Public method in non-public class
+    invoker = factory.create(HiddenFlowlet.class.getMethod("process", String.class));
+    Assert.assertTrue(isReflection(invoker));
+    HiddenFlowlet hiddenFlowlet = new HiddenFlowlet();
+    invoker.invoke(hiddenFlowlet, "b", null);
+
+    // Generation disabled
+    invoker = new ProcessMethodInvokerFactory(false).create(RecordingFlowlet.class.getMethod("process",
+                                                                                           String.class));
+    Assert.assertTrue(isReflection(invoker));
+    invoker.invoke(flowlet, "c", null);
+
+    Assert.assertEquals(ImmutableList.of("a", "c"), flowlet.events);
+    Assert.assertEquals(ImmutableList.of("b"), hiddenFlowlet.events);
+  }
+
+  @Test
+  public void testException() throws Exception {
+    // Exceptions raised by the process method should be propagated as is from both kinds of invoker
+    for (ProcessMethodInvokerFactory factory : ImmutableList.of(new ProcessMethodInvokerFactory(),
+                                                                new ProcessMethodInvokerFactory(false))) {
+      ProcessMethodInvoker invoker = factory.create(RecordingFlowlet.class.getMethod("fail", String.class));
+      try {
+        invoker.invoke(new RecordingFlowlet(), "failure", null);
+        Assert.fail("Expected IOException");
+      } catch (IOException e) {
+        Assert.assertEquals("failure", e.getMessage());
+      }
+    }
+  }
+
+  private boolean isReflection(ProcessMethodInvoker invoker) {
+    return invoker.getClass().getEnclosingClass() == ProcessMethodInvokerFactory.class;
+  }
+
+  /**
+   * Flowlet-like class with various kinds of process methods.
+   */
+  public static final class RecordingFlowlet {
+
+    private final List<String> events = Lists.newArrayList();
+
+    public void process(String event) {
+      events.add(event);
+    }
+
+    public void processWithContext(String event, InputContext context) {
+      events.add(event);
+    }
+
+    public int processInt(int event) {
+      events.add(Integer.toString(event));
+      return event;
+    }
+
+    public long processLong(long event) {
+      events.add(Long.toString(event));
+      return event;
+    }
+
+    public void processBatch(Iterator<String> events) {
+      while (events.hasNext()) {
+        this.events.add(events.next());
+      }
+    }
+
+    public void tick() {
+      events.add("tick");
+    }
+
+    public void fail(String event) throws IOException {
+      throw new IOException(event);
+    }
+
+    private void processPrivate(String event) {
+      events.add(event);
+    }
+  }
+
+  /**
+   * A non-public class, which requires reflection to invoke.
+   */
+  static final class HiddenFlowlet {
+
+    private final List<String> events = Lists.newArrayList();
+
+    public void process(String event) {
+      events.add(event);
+    }
+  }
+}
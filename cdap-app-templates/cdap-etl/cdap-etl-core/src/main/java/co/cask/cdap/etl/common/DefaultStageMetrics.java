@@ -25,6 +25,8 @@ import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Wrapper around the {@link Metrics} instance from CDAP that prefixes metric names with the ETL context the metric
@@ -34,6 +36,8 @@ public class DefaultStageMetrics implements StageMetrics, Externalizable {
 
   private Metrics metrics;
   private String prefix;
+  // cache of metric name -> prefixed metric name, to avoid building the same string for every record
+  private final ConcurrentMap<String, String> prefixedNames = new ConcurrentHashMap<>();
 
   // Only used by Externalizable
   public DefaultStageMetrics() {
@@ -50,7 +54,7 @@ public class DefaultStageMetrics implements StageMetrics, Externalizable {
     LogContext.runWithoutLoggingUnchecked(new Callable<Void>() {
       @Override
       public Void call() throws Exception {
-        metrics.count(prefix + metricName, delta);
+        metrics.count(getPrefixedName(metricName), delta);
         return null;
       }
     });
@@ -61,7 +65,7 @@ public class DefaultStageMetrics implements StageMetrics, Externalizable {
     LogContext.runWithoutLoggingUnchecked(new Callable<Void>() {
       @Override
       public Void call() throws Exception {
-        metrics.gauge(prefix + metricName, value);
+        metrics.gauge(getPrefixedName(metricName), value);
         return null;
       }
     });
@@ -89,6 +93,15 @@ public class DefaultStageMetrics implements StageMetrics, Externalizable {
     });
   }
 
+  private String getPrefixedName(String metricName) {
+    String prefixedName = prefixedNames.get(metricName);
+    if (prefixedName == null) {
+      prefixedName = prefix + metricName;
+      prefixedNames.put(metricName, prefixedName);
+    }
+    return prefixedName;
+  }
+
   @Override
   public void writeExternal(ObjectOutput out) throws IOException {
     out.writeObject(metrics);
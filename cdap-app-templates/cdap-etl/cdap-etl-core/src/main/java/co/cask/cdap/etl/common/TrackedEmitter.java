@@ -57,4 +57,8 @@ public class TrackedEmitter<T> implements Emitter<T> {
       dataTracer.info(RECORDS_ERROR, value);
     }
   }
+
+  Emitter<T> getDelegate() {
+    return delegate;
+  }
 }
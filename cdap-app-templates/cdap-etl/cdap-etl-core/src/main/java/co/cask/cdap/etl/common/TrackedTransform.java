@@ -39,6 +39,8 @@ public class TrackedTransform<IN, OUT> implements Transformation<IN, OUT>, Destr
   private final String metricInName;
   private final String metricOutName;
   private final DataTracer dataTracer;
+  // reused across calls as long as the caller keeps passing the same emitter, which is the common case
+  private TrackedEmitter<OUT> trackedEmitter;
 
   public TrackedTransform(Transformation<IN, OUT> transform, StageMetrics metrics, DataTracer dataTracer) {
     this(transform, metrics, RECORDS_IN, RECORDS_OUT, dataTracer);
@@ -58,8 +60,17 @@ public class TrackedTransform<IN, OUT> implements Transformation<IN, OUT>, Destr
     if (metricInName != null) {
       metrics.count(metricInName, 1);
     }
-    transform.transform(input, metricOutName == null ? emitter :
-      new TrackedEmitter<>(emitter, metrics, metricOutName, dataTracer));
+    transform.transform(input, getEmitter(emitter));
+  }
+
+  private Emitter<OUT> getEmitter(Emitter<OUT> emitter) {
+    if (metricOutName == null) {
+      return emitter;
+    }
+    if (trackedEmitter == null || trackedEmitter.getDelegate() != emitter) {
+      trackedEmitter = new TrackedEmitter<>(emitter, metrics, metricOutName, dataTracer);
+    }
+    return trackedEmitter;
   }
 
   @Override
@@ -30,6 +30,7 @@ import org.junit.Test;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -292,6 +293,42 @@ public class TransformExecutorTest {
     Assert.assertEquals(3, mockMetrics.getCount("sink3.records.out"));
   }
 
+  @Test
+  public void testTrackedEmitterReuse() throws Exception {
+    MockMetrics mockMetrics = new MockMetrics();
+    EmitterRecorder recorder = new EmitterRecorder();
+    TrackedTransform<Integer, Integer> transform =
+      new TrackedTransform<>(recorder, new DefaultStageMetrics(mockMetrics, "stage"),
+                             dataTracerFactory.getDataTracer(null, "stage"));
+
+    // the same tracked emitter wraps the caller's emitter as long as the caller keeps passing it
+    DefaultEmitter<Integer> emitter1 = new DefaultEmitter<>();
+    transform.transform(1, emitter1);
+    transform.transform(-2, emitter1);
+    Assert.assertEquals(2, recorder.emitters.size());
+    Assert.assertSame(recorder.emitters.get(0), recorder.emitters.get(1));
+    Assert.assertEquals(ImmutableList.of(1, -2), emitter1.getEntries());
+    Assert.assertEquals(1, emitter1.getErrors().size());
+
+    // a different emitter gets a new tracked emitter, and records go to the new emitter only
+    DefaultEmitter<Integer> emitter2 = new DefaultEmitter<>();
+    transform.transform(3, emitter2);
+    transform.transform(-4, emitter2);
+    Assert.assertNotSame(recorder.emitters.get(1), recorder.emitters.get(2));
+    Assert.assertSame(recorder.emitters.get(2), recorder.emitters.get(3));
+    Assert.assertEquals(ImmutableList.of(1, -2), emitter1.getEntries());
+    Assert.assertEquals(ImmutableList.of(3, -4), emitter2.getEntries());
+    Assert.assertEquals(1, emitter2.getErrors().size());
+
+    // switching back to the first emitter still counts every record
+    transform.transform(5, emitter1);
+    Assert.assertEquals(ImmutableList.of(1, -2, 5), emitter1.getEntries());
+
+    Assert.assertEquals(5, mockMetrics.getCount("stage.records.in"));
+    Assert.assertEquals(5, mockMetrics.getCount("stage.records.out"));
+    Assert.assertEquals(2, mockMetrics.getCount("stage.records.error"));
+  }
+
   private <T> void assertResults(Map<String, Collection<T>> results, Map<String, Integer> expectedListsSize) {
     Assert.assertEquals(expectedListsSize.size(), results.size());
     for (Map.Entry<String, Integer> entry : expectedListsSize.entrySet()) {
@@ -302,6 +339,23 @@ public class TransformExecutorTest {
 
 
 
+  /**
+   * Emits its input and records the emitter it was given. Negative inputs are also emitted as errors.
+   */
+  private static class EmitterRecorder extends Transform<Integer, Integer> {
+
+    private final List<Emitter<Integer>> emitters = new ArrayList<>();
+
+    @Override
+    public void transform(Integer input, Emitter<Integer> emitter) throws Exception {
+      emitters.add(emitter);
+      emitter.emit(input);
+      if (input < 0) {
+        emitter.emitError(new InvalidEntry<>(1, "negative", input));
+      }
+    }
+  }
+
   private static class IntToDouble extends Transform<Integer, Double> {
 
     @Override
@@ -1175,15 +1175,13 @@ public class MetadataHttpHandlerTestRun extends MetadataTestBase {
       // expected
     }
 
-    // search with numCursors for relevance sort
-    try {
+    // search with numCursors for relevance sort is allowed. All results fit in the requested page, so there is no
+    // cursor to a next page.
+    MetadataSearchResponse searchResponse =
       searchMetadata(NamespaceId.DEFAULT, "search*", targets, null, 0, Integer.MAX_VALUE, 1, null);
-      Assert.fail();
-    } catch (BadRequestException e) {
-      // expected
-    }
+    Assert.assertTrue(searchResponse.getCursors().isEmpty());
 
-    // search with cursor for relevance sort
+    // search with a malformed cursor for relevance sort
     try {
       searchMetadata(NamespaceId.DEFAULT, "search*", targets, null, 0, Integer.MAX_VALUE, 0, "cursor");
       Assert.fail();
@@ -1389,6 +1387,20 @@ public class MetadataHttpHandlerTestRun extends MetadataTestBase {
     Assert.assertEquals(expectedResults, new ArrayList<>(searchResponse.getResults()));
     Assert.assertTrue(searchResponse.getCursors().isEmpty());
 
+    // paging through the results sorted by relevance with cursors returns the same results as a single search
+    searchResponse = searchMetadata(namespace, "*", targets, null, 0, Integer.MAX_VALUE, 0, null);
+    expectedResults = new ArrayList<>(searchResponse.getResults());
+    Assert.assertEquals(3, expectedResults.size());
+    List<MetadataSearchResultRecord> pagedResults = new ArrayList<>();
+    String cursor = null;
+    do {
+      searchResponse = searchMetadata(namespace, "*", targets, null, 0, 1, 1, cursor);
+      Assert.assertEquals(1, searchResponse.getResults().size());
+      pagedResults.addAll(searchResponse.getResults());
+      cursor = searchResponse.getCursors().isEmpty() ? null : searchResponse.getCursors().get(0);
+    } while (cursor != null);
+    Assert.assertEquals(expectedResults, pagedResults);
+
     // cleanup
     namespaceClient.delete(namespace);
   }
@@ -160,6 +160,9 @@ public final class Constants {
     public static final String RUNTIME_EXT_DIR = "app.program.runtime.extensions.dir";
     public static final String PROGRAM_MAX_START_SECONDS = "app.program.max.start.seconds";
     public static final String PROGRAM_MAX_STOP_SECONDS = "app.program.max.stop.seconds";
+    public static final String FLOWLET_ADAPTIVE_BATCH_ENABLED = "flow.flowlet.adaptive.batch.enabled";
+    public static final String FLOWLET_ADAPTIVE_BATCH_MAX_SIZE = "flow.flowlet.adaptive.batch.max.size";
+    public static final String FLOWLET_ADAPTIVE_BATCH_TARGET_MS = "flow.flowlet.adaptive.batch.target.ms";
 
     /**
      * Guice named bindings.
@@ -306,6 +309,11 @@ public final class Constants {
 
     public static final String DATASET_UNCHECKED_UPGRADE = "dataset.unchecked.upgrade";
 
+    // Caching of dataset instance and type metadata by the RemoteDatasetFramework
+    public static final String CLIENT_CACHE_EXPIRY_SECS = "dataset.client.cache.expiry.secs";
+    public static final String CLIENT_CACHE_MAX_SIZE = "dataset.client.cache.max.size";
+    public static final String CHANGE_TOPIC = "dataset.change.topic";
+
     /**
      * Constants for PartitionedFileSet's DynamicPartitioner
      */
@@ -386,6 +394,7 @@ public final class Constants {
     public static final String TTL = "stream.event.ttl";
     public static final String PARTITION_DURATION = "stream.partition.duration";
     public static final String INDEX_INTERVAL = "stream.index.interval";
+    public static final String BLOCK_CODEC = "stream.block.codec";
     public static final String FILE_PREFIX = "stream.file.prefix";
     public static final String INSTANCE_FILE_PREFIX = "stream.instance.file.prefix";
     public static final String CONSUMER_TABLE_PRESPLITS = "stream.consumer.table.presplits";
@@ -400,6 +409,9 @@ public final class Constants {
     public static final String WORKER_THREADS = "stream.worker.threads";
     public static final String ASYNC_WORKER_THREADS = "stream.async.worker.threads";
     public static final String ASYNC_QUEUE_SIZE = "stream.async.queue.size";
+    public static final String SYNC_MODE = "stream.sync.mode";
+    public static final String GROUP_SYNC_WINDOW_MS = "stream.group.sync.window.ms";
+    public static final String GROUP_SYNC_THREADS = "stream.group.sync.threads";
 
     // YARN container configurations.
     public static final String CONTAINER_VIRTUAL_CORES = "stream.container.num.cores";
@@ -477,6 +489,8 @@ public final class Constants {
     public static final String CLIENT_WORKER_THREADS = "router.client.worker.threads";
     public static final String CONNECTION_TIMEOUT_SECS = "router.connection.idle.timeout.secs";
     public static final String ROUTER_USERSERVICE_FALLBACK_STRAGEY = "router.userservice.fallback.strategy";
+    public static final String ENDPOINT_STRATEGY = "router.endpoint.strategy";
+    public static final String CLIENT_POOL_MAX_IDLE_PER_ENDPOINT = "router.client.pool.max.idle.per.endpoint";
 
     /**
      * Defaults.
@@ -520,6 +534,9 @@ public final class Constants {
 
     public static final String SERVER_ADDRESS = "metrics.query.bind.address";
     public static final String SERVER_PORT = "metrics.query.bind.port";
+    public static final String QUERY_CACHE_SIZE = "metrics.query.cache.size";
+    public static final String QUERY_CACHE_SETTLE_SECONDS = "metrics.query.cache.settle.seconds";
+    public static final String QUERY_MEMORY_LIMIT_BYTES = "metrics.query.memory.limit.bytes";
 
     public static final String TOPIC_PREFIX = "metrics.topic.prefix";
     public static final String KAFKA_TOPIC_PREFIX = "metrics.kafka.topic.prefix";
@@ -716,6 +733,8 @@ public final class Constants {
     public static final String KAFKA_TOPIC = "log.kafka.topic";
     public static final String NUM_PARTITIONS = "log.publish.num.partitions";
     public static final String LOG_PUBLISH_PARTITION_KEY = "log.publish.partition.key";
+    public static final String READER_PARALLELISM = "log.reader.parallelism";
+    public static final String READER_READ_AHEAD_EVENTS = "log.reader.read.ahead.events";
 
     public static final String PIPELINE_CONFIG_DIR = "log.process.pipeline.config.dir";
     public static final String PIPELINE_LIBRARY_DIR = "log.process.pipeline.lib.dir";
@@ -1116,6 +1135,8 @@ public final class Constants {
     public static final String SERVICE_EXEC_THREADS = "metadata.service.exec.threads";
     public static final String HANDLERS_NAME = "metadata.handlers";
     public static final String MAX_CHARS_ALLOWED = "metadata.max.allowed.chars";
+    public static final String LINEAGE_WRITER_FLUSH_INTERVAL_MS = "metadata.program.lineage.flush.interval.ms";
+    public static final String LINEAGE_WRITER_MAX_BUFFERED = "metadata.program.lineage.max.buffered";
   }
 
   /**
@@ -1155,6 +1176,8 @@ public final class Constants {
     public static final String SYSTEM_TOPICS = "messaging.system.topics";
     public static final String TABLE_CACHE_EXPIRATION_SECONDS = "messaging.table.expiration.seconds";
     public static final String TOPIC_DEFAULT_TTL_SECONDS = "messaging.topic.default.ttl.seconds";
+    public static final String WRITER_BATCH_MAX_BYTES = "messaging.writer.batch.max.bytes";
+    public static final String WRITER_BATCH_LINGER_MS = "messaging.writer.batch.linger.ms";
     public static final String COPROCESSOR_METADATA_CACHE_UPDATE_FREQUENCY_SECONDS =
       "messaging.coprocessor.metadata.cache.update.frequency.seconds";
 
@@ -1162,6 +1185,8 @@ public final class Constants {
     public static final String HTTP_SERVER_EXECUTOR_THREADS = "messaging.http.server.executor.threads";
     public static final String HTTP_SERVER_MAX_REQUEST_SIZE_MB = "messaging.http.server.max.request.size.mb";
     public static final String HTTP_SERVER_CONSUME_CHUNK_SIZE = "messaging.http.server.consume.chunk.size";
+    public static final String HTTP_SERVER_MAX_POLL_WAIT_MS = "messaging.http.server.max.poll.wait.ms";
+    public static final String HTTP_SERVER_MAX_POLL_WAITERS = "messaging.http.server.max.poll.waiters";
 
 
     public static final String CONTAINER_VIRTUAL_CORES = "messaging.container.num.cores";
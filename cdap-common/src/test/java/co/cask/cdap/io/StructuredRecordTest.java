@@ -0,0 +1,141 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.io;
+
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.format.UnexpectedFormatException;
+import co.cask.cdap.api.data.schema.Schema;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * Tests for {@link StructuredRecord}.
+ */
+public class StructuredRecordTest {
+
+  private static final Schema SCHEMA = Schema.recordOf(
+    "record",
+    Schema.Field.of("id", Schema.of(Schema.Type.INT)),
+    Schema.Field.of("ts", Schema.of(Schema.Type.LONG)),
+    Schema.Field.of("score", Schema.of(Schema.Type.DOUBLE)),
+    Schema.Field.of("valid", Schema.of(Schema.Type.BOOLEAN)),
+    Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING)))
+  );
+
+  @Test
+  public void testFieldAccess() {
+    StructuredRecord record = StructuredRecord.builder(SCHEMA)
+      .set("id", 1)
+      .convertAndSet("ts", "1000")
+      .set("score", 0.5d)
+      .set("valid", true)
+      .build();
+
+    Assert.assertEquals(1, SCHEMA.getFieldIndex("ts"));
+    Assert.assertEquals(-1, SCHEMA.getFieldIndex("unknown"));
+    Assert.assertEquals(-1, Schema.of(Schema.Type.INT).getFieldIndex("id"));
+
+    Assert.assertEquals(Integer.valueOf(1), record.get("id"));
+    Assert.assertEquals(Long.valueOf(1000L), record.get(1));
+    Assert.assertNull(record.get("name"));
+    Assert.assertNull(record.get("unknown"));
+
+    Assert.assertEquals(1, record.getInt("id"));
+    Assert.assertEquals(1000L, record.getLong("ts"));
+    Assert.assertEquals(0.5d, record.getDouble("score"), 0d);
+    Assert.assertTrue(record.getBoolean("valid"));
+
+    // Typed getters don't convert between types and don't allow null
+    for (String field : new String[] { "ts", "name", "unknown" }) {
+      try {
+        record.getInt(field);
+        Assert.fail("Expected failure when getting field " + field + " as int");
+      } catch (UnexpectedFormatException e) {
+        // expected
+      }
+    }
+  }
+
+  @Test
+  public void testBuilder() {
+    StructuredRecord.Builder builder = StructuredRecord.builder(SCHEMA)
+      .set("id", 1)
+      .set("ts", 1000L)
+      .set("score", 0.5d);
+
+    // Missing non-nullable field
+    try {
+      builder.build();
+      Assert.fail("Expected failure on missing non-nullable field");
+    } catch (UnexpectedFormatException e) {
+      // expected
+    }
+
+    StructuredRecord record = builder.set("valid", true).build();
+    // Modifying the builder after build must not change the record already built
+    StructuredRecord record2 = builder.set("id", 2).set("name", "n").build();
+    Assert.assertEquals(1, record.getInt("id"));
+    Assert.assertNull(record.get("name"));
+    Assert.assertEquals(2, record2.getInt("id"));
+    Assert.assertEquals("n", record2.get("name"));
+    Assert.assertEquals(1000L, record2.getLong("ts"));
+    Assert.assertNotEquals(record, record2);
+    Assert.assertEquals(record, builder.set("id", 1).set("name", null).build());
+    Assert.assertEquals(record.hashCode(), builder.build().hashCode());
+
+    try {
+      builder.set("id", null);
+      Assert.fail("Expected failure on setting non-nullable field to null");
+    } catch (UnexpectedFormatException e) {
+      // expected
+    }
+    try {
+      builder.set("unknown", 1);
+      Assert.fail("Expected failure on setting unknown field");
+    } catch (UnexpectedFormatException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testSerializable() throws IOException, ClassNotFoundException {
+    StructuredRecord record = StructuredRecord.builder(SCHEMA)
+      .set("id", 1)
+      .set("ts", 1000L)
+      .set("score", 0.5d)
+      .set("valid", false)
+      .set("name", "name")
+      .build();
+
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(os)) {
+      oos.writeObject(record);
+    }
+    try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(os.toByteArray()))) {
+      StructuredRecord restored = (StructuredRecord) ois.readObject();
+      Assert.assertEquals(record, restored);
+      Assert.assertEquals("name", restored.get("name"));
+      Assert.assertEquals(1000L, restored.getLong("ts"));
+    }
+  }
+}
@@ -57,6 +57,7 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.Collection;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
@@ -150,6 +151,83 @@ public abstract class StreamDataFileTestBase {
     }
   }
 
+  @Test
+  public void testCompressedBlocks() throws Exception {
+    Location dir = StreamFileTestUtils.createTempDir(getLocationFactory());
+    Map<StreamDataBlockCodec, Long> fileSizes = new EnumMap<>(StreamDataBlockCodec.class);
+
+    for (StreamDataBlockCodec codec : StreamDataBlockCodec.values()) {
+      Location eventFile = dir.getTempFile(".dat");
+      Location indexFile = dir.getTempFile(".idx");
+
+      StreamDataFileWriter writer = new StreamDataFileWriter(Locations.newOutputSupplier(eventFile),
+                                                             Locations.newOutputSupplier(indexFile),
+                                                             10L, ImmutableMap.<String, String>of(), codec);
+      // Write 1000 events with 200 different timestamps, with both single event and multi events data blocks
+      for (int i = 0; i < 200; i++) {
+        List<StreamEvent> events = Lists.newArrayList();
+        for (int j = 0; j < 5; j++) {
+          events.add(StreamFileTestUtils.createEvent(i, "{\"type\": \"click\", \"page\": \"index.html\", " +
+            "\"user\": \"user" + j + "\", \"time\": " + i + "}"));
+        }
+        if (i % 2 == 0) {
+          writer.appendAll(events.iterator());
+        } else {
+          for (StreamEvent event : events) {
+            writer.append(event);
+          }
+          writer.flush();
+        }
+      }
+      writer.close();
+      fileSizes.put(codec, eventFile.length());
+
+      // Read all events, positions must be strictly increasing
+      StreamDataFileReader reader = StreamDataFileReader.create(Locations.newInputSupplier(eventFile));
+      List<PositionStreamEvent> events = Lists.newArrayList();
+      Assert.assertEquals(1000, reader.read(events, 1000, 0, TimeUnit.SECONDS));
+      Assert.assertEquals(-1, reader.read(events, 1, 0, TimeUnit.SECONDS));
+      reader.close();
+
+      long lastPosition = -1L;
+      for (int i = 0; i < events.size(); i++) {
+        PositionStreamEvent event = events.get(i);
+        Assert.assertEquals(i / 5, event.getTimestamp());
+        Assert.assertEquals("{\"type\": \"click\", \"page\": \"index.html\", \"user\": \"user" + (i % 5) +
+                              "\", \"time\": " + (i / 5) + "}",
+                            Charsets.UTF_8.decode(event.getBody().duplicate()).toString());
+        Assert.assertTrue(event.getStart() > lastPosition);
+        lastPosition = event.getStart();
+      }
+
+      // Reading from the position of each event should start from that event
+      for (PositionStreamEvent event : ImmutableList.copyOf(events)) {
+        reader = StreamDataFileReader.createWithOffset(Locations.newInputSupplier(eventFile),
+                                                       Locations.newInputSupplier(indexFile), event.getStart());
+        List<PositionStreamEvent> readEvents = Lists.newArrayList();
+        Assert.assertEquals(1, reader.read(readEvents, 1, 0, TimeUnit.SECONDS));
+        reader.close();
+        Assert.assertEquals(event.getStart(), readEvents.get(0).getStart());
+        Assert.assertEquals(event.getBody(), readEvents.get(0).getBody());
+      }
+
+      // Reading by timestamp should use the index to seek to data blocks
+      for (long ts : new long[] {0, 11, 50, 99, 150, 199}) {
+        reader = StreamDataFileReader.createByStartTime(Locations.newInputSupplier(eventFile),
+                                                        Locations.newInputSupplier(indexFile), ts);
+        List<PositionStreamEvent> readEvents = Lists.newArrayList();
+        Assert.assertEquals(5, reader.read(readEvents, 5, 0, TimeUnit.SECONDS));
+        reader.close();
+        for (PositionStreamEvent event : readEvents) {
+          Assert.assertEquals(ts, event.getTimestamp());
+        }
+      }
+    }
+
+    Assert.assertTrue(fileSizes.get(StreamDataBlockCodec.SNAPPY) < fileSizes.get(StreamDataBlockCodec.NONE));
+    Assert.assertTrue(fileSizes.get(StreamDataBlockCodec.DEFLATE) < fileSizes.get(StreamDataBlockCodec.NONE));
+  }
+
   @Test
   public void testLargeDataBlock() throws Exception {
     Location dir = StreamFileTestUtils.createTempDir(getLocationFactory());
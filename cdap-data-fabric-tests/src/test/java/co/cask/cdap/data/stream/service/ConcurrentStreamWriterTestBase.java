@@ -17,10 +17,13 @@
 package co.cask.cdap.data.stream.service;
 
 import co.cask.cdap.api.flow.flowlet.StreamEvent;
+import co.cask.cdap.api.metrics.MetricsContext;
+import co.cask.cdap.api.metrics.NoopMetricsContext;
 import co.cask.cdap.api.stream.StreamEventData;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.io.Locations;
 import co.cask.cdap.common.namespace.NamespacedLocationFactory;
+import co.cask.cdap.data.file.FileWriter;
 import co.cask.cdap.data.runtime.LocationStreamFileWriterFactory;
 import co.cask.cdap.data.stream.InMemoryStreamCoordinatorClient;
 import co.cask.cdap.data.stream.NoopStreamAdmin;
@@ -44,6 +47,7 @@ import com.google.common.base.Charsets;
 import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import org.apache.twill.filesystem.Location;
 import org.junit.AfterClass;
@@ -57,14 +61,18 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Unit tests for the {@link ConcurrentStreamWriter}.
@@ -192,6 +200,158 @@ public abstract class ConcurrentStreamWriterTestBase {
     Assert.assertTrue(verifyEvents(threads, msgCount, events));
   }
 
+  @Test
+  public void testGroupSync() throws Exception {
+    NamespaceId namespace = new NamespaceId("namespace");
+    StreamAdmin streamAdmin = new TestStreamAdmin(getNamespacedLocationFactory(), Long.MAX_VALUE, 1000);
+    int streams = 4;
+    int threadsPerStream = Runtime.getRuntime().availableProcessors();
+    int threads = streams * threadsPerStream;
+
+    List<StreamId> streamIds = Lists.newArrayList();
+    for (int i = 0; i < streams; i++) {
+      StreamId streamId = namespace.stream("testGroupSync" + i);
+      streamAdmin.getConfig(streamId).getLocation().mkdirs();
+      streamIds.add(streamId);
+    }
+
+    final ConcurrentMap<String, AtomicLong> syncMetrics = Maps.newConcurrentMap();
+    MetricsContext metricsContext = new MetricsContext() {
+      @Override
+      public MetricsContext childContext(Map<String, String> tags) {
+        return this;
+      }
+
+      @Override
+      public MetricsContext childContext(String tagName, String tagValue) {
+        return this;
+      }
+
+      @Override
+      public Map<String, String> getTags() {
+        return ImmutableMap.of();
+      }
+
+      @Override
+      public void increment(String metricName, long value) {
+        syncMetrics.putIfAbsent(metricName, new AtomicLong());
+        syncMetrics.get(metricName).addAndGet(value);
+      }
+
+      @Override
+      public void gauge(String metricName, long value) {
+        // no-op
+      }
+    };
+
+    StreamFileWriterFactory fileWriterFactory = createStreamFileWriterFactory();
+    ConcurrentStreamWriter streamWriter = new ConcurrentStreamWriter(COORDINATOR_CLIENT, streamAdmin,
+                                                                     fileWriterFactory, threads,
+                                                                     new TestMetricsCollectorFactory(), impersonator,
+                                                                     metricsContext, 10L, 2);
+
+    // Each stream is written by multiple threads, half of them write events one by one
+    // and the other half writes in batch of size 10
+    int msgPerThread = 500;
+    CountDownLatch startLatch = new CountDownLatch(1);
+    CountDownLatch completion = new CountDownLatch(threads);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    for (int i = 0; i < threads; i++) {
+      executor.execute(createWriterTask(streamIds.get(i % streams), streamWriter,
+                                        i / streams, msgPerThread, (i / streams) % 2 == 0 ? 1 : 10,
+                                        startLatch, completion));
+    }
+    startLatch.countDown();
+    Assert.assertTrue(completion.await(120, TimeUnit.SECONDS));
+    executor.shutdown();
+
+    // Closing the writer waits for the last group sync, which emits the metrics after completing the requests
+    streamWriter.close();
+
+    // All events should be completed through group sync
+    Assert.assertEquals(threads * msgPerThread, syncMetrics.get("collect.sync.events").get());
+    Assert.assertTrue(syncMetrics.get("collect.sync.count").get() > 0);
+
+    // Verify all events are written to each stream
+    for (StreamId streamId : streamIds) {
+      Location partitionLocation = streamAdmin.getConfig(streamId).getLocation().list().get(0);
+      Location streamLocation = StreamUtils.createStreamLocation(partitionLocation,
+                                                                 fileWriterFactory.getFileNamePrefix(),
+                                                                 0, StreamFileType.EVENT);
+      StreamDataFileReader reader = StreamDataFileReader.create(Locations.newInputSupplier(streamLocation));
+      List<StreamEvent> events = Lists.newArrayListWithCapacity(threadsPerStream * msgPerThread);
+      Assert.assertEquals(threadsPerStream * msgPerThread,
+                          reader.read(events, Integer.MAX_VALUE, 0, TimeUnit.SECONDS));
+      Assert.assertTrue(verifyEvents(threadsPerStream, msgPerThread, events));
+      reader.close();
+    }
+  }
+
+  @Test
+  public void testGroupSyncFailure() throws Exception {
+    NamespaceId namespace = new NamespaceId("namespace");
+    StreamAdmin streamAdmin = new TestStreamAdmin(getNamespacedLocationFactory(), Long.MAX_VALUE, 1000);
+    final StreamId failStreamId = namespace.stream("testGroupSyncFail");
+    StreamId streamId = namespace.stream("testGroupSyncSuccess");
+    streamAdmin.getConfig(failStreamId).getLocation().mkdirs();
+    streamAdmin.getConfig(streamId).getLocation().mkdirs();
+
+    // The file writer of one stream fails on flush
+    final StreamFileWriterFactory fileWriterFactory = createStreamFileWriterFactory();
+    StreamFileWriterFactory failingWriterFactory = new StreamFileWriterFactory() {
+      @Override
+      public String getFileNamePrefix() {
+        return fileWriterFactory.getFileNamePrefix();
+      }
+
+      @Override
+      public FileWriter<StreamEvent> create(StreamConfig config, int generation) throws IOException {
+        final FileWriter<StreamEvent> writer = fileWriterFactory.create(config, generation);
+        if (!failStreamId.equals(config.getStreamId())) {
+          return writer;
+        }
+        return new FileWriter<StreamEvent>() {
+          @Override
+          public void append(StreamEvent event) throws IOException {
+            writer.append(event);
+          }
+
+          @Override
+          public void appendAll(Iterator<? extends StreamEvent> events) throws IOException {
+            writer.appendAll(events);
+          }
+
+          @Override
+          public void flush() throws IOException {
+            throw new IOException("Flush failure");
+          }
+
+          @Override
+          public void close() throws IOException {
+            writer.close();
+          }
+        };
+      }
+    };
+
+    ConcurrentStreamWriter streamWriter = new ConcurrentStreamWriter(COORDINATOR_CLIENT, streamAdmin,
+                                                                     failingWriterFactory, 1,
+                                                                     new TestMetricsCollectorFactory(), impersonator,
+                                                                     new NoopMetricsContext(), 10L, 1);
+    try {
+      streamWriter.enqueue(failStreamId, ImmutableMap.<String, String>of(), Charsets.UTF_8.encode("fail"));
+      Assert.fail("Expected IOException");
+    } catch (IOException e) {
+      // expected
+    }
+
+    // The group sync keeps running for other streams
+    for (int i = 0; i < 10; i++) {
+      streamWriter.enqueue(streamId, ImmutableMap.<String, String>of(), Charsets.UTF_8.encode("Message " + i));
+    }
+    streamWriter.close();
+  }
+
   private boolean verifyEvents(int threads, int msgPerThread, List<StreamEvent> events) {
     Set<String> messages = Sets.newHashSet();
     for (StreamEvent event : events) {
@@ -19,6 +19,7 @@ package co.cask.cdap.data2.transaction.stream;
 import co.cask.cdap.api.data.format.FormatSpecification;
 import co.cask.cdap.api.data.stream.StreamSpecification;
 import co.cask.cdap.api.flow.flowlet.StreamEvent;
+import co.cask.cdap.common.BadRequestException;
 import co.cask.cdap.common.app.RunIds;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
@@ -26,6 +27,7 @@ import co.cask.cdap.common.kerberos.OwnerAdmin;
 import co.cask.cdap.common.namespace.NamespacedLocationFactory;
 import co.cask.cdap.common.test.AppJarHelper;
 import co.cask.cdap.data.file.FileWriter;
+import co.cask.cdap.data.stream.StreamDataBlockCodec;
 import co.cask.cdap.data.stream.StreamFileWriterFactory;
 import co.cask.cdap.data.stream.StreamUtils;
 import co.cask.cdap.data2.audit.InMemoryAuditPublisher;
@@ -260,6 +262,40 @@ public abstract class StreamAdminTest {
     streamAdmin.drop(stream);
   }
 
+  @Test
+  public void testBlockCodec() throws Exception {
+    StreamAdmin streamAdmin = getStreamAdmin();
+    grantAndAssertSuccess(FOO_NAMESPACE, USER, ImmutableSet.of(Action.WRITE));
+
+    // codec names are case insensitive
+    StreamId stream = FOO_NAMESPACE.stream("codecStream");
+    Properties properties = new Properties();
+    properties.put(Constants.Stream.BLOCK_CODEC, "snappy");
+    Assert.assertEquals(StreamDataBlockCodec.SNAPPY, streamAdmin.create(stream, properties).getBlockCodec());
+    Assert.assertEquals("SNAPPY", streamAdmin.getProperties(stream).getBlockCodec());
+
+    // the codec cannot be changed once the stream is created
+    try {
+      streamAdmin.updateConfig(stream, new StreamProperties(1L, null, null, null, null, "deflate"));
+      Assert.fail("Expected BadRequestException");
+    } catch (BadRequestException e) {
+      // expected
+    }
+    Assert.assertEquals(StreamDataBlockCodec.SNAPPY, streamAdmin.getConfig(stream).getBlockCodec());
+    streamAdmin.drop(stream);
+
+    // an unknown codec is rejected
+    StreamId invalidStream = FOO_NAMESPACE.stream("invalidCodecStream");
+    properties.put(Constants.Stream.BLOCK_CODEC, "unknown");
+    try {
+      streamAdmin.create(invalidStream, properties);
+      Assert.fail("Expected BadRequestException");
+    } catch (BadRequestException e) {
+      // expected
+    }
+    Assert.assertFalse(streamAdmin.exists(invalidStream));
+  }
+
   @Test
   public void testOwner() throws Exception {
     // crate a stream with owner
@@ -0,0 +1,197 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data.stream;
+
+import org.xerial.snappy.Snappy;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compression codecs for the data blocks of stream data files.
+ *
+ * @see StreamDataFileWriter
+ */
+public enum StreamDataBlockCodec {
+
+  NONE(0) {
+    @Override
+    int maxCompressedLength(int length) {
+      return length;
+    }
+
+    @Override
+    int compress(byte[] input, int length, byte[] output, int outputOffset) {
+      System.arraycopy(input, 0, output, outputOffset, length);
+      return length;
+    }
+
+    @Override
+    void decompress(byte[] input, int offset, int length, byte[] output, int outputLength) throws IOException {
+      if (length != outputLength) {
+        throw new IOException("Expected " + outputLength + " bytes in uncompressed block, but got " + length);
+      }
+      System.arraycopy(input, offset, output, 0, length);
+    }
+  },
+
+  SNAPPY(1) {
+    @Override
+    int maxCompressedLength(int length) {
+      return Snappy.maxCompressedLength(length);
+    }
+
+    @Override
+    int compress(byte[] input, int length, byte[] output, int outputOffset) throws IOException {
+      return Snappy.rawCompress(input, 0, length, output, outputOffset);
+    }
+
+    @Override
+    void decompress(byte[] input, int offset, int length, byte[] output, int outputLength) throws IOException {
+      int size = Snappy.rawUncompress(input, offset, length, output, 0);
+      if (size != outputLength) {
+        throw new IOException("Expected " + outputLength + " bytes after decompression, but got " + size);
+      }
+    }
+  },
+
+  DEFLATE(2) {
+    @Override
+    int maxCompressedLength(int length) {
+      // The zlib deflate bound, plus the zlib header and trailer
+      return length + (length >> 12) + (length >> 14) + (length >> 25) + 13 + 6;
+    }
+
+    @Override
+    int compress(byte[] input, int length, byte[] output, int outputOffset) throws IOException {
+      Deflater deflater = new Deflater();
+      try {
+        deflater.setInput(input, 0, length);
+        deflater.finish();
+        int size = 0;
+        int capacity = output.length - outputOffset;
+        while (!deflater.finished() && size < capacity) {
+          size += deflater.deflate(output, outputOffset + size, capacity - size);
+        }
+        if (!deflater.finished()) {
+          throw new IOException("Insufficient buffer size for compressing " + length + " bytes");
+        }
+        return size;
+      } finally {
+        deflater.end();
+      }
+    }
+
+    @Override
+    void decompress(byte[] input, int offset, int length, byte[] output, int outputLength) throws IOException {
+      Inflater inflater = new Inflater();
+      try {
+        inflater.setInput(input, offset, length);
+        int size = 0;
+        while (!inflater.finished() && size < outputLength) {
+          int len = inflater.inflate(output, size, outputLength - size);
+          if (len == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+            break;
+          }
+          size += len;
+        }
+        if (size != outputLength || !inflater.finished()) {
+          throw new IOException("Expected " + outputLength + " bytes after decompression, but got " + size);
+        }
+      } catch (DataFormatException e) {
+        throw new IOException("Failed to decompress data block", e);
+      } finally {
+        inflater.end();
+      }
+    }
+  };
+
+  private final byte id;
+
+  StreamDataBlockCodec(int id) {
+    this.id = (byte) id;
+  }
+
+  /**
+   * Returns the id of this codec that is stored in each data block.
+   */
+  byte getId() {
+    return id;
+  }
+
+  /**
+   * Returns the {@link StreamDataBlockCodec} of the given id.
+   *
+   * @throws IOException if there is no codec with the given id
+   */
+  static StreamDataBlockCodec fromId(byte id) throws IOException {
+    for (StreamDataBlockCodec codec : values()) {
+      if (codec.id == id) {
+        return codec;
+      }
+    }
+    throw new IOException("Unsupported stream data block codec " + id);
+  }
+
+  /**
+   * Returns the {@link StreamDataBlockCodec} of the given name, ignoring case.
+   *
+   * @throws IllegalArgumentException if there is no codec with the given name
+   */
+  public static StreamDataBlockCodec fromName(String name) {
+    try {
+      return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException(String.format("Invalid stream block codec '%s'. Valid codecs are %s.",
+                                                       name, Arrays.toString(values())));
+    }
+  }
+
+  /**
+   * Returns the maximum number of bytes that the compressed data of the given length can take.
+   */
+  abstract int maxCompressedLength(int length);
+
+  /**
+   * Compresses the given input.
+   *
+   * @param input the data to compress
+   * @param length number of bytes in the input to compress
+   * @param output the buffer to write the compressed data to. It must have at least
+   *               {@link #maxCompressedLength(int)} bytes after the output offset.
+   * @param outputOffset the offset in the output buffer to start writing at
+   * @return number of bytes of the compressed data
+   * @throws IOException if failed to compress
+   */
+  abstract int compress(byte[] input, int length, byte[] output, int outputOffset) throws IOException;
+
+  /**
+   * Decompresses the given input.
+   *
+   * @param input buffer containing the compressed data
+   * @param offset offset of the compressed data in the input buffer
+   * @param length number of bytes of the compressed data
+   * @param output the buffer to write the decompressed data to, starting at offset 0
+   * @param outputLength the expected number of bytes of the decompressed data
+   * @throws IOException if failed to decompress or if the size of the decompressed data is different than expected
+   */
+  abstract void decompress(byte[] input, int offset, int length, byte[] output, int outputLength) throws IOException;
+}
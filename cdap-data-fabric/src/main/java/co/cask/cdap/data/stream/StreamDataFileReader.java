@@ -65,6 +65,7 @@ public final class StreamDataFileReader implements FileReader<PositionStreamEven
   private long timestamp;
   private boolean closed;
   private boolean eof;
+  private int fileVersion;
   private Decoder decoder;
   private StreamEvent eventTemplate;
 
@@ -293,7 +294,7 @@ public final class StreamDataFileReader implements FileReader<PositionStreamEven
     byte[] magic = new byte[StreamDataFileConstants.MAGIC_HEADER_SIZE];
     ByteStreams.readFully(eventInput, magic);
 
-    int fileVersion = decodeFileVersion(magic);
+    fileVersion = decodeFileVersion(magic);
 
     // Read the properties map.
     Map<String, String> properties = StreamUtils.decodeMap(new BinaryDecoder(eventInput));
@@ -323,10 +324,14 @@ public final class StreamDataFileReader implements FileReader<PositionStreamEven
     if (Arrays.equals(magic, StreamDataFileConstants.MAGIC_HEADER_V2)) {
       return 2;
     }
+    if (Arrays.equals(magic, StreamDataFileConstants.MAGIC_HEADER_V3)) {
+      return 3;
+    }
     throw new IOException(
-      String.format("Unsupported stream file format. First two bytes must be %s or %s",
+      String.format("Unsupported stream file format. First two bytes must be %s, %s or %s",
                     Bytes.toStringBinary(StreamDataFileConstants.MAGIC_HEADER_V1),
-                    Bytes.toStringBinary(StreamDataFileConstants.MAGIC_HEADER_V2))
+                    Bytes.toStringBinary(StreamDataFileConstants.MAGIC_HEADER_V2),
+                    Bytes.toStringBinary(StreamDataFileConstants.MAGIC_HEADER_V3))
     );
   }
 
@@ -485,7 +490,11 @@ public final class StreamDataFileReader implements FileReader<PositionStreamEven
     // Use the template timestamp if available
     timestamp = eventTemplate.getTimestamp() >= 0 ? eventTemplate.getTimestamp() : timestamp;
     if (acceptTimestamp(filter, timestamp)) {
-      streamEventBuffer.fillBuffer(eventInput, readLength());
+      if (fileVersion >= 3) {
+        streamEventBuffer.fillCompressedBuffer(eventInput, readLength());
+      } else {
+        streamEventBuffer.fillBuffer(eventInput, readLength());
+      }
       this.timestamp = timestamp;
       return;
     }
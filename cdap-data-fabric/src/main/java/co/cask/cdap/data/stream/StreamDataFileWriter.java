@@ -32,6 +32,7 @@ import com.google.common.io.OutputSupplier;
 import com.google.common.primitives.Longs;
 import org.apache.hadoop.fs.Syncable;
 
+import java.io.ByteArrayOutputStream;
 import java.io.Flushable;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -59,6 +60,29 @@ import javax.annotation.concurrent.NotThreadSafe;
  * }
  * </pre>
  *
+ * Stream event file with compressed data blocks:
+ *
+ * <pre>
+ * {@code
+ *
+ * event_file = <header> <data>* <end_marker>
+ * header = "E" "3" <properties>
+ * data = <timestamp> <length> <block>
+ * length = Avro encoded int32 for size in bytes of the <block>
+ * block = <uncompressed_block> | <compressed_block>
+ * uncompressed_block = <codec_none> <stream_event>+
+ * compressed_block = <codec> <uncompressed_length> <compressed_data>
+ * codec = 1 byte for the id of the codec used for compressing the block
+ * uncompressed_length = 4 bytes int32 for size in bytes for all <stream_event>s
+ * compressed_data = compressed bytes of all <stream_event>s
+ *
+ * }
+ * </pre>
+ *
+ * The position of the i-th event in a compressed data block is the position of the <block> plus i, which is
+ * guaranteed to be smaller than the position of the next data block. This keeps event positions ordered and
+ * unique, while readers can still seek by timestamp and offset to the beginning of data blocks using the index.
+ *
  * Stream index file:
  *
  * <pre>
@@ -84,9 +108,14 @@ public final class StreamDataFileWriter implements TimestampCloseable, Flushable
   private final long indexInterval;
   private final BufferedEncoder encoder;
   private final BufferedEncoder lengthEncoder;
+  private final StreamDataBlockCodec blockCodec;
+  private final BlockOutputStream blockOutput;
+  private byte[] blockPayload;
 
   // Timestamp for the current block
   private long currentTimestamp;
+  // Number of events in the current data block
+  private int blockEventCount;
   private long position;
   private long nextIndexTime;
   private boolean synced;
@@ -116,6 +145,24 @@ public final class StreamDataFileWriter implements TimestampCloseable, Flushable
   public StreamDataFileWriter(OutputSupplier<? extends OutputStream> eventOutputSupplier,
                               OutputSupplier<? extends OutputStream> indexOutputSupplier,
                               long indexInterval, Map<String, String> properties) throws IOException {
+    this(eventOutputSupplier, indexOutputSupplier, indexInterval, properties, StreamDataBlockCodec.NONE);
+  }
+
+  /**
+   * Constructs a new instance that writes to given outputs.
+   *
+   * @param eventOutputSupplier the provider of the {@link OutputStream} for writing events
+   * @param indexOutputSupplier the provider of the {@link OutputStream} for writing the index
+   * @param indexInterval the time interval in milliseconds for emitting a new index entry
+   * @param properties the property set that will be stored as file properties
+   * @param blockCodec the codec for compressing data blocks. If it is {@link StreamDataBlockCodec#NONE},
+   *                   the file is written in the format readable by older versions.
+   * @throws IOException if there is an error in preparing the output streams
+   */
+  public StreamDataFileWriter(OutputSupplier<? extends OutputStream> eventOutputSupplier,
+                              OutputSupplier<? extends OutputStream> indexOutputSupplier,
+                              long indexInterval, Map<String, String> properties,
+                              StreamDataBlockCodec blockCodec) throws IOException {
     this.eventOutput = eventOutputSupplier.getOutput();
     try {
       this.indexOutput = indexOutputSupplier.getOutput();
@@ -124,6 +171,9 @@ public final class StreamDataFileWriter implements TimestampCloseable, Flushable
       throw e;
     }
     this.indexInterval = indexInterval;
+    this.blockCodec = blockCodec;
+    this.blockOutput = blockCodec == StreamDataBlockCodec.NONE ? null : new BlockOutputStream();
+    this.blockPayload = new byte[0];
     this.currentTimestamp = -1L;
     this.closeTimestamp = -1L;
 
@@ -222,6 +272,7 @@ public final class StreamDataFileWriter implements TimestampCloseable, Flushable
 
       // Encodes the event data into buffer.
       StreamEventDataCodec.encode(event, encoder);
+      blockEventCount++;
 
       // Optionally flush if already filled up the buffer.
       if (encoder.size() >= flushLimit) {
@@ -235,9 +286,13 @@ public final class StreamDataFileWriter implements TimestampCloseable, Flushable
 
   private void init(Map<String, String> properties) throws IOException {
     // Writes the header for event file
-    encoder.writeRaw(StreamDataFileConstants.MAGIC_HEADER_V2);
-
     Map<String, String> headers = Maps.newHashMap(properties);
+    if (blockCodec == StreamDataBlockCodec.NONE) {
+      encoder.writeRaw(StreamDataFileConstants.MAGIC_HEADER_V2);
+    } else {
+      encoder.writeRaw(StreamDataFileConstants.MAGIC_HEADER_V3);
+      headers.put(StreamDataFileConstants.Property.Key.BLOCK_CODEC, blockCodec.name());
+    }
     headers.put(StreamDataFileConstants.Property.Key.SCHEMA, StreamEventDataCodec.STREAM_DATA_SCHEMA.toString());
     StreamUtils.encodeMap(headers, encoder);
 
@@ -278,16 +333,26 @@ public final class StreamDataFileWriter implements TimestampCloseable, Flushable
       indexOffset = position - Bytes.SIZEOF_LONG;
     }
 
-    // Writes the size of the encoded event
-    lengthEncoder.writeInt(encoder.size());
-    int size = lengthEncoder.size();
-    lengthEncoder.writeTo(eventOutput);
-    position += size;
-
-    // Writes all encoded data from the buffer to the output.
-    size = encoder.size();
-    encoder.writeTo(eventOutput);
-    position += size;
+    if (blockOutput == null) {
+      // Writes the size of the encoded event
+      lengthEncoder.writeInt(encoder.size());
+      int size = lengthEncoder.size();
+      lengthEncoder.writeTo(eventOutput);
+      position += size;
+
+      // Writes all encoded data from the buffer to the output.
+      size = encoder.size();
+      encoder.writeTo(eventOutput);
+      position += size;
+    } else {
+      int payloadSize = compressBlock();
+      lengthEncoder.writeInt(payloadSize);
+      int size = lengthEncoder.size();
+      lengthEncoder.writeTo(eventOutput);
+      eventOutput.write(blockPayload, 0, payloadSize);
+      position += size + payloadSize;
+    }
+    blockEventCount = 0;
     if (sync) {
       sync(eventOutput);
     }
@@ -310,6 +375,40 @@ public final class StreamDataFileWriter implements TimestampCloseable, Flushable
     synced = sync;
   }
 
+  /**
+   * Compresses the encoded events in the buffer into the block payload.
+   *
+   * @return size of the block payload
+   */
+  private int compressBlock() throws IOException {
+    blockOutput.reset();
+    encoder.writeTo(blockOutput);
+    byte[] data = blockOutput.getBuffer();
+    int size = blockOutput.size();
+
+    // One byte for the codec and four bytes for the uncompressed length
+    ensurePayloadCapacity(5 + blockCodec.maxCompressedLength(size));
+    int compressedSize = blockCodec.compress(data, size, blockPayload, 5);
+
+    // Only use the compressed data if it's smaller and if each event can have a unique position within the block
+    if (compressedSize + 5 < size + 1 && blockEventCount <= compressedSize + 5) {
+      blockPayload[0] = blockCodec.getId();
+      Bytes.putInt(blockPayload, 1, size);
+      return compressedSize + 5;
+    }
+
+    ensurePayloadCapacity(size + 1);
+    blockPayload[0] = StreamDataBlockCodec.NONE.getId();
+    System.arraycopy(data, 0, blockPayload, 1, size);
+    return size + 1;
+  }
+
+  private void ensurePayloadCapacity(int capacity) {
+    if (blockPayload.length < capacity) {
+      blockPayload = new byte[capacity];
+    }
+  }
+
   private void sync(OutputStream output) throws IOException {
     if (output instanceof Syncable) {
       ((Syncable) output).hsync();
@@ -329,6 +428,20 @@ public final class StreamDataFileWriter implements TimestampCloseable, Flushable
     throw ex;
   }
 
+  /**
+   * A {@link ByteArrayOutputStream} that exposes its buffer to avoid copying.
+   */
+  private static final class BlockOutputStream extends ByteArrayOutputStream {
+
+    BlockOutputStream() {
+      super(BUFFER_SIZE);
+    }
+
+    byte[] getBuffer() {
+      return buf;
+    }
+  }
+
   private static Function<OutputStream, Encoder> createEncoderFactory() {
     return new Function<OutputStream, Encoder>() {
       @Override
@@ -16,6 +16,7 @@
 
 package co.cask.cdap.data.stream;
 
+import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.common.io.BinaryDecoder;
 import co.cask.cdap.common.io.ByteBuffers;
 import co.cask.cdap.common.io.Decoder;
@@ -42,12 +43,20 @@ final class StreamEventBuffer {
 
   private ByteBuffer buffer;
   private long basePosition;
+  // Buffer for reading compressed data blocks
+  private byte[] blockBuffer;
+  // Size of the compressed data block in the stream or -1 if the buffer is filled with an uncompressed data block
+  private int blockSize;
+  // Index of the next event in the compressed data block
+  private int eventIndex;
 
   StreamEventBuffer() {
     this.buffer = ByteBuffers.EMPTY_BUFFER;
     this.bufferInput = new ByteBufferInputStream(buffer);
     this.decoder = new BinaryDecoder(bufferInput);
     this.basePosition = -1L;
+    this.blockBuffer = new byte[0];
+    this.blockSize = -1;
   }
 
   /**
@@ -64,14 +73,8 @@ final class StreamEventBuffer {
 
     try {
       basePosition = input.getPos();
-      int bytesRead = 0;
-      while (bytesRead != size) {
-        int len = input.read(buffer.array(), bytesRead, size - bytesRead);
-        if (len < 0) {
-          throw new EOFException("Expected to read " + size + ", but only " + bytesRead + " was read");
-        }
-        bytesRead += len;
-      }
+      blockSize = -1;
+      readFully(input, buffer.array(), size);
       buffer.limit(size);
       bufferInput.reset(buffer);
     } catch (IOException e) {
@@ -82,6 +85,47 @@ final class StreamEventBuffer {
     }
   }
 
+  /**
+   * Fills the internal buffer by reading a data block that may be compressed from the given input stream.
+   * The position of each event in the block is the block position plus the index of the event in the block.
+   *
+   * @param input input stream to read from
+   * @param size number of bytes of the data block
+   * @throws IOException if failed to read from the stream or to decompress the block
+   * @throws EOFException if failed to read the given number of bytes from the input
+   * @see StreamDataFileWriter
+   */
+  void fillCompressedBuffer(SeekableInputStream input, int size) throws IOException {
+    buffer.clear();
+    if (blockBuffer.length < size) {
+      blockBuffer = new byte[size];
+    }
+
+    try {
+      basePosition = input.getPos();
+      readFully(input, blockBuffer, size);
+      StreamDataBlockCodec codec = StreamDataBlockCodec.fromId(blockBuffer[0]);
+      if (codec == StreamDataBlockCodec.NONE) {
+        buffer = ensureCapacity(buffer, size - 1);
+        codec.decompress(blockBuffer, 1, size - 1, buffer.array(), size - 1);
+        buffer.limit(size - 1);
+      } else {
+        int uncompressedSize = Bytes.toInt(blockBuffer, 1);
+        buffer = ensureCapacity(buffer, uncompressedSize);
+        codec.decompress(blockBuffer, 5, size - 5, buffer.array(), uncompressedSize);
+        buffer.limit(uncompressedSize);
+      }
+      bufferInput.reset(buffer);
+      blockSize = size;
+      eventIndex = 0;
+    } catch (IOException e) {
+      // Make the buffer has nothing to read
+      buffer.position(buffer.limit());
+      basePosition = -1L;
+      throw e;
+    }
+  }
+
   /**
    * Returns {@code true} if there are events in the buffer, {@code false} otherwise.
    */
@@ -94,7 +138,13 @@ final class StreamEventBuffer {
    * read from the stream.
    */
   long getPosition() {
-    return basePosition >= 0 ? basePosition + buffer.position() : -1L;
+    if (basePosition < 0) {
+      return -1L;
+    }
+    if (blockSize < 0) {
+      return basePosition + buffer.position();
+    }
+    return hasEvent() ? basePosition + eventIndex : basePosition + blockSize;
   }
 
   /**
@@ -102,7 +152,10 @@ final class StreamEventBuffer {
    * been read from the stream.
    */
   long getEndPosition() {
-    return basePosition >= 0 ? basePosition + buffer.limit() : -1L;
+    if (basePosition < 0) {
+      return -1L;
+    }
+    return blockSize < 0 ? basePosition + buffer.limit() : basePosition + blockSize;
   }
 
   /**
@@ -120,7 +173,8 @@ final class StreamEventBuffer {
       throw new IOException("No more event in the buffer");
     }
 
-    long eventPos = basePosition + buffer.position();
+    long eventPos = getPosition();
+    eventIndex++;
     if (filter.acceptOffset(eventPos)) {
       return new PositionStreamEvent(StreamEventDataCodec.decode(decoder, defaultHeaders), timestamp, eventPos);
     }
@@ -128,6 +182,17 @@ final class StreamEventBuffer {
     return null;
   }
 
+  private void readFully(SeekableInputStream input, byte[] bytes, int size) throws IOException {
+    int bytesRead = 0;
+    while (bytesRead != size) {
+      int len = input.read(bytes, bytesRead, size - bytesRead);
+      if (len < 0) {
+        throw new EOFException("Expected to read " + size + ", but only " + bytesRead + " was read");
+      }
+      bytesRead += len;
+    }
+  }
+
   /**
    * Ensures that the given {@link ByteBuffer} is of sufficient size.
    *
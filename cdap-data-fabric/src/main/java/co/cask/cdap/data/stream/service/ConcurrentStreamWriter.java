@@ -16,6 +16,8 @@
 package co.cask.cdap.data.stream.service;
 
 import co.cask.cdap.api.flow.flowlet.StreamEvent;
+import co.cask.cdap.api.metrics.MetricsContext;
+import co.cask.cdap.api.metrics.NoopMetricsContext;
 import co.cask.cdap.api.stream.StreamEventData;
 import co.cask.cdap.common.NotFoundException;
 import co.cask.cdap.data.file.FileWriter;
@@ -37,17 +39,20 @@ import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.collect.MapMaker;
 import com.google.common.collect.Sets;
-import com.google.common.io.Closeables;
 import com.google.common.util.concurrent.AbstractScheduledService;
 import com.google.common.util.concurrent.Service;
 import org.apache.twill.common.Cancellable;
+import org.apache.twill.common.Threads;
 import org.apache.twill.filesystem.Location;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -56,11 +61,17 @@ import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
 
 /**
@@ -87,6 +98,11 @@ import javax.annotation.concurrent.ThreadSafe;
  * The spin lock between step 2 to step 8 is necessary as it guarantees events enqueued by all threads would eventually
  * get written and flushed.
  *
+ * When group sync is enabled, step 5 and 6 are deferred. The writer leader only writes the events and keeps the
+ * requests as pending. A background service then, for every group sync window, flushes and syncs all stream writers
+ * that have pending requests in parallel and completes those requests. Threads that wait for a pending request
+ * block until the sync is done instead of spinning. This trades up to one window of latency per request for
+ * far fewer file system syncs when writing to many streams concurrently.
  */
 @ThreadSafe
 public final class ConcurrentStreamWriter implements Closeable {
@@ -103,10 +119,29 @@ public final class ConcurrentStreamWriter implements Closeable {
   private final List<Cancellable> cancellables;
   private final Lock createLock;
   private final Service eventQueueRefreshService;
+  private final MetricsContext syncMetricsContext;
+  private final long groupSyncWindowMs;
+  private final Service groupSyncService;
 
   ConcurrentStreamWriter(StreamCoordinatorClient streamCoordinatorClient, StreamAdmin streamAdmin,
                          StreamFileWriterFactory writerFactory, int workerThreads,
                          StreamMetricsCollectorFactory metricsCollectorFactory, Impersonator impersonator) {
+    this(streamCoordinatorClient, streamAdmin, writerFactory, workerThreads, metricsCollectorFactory, impersonator,
+         new NoopMetricsContext(), 0L, 1);
+  }
+
+  /**
+   * Creates an instance with the given sync behavior.
+   *
+   * @param syncMetricsContext the {@link MetricsContext} for emitting metrics about file syncs
+   * @param groupSyncWindowMs if positive, syncs across all streams are coalesced and performed at most once
+   *                          per the given number of milliseconds; otherwise every write request is synced
+   * @param groupSyncThreads number of threads for performing group sync in parallel
+   */
+  ConcurrentStreamWriter(StreamCoordinatorClient streamCoordinatorClient, StreamAdmin streamAdmin,
+                         StreamFileWriterFactory writerFactory, int workerThreads,
+                         StreamMetricsCollectorFactory metricsCollectorFactory, Impersonator impersonator,
+                         MetricsContext syncMetricsContext, long groupSyncWindowMs, int groupSyncThreads) {
     this.streamCoordinatorClient = streamCoordinatorClient;
     this.streamAdmin = streamAdmin;
     this.workerThreads = workerThreads;
@@ -117,6 +152,9 @@ public final class ConcurrentStreamWriter implements Closeable {
     this.cancellables = Lists.newArrayList();
     this.createLock = new ReentrantLock();
     this.eventQueueRefreshService = scheduleWriterRefresh();
+    this.syncMetricsContext = syncMetricsContext;
+    this.groupSyncWindowMs = groupSyncWindowMs;
+    this.groupSyncService = groupSyncWindowMs > 0 ? startGroupSync(groupSyncWindowMs, groupSyncThreads) : null;
   }
 
   private Service scheduleWriterRefresh() {
@@ -141,6 +179,80 @@ public final class ConcurrentStreamWriter implements Closeable {
     return scheduledService;
   }
 
+  private Service startGroupSync(final long windowMs, final int syncThreads) {
+    AbstractScheduledService scheduledService = new AbstractScheduledService() {
+
+      private ExecutorService syncExecutor;
+
+      @Override
+      protected void startUp() throws Exception {
+        syncExecutor = Executors.newFixedThreadPool(syncThreads, Threads.createDaemonThreadFactory("stream-sync-%d"));
+      }
+
+      @Override
+      protected void shutDown() throws Exception {
+        syncExecutor.shutdownNow();
+      }
+
+      @Override
+      protected void runOneIteration() throws Exception {
+        long startTime = System.nanoTime();
+        Map<EventQueue, Future<Integer>> futures = new IdentityHashMap<>();
+        for (final EventQueue eventQueue : eventQueues.values()) {
+          if (!eventQueue.isSyncRequired()) {
+            continue;
+          }
+          try {
+            futures.put(eventQueue, syncExecutor.submit(new Callable<Integer>() {
+              @Override
+              public Integer call() {
+                return eventQueue.sync();
+              }
+            }));
+          } catch (RejectedExecutionException e) {
+            eventQueue.abortSync(e);
+          }
+        }
+        if (futures.isEmpty()) {
+          return;
+        }
+
+        // A failure must not propagate, otherwise this service terminates and no request would be synced anymore
+        int eventsSynced = 0;
+        for (Map.Entry<EventQueue, Future<Integer>> entry : futures.entrySet()) {
+          try {
+            eventsSynced += entry.getValue().get();
+          } catch (ExecutionException e) {
+            LOG.warn("Failed to sync stream writer for {}", entry.getKey().streamId, e.getCause());
+            entry.getKey().abortSync(e.getCause());
+          } catch (InterruptedException e) {
+            // Only happens when this service is stopping, which completes the pending requests when closing
+            Thread.currentThread().interrupt();
+            return;
+          }
+        }
+        emitSyncMetrics(startTime, eventsSynced);
+      }
+
+      @Override
+      protected Scheduler scheduler() {
+        return Scheduler.newFixedDelaySchedule(windowMs, windowMs, TimeUnit.MILLISECONDS);
+      }
+    };
+    scheduledService.startAndWait();
+    return scheduledService;
+  }
+
+  /**
+   * Emits metrics for a sync that started at the given time, as returned by {@link System#nanoTime()}.
+   */
+  private void emitSyncMetrics(long startTime, int eventsSynced) {
+    long latencyMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+    syncMetricsContext.increment("collect.sync.count", 1);
+    syncMetricsContext.increment("collect.sync.events", eventsSynced);
+    syncMetricsContext.increment("collect.sync.time.ms", latencyMs);
+  }
+
   public void close(StreamId streamId) throws IOException {
     createLock.lock();
     try {
@@ -238,6 +350,11 @@ public final class ConcurrentStreamWriter implements Closeable {
       cancellable.cancel();
     }
 
+    // Requests that are still pending for sync are completed when the event queues are closed
+    if (groupSyncService != null) {
+      groupSyncService.stopAndWait();
+    }
+
     for (EventQueue queue : eventQueues.values()) {
       try {
         queue.close();
@@ -298,6 +415,14 @@ public final class ConcurrentStreamWriter implements Closeable {
     while (!request.isCompleted()) {
       if (!eventQueue.tryWrite()) {
         Thread.yield();
+      } else if (groupSyncWindowMs > 0) {
+        // The request is written and will be completed by the next group sync
+        try {
+          request.awaitCompleted(groupSyncWindowMs);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted while waiting for stream event to be synced to " + streamId);
+        }
       }
     }
     if (!request.isSuccess()) {
@@ -438,6 +563,9 @@ public final class ConcurrentStreamWriter implements Closeable {
     private final WriteRequest.Metrics metrics;
     private final MutableStreamEvent streamEvent;
     private final Function<StreamEventData, StreamEvent> eventTransformer;
+    private final List<WriteRequest> pendingSync;
+    private int pendingSyncEvents;
+    private volatile boolean syncRequired;
     private FileWriter<StreamEventData> fileWriter;
     private boolean closed;
 
@@ -448,6 +576,7 @@ public final class ConcurrentStreamWriter implements Closeable {
       this.writerFlag = new AtomicBoolean(false);
       this.metrics = new WriteRequest.Metrics();
       this.metricsCollector = metricsCollector;
+      this.pendingSync = new ArrayList<>();
       this.eventTransformer = new Function<StreamEventData, StreamEvent>() {
         @Override
         public StreamEvent apply(StreamEventData data) {
@@ -508,6 +637,7 @@ public final class ConcurrentStreamWriter implements Closeable {
         if (fileWriter != null) {
           fileWriter.close();
           fileWriter = null;
+          completePendingSync(null);
         }
         timestampCloseable.close();
         fileSize = eventFile.length();
@@ -548,16 +678,25 @@ public final class ConcurrentStreamWriter implements Closeable {
             request.write(writer, metrics);
             request = queue.poll();
           }
-          writer.flush();
-          for (WriteRequest processed : processQueue) {
-            processed.completed(null);
+          if (groupSyncWindowMs > 0) {
+            // Leave the flush and completion of the requests to the group sync
+            pendingSync.addAll(processQueue);
+            pendingSyncEvents += metrics.eventsWritten;
+            syncRequired = !pendingSync.isEmpty();
+          } else {
+            long startTime = System.nanoTime();
+            writer.flush();
+            emitSyncMetrics(startTime, metrics.eventsWritten);
+            for (WriteRequest processed : processQueue) {
+              processed.completed(null);
+            }
           }
           bytesWritten = metrics.bytesWritten;
           eventsWritten = metrics.eventsWritten;
         } catch (Throwable t) {
           // On exception, remove this EventQueue from the map and close this event queue
           eventQueues.remove(streamId, this);
-          doClose();
+          doClose(t);
 
           for (WriteRequest processed : processQueue) {
             processed.completed(t);
@@ -571,6 +710,74 @@ public final class ConcurrentStreamWriter implements Closeable {
       return true;
     }
 
+    /**
+     * Returns {@code true} if there are written requests waiting for a sync.
+     */
+    boolean isSyncRequired() {
+      return syncRequired;
+    }
+
+    /**
+     * Flushes the underlying {@link FileWriter} and completes all requests that are pending for sync.
+     * This method blocks until it becomes the writer leader.
+     *
+     * @return number of events synced
+     */
+    int sync() {
+      while (!writerFlag.compareAndSet(false, true)) {
+        Thread.yield();
+      }
+
+      int eventsSynced = 0;
+      try {
+        if (pendingSync.isEmpty()) {
+          return 0;
+        }
+        try {
+          fileWriter.flush();
+          eventsSynced = pendingSyncEvents;
+          completePendingSync(null);
+        } catch (Throwable t) {
+          // On exception, remove this EventQueue from the map and close this event queue
+          eventQueues.remove(streamId, this);
+          doClose(t);
+        }
+      } finally {
+        writerFlag.set(false);
+      }
+      return eventsSynced;
+    }
+
+    /**
+     * Closes this event queue with the given failure after a failed sync, which completes all requests that are
+     * pending for sync with the failure. This method blocks until it becomes the writer leader.
+     */
+    void abortSync(Throwable failure) {
+      while (!writerFlag.compareAndSet(false, true)) {
+        Thread.yield();
+      }
+      try {
+        eventQueues.remove(streamId, this);
+        if (!closed) {
+          doClose(failure);
+        }
+      } finally {
+        writerFlag.set(false);
+      }
+    }
+
+    /**
+     * Completes all requests that are pending for sync. This method should only be called from the writer leader.
+     */
+    private void completePendingSync(@Nullable Throwable failure) {
+      for (WriteRequest request : pendingSync) {
+        request.completed(failure);
+      }
+      pendingSync.clear();
+      pendingSyncEvents = 0;
+      syncRequired = false;
+    }
+
     /**
      * Attempts to refresh the underlying FileWriter, if it is {@link Refreshable}.
      */
@@ -616,7 +823,7 @@ public final class ConcurrentStreamWriter implements Closeable {
           continue;
         }
         try {
-          doClose();
+          doClose(null);
         } finally {
           done = true;
           writerFlag.set(false);
@@ -624,11 +831,24 @@ public final class ConcurrentStreamWriter implements Closeable {
       }
     }
 
-    private void doClose() {
+    /**
+     * Closes the underlying {@link FileWriter} and completes all outstanding requests.
+     *
+     * @param failure the failure that causes the close or {@code null} for a normal close
+     */
+    private void doClose(@Nullable Throwable failure) {
       if (fileWriter != null) {
-        Closeables.closeQuietly(fileWriter);
+        try {
+          fileWriter.close();
+        } catch (IOException e) {
+          LOG.warn("Failed to close stream writer for {}", streamId, e);
+          failure = failure == null ? e : failure;
+        }
       }
 
+      // Requests written to the file writer are persisted if it was closed successfully
+      completePendingSync(failure);
+
       // Drain the queue with failure. This could happen when
       // 1. Shutting down of http service, which is fine to set to failure as all connections are closed already.
       // 2. When stream generation change. In this case, the client would received failure.
@@ -721,7 +941,7 @@ public final class ConcurrentStreamWriter implements Closeable {
       }
     }
 
-    private State state = State.PENDING;
+    private volatile State state = State.PENDING;
     private Throwable failure;
 
     boolean isCompleted() {
@@ -733,8 +953,20 @@ public final class ConcurrentStreamWriter implements Closeable {
     }
 
     void completed(Throwable failure) {
-      this.state = State.COMPLETED;
       this.failure = failure;
+      this.state = State.COMPLETED;
+      synchronized (this) {
+        notifyAll();
+      }
+    }
+
+    /**
+     * Waits for this request to complete, up to the given amount of time.
+     */
+    synchronized void awaitCompleted(long timeoutMs) throws InterruptedException {
+      if (!isCompleted()) {
+        wait(timeoutMs);
+      }
     }
 
     Throwable getFailure() {
@@ -31,6 +31,7 @@ import co.cask.cdap.common.namespace.NamespaceQueryAdmin;
 import co.cask.cdap.common.security.AuditDetail;
 import co.cask.cdap.common.security.AuditPolicy;
 import co.cask.cdap.data.stream.StreamCoordinatorClient;
+import co.cask.cdap.data.stream.StreamDataBlockCodec;
 import co.cask.cdap.data.stream.StreamFileWriterFactory;
 import co.cask.cdap.data.stream.service.upload.ContentWriterFactory;
 import co.cask.cdap.data.stream.service.upload.LengthBasedContentWriterFactory;
@@ -145,9 +146,13 @@ public final class StreamHandler extends AbstractHttpHandler {
         }
       });
     StreamMetricsCollectorFactory metricsCollectorFactory = createStreamMetricsCollectorFactory();
+    long groupSyncWindowMs = "group".equalsIgnoreCase(cConf.get(Constants.Stream.SYNC_MODE))
+      ? cConf.getLong(Constants.Stream.GROUP_SYNC_WINDOW_MS) : 0L;
     this.streamWriter = new ConcurrentStreamWriter(streamCoordinatorClient, streamAdmin, writerFactory,
                                                    cConf.getInt(Constants.Stream.WORKER_THREADS),
-                                                   metricsCollectorFactory, impersonator);
+                                                   metricsCollectorFactory, impersonator,
+                                                   streamHandlerMetricsContext, groupSyncWindowMs,
+                                                   cConf.getInt(Constants.Stream.GROUP_SYNC_THREADS));
     this.namespaceQueryAdmin = namespaceQueryAdmin;
     this.impersonator = impersonator;
     this.authorizationEnforcer = authorizationEnforcer;
@@ -242,6 +247,10 @@ public final class StreamHandler extends AbstractHttpHandler {
       if (streamProperties.getOwnerPrincipal() != null) {
         props.put(Constants.Security.PRINCIPAL, streamProperties.getOwnerPrincipal());
       }
+
+      if (streamProperties.getBlockCodec() != null) {
+        props.put(Constants.Stream.BLOCK_CODEC, streamProperties.getBlockCodec());
+      }
     }
 
     streamAdmin.create(streamId, props);
@@ -427,8 +436,18 @@ public final class StreamHandler extends AbstractHttpHandler {
       SecurityUtil.validateKerberosPrincipal(properties.getOwnerPrincipal());
     }
 
+    // Validate block codec
+    String blockCodec = properties.getBlockCodec();
+    if (blockCodec != null) {
+      try {
+        blockCodec = StreamDataBlockCodec.fromName(blockCodec).name();
+      } catch (IllegalArgumentException e) {
+        throw new BadRequestException(e.getMessage());
+      }
+    }
+
     return new StreamProperties(ttl, formatSpec, threshold, properties.getDescription(),
-                                properties.getOwnerPrincipal());
+                                properties.getOwnerPrincipal(), blockCodec);
   }
 
   private RejectedExecutionHandler createAsyncRejectedExecutionHandler() {
@@ -504,6 +523,9 @@ public final class StreamHandler extends AbstractHttpHandler {
       if (src.getOwnerPrincipal() != null) {
         json.addProperty(Constants.Security.PRINCIPAL, src.getOwnerPrincipal());
       }
+      if (src.getBlockCodec() != null) {
+        json.addProperty("block.codec", src.getBlockCodec());
+      }
       return json;
     }
 
@@ -524,7 +546,8 @@ public final class StreamHandler extends AbstractHttpHandler {
       String description = jsonObj.has("description") ? jsonObj.get("description").getAsString() : null;
       String ownerPrincipal = jsonObj.has(Constants.Security.PRINCIPAL) ?
         jsonObj.get(Constants.Security.PRINCIPAL).getAsString() : null;
-      return new StreamProperties(ttl, format, threshold, description, ownerPrincipal);
+      String blockCodec = jsonObj.has("block.codec") ? jsonObj.get("block.codec").getAsString() : null;
+      return new StreamProperties(ttl, format, threshold, description, ownerPrincipal, blockCodec);
     }
   }
 
@@ -65,7 +65,7 @@ final class FileContentWriter implements ContentWriter {
     this.writer = new StreamDataFileWriter(Locations.newOutputSupplier(eventFile),
                                            Locations.newOutputSupplier(indexFile),
                                            streamConfig.getIndexInterval(),
-                                           properties);
+                                           properties, streamConfig.getBlockCodec());
   }
 
   private Map<String, String> createStreamFileProperties(Map<String, String> headers) {
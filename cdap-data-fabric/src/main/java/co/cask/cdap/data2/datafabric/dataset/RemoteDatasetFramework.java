@@ -22,12 +22,16 @@ import co.cask.cdap.api.dataset.DatasetContext;
 import co.cask.cdap.api.dataset.DatasetManagementException;
 import co.cask.cdap.api.dataset.DatasetProperties;
 import co.cask.cdap.api.dataset.DatasetSpecification;
+import co.cask.cdap.api.dataset.lib.CloseableIterator;
 import co.cask.cdap.api.dataset.module.DatasetDefinitionRegistry;
 import co.cask.cdap.api.dataset.module.DatasetModule;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.io.Locations;
 import co.cask.cdap.common.lang.ClassLoaders;
+import co.cask.cdap.common.service.RetryStrategies;
+import co.cask.cdap.common.service.RetryStrategy;
+import co.cask.cdap.common.utils.ImmutablePair;
 import co.cask.cdap.data2.datafabric.dataset.type.ConstantClassLoaderProvider;
 import co.cask.cdap.data2.datafabric.dataset.type.DatasetClassLoaderProvider;
 import co.cask.cdap.data2.dataset2.DatasetDefinitionRegistries;
@@ -35,6 +39,9 @@ import co.cask.cdap.data2.dataset2.DatasetDefinitionRegistryFactory;
 import co.cask.cdap.data2.dataset2.DatasetFramework;
 import co.cask.cdap.data2.dataset2.module.lib.DatasetModules;
 import co.cask.cdap.data2.metadata.lineage.AccessType;
+import co.cask.cdap.messaging.MessageFetcher;
+import co.cask.cdap.messaging.MessagingService;
+import co.cask.cdap.messaging.data.RawMessage;
 import co.cask.cdap.proto.DatasetMeta;
 import co.cask.cdap.proto.DatasetModuleMeta;
 import co.cask.cdap.proto.DatasetSpecificationSummary;
@@ -45,9 +52,11 @@ import co.cask.cdap.proto.id.DatasetTypeId;
 import co.cask.cdap.proto.id.EntityId;
 import co.cask.cdap.proto.id.KerberosPrincipalId;
 import co.cask.cdap.proto.id.NamespaceId;
+import co.cask.cdap.proto.id.TopicId;
 import co.cask.cdap.security.spi.authentication.AuthenticationContext;
 import com.google.common.base.Objects;
 import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
@@ -55,19 +64,27 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Sets;
 import com.google.common.io.ByteStreams;
 import com.google.inject.Inject;
+import org.apache.twill.common.Threads;
 import org.apache.twill.discovery.DiscoveryServiceClient;
 import org.apache.twill.filesystem.Location;
 import org.apache.twill.internal.ApplicationBundler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.jar.JarEntry;
 import java.util.jar.JarInputStream;
 import java.util.jar.JarOutputStream;
@@ -77,12 +94,23 @@ import javax.annotation.Nullable;
  * {@link co.cask.cdap.data2.dataset2.DatasetFramework} implementation that talks to DatasetFramework Service
  */
 @SuppressWarnings("unchecked")
-public class RemoteDatasetFramework implements DatasetFramework {
+public class RemoteDatasetFramework implements DatasetFramework, Closeable {
   private static final Logger LOG = LoggerFactory.getLogger(RemoteDatasetFramework.class);
+  // Maximum time to wait for new dataset changes in each fetch, which matches the maximum back-off delay
+  private static final long MAX_CHANGE_FETCH_WAIT_MILLIS = 3000L;
 
   private final CConfiguration cConf;
   private final LoadingCache<NamespaceId, DatasetServiceClient> clientCache;
   private final DatasetDefinitionRegistryFactory registryFactory;
+  private final AuthenticationContext authenticationContext;
+  // Caches of instance and type metadata, keyed by the user making the request. They are null if caching is disabled.
+  private final Cache<ImmutablePair<String, DatasetId>, DatasetMeta> instanceCache;
+  private final Cache<ImmutablePair<String, DatasetTypeId>, DatasetTypeMeta> typeCache;
+  // Used to fetch dataset changes to invalidate the instance cache. It is null if there is no messaging service.
+  private MessagingService messagingService;
+  // Runs the ChangeSubscriber. It is started when the first entry is added to the instance cache.
+  private ScheduledExecutorService changeSubscriberExecutor;
+  private boolean closed;
 
   @Inject
   public RemoteDatasetFramework(final CConfiguration cConf, final DiscoveryServiceClient discoveryClient,
@@ -96,6 +124,49 @@ public class RemoteDatasetFramework implements DatasetFramework {
       }
     });
     this.registryFactory = registryFactory;
+    this.authenticationContext = authenticationContext;
+
+    long cacheExpirySecs = cConf.getLong(Constants.Dataset.CLIENT_CACHE_EXPIRY_SECS);
+    if (cacheExpirySecs > 0) {
+      long cacheMaxSize = cConf.getLong(Constants.Dataset.CLIENT_CACHE_MAX_SIZE);
+      this.instanceCache = CacheBuilder.newBuilder()
+        .expireAfterWrite(cacheExpirySecs, TimeUnit.SECONDS)
+        .maximumSize(cacheMaxSize)
+        .build();
+      this.typeCache = CacheBuilder.newBuilder()
+        .expireAfterWrite(cacheExpirySecs, TimeUnit.SECONDS)
+        .maximumSize(cacheMaxSize)
+        .build();
+    } else {
+      this.instanceCache = null;
+      this.typeCache = null;
+    }
+  }
+
+  /**
+   * Sets the {@link MessagingService} used to subscribe to the dataset change topic. The dataset service publishes
+   * every dataset instance that is created, updated or deleted to that topic, upon which the cached metadata of that
+   * instance is invalidated. Without a messaging service, changes made through other clients become visible when the
+   * cached entries expire.
+   */
+  @Inject(optional = true)
+  public synchronized void setMessagingService(MessagingService messagingService) {
+    this.messagingService = messagingService;
+  }
+
+  /**
+   * Stops fetching dataset changes. The instance cache is disabled afterwards, since its entries would no longer be
+   * invalidated on changes.
+   */
+  @Override
+  public synchronized void close() {
+    closed = true;
+    if (changeSubscriberExecutor != null) {
+      changeSubscriberExecutor.shutdownNow();
+    }
+    if (instanceCache != null) {
+      instanceCache.invalidateAll();
+    }
   }
 
   @Override
@@ -106,6 +177,7 @@ public class RemoteDatasetFramework implements DatasetFramework {
       try {
         clientCache.getUnchecked(moduleId.getParent())
           .addModule(moduleId.getEntityName(), moduleClass.getName(), deploymentJar);
+        invalidateTypes();
       } finally {
         try {
           deploymentJar.delete();
@@ -127,16 +199,19 @@ public class RemoteDatasetFramework implements DatasetFramework {
                         Location jarLocation) throws DatasetManagementException {
     clientCache.getUnchecked(moduleId.getParent())
       .addModule(moduleId.getEntityName(), DatasetModules.getDatasetModuleClass(module).getName(), jarLocation);
+    invalidateTypes();
   }
 
   @Override
   public void deleteModule(DatasetModuleId moduleId) throws DatasetManagementException {
     clientCache.getUnchecked(moduleId.getParent()).deleteModule(moduleId.getEntityName());
+    invalidateTypes();
   }
 
   @Override
   public void deleteAllModules(NamespaceId namespaceId) throws DatasetManagementException {
     clientCache.getUnchecked(namespaceId).deleteModules();
+    invalidateTypes();
   }
 
   @Override
@@ -151,6 +226,7 @@ public class RemoteDatasetFramework implements DatasetFramework {
     throws DatasetManagementException {
     clientCache.getUnchecked(datasetInstanceId.getParent())
       .addInstance(datasetInstanceId.getEntityName(), datasetType, props, ownerPrincipal);
+    invalidateInstance(datasetInstanceId);
   }
 
   @Override
@@ -158,6 +234,7 @@ public class RemoteDatasetFramework implements DatasetFramework {
     throws DatasetManagementException {
     clientCache.getUnchecked(datasetInstanceId.getParent())
       .updateInstance(datasetInstanceId.getEntityName(), props);
+    invalidateInstance(datasetInstanceId);
   }
 
   @Override
@@ -169,15 +246,13 @@ public class RemoteDatasetFramework implements DatasetFramework {
   @Nullable
   @Override
   public DatasetSpecification getDatasetSpec(DatasetId datasetInstanceId) throws DatasetManagementException {
-    DatasetMeta meta = clientCache.getUnchecked(datasetInstanceId.getParent())
-      .getInstance(datasetInstanceId.getEntityName());
+    DatasetMeta meta = getInstanceMeta(datasetInstanceId, null);
     return meta == null ? null : meta.getSpec();
   }
 
   @Override
   public boolean hasInstance(DatasetId datasetInstanceId) throws DatasetManagementException {
-    return clientCache.getUnchecked(datasetInstanceId.getParent())
-      .getInstance(datasetInstanceId.getEntityName()) != null;
+    return getInstanceMeta(datasetInstanceId, null) != null;
   }
 
   @Override
@@ -187,12 +262,12 @@ public class RemoteDatasetFramework implements DatasetFramework {
 
   @Override
   public boolean hasType(DatasetTypeId datasetTypeId) throws DatasetManagementException {
-    return clientCache.getUnchecked(datasetTypeId.getParent()).getType(datasetTypeId.getEntityName()) != null;
+    return getTypeMeta(datasetTypeId) != null;
   }
 
   @Override
   public DatasetTypeMeta getTypeInfo(DatasetTypeId datasetTypeId) throws DatasetManagementException {
-    return clientCache.getUnchecked(datasetTypeId.getParent()).getType(datasetTypeId.getEntityName());
+    return getTypeMeta(datasetTypeId);
   }
 
   @Override
@@ -203,11 +278,13 @@ public class RemoteDatasetFramework implements DatasetFramework {
   @Override
   public void deleteInstance(DatasetId datasetInstanceId) throws DatasetManagementException {
     clientCache.getUnchecked(datasetInstanceId.getParent()).deleteInstance(datasetInstanceId.getEntityName());
+    invalidateInstance(datasetInstanceId);
   }
 
   @Override
   public void deleteAllInstances(NamespaceId namespaceId) throws DatasetManagementException, IOException {
     clientCache.getUnchecked(namespaceId).deleteInstances();
+    invalidateInstances(namespaceId);
   }
 
   @Override
@@ -222,8 +299,7 @@ public class RemoteDatasetFramework implements DatasetFramework {
                                              @Nullable ClassLoader parentClassLoader,
                                              DatasetClassLoaderProvider classLoaderProvider)
     throws DatasetManagementException, IOException {
-    DatasetMeta instanceInfo = clientCache.getUnchecked(datasetInstanceId.getParent())
-      .getInstance(datasetInstanceId.getEntityName());
+    DatasetMeta instanceInfo = getInstanceMeta(datasetInstanceId, null);
     if (instanceInfo == null) {
       return null;
     }
@@ -249,7 +325,7 @@ public class RemoteDatasetFramework implements DatasetFramework {
                                           @Nullable Iterable<? extends EntityId> owners, AccessType accessType)
     throws DatasetManagementException, IOException {
 
-    DatasetMeta datasetMeta = clientCache.getUnchecked(id.getParent()).getInstance(id.getEntityName(), owners);
+    DatasetMeta datasetMeta = getInstanceMeta(id, owners);
     if (datasetMeta == null) {
       return null;
     }
@@ -263,6 +339,111 @@ public class RemoteDatasetFramework implements DatasetFramework {
     // no-op. The RemoteDatasetFramework doesn't need to do anything. The lineage should be recorded before this point.
   }
 
+  /**
+   * Returns the {@link DatasetMeta} of the given dataset instance, served from the instance cache if it is enabled.
+   * Absence of an instance is not cached, so that an instance created by another client is visible right away.
+   */
+  @Nullable
+  private DatasetMeta getInstanceMeta(DatasetId datasetInstanceId, @Nullable Iterable<? extends EntityId> owners)
+    throws DatasetManagementException {
+    if (instanceCache == null) {
+      return clientCache.getUnchecked(datasetInstanceId.getParent())
+        .getInstance(datasetInstanceId.getEntityName(), owners);
+    }
+
+    ImmutablePair<String, DatasetId> key = ImmutablePair.of(getUserId(), datasetInstanceId);
+    DatasetMeta meta = instanceCache.getIfPresent(key);
+    if (meta == null) {
+      meta = clientCache.getUnchecked(datasetInstanceId.getParent())
+        .getInstance(datasetInstanceId.getEntityName(), owners);
+      if (meta != null && startChangeSubscriber()) {
+        instanceCache.put(key, meta);
+      }
+    }
+    return meta;
+  }
+
+  /**
+   * Returns the {@link DatasetTypeMeta} of the given dataset type, served from the type cache if it is enabled.
+   */
+  @Nullable
+  private DatasetTypeMeta getTypeMeta(DatasetTypeId datasetTypeId) throws DatasetManagementException {
+    if (typeCache == null) {
+      return clientCache.getUnchecked(datasetTypeId.getParent()).getType(datasetTypeId.getEntityName());
+    }
+
+    ImmutablePair<String, DatasetTypeId> key = ImmutablePair.of(getUserId(), datasetTypeId);
+    DatasetTypeMeta meta = typeCache.getIfPresent(key);
+    if (meta == null) {
+      meta = clientCache.getUnchecked(datasetTypeId.getParent()).getType(datasetTypeId.getEntityName());
+      if (meta != null) {
+        typeCache.put(key, meta);
+      }
+    }
+    return meta;
+  }
+
+  /**
+   * Entries are cached per user, since the dataset service only returns metadata the user is authorized to see.
+   */
+  private String getUserId() {
+    return authenticationContext.getPrincipal().getName();
+  }
+
+  private void invalidateInstance(DatasetId datasetInstanceId) {
+    if (instanceCache == null) {
+      return;
+    }
+    Iterator<ImmutablePair<String, DatasetId>> iterator = instanceCache.asMap().keySet().iterator();
+    while (iterator.hasNext()) {
+      if (datasetInstanceId.equals(iterator.next().getSecond())) {
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Starts fetching dataset changes if there is a messaging service and it is not started yet. Subscribing only once
+   * the instance cache is used keeps framework instances that never cache anything from polling the topic.
+   *
+   * @return {@code false} if this framework is closed, in which case nothing should be cached
+   */
+  private synchronized boolean startChangeSubscriber() {
+    if (closed) {
+      return false;
+    }
+    if (messagingService != null && changeSubscriberExecutor == null) {
+      TopicId changeTopic = NamespaceId.SYSTEM.topic(cConf.get(Constants.Dataset.CHANGE_TOPIC));
+      changeSubscriberExecutor = Executors.newSingleThreadScheduledExecutor(
+        Threads.createDaemonThreadFactory("dataset-cache-change-subscriber"));
+      changeSubscriberExecutor.execute(new ChangeSubscriber(messagingService, changeTopic));
+    }
+    return true;
+  }
+
+  private void invalidateInstances(NamespaceId namespaceId) {
+    if (instanceCache == null) {
+      return;
+    }
+    Iterator<ImmutablePair<String, DatasetId>> iterator = instanceCache.asMap().keySet().iterator();
+    while (iterator.hasNext()) {
+      if (namespaceId.equals(iterator.next().getSecond().getParent())) {
+        iterator.remove();
+      }
+    }
+  }
+
+  private void invalidateTypes() {
+    // A module change can affect types in other namespaces that depend on it, as well as the
+    // instances of those types, hence invalidate everything
+    if (typeCache != null) {
+      typeCache.invalidateAll();
+    }
+    if (instanceCache != null) {
+      instanceCache.invalidateAll();
+    }
+  }
+
   private Location createDeploymentJar(Class<?> clz) throws IOException {
     File tempDir = new File(cConf.get(Constants.CFG_LOCAL_DATA_DIR),
                             cConf.get(Constants.AppFabric.TEMP_DIR)).getAbsoluteFile();
@@ -388,4 +569,69 @@ public class RemoteDatasetFramework implements DatasetFramework {
     // for that last module.
     return (T) new DatasetType(registry.get(datasetTypeMeta.getName()), classLoader);
   }
+
+  /**
+   * Fetches dataset changes published after it was created and invalidates the cached instance metadata accordingly.
+   */
+  private final class ChangeSubscriber implements Runnable {
+
+    private final MessagingService messagingService;
+    private final TopicId changeTopic;
+    private final long startTime = System.currentTimeMillis();
+    private final RetryStrategy scheduleStrategy = RetryStrategies.exponentialDelay(100, 3000, TimeUnit.MILLISECONDS);
+    // id of the last message fetched from each partition of the topic
+    private final Map<Integer, byte[]> resumeMessages = new HashMap<>();
+    private int emptyFetchCount;
+
+    private ChangeSubscriber(MessagingService messagingService, TopicId changeTopic) {
+      this.messagingService = messagingService;
+      this.changeTopic = changeTopic;
+    }
+
+    @Override
+    public void run() {
+      long fetchStartTime = System.currentTimeMillis();
+      try {
+        MessageFetcher fetcher = messagingService.prepareFetch(changeTopic)
+          .setStartTime(startTime)
+          .setWaitTimeout(MAX_CHANGE_FETCH_WAIT_MILLIS);
+        for (Map.Entry<Integer, byte[]> entry : resumeMessages.entrySet()) {
+          fetcher.setResumeMessage(entry.getKey(), entry.getValue());
+        }
+
+        emptyFetchCount++;
+        try (CloseableIterator<RawMessage> iterator = fetcher.fetch()) {
+          while (iterator.hasNext()) {
+            emptyFetchCount = 0;
+            RawMessage rawMessage = iterator.next();
+            try {
+              DatasetId datasetInstanceId =
+                DatasetId.fromString(new String(rawMessage.getPayload(), StandardCharsets.UTF_8));
+              LOG.trace("Invalidating cached metadata of changed dataset {}", datasetInstanceId);
+              invalidateInstance(datasetInstanceId);
+            } catch (Exception e) {
+              LOG.debug("Failed to decode dataset change {}", rawMessage, e);
+            }
+            resumeMessages.put(rawMessage.getPartition(), rawMessage.getId());
+          }
+        }
+      } catch (Exception e) {
+        // Log the stacktrace as debug to not polluting the log; cached entries still expire after the cache TTL
+        LOG.debug("Failed to fetch dataset changes from {}", changeTopic, e);
+      }
+
+      // Stop if the framework is closed
+      if (changeSubscriberExecutor.isShutdown()) {
+        return;
+      }
+      // Back-off if it was empty fetch. Time spent waiting in the fetch counts toward the delay.
+      if (emptyFetchCount > 0) {
+        long delay = scheduleStrategy.nextRetry(emptyFetchCount, startTime)
+          - (System.currentTimeMillis() - fetchStartTime);
+        changeSubscriberExecutor.schedule(this, Math.max(0L, delay), TimeUnit.MILLISECONDS);
+      } else {
+        changeSubscriberExecutor.execute(this);
+      }
+    }
+  }
 }
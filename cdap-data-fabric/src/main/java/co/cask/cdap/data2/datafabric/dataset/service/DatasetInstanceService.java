@@ -26,8 +26,11 @@ import co.cask.cdap.common.DatasetTypeNotFoundException;
 import co.cask.cdap.common.HandlerException;
 import co.cask.cdap.common.NamespaceNotFoundException;
 import co.cask.cdap.common.NotFoundException;
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.kerberos.OwnerAdmin;
 import co.cask.cdap.common.namespace.NamespaceQueryAdmin;
+import co.cask.cdap.common.service.RetryStrategies;
 import co.cask.cdap.data2.audit.AuditPublisher;
 import co.cask.cdap.data2.audit.AuditPublishers;
 import co.cask.cdap.data2.datafabric.dataset.DatasetsUtil;
@@ -35,6 +38,8 @@ import co.cask.cdap.data2.datafabric.dataset.instance.DatasetInstanceManager;
 import co.cask.cdap.data2.datafabric.dataset.service.executor.DatasetAdminOpResponse;
 import co.cask.cdap.data2.datafabric.dataset.service.executor.DatasetOpExecutor;
 import co.cask.cdap.explore.client.ExploreFacade;
+import co.cask.cdap.messaging.MessagingService;
+import co.cask.cdap.messaging.MessagingServices;
 import co.cask.cdap.proto.DatasetInstanceConfiguration;
 import co.cask.cdap.proto.DatasetMeta;
 import co.cask.cdap.proto.DatasetTypeMeta;
@@ -45,6 +50,7 @@ import co.cask.cdap.proto.id.DatasetTypeId;
 import co.cask.cdap.proto.id.EntityId;
 import co.cask.cdap.proto.id.KerberosPrincipalId;
 import co.cask.cdap.proto.id.NamespaceId;
+import co.cask.cdap.proto.id.TopicId;
 import co.cask.cdap.proto.security.Action;
 import co.cask.cdap.proto.security.Principal;
 import co.cask.cdap.security.spi.authentication.AuthenticationContext;
@@ -63,6 +69,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.EnumSet;
 import java.util.HashSet;
@@ -70,6 +77,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 
 /**
@@ -90,6 +98,8 @@ public class DatasetInstanceService {
   private final AuthenticationContext authenticationContext;
 
   private AuditPublisher auditPublisher;
+  private MessagingService messagingService;
+  private TopicId changeTopic;
 
   @VisibleForTesting
   @Inject
@@ -123,6 +133,17 @@ public class DatasetInstanceService {
     this.auditPublisher = auditPublisher;
   }
 
+  /**
+   * Sets the {@link MessagingService} used to publish the dataset instances that are created, updated or deleted,
+   * upon which clients invalidate their cached metadata of the instance.
+   */
+  @VisibleForTesting
+  @Inject(optional = true)
+  public void setMessagingService(CConfiguration cConf, MessagingService messagingService) {
+    this.changeTopic = NamespaceId.SYSTEM.topic(cConf.get(Constants.Dataset.CHANGE_TOPIC));
+    this.messagingService = messagingService;
+  }
+
   /**
    * Lists all dataset instances in a namespace. If perimeter security and authorization are enabled, only returns the
    * dataset instances that the current user has access to.
@@ -282,6 +303,7 @@ public class DatasetInstanceService {
         instanceManager.add(namespace, spec);
         metaCache.invalidate(datasetId);
         publishAudit(datasetId, AuditType.CREATE);
+        publishChange(datasetId);
 
         // Enable explore
         enableExplore(datasetId, spec, props);
@@ -334,6 +356,7 @@ public class DatasetInstanceService {
 
     updateExplore(instance, datasetProperties, existing, spec);
     publishAudit(instance, AuditType.UPDATE);
+    publishChange(instance);
   }
 
   /**
@@ -485,6 +508,7 @@ public class DatasetInstanceService {
     opExecutorClient.drop(instance, typeMeta, spec);
 
     publishAudit(instance, AuditType.DELETE);
+    publishChange(instance);
     // revoke privileges as the final step. This is done in the end, because if it is done before actual deletion, and
     // deletion fails, we may have a valid (or invalid) dataset in the system, that no one has privileges on, so no one
     // can clean up. This may result in orphaned privileges, which will be cleaned up by the create API if the same
@@ -547,6 +571,23 @@ public class DatasetInstanceService {
     AuditPublishers.publishAudit(auditPublisher, datasetInstance, auditType, AuditPayload.EMPTY_PAYLOAD);
   }
 
+  /**
+   * Publishes the given dataset instance to the dataset change topic. Failures are only logged, since clients
+   * still see the change once their cached metadata expires.
+   */
+  private void publishChange(DatasetId datasetInstance) {
+    if (messagingService == null) {
+      return;
+    }
+    try {
+      MessagingServices.publishWithRetry(messagingService, changeTopic,
+                                         RetryStrategies.limit(3, RetryStrategies.fixDelay(100, TimeUnit.MILLISECONDS)),
+                                         datasetInstance.toString().getBytes(StandardCharsets.UTF_8));
+    } catch (Exception e) {
+      LOG.warn("Failed to publish the change of dataset instance {} to topic {}", datasetInstance, changeTopic, e);
+    }
+  }
+
   /**
    * Ensures that the logged-in user has a {@link Action privilege} on the specified dataset instance.
    *
@@ -0,0 +1,239 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.dataset2.lib.cube;
+
+import co.cask.cdap.api.dataset.lib.cube.AggregationFunction;
+import co.cask.cdap.api.dataset.lib.cube.DimensionValue;
+import co.cask.cdap.common.utils.TimeProvider;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Objects;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Table;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * A cache of query results for {@link DefaultCube}. Dashboards usually refresh the same queries over a sliding
+ * time window, hence most of the time range of a query was already scanned by the previous one. This cache keeps
+ * the scanned time series of a query for the time buckets that are considered settled, so that the next query
+ * only needs to scan the time range after the cached buckets.
+ *
+ * A time bucket is considered settled if it ends at least the configured settle time before the current time.
+ * Writes and deletes through the owning {@link DefaultCube} invalidate the cached entries of the affected
+ * resolution and time range. Changes made to the fact tables by other processes are not visible through the cache
+ * until the cached entry expires, which happens after the settle time since it was cached.
+ */
+public final class CubeQueryCache {
+
+  private final Cache<Key, Entry> cache;
+  private final long settleSeconds;
+  private final TimeProvider timeProvider;
+
+  /**
+   * Creates a new instance.
+   *
+   * @param maxEntries maximum number of query results to cache
+   * @param settleSeconds number of seconds after which a time bucket is considered not to change anymore
+   */
+  public CubeQueryCache(int maxEntries, long settleSeconds) {
+    this(maxEntries, settleSeconds, TimeProvider.SYSTEM_TIME);
+  }
+
+  @VisibleForTesting
+  CubeQueryCache(int maxEntries, long settleSeconds, final TimeProvider timeProvider) {
+    this.cache = CacheBuilder.newBuilder()
+      .maximumSize(maxEntries)
+      .expireAfterWrite(Math.max(settleSeconds, 1), TimeUnit.SECONDS)
+      .ticker(new Ticker() {
+        @Override
+        public long read() {
+          return TimeUnit.MILLISECONDS.toNanos(timeProvider.currentTimeMillis());
+        }
+      })
+      .build();
+    this.settleSeconds = settleSeconds;
+    this.timeProvider = timeProvider;
+  }
+
+  /**
+   * Returns the timestamp in seconds before which all time buckets of the given resolution are settled.
+   */
+  long getSettledTs(int resolution) {
+    long settled = TimeUnit.MILLISECONDS.toSeconds(timeProvider.currentTimeMillis()) - settleSeconds;
+    return settled <= 0 ? 0 : settled / resolution * resolution;
+  }
+
+  /**
+   * Returns the cached {@link Entry} for the given key that contains the given start time or {@code null}
+   * if there is no such entry.
+   */
+  @Nullable
+  Entry get(Key key, long startTs) {
+    Entry entry = cache.getIfPresent(key);
+    if (entry == null || startTs < entry.startTs || startTs >= entry.endTs) {
+      return null;
+    }
+    return entry;
+  }
+
+  /**
+   * Caches the time series in the given time range as the result of the given key.
+   *
+   * @param key the cache key
+   * @param startTs start timestamp in seconds, inclusive
+   * @param endTs end timestamp in seconds, exclusive. It must not be after the settled timestamp.
+   * @param timeSeries the time series to cache. Only the time values within the time range will be cached.
+   */
+  void put(Key key, long startTs, long endTs, Table<Map<String, String>, String, Map<Long, Long>> timeSeries) {
+    if (startTs >= endTs) {
+      return;
+    }
+    cache.put(key, new Entry(startTs, endTs, slice(timeSeries, startTs, endTs)));
+  }
+
+  /**
+   * Invalidates all cached entries.
+   */
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  /**
+   * Invalidates the cached entries of the given resolution that overlap with the given time range.
+   *
+   * @param resolution resolution of the entries to invalidate
+   * @param startTs start timestamp in seconds, inclusive
+   * @param endTs end timestamp in seconds, exclusive
+   */
+  void invalidate(int resolution, long startTs, long endTs) {
+    Iterator<Map.Entry<Key, Entry>> iterator = cache.asMap().entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<Key, Entry> cached = iterator.next();
+      if (cached.getKey().resolution == resolution
+        && cached.getValue().startTs < endTs && startTs < cached.getValue().endTs) {
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Returns a copy of the given time series with only the time values within the given time range.
+   *
+   * @param startTs start timestamp in seconds, inclusive
+   * @param endTs end timestamp in seconds, exclusive
+   */
+  static Table<Map<String, String>, String, Map<Long, Long>> slice(
+    Table<Map<String, String>, String, Map<Long, Long>> timeSeries, long startTs, long endTs) {
+
+    Table<Map<String, String>, String, Map<Long, Long>> result = HashBasedTable.create();
+    for (Table.Cell<Map<String, String>, String, Map<Long, Long>> cell : timeSeries.cellSet()) {
+      Map<Long, Long> timeValues = Maps.newHashMap();
+      for (Map.Entry<Long, Long> timeValue : cell.getValue().entrySet()) {
+        if (timeValue.getKey() >= startTs && timeValue.getKey() < endTs) {
+          timeValues.put(timeValue.getKey(), timeValue.getValue());
+        }
+      }
+      if (!timeValues.isEmpty()) {
+        result.put(cell.getRowKey(), cell.getColumnKey(), timeValues);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Key of the cache. It contains everything that determines the scan of a query, except the time range.
+   */
+  static final class Key {
+    private final String aggregation;
+    private final int resolution;
+    private final List<DimensionValue> dimensionValues;
+    private final Map<String, AggregationFunction> measurements;
+    private final List<String> groupByDimensions;
+    private final int hashCode;
+
+    Key(String aggregation, int resolution, List<DimensionValue> dimensionValues,
+        Map<String, AggregationFunction> measurements, List<String> groupByDimensions) {
+      this.aggregation = aggregation;
+      this.resolution = resolution;
+      this.dimensionValues = ImmutableList.copyOf(dimensionValues);
+      this.measurements = ImmutableMap.copyOf(measurements);
+      this.groupByDimensions = ImmutableList.copyOf(groupByDimensions);
+      this.hashCode = Objects.hashCode(aggregation, resolution, this.dimensionValues,
+                                       this.measurements, this.groupByDimensions);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Key other = (Key) o;
+      return resolution == other.resolution
+        && aggregation.equals(other.aggregation)
+        && dimensionValues.equals(other.dimensionValues)
+        && measurements.equals(other.measurements)
+        && groupByDimensions.equals(other.groupByDimensions);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  /**
+   * An entry in the cache, which contains scanned time series in a time range.
+   */
+  static final class Entry {
+    private final long startTs;
+    private final long endTs;
+    private final Table<Map<String, String>, String, Map<Long, Long>> timeSeries;
+
+    private Entry(long startTs, long endTs, Table<Map<String, String>, String, Map<Long, Long>> timeSeries) {
+      this.startTs = startTs;
+      this.endTs = endTs;
+      this.timeSeries = timeSeries;
+    }
+
+    /**
+     * Returns the end timestamp in seconds, exclusive, of the cached time range.
+     */
+    long getEndTs() {
+      return endTs;
+    }
+
+    /**
+     * Returns the cached time series. The returned {@link Table} must not be modified.
+     */
+    Table<Map<String, String>, String, Map<Long, Long>> getTimeSeries() {
+      return timeSeries;
+    }
+  }
+}
@@ -45,12 +45,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.SortedSet;
 import javax.annotation.Nullable;
 
@@ -63,18 +66,40 @@ public class DefaultCube implements Cube, MeteredDataset {
   private static final DimensionValueComparator DIMENSION_VALUE_COMPARATOR = new DimensionValueComparator();
   // hard-limit on max records to scan
   private static final int MAX_RECORDS_TO_SCAN = 100 * 1000;
+  // estimated number of bytes used by a time series apart from its data points
+  private static final long TIME_SERIES_OVERHEAD_BYTES = 256;
+  // estimated bytes of a boxed time value in a cached time series
+  private static final long CACHED_TIME_VALUE_BYTES = 64;
 
   private final Map<Integer, FactTable> resolutionToFactTable;
+  // Serializes all writes to the fact tables. The fact tables of all resolutions may share the same entity table,
+  // and the tables underneath may not be thread safe.
+  private final Object writeLock = new Object();
   private final Map<String, ? extends Aggregation> aggregations;
   private final Map<String, AggregationAlias> aggregationAliasMap;
+  @Nullable
+  private final CubeQueryCache queryCache;
 
   @Nullable
   private MetricsCollector metrics;
+  private volatile long queryMemoryLimit = Long.MAX_VALUE;
 
   public DefaultCube(int[] resolutions, FactTableSupplier factTableSupplier,
                      Map<String, ? extends Aggregation> aggregations,
                      Map<String, AggregationAlias> aggregationAliasMap) {
+    this(resolutions, factTableSupplier, aggregations, aggregationAliasMap, null);
+  }
+
+  /**
+   * Creates a {@link DefaultCube} that caches query results in the given {@link CubeQueryCache}. The cache should
+   * only be used if queries don't need to see writes to time buckets that are considered settled by the cache.
+   */
+  public DefaultCube(int[] resolutions, FactTableSupplier factTableSupplier,
+                     Map<String, ? extends Aggregation> aggregations,
+                     Map<String, AggregationAlias> aggregationAliasMap,
+                     @Nullable CubeQueryCache queryCache) {
     this.aggregations = aggregations;
+    this.queryCache = queryCache;
     this.resolutionToFactTable = Maps.newHashMap();
     for (int resolution : resolutions) {
       resolutionToFactTable.put(resolution, factTableSupplier.get(resolution, 3600));
@@ -89,9 +114,26 @@ public class DefaultCube implements Cube, MeteredDataset {
 
   @Override
   public void add(Collection<? extends CubeFact> facts) {
+    add(facts, new HashSet<Integer>());
+  }
+
+  /**
+   * Adds the given facts to all resolutions that are not in the given set of written resolutions. Each resolution
+   * is added to the set right after the facts are written to it. If this method fails, calling it again with the
+   * same facts and set only writes to the remaining resolutions, so that no counter is incremented twice.
+   * Writes to the tables of all resolutions are serialized, so that this method can be called concurrently.
+   *
+   * @param facts the facts to add
+   * @param writtenResolutions resolutions that the facts were already written to
+   */
+  public void add(Collection<? extends CubeFact> facts, Set<Integer> writtenResolutions) {
     List<Fact> toWrite = Lists.newArrayList();
     int dimValuesCount = 0;
+    long minTs = Long.MAX_VALUE;
+    long maxTs = Long.MIN_VALUE;
     for (CubeFact fact : facts) {
+      minTs = Math.min(minTs, fact.getTimestamp());
+      maxTs = Math.max(maxTs, fact.getTimestamp());
       for (Map.Entry<String, ? extends Aggregation> aggEntry : aggregations.entrySet()) {
         Aggregation agg = aggEntry.getValue();
         AggregationAlias aggregationAlias = null;
@@ -113,8 +155,19 @@ public class DefaultCube implements Cube, MeteredDataset {
       }
     }
 
-    for (FactTable table : resolutionToFactTable.values()) {
-      table.add(toWrite);
+    synchronized (writeLock) {
+      for (Map.Entry<Integer, FactTable> entry : resolutionToFactTable.entrySet()) {
+        if (writtenResolutions.contains(entry.getKey())) {
+          continue;
+        }
+        entry.getValue().add(toWrite);
+        writtenResolutions.add(entry.getKey());
+        // Late writes to settled time buckets make the cached results of the resolution stale
+        if (queryCache != null && !toWrite.isEmpty() && minTs < queryCache.getSettledTs(entry.getKey())) {
+          int resolution = entry.getKey();
+          queryCache.invalidate(resolution, minTs / resolution * resolution, maxTs + 1);
+        }
+      }
     }
 
     incrementMetric("cube.cubeFact.add.request.count", 1);
@@ -164,7 +217,9 @@ public class DefaultCube implements Cube, MeteredDataset {
 
     incrementMetric("cube.query.request.count", 1);
 
-    if (!resolutionToFactTable.containsKey(query.getResolution())) {
+    // Use the coarsest resolution that can be rolled up to the query resolution
+    int resolution = findResolution(query.getResolution());
+    if (resolution < 0) {
       incrementMetric("cube.query.request.failure.count", 1);
       throw new IllegalArgumentException("There's no data aggregated for specified resolution to satisfy the query: " +
                                            query.toString());
@@ -208,9 +263,20 @@ public class DefaultCube implements Cube, MeteredDataset {
                                  query.getMeasurements().keySet(), dimensionValues);
 
     // 3) execute scan query
-    FactTable table = resolutionToFactTable.get(query.getResolution());
-    FactScanner scanner = table.scan(scan);
-    Table<Map<String, String>, String, Map<Long, Long>> resultMap = getTimeSeries(query, scanner);
+    FactTable table = resolutionToFactTable.get(resolution);
+    Table<Map<String, String>, String, Map<Long, Long>> resultMap;
+    if (queryCache == null) {
+      // the limit can only be applied while scanning if there's no need to roll up the results
+      int limit = resolution == query.getResolution() ? query.getLimit() : Integer.MAX_VALUE;
+      resultMap = getTimeSeries(query, table.scan(scan), limit, 0).getFirst();
+    } else {
+      CubeQueryCache.Key cacheKey = new CubeQueryCache.Key(aggName, resolution, dimensionValues,
+                                                           query.getMeasurements(), query.getGroupByDimensions());
+      resultMap = getTimeSeries(query, table, scan, cacheKey, resolution);
+    }
+    if (resolution != query.getResolution()) {
+      resultMap = rollup(query, resultMap);
+    }
 
     incrementMetric("cube.query.request.success.count", 1);
     incrementMetric("cube.query.result.size", resultMap.size());
@@ -227,17 +293,24 @@ public class DefaultCube implements Cube, MeteredDataset {
     List<DimensionValue> dimensionValues = Lists.newArrayList();
     // find all the aggregations that match the dimensionValues in the query and
     // use the dimension values of the aggregation to delete entries in all the fact-tables.
-    for (Aggregation agg : aggregations.values()) {
-      if (agg.getDimensionNames().containsAll(query.getDimensionValues().keySet())) {
-        dimensionValues.clear();
-        for (String dimensionName : agg.getDimensionNames()) {
-          dimensionValues.add(new DimensionValue(dimensionName, query.getDimensionValues().get(dimensionName)));
+    synchronized (writeLock) {
+      for (Aggregation agg : aggregations.values()) {
+        if (agg.getDimensionNames().containsAll(query.getDimensionValues().keySet())) {
+          dimensionValues.clear();
+          for (String dimensionName : agg.getDimensionNames()) {
+            dimensionValues.add(new DimensionValue(dimensionName, query.getDimensionValues().get(dimensionName)));
+          }
+          FactTable factTable = resolutionToFactTable.get(query.getResolution());
+          FactScan scan = new FactScan(query.getStartTs(), query.getEndTs(), query.getMeasureNames(),
+                                       dimensionValues);
+          factTable.delete(scan);
         }
-        FactTable factTable = resolutionToFactTable.get(query.getResolution());
-        FactScan scan = new FactScan(query.getStartTs(), query.getEndTs(), query.getMeasureNames(), dimensionValues);
-        factTable.delete(scan);
       }
     }
+    if (queryCache != null) {
+      int resolution = query.getResolution();
+      queryCache.invalidate(resolution, query.getStartTs() / resolution * resolution, query.getEndTs() + 1);
+    }
   }
 
   @Override
@@ -303,6 +376,15 @@ public class DefaultCube implements Cube, MeteredDataset {
     }
   }
 
+  /**
+   * Sets the maximum estimated number of bytes that the results of a query can use, including the results
+   * served from the query cache. Queries exceeding the limit fail with {@link IllegalArgumentException}.
+   * @param queryMemoryLimit the limit in bytes, {@link Long#MAX_VALUE} for no limit.
+   */
+  public void setQueryMemoryLimit(long queryMemoryLimit) {
+    this.queryMemoryLimit = queryMemoryLimit;
+  }
+
   private void incrementMetric(String metricName, long value) {
     if (metrics != null) {
       metrics.increment(metricName, value);
@@ -329,75 +411,187 @@ public class DefaultCube implements Cube, MeteredDataset {
     return currentBest;
   }
 
-  private Table<Map<String, String>, String, Map<Long, Long>> getTimeSeries(CubeQuery query, FactScanner scanner) {
-    // {dimension values, measure} -> {time -> value}s
+  /**
+   * Returns the resolution to scan for a query of the given resolution. It is either the same resolution, or
+   * the coarsest resolution that the given resolution is a multiple of. Returns {@code -1} if there is none.
+   */
+  private int findResolution(int queryResolution) {
+    if (resolutionToFactTable.containsKey(queryResolution)) {
+      return queryResolution;
+    }
+    int result = -1;
+    for (int resolution : resolutionToFactTable.keySet()) {
+      if (resolution < queryResolution && queryResolution % resolution == 0 && resolution > result) {
+        result = resolution;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Rolls up the given time series to the resolution of the query, using the aggregation function of each measure.
+   */
+  private Table<Map<String, String>, String, Map<Long, Long>> rollup(
+    CubeQuery query, Table<Map<String, String>, String, Map<Long, Long>> timeSeries) {
+
+    int resolution = query.getResolution();
     Table<Map<String, String>, String, Map<Long, Long>> result = HashBasedTable.create();
+    for (Table.Cell<Map<String, String>, String, Map<Long, Long>> cell : timeSeries.cellSet()) {
+      AggregationFunction function = query.getMeasurements().get(cell.getColumnKey());
+      // Sort by time so that LATEST picks the last value in each bucket
+      TimeValueMap rolledUp = new TimeValueMap();
+      for (TimeValue timeValue : getFirstTimeValues(cell.getValue(), Integer.MAX_VALUE)) {
+        rolledUp.aggregate(timeValue.getTimestamp() / resolution * resolution, timeValue.getValue(), function);
+      }
+      result.put(cell.getRowKey(), cell.getColumnKey(), rolledUp);
+    }
+    return result;
+  }
+
+  /**
+   * Scans the time series for the given query, reusing the settled time buckets cached by previous queries.
+   */
+  private Table<Map<String, String>, String, Map<Long, Long>> getTimeSeries(CubeQuery query, FactTable table,
+                                                                           FactScan scan, CubeQueryCache.Key cacheKey,
+                                                                           int resolution) {
+    long settledTs = queryCache.getSettledTs(resolution);
+    CubeQueryCache.Entry entry = queryCache.get(cacheKey, query.getStartTs());
+    if (entry == null) {
+      incrementMetric("cube.query.cache.miss.count", 1);
+      ImmutablePair<Table<Map<String, String>, String, Map<Long, Long>>, Boolean> scanned =
+        getTimeSeries(query, table.scan(scan), Integer.MAX_VALUE, 0);
+      if (scanned.getSecond()) {
+        queryCache.put(cacheKey, query.getStartTs(), Math.min(query.getEndTs() + 1, settledTs), scanned.getFirst());
+      }
+      return scanned.getFirst();
+    }
+
+    incrementMetric("cube.query.cache.hit.count", 1);
+    Table<Map<String, String>, String, Map<Long, Long>> result =
+      CubeQueryCache.slice(entry.getTimeSeries(), query.getStartTs(), query.getEndTs() + 1);
+    long memoryBytes = 0;
+    for (Map<Long, Long> timeValues : result.values()) {
+      memoryBytes += TIME_SERIES_OVERHEAD_BYTES + timeValues.size() * CACHED_TIME_VALUE_BYTES;
+    }
+    checkQueryMemory(query, memoryBytes);
+    if (entry.getEndTs() > query.getEndTs()) {
+      return result;
+    }
+
+    // Only scan the time range after the cached one
+    FactScan tailScan = new FactScan(entry.getEndTs(), query.getEndTs(),
+                                     scan.getMeasureNames(), scan.getDimensionValues());
+    ImmutablePair<Table<Map<String, String>, String, Map<Long, Long>>, Boolean> scanned =
+      getTimeSeries(query, table.scan(tailScan), Integer.MAX_VALUE, memoryBytes);
+    for (Table.Cell<Map<String, String>, String, Map<Long, Long>> cell : scanned.getFirst().cellSet()) {
+      Map<Long, Long> timeValues = result.get(cell.getRowKey(), cell.getColumnKey());
+      if (timeValues == null) {
+        result.put(cell.getRowKey(), cell.getColumnKey(), cell.getValue());
+      } else {
+        timeValues.putAll(cell.getValue());
+      }
+    }
+    if (scanned.getSecond() && settledTs > entry.getEndTs()) {
+      queryCache.put(cacheKey, query.getStartTs(), Math.min(query.getEndTs() + 1, settledTs), result);
+    }
+    return result;
+  }
+
+  /**
+   * Scans the time series with the given {@link FactScanner}.
+   *
+   * @param limit number of data points with the smallest timestamps to keep in each time series
+   * @param initialMemoryBytes estimated number of bytes already used by other results of the query
+   * @return a pair of the time series and a boolean telling whether the scan was completed without hitting
+   *         the scan limit
+   * @throws IllegalArgumentException if the results exceed the query memory limit
+   */
+  private ImmutablePair<Table<Map<String, String>, String, Map<Long, Long>>, Boolean> getTimeSeries(
+    CubeQuery query, FactScanner scanner, int limit, long initialMemoryBytes) {
+    // {dimension values, measure} -> {time -> value}s
+    Table<Map<String, String>, String, TimeValueMap> series = HashBasedTable.create();
 
+    long memoryBytes = initialMemoryBytes;
     int count = 0;
-    while (scanner.hasNext()) {
-      FactScanResult next = scanner.next();
-      incrementMetric("cube.query.scan.records.count", 1);
-
-      boolean skip = false;
-      // using tree map, as we are using it as a key for a map
-      Map<String, String> seriesDimensions = Maps.newTreeMap();
-      for (String dimensionName : query.getGroupByDimensions()) {
-        // todo: use Map<String, String> instead of List<DimensionValue> into a String, String, everywhere
-        for (DimensionValue dimensionValue : next.getDimensionValues()) {
-          if (dimensionName.equals(dimensionValue.getName())) {
-            if (dimensionValue.getValue() == null) {
-              // Currently, we do NOT return null as grouped by value.
-              // Depending on whether dimension is required or not the records with null value in it may or may not be
-              // in aggregation. At this moment, the choosing of the aggregation for query doesn't look at this, so
-              // potentially null may or may not be included in results, depending on the aggregation selected
-              // querying. We don't want to produce inconsistent results varying due to different aggregations selected,
-              // so don't return nulls in any of those cases.
-              skip = true;
-              continue;
+    int skipped = 0;
+    boolean completed = true;
+    try {
+      while (scanner.hasNext()) {
+        if (count >= MAX_RECORDS_TO_SCAN) {
+          completed = false;
+          break;
+        }
+        FactScanResult next = scanner.next();
+        count++;
+
+        boolean skip = false;
+        // using tree map, as we are using it as a key for a map
+        Map<String, String> seriesDimensions = Maps.newTreeMap();
+        for (String dimensionName : query.getGroupByDimensions()) {
+          // todo: use Map<String, String> instead of List<DimensionValue> into a String, String, everywhere
+          for (DimensionValue dimensionValue : next.getDimensionValues()) {
+            if (dimensionName.equals(dimensionValue.getName())) {
+              if (dimensionValue.getValue() == null) {
+                // Currently, we do NOT return null as grouped by value.
+                // Depending on whether dimension is required or not the records with null value in it may or may not
+                // be in aggregation. At this moment, the choosing of the aggregation for query doesn't look at this,
+                // so potentially null may or may not be included in results, depending on the aggregation selected
+                // querying. We don't want to produce inconsistent results varying due to different aggregations
+                // selected, so don't return nulls in any of those cases.
+                skip = true;
+                continue;
+              }
+              seriesDimensions.put(dimensionName, dimensionValue.getValue());
+              break;
             }
-            seriesDimensions.put(dimensionName, dimensionValue.getValue());
-            break;
           }
         }
-      }
 
-      if (skip) {
-        incrementMetric("cube.query.scan.skipped.count", 1);
-        continue;
-      }
+        if (skip) {
+          skipped++;
+          continue;
+        }
 
-      for (TimeValue timeValue : next) {
-        Map<Long, Long> timeValues = result.get(seriesDimensions, next.getMeasureName());
+        TimeValueMap timeValues = series.get(seriesDimensions, next.getMeasureName());
         if (timeValues == null) {
-          result.put(seriesDimensions, next.getMeasureName(), Maps.<Long, Long>newHashMap());
+          timeValues = new TimeValueMap(limit);
+          series.put(seriesDimensions, next.getMeasureName(), timeValues);
+          memoryBytes += TIME_SERIES_OVERHEAD_BYTES + timeValues.getEstimatedSize();
         }
 
+        long sizeBefore = timeValues.getEstimatedSize();
         AggregationFunction function = query.getMeasurements().get(next.getMeasureName());
-        if (AggregationFunction.SUM == function) {
-          Long value =  result.get(seriesDimensions, next.getMeasureName()).get(timeValue.getTimestamp());
-          value = value == null ? 0 : value;
-          value += timeValue.getValue();
-          result.get(seriesDimensions, next.getMeasureName()).put(timeValue.getTimestamp(), value);
-        } else if (AggregationFunction.MAX == function) {
-          Long value = result.get(seriesDimensions, next.getMeasureName()).get(timeValue.getTimestamp());
-          value = value != null && value > timeValue.getValue() ? value : timeValue.getValue();
-          result.get(seriesDimensions, next.getMeasureName()).put(timeValue.getTimestamp(), value);
-        } else if (AggregationFunction.MIN == function) {
-          Long value =  result.get(seriesDimensions, next.getMeasureName()).get(timeValue.getTimestamp());
-          value = value != null && value < timeValue.getValue() ? value : timeValue.getValue();
-          result.get(seriesDimensions, next.getMeasureName()).put(timeValue.getTimestamp(), value);
-        } else if (AggregationFunction.LATEST == function) {
-          result.get(seriesDimensions, next.getMeasureName()).put(timeValue.getTimestamp(), timeValue.getValue());
-        } else {
-          // should never happen: developer error
-          throw new RuntimeException("Unknown MeasureType: " + function);
+        for (TimeValue timeValue : next) {
+          timeValues.aggregate(timeValue.getTimestamp(), timeValue.getValue(), function);
         }
+        memoryBytes += timeValues.getEstimatedSize() - sizeBefore;
+        checkQueryMemory(query, memoryBytes);
       }
-      if (++count >= MAX_RECORDS_TO_SCAN) {
-        break;
-      }
+    } finally {
+      incrementMetric("cube.query.scan.records.count", count);
+      incrementMetric("cube.query.scan.skipped.count", skipped);
+      incrementMetric("cube.query.memory.bytes", memoryBytes);
+    }
+
+    Table<Map<String, String>, String, Map<Long, Long>> result = HashBasedTable.create();
+    for (Table.Cell<Map<String, String>, String, TimeValueMap> cell : series.cellSet()) {
+      result.put(cell.getRowKey(), cell.getColumnKey(), cell.getValue());
+    }
+    return new ImmutablePair<>(result, completed);
+  }
+
+  /**
+   * Fails the given query with {@link IllegalArgumentException} if the given number of bytes exceeds the
+   * query memory limit.
+   */
+  private void checkQueryMemory(CubeQuery query, long memoryBytes) {
+    if (memoryBytes > queryMemoryLimit) {
+      incrementMetric("cube.query.memory.rejected.count", 1);
+      incrementMetric("cube.query.request.failure.count", 1);
+      throw new IllegalArgumentException(
+        String.format("Query results exceed the memory limit of %d bytes, consider narrowing down the time range " +
+                        "or the dimensions of the query: %s", queryMemoryLimit, query));
     }
-    return result;
   }
 
   private Collection<TimeSeries> convertToQueryResult(CubeQuery query,
@@ -411,11 +605,7 @@ public class DefaultCube implements Cube, MeteredDataset {
       for (Map.Entry<String, Map<Long, Long>> measureEntry : row.getValue().entrySet()) {
         // generating time series for a grouping and a measure
         int count = 0;
-        List<TimeValue> timeValues = Lists.newArrayList();
-        for (Map.Entry<Long, Long> timeValue : measureEntry.getValue().entrySet()) {
-          timeValues.add(new TimeValue(timeValue.getKey(), timeValue.getValue()));
-        }
-        Collections.sort(timeValues);
+        List<TimeValue> timeValues = getFirstTimeValues(measureEntry.getValue(), query.getLimit());
         PeekingIterator<TimeValue> timeValueItor = Iterators.peekingIterator(
           new TimeSeriesInterpolator(timeValues, query.getInterpolator(), query.getResolution()).iterator());
         List<TimeValue> resultTimeValues = Lists.newArrayList();
@@ -432,6 +622,32 @@ public class DefaultCube implements Cube, MeteredDataset {
     return result;
   }
 
+  /**
+   * Returns the time values with the given number of smallest timestamps, sorted by timestamp. Since interpolation
+   * only adds data points between the existing ones, they are enough to produce the first data points of the
+   * interpolated time series up to the same limit.
+   */
+  private List<TimeValue> getFirstTimeValues(Map<Long, Long> timeValues, int limit) {
+    long[] timestamps;
+    if (timeValues instanceof TimeValueMap) {
+      timestamps = ((TimeValueMap) timeValues).getSortedTimestamps();
+    } else {
+      timestamps = new long[timeValues.size()];
+      int i = 0;
+      for (long timestamp : timeValues.keySet()) {
+        timestamps[i++] = timestamp;
+      }
+      Arrays.sort(timestamps);
+    }
+
+    int size = Math.min(timestamps.length, Math.max(1, limit));
+    List<TimeValue> result = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      result.add(new TimeValue(timestamps[i], timeValues.get(timestamps[i])));
+    }
+    return result;
+  }
+
   @Override
   public void write(Object ignored, CubeFact cubeFact) {
     add(cubeFact);
@@ -0,0 +1,264 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.dataset2.lib.cube;
+
+import co.cask.cdap.api.dataset.lib.cube.AggregationFunction;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A map from timestamp to value of a single time series, backed by primitive arrays with open addressing to avoid
+ * boxing each data point while aggregating the results of a cube query. It can be bounded to keep only the
+ * given number of smallest timestamps, which is enough to answer a query with a limit on the number of data points.
+ * The {@link Map} methods are provided for convenience and box the keys and values.
+ */
+final class TimeValueMap extends AbstractMap<Long, Long> {
+
+  // Long.MIN_VALUE is never used as timestamp, hence it marks the empty slots
+  private static final long EMPTY = Long.MIN_VALUE;
+  private static final int INITIAL_CAPACITY = 8;
+
+  private final int limit;
+  private long[] timestamps;
+  private long[] values;
+  private int size;
+  // timestamps larger than this have been dropped due to the limit
+  private long maxTimestamp = Long.MAX_VALUE;
+
+  TimeValueMap() {
+    this(Integer.MAX_VALUE);
+  }
+
+  /**
+   * Creates a new instance that keeps at least the given number of smallest timestamps.
+   */
+  TimeValueMap(int limit) {
+    this.limit = Math.max(1, limit);
+    this.timestamps = newTimestamps(INITIAL_CAPACITY);
+    this.values = new long[INITIAL_CAPACITY];
+  }
+
+  /**
+   * Aggregates the given value into the value of the given timestamp.
+   */
+  void aggregate(long timestamp, long value, AggregationFunction function) {
+    if (timestamp > maxTimestamp) {
+      return;
+    }
+    int idx = indexOf(timestamp);
+    if (timestamps[idx] == EMPTY) {
+      insert(idx, timestamp, value);
+      return;
+    }
+    if (AggregationFunction.SUM == function) {
+      values[idx] += value;
+    } else if (AggregationFunction.MAX == function) {
+      values[idx] = Math.max(values[idx], value);
+    } else if (AggregationFunction.MIN == function) {
+      values[idx] = Math.min(values[idx], value);
+    } else if (AggregationFunction.LATEST == function) {
+      values[idx] = value;
+    } else {
+      // should never happen: developer error
+      throw new RuntimeException("Unknown MeasureType: " + function);
+    }
+  }
+
+  /**
+   * Returns the estimated number of bytes used by this map.
+   */
+  long getEstimatedSize() {
+    // two long arrays plus the object headers and fields
+    return timestamps.length * 16L + 64;
+  }
+
+  /**
+   * Returns all timestamps in this map in ascending order.
+   */
+  long[] getSortedTimestamps() {
+    long[] result = new long[size];
+    int i = 0;
+    for (long timestamp : timestamps) {
+      if (timestamp != EMPTY) {
+        result[i++] = timestamp;
+      }
+    }
+    Arrays.sort(result);
+    return result;
+  }
+
+  /**
+   * Returns the value of the given timestamp. It must only be called with a timestamp contained in this map.
+   */
+  long getValue(long timestamp) {
+    int idx = indexOf(timestamp);
+    if (timestamps[idx] == EMPTY) {
+      throw new NoSuchElementException("No value for timestamp " + timestamp);
+    }
+    return values[idx];
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return key instanceof Long && timestamps[indexOf((Long) key)] != EMPTY;
+  }
+
+  @Override
+  public Long get(Object key) {
+    if (!(key instanceof Long)) {
+      return null;
+    }
+    int idx = indexOf((Long) key);
+    return timestamps[idx] == EMPTY ? null : values[idx];
+  }
+
+  @Override
+  public Long put(Long key, Long value) {
+    if (key == EMPTY) {
+      throw new IllegalArgumentException("Invalid timestamp " + key);
+    }
+    if (key > maxTimestamp) {
+      return null;
+    }
+    int idx = indexOf(key);
+    if (timestamps[idx] == EMPTY) {
+      insert(idx, key, value);
+      return null;
+    }
+    long oldValue = values[idx];
+    values[idx] = value;
+    return oldValue;
+  }
+
+  @Override
+  public Set<Entry<Long, Long>> entrySet() {
+    return new AbstractSet<Entry<Long, Long>>() {
+      @Override
+      public Iterator<Entry<Long, Long>> iterator() {
+        return new Iterator<Entry<Long, Long>>() {
+          private int idx = nextIndex(0);
+
+          @Override
+          public boolean hasNext() {
+            return idx < timestamps.length;
+          }
+
+          @Override
+          public Entry<Long, Long> next() {
+            if (!hasNext()) {
+              throw new NoSuchElementException();
+            }
+            Entry<Long, Long> entry = new SimpleImmutableEntry<>(timestamps[idx], values[idx]);
+            idx = nextIndex(idx + 1);
+            return entry;
+          }
+
+          @Override
+          public void remove() {
+            throw new UnsupportedOperationException("Remove not supported");
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  private int nextIndex(int idx) {
+    while (idx < timestamps.length && timestamps[idx] == EMPTY) {
+      idx++;
+    }
+    return idx;
+  }
+
+  private void insert(int idx, long timestamp, long value) {
+    timestamps[idx] = timestamp;
+    values[idx] = value;
+    size++;
+    // keep the load factor at most 3/4
+    int threshold = timestamps.length / 4 * 3;
+    if (size >= threshold) {
+      if (size > limit) {
+        trim();
+      }
+      if (size >= threshold / 2) {
+        rehash(timestamps.length * 2);
+      }
+    }
+  }
+
+  /**
+   * Drops all but the smallest timestamps up to the limit. Since later timestamps larger than the largest one
+   * left are dropped as well, the map always contains the smallest timestamps that were ever added to it.
+   */
+  private void trim() {
+    long[] sorted = getSortedTimestamps();
+    maxTimestamp = sorted[limit - 1];
+    rehash(timestamps.length);
+  }
+
+  private void rehash(int capacity) {
+    long[] oldTimestamps = timestamps;
+    long[] oldValues = values;
+    timestamps = newTimestamps(capacity);
+    values = new long[capacity];
+    size = 0;
+    for (int i = 0; i < oldTimestamps.length; i++) {
+      long timestamp = oldTimestamps[i];
+      if (timestamp != EMPTY && timestamp <= maxTimestamp) {
+        int idx = indexOf(timestamp);
+        timestamps[idx] = timestamp;
+        values[idx] = oldValues[i];
+        size++;
+      }
+    }
+  }
+
+  /**
+   * Returns the index of the slot that contains the given timestamp or the empty slot to insert it into.
+   */
+  private int indexOf(long timestamp) {
+    int mask = timestamps.length - 1;
+    // timestamps are usually multiples of the resolution, mix the bits to spread them across the slots
+    long hash = timestamp * 0x9E3779B97F4A7C15L;
+    int idx = (int) (hash ^ (hash >>> 32)) & mask;
+    while (timestamps[idx] != EMPTY && timestamps[idx] != timestamp) {
+      idx = (idx + 1) & mask;
+    }
+    return idx;
+  }
+
+  private static long[] newTimestamps(int capacity) {
+    long[] result = new long[capacity];
+    Arrays.fill(result, EMPTY);
+    return result;
+  }
+}
@@ -35,51 +35,74 @@ import java.util.Comparator;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentNavigableMap;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import javax.annotation.Nullable;
 
 /**
  * Holds all in-memory tables for {@link InMemoryTable}.
+ *
+ * Each table is guarded by its own read-write lock, which is held in read mode by operations on individual rows and
+ * in write mode by operations that change ranges of rows. Operations on individual rows are serialized by a
+ * striped set of read-write locks on the row keys, so that operations on different tables or on different rows of
+ * the same table don't block each other.
  */
-// todo: use locks instead of synchronize
 // todo: consider using SortedMap instead of NavigableMap in APIs
 public class InMemoryTableService {
-  private static Map<String, ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>>> tables =
-    Maps.newHashMap();
+  private static final ConcurrentMap<String, TableData> tables = new ConcurrentHashMap<>();
 
-  public static synchronized boolean exists(String tableName) {
+  public static boolean exists(String tableName) {
     return tables.containsKey(tableName);
   }
 
-  public static synchronized void create(String tableName) {
+  public static void create(String tableName) {
     if (!tables.containsKey(tableName)) {
-      tables.put(tableName, new ConcurrentSkipListMap<byte[],
-        NavigableMap<byte[], NavigableMap<Long, Update>>>(Bytes.BYTES_COMPARATOR));
+      tables.putIfAbsent(tableName, new TableData());
     }
   }
 
-  public static synchronized void truncate(String tableName) {
-    tables.get(tableName).clear();
+  public static void truncate(String tableName) {
+    TableData table = tables.get(tableName);
+    table.lock.writeLock().lock();
+    try {
+      table.rows.clear();
+    } finally {
+      table.lock.writeLock().unlock();
+    }
   }
 
-  public static synchronized void drop(String tableName) {
+  public static void drop(String tableName) {
     tables.remove(tableName);
   }
 
-  public static synchronized void reset() {
+  public static void reset() {
     tables.clear();
   }
 
   // no nulls
-  public static synchronized void merge(String tableName,
-                                        SortedMap<byte[], ? extends SortedMap<byte[], ? extends Update>> changes,
-                                        long version) {
+  public static void merge(String tableName, SortedMap<byte[], ? extends SortedMap<byte[], ? extends Update>> changes,
+                           long version) {
     // todo: handle nulls
-    ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> table = tables.get(tableName);
+    TableData table = tables.get(tableName);
     SortedMap<byte[], ? extends SortedMap<byte[], Update>> changesCopy = deepCopyUpdates(changes);
-    for (Map.Entry<byte[], ? extends SortedMap<byte[], Update>> change : changesCopy.entrySet()) {
-      merge(table, change.getKey(), change.getValue(), version);
+    table.lock.readLock().lock();
+    try {
+      for (Map.Entry<byte[], ? extends SortedMap<byte[], Update>> change : changesCopy.entrySet()) {
+        Lock rowLock = table.getRowLock(change.getKey()).writeLock();
+        rowLock.lock();
+        try {
+          merge(table.rows, change.getKey(), change.getValue(), version);
+        } finally {
+          rowLock.unlock();
+        }
+      }
+    } finally {
+      table.lock.readLock().unlock();
     }
   }
 
@@ -107,9 +130,24 @@ public class InMemoryTableService {
 
   // todo: remove it from here: only used by "system" metrics table, which should be revised
   @Deprecated
-  public static synchronized Map<byte[], Long> increment(String tableName, byte[] row, Map<byte[], Long> increments) {
+  public static Map<byte[], Long> increment(String tableName, byte[] row, Map<byte[], Long> increments) {
+    TableData table = tables.get(tableName);
+    table.lock.readLock().lock();
+    Lock rowLock = table.getRowLock(row).writeLock();
+    rowLock.lock();
+    try {
+      return increment(table.rows, row, increments);
+    } finally {
+      rowLock.unlock();
+      table.lock.readLock().unlock();
+    }
+  }
+
+  private static Map<byte[], Long> increment(
+    ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> table,
+    byte[] row, Map<byte[], Long> increments) {
+
     Map<byte[], Long> resultMap = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
-    ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> table = tables.get(tableName);
     // get the correct row from the table, create it if it doesn't exist
     NavigableMap<byte[], NavigableMap<Long, Update>> rowMap = table.get(row);
     if (rowMap == null) {
@@ -138,9 +176,21 @@ public class InMemoryTableService {
     return resultMap;
   }
 
-  public static synchronized boolean swap(String tableName, byte[] row, byte[] column,
-                                          byte[] oldValue, byte[] newValue) {
-    ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> table = tables.get(tableName);
+  public static boolean swap(String tableName, byte[] row, byte[] column, byte[] oldValue, byte[] newValue) {
+    TableData table = tables.get(tableName);
+    table.lock.readLock().lock();
+    Lock rowLock = table.getRowLock(row).writeLock();
+    rowLock.lock();
+    try {
+      return swap(table.rows, row, column, oldValue, newValue);
+    } finally {
+      rowLock.unlock();
+      table.lock.readLock().unlock();
+    }
+  }
+
+  private static boolean swap(ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> table,
+                              byte[] row, byte[] column, byte[] oldValue, byte[] newValue) {
     // get the correct row from the table, create it if it doesn't exist
     NavigableMap<byte[], NavigableMap<Long, Update>> rowMap = table.get(row);
     Update existingValue = null;
@@ -178,47 +228,81 @@ public class InMemoryTableService {
     return true;
   }
 
-  public static synchronized void undo(String tableName,
-                                       NavigableMap<byte[], NavigableMap<byte[], Update>> changes,
-                                       long version) {
+  public static void undo(String tableName, NavigableMap<byte[], NavigableMap<byte[], Update>> changes,
+                          long version) {
     // todo: handle nulls
-    ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> table = tables.get(tableName);
-    for (Map.Entry<byte[], NavigableMap<byte[], Update>> change : changes.entrySet()) {
-      byte[] row = change.getKey();
-      NavigableMap<byte[], NavigableMap<Long, Update>> rowMap = table.get(row);
-      if (rowMap != null) {
-        for (byte[] column : change.getValue().keySet()) {
-          NavigableMap<Long, Update> values = rowMap.get(column);
-          values.remove(version);
+    TableData table = tables.get(tableName);
+    table.lock.readLock().lock();
+    try {
+      for (Map.Entry<byte[], NavigableMap<byte[], Update>> change : changes.entrySet()) {
+        byte[] row = change.getKey();
+        Lock rowLock = table.getRowLock(row).writeLock();
+        rowLock.lock();
+        try {
+          NavigableMap<byte[], NavigableMap<Long, Update>> rowMap = table.rows.get(row);
+          if (rowMap != null) {
+            for (byte[] column : change.getValue().keySet()) {
+              NavigableMap<Long, Update> values = rowMap.get(column);
+              values.remove(version);
+            }
+          }
+        } finally {
+          rowLock.unlock();
         }
       }
+    } finally {
+      table.lock.readLock().unlock();
     }
   }
 
-  public static synchronized void delete(String tableName, Iterable<byte[]> rows) {
-    ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> table = tables.get(tableName);
-    for (byte[] row : rows) {
-      table.remove(row);
+  public static void delete(String tableName, Iterable<byte[]> rows) {
+    TableData table = tables.get(tableName);
+    table.lock.readLock().lock();
+    try {
+      for (byte[] row : rows) {
+        Lock rowLock = table.getRowLock(row).writeLock();
+        rowLock.lock();
+        try {
+          table.rows.remove(row);
+        } finally {
+          rowLock.unlock();
+        }
+      }
+    } finally {
+      table.lock.readLock().unlock();
     }
   }
 
-  public static synchronized void deleteColumns(String tableName, byte[] row, byte[] column) {
-    ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> table = tables.get(tableName);
-    NavigableMap<byte[], NavigableMap<Long, Update>> columnValues = table.get(row);
-    columnValues.remove(column);
+  public static void deleteColumns(String tableName, byte[] row, byte[] column) {
+    TableData table = tables.get(tableName);
+    table.lock.readLock().lock();
+    Lock rowLock = table.getRowLock(row).writeLock();
+    rowLock.lock();
+    try {
+      NavigableMap<byte[], NavigableMap<Long, Update>> columnValues = table.rows.get(row);
+      columnValues.remove(column);
+    } finally {
+      rowLock.unlock();
+      table.lock.readLock().unlock();
+    }
   }
 
-  public static synchronized void delete(String tableName, byte[] rowPrefix) {
-    ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> table = tables.get(tableName);
-    if (rowPrefix.length == 0) {
-      table.clear();
-    } else {
-      byte[] rowAfter = rowAfterPrefix(rowPrefix);
-      if (rowAfter == null) {
-        table.tailMap(rowPrefix).clear();
+  public static void delete(String tableName, byte[] rowPrefix) {
+    TableData table = tables.get(tableName);
+    table.lock.writeLock().lock();
+    try {
+      if (rowPrefix.length == 0) {
+        table.rows.clear();
       } else {
-        table.subMap(rowPrefix, rowAfter).clear();
+        byte[] rowAfter = rowAfterPrefix(rowPrefix);
+        if (rowAfter == null) {
+          table.rows.tailMap(rowPrefix).clear();
+        } else {
+          table.rows.subMap(rowPrefix, rowAfter).clear();
+        }
       }
+    } finally {
+      table.lock.writeLock().unlock();
     }
   }
 
@@ -239,23 +323,28 @@ public class InMemoryTableService {
     return null;
   }
 
-  public static synchronized NavigableMap<byte[], NavigableMap<Long, byte[]>> get(String tableName,
-                                                                                  byte[] row,
-                                                                                  @Nullable Transaction tx) {
+  public static NavigableMap<byte[], NavigableMap<Long, byte[]>> get(String tableName, byte[] row,
+                                                                     @Nullable Transaction tx) {
     // todo: handle nulls
-    ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> table = tables.get(tableName);
+    TableData table = tables.get(tableName);
     Preconditions.checkArgument(table != null, "table not found: " + tableName);
-    NavigableMap<byte[], NavigableMap<Long, Update>> rowMap = table.get(row);
-    return deepCopy(Updates.rowToBytes(getVisible(rowMap, tx)));
+    table.lock.readLock().lock();
+    Lock rowLock = table.getRowLock(row).readLock();
+    rowLock.lock();
+    try {
+      NavigableMap<byte[], NavigableMap<Long, Update>> rowMap = table.rows.get(row);
+      return deepCopy(Updates.rowToBytes(getVisible(rowMap, tx)));
+    } finally {
+      rowLock.unlock();
+      table.lock.readLock().unlock();
+    }
   }
 
-  public static synchronized NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>>
-                             getRowRange(String tableName,
-                                         byte[] startRow,
-                                         byte[] stopRow,
-                                         @Nullable Transaction tx) {
+  public static NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>> getRowRange(
+    String tableName, byte[] startRow, byte[] stopRow, @Nullable Transaction tx) {
     // todo: handle nulls
-    ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> tableData = tables.get(tableName);
+    TableData table = tables.get(tableName);
+    ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> tableData = table.rows;
     NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> rows;
     if (startRow == null && stopRow == null) {
       rows = tableData;
@@ -269,16 +358,28 @@ public class InMemoryTableService {
 
     NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>> result =
       Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
-    for (Map.Entry<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> rowMap : rows.entrySet()) {
-      NavigableMap<byte[], NavigableMap<Long, Update>> columns =
-        tx == null ? rowMap.getValue() : getVisible(rowMap.getValue(), tx);
-      result.put(copy(rowMap.getKey()), deepCopy(Updates.rowToBytes(columns)));
+    table.lock.readLock().lock();
+    try {
+      // each row is copied under its own lock, concurrent writes to other rows are filtered by the transaction
+      for (Map.Entry<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> rowMap : rows.entrySet()) {
+        Lock rowLock = table.getRowLock(rowMap.getKey()).readLock();
+        rowLock.lock();
+        try {
+          NavigableMap<byte[], NavigableMap<Long, Update>> columns =
+            tx == null ? rowMap.getValue() : getVisible(rowMap.getValue(), tx);
+          result.put(copy(rowMap.getKey()), deepCopy(Updates.rowToBytes(columns)));
+        } finally {
+          rowLock.unlock();
+        }
+      }
+    } finally {
+      table.lock.readLock().unlock();
     }
 
     return result;
   }
 
-  public static synchronized Collection<String> list() {
+  public static Collection<String> list() {
     return ImmutableList.copyOf(tables.keySet());
   }
 
@@ -356,6 +457,29 @@ public class InMemoryTableService {
     return src == null ? null : Arrays.copyOf(src, src.length);
   }
 
+  /**
+   * The rows of a table together with the locks guarding them.
+   */
+  private static final class TableData {
+    // number of locks guarding the rows of a table
+    private static final int ROW_LOCK_STRIPES = 32;
+
+    private final ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> rows =
+      new ConcurrentSkipListMap<>(Bytes.BYTES_COMPARATOR);
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReadWriteLock[] rowLocks = new ReadWriteLock[ROW_LOCK_STRIPES];
+
+    TableData() {
+      for (int i = 0; i < rowLocks.length; i++) {
+        rowLocks[i] = new ReentrantReadWriteLock();
+      }
+    }
+
+    ReadWriteLock getRowLock(byte[] row) {
+      return rowLocks[(Bytes.hashCode(row) & Integer.MAX_VALUE) % rowLocks.length];
+    }
+  }
+
   // This is descending Longs comparator
   public static final Comparator<Long> VERSIONED_VALUE_MAP_COMPARATOR = new Ordering<Long>() {
     @Override
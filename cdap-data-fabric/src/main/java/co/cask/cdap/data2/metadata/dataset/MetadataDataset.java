@@ -570,6 +570,9 @@ public class MetadataDataset extends AbstractDataset {
                                              Set<EntityTypeSimpleName> types, boolean showHidden,
                                              Set<EntityScope> entityScope) {
     List<MetadataEntry> results = new LinkedList<>();
+    // an entity usually matches several index rows for the same metadata key (one per indexed word, and once more
+    // per additional search term), so only look up the value of each matching metadata key once per search
+    Map<ImmutablePair<NamespacedEntityId, String>, Optional<MetadataEntry>> entries = new HashMap<>();
     for (String searchTerm : getSearchTerms(namespaceId, searchQuery, entityScope)) {
       Scanner scanner;
       if (searchTerm.endsWith("*")) {
@@ -584,7 +587,7 @@ public class MetadataDataset extends AbstractDataset {
       try {
         Row next;
         while ((next = scanner.next()) != null) {
-          Optional<MetadataEntry> metadataEntry = parseRow(next, DEFAULT_INDEX_COLUMN, types, showHidden);
+          Optional<MetadataEntry> metadataEntry = parseRow(next, DEFAULT_INDEX_COLUMN, types, showHidden, entries);
           if (metadataEntry.isPresent()) {
             results.add(metadataEntry.get());
           }
@@ -594,7 +597,7 @@ public class MetadataDataset extends AbstractDataset {
       }
     }
 
-    // cursors are currently not supported for default indexes
+    // results from default indexes are ranked by relevance, so pagination and cursors are handled after scoring
     return new SearchResults(results, Collections.<String>emptyList(), results);
   }
 
@@ -625,7 +628,7 @@ public class MetadataDataset extends AbstractDataset {
       try (Scanner scanner = indexedTable.scanByIndex(Bytes.toBytes(indexColumn), startKey, stopKey)) {
         Row next;
         while ((next = scanner.next()) != null) {
-          Optional<MetadataEntry> metadataEntry = parseRow(next, indexColumn, types, showHidden);
+          Optional<MetadataEntry> metadataEntry = parseRow(next, indexColumn, types, showHidden, null);
           if (!metadataEntry.isPresent()) {
             continue;
           }
@@ -653,9 +656,11 @@ public class MetadataDataset extends AbstractDataset {
   }
 
   // there may not be a MetadataEntry in the row or it may for a different targetType (entityFilter),
-  // so return an Optional
+  // so return an Optional. If entries is not null, it is used to cache the metadata entries already looked up.
   private Optional<MetadataEntry> parseRow(Row rowToProcess, String indexColumn,
-                                           Set<EntityTypeSimpleName> entityFilter, boolean showHidden) {
+                                           Set<EntityTypeSimpleName> entityFilter, boolean showHidden,
+                                           @Nullable Map<ImmutablePair<NamespacedEntityId, String>,
+                                             Optional<MetadataEntry>> entries) {
     String rowValue = rowToProcess.getString(indexColumn);
     if (rowValue == null) {
       return Optional.absent();
@@ -677,8 +682,16 @@ public class MetadataDataset extends AbstractDataset {
       return Optional.absent();
     }
     String key = MdsKey.getMetadataKey(targetType, rowKey);
-    MetadataEntry entry = getMetadata(targetId, key);
-    return Optional.fromNullable(entry);
+    if (entries == null) {
+      return Optional.fromNullable(getMetadata(targetId, key));
+    }
+    ImmutablePair<NamespacedEntityId, String> entryKey = ImmutablePair.of(targetId, key);
+    Optional<MetadataEntry> entry = entries.get(entryKey);
+    if (entry == null) {
+      entry = Optional.fromNullable(getMetadata(targetId, key));
+      entries.put(entryKey, entry);
+    }
+    return entry;
   }
 
   /**
@@ -0,0 +1,118 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.metadata.lineage;
+
+import co.cask.cdap.proto.id.DatasetId;
+import co.cask.cdap.proto.id.EntityId;
+import co.cask.cdap.proto.id.NamespacedEntityId;
+import co.cask.cdap.proto.id.ProgramRunId;
+import co.cask.cdap.proto.id.StreamId;
+
+import java.util.Objects;
+import javax.annotation.Nullable;
+
+/**
+ * A program-dataset or program-stream access, used to write multiple accesses at once.
+ */
+public final class DataAccess {
+  private final ProgramRunId run;
+  private final DatasetId dataset;
+  private final StreamId stream;
+  private final AccessType accessType;
+  // kept as a string, since the type of the component is not known when deserializing from json
+  private final String component;
+
+  public DataAccess(ProgramRunId run, DatasetId dataset, AccessType accessType,
+                    @Nullable NamespacedEntityId component) {
+    this(run, dataset, null, accessType, component);
+  }
+
+  public DataAccess(ProgramRunId run, StreamId stream, AccessType accessType,
+                    @Nullable NamespacedEntityId component) {
+    this(run, null, stream, accessType, component);
+  }
+
+  private DataAccess(ProgramRunId run, @Nullable DatasetId dataset, @Nullable StreamId stream,
+                     AccessType accessType, @Nullable NamespacedEntityId component) {
+    this.run = run;
+    this.dataset = dataset;
+    this.stream = stream;
+    this.accessType = accessType;
+    this.component = component == null ? null : component.toString();
+  }
+
+  public ProgramRunId getRun() {
+    return run;
+  }
+
+  /**
+   * @return the dataset accessed, or {@code null} if this is a stream access
+   */
+  @Nullable
+  public DatasetId getDataset() {
+    return dataset;
+  }
+
+  /**
+   * @return the stream accessed, or {@code null} if this is a dataset access
+   */
+  @Nullable
+  public StreamId getStream() {
+    return stream;
+  }
+
+  public AccessType getAccessType() {
+    return accessType;
+  }
+
+  @Nullable
+  public NamespacedEntityId getComponent() {
+    return component == null ? null : EntityId.<NamespacedEntityId>fromString(component);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    DataAccess that = (DataAccess) o;
+    return Objects.equals(run, that.run) &&
+      Objects.equals(dataset, that.dataset) &&
+      Objects.equals(stream, that.stream) &&
+      Objects.equals(accessType, that.accessType) &&
+      Objects.equals(component, that.component);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(run, dataset, stream, accessType, component);
+  }
+
+  @Override
+  public String toString() {
+    return "DataAccess{" +
+      "run=" + run +
+      ", dataset=" + dataset +
+      ", stream=" + stream +
+      ", accessType=" + accessType +
+      ", component=" + component +
+      '}';
+  }
+}
@@ -36,6 +36,9 @@ import org.apache.tephra.TransactionExecutor;
 import org.apache.tephra.TransactionExecutorFactory;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import javax.annotation.Nullable;
@@ -132,6 +135,30 @@ public class LineageStore implements LineageStoreReader, LineageStoreWriter {
     });
   }
 
+  /**
+   * Add multiple program-dataset and program-stream accesses in one transaction.
+   *
+   * @param accesses accesses to add
+   * @param accessTimeMillis time of access
+   */
+  @Override
+  public void addAccesses(final Collection<DataAccess> accesses, final long accessTimeMillis) {
+    execute(new TransactionExecutor.Procedure<LineageDataset>() {
+      @Override
+      public void apply(LineageDataset input) throws Exception {
+        for (DataAccess access : accesses) {
+          if (access.getDataset() != null) {
+            input.addAccess(access.getRun(), access.getDataset(), access.getAccessType(), accessTimeMillis,
+                            access.getComponent());
+          } else {
+            input.addAccess(access.getRun(), access.getStream(), access.getAccessType(), accessTimeMillis,
+                            access.getComponent());
+          }
+        }
+      }
+    });
+  }
+
   /**
    * @return a set of entities (program and data it accesses) associated with a program run.
    */
@@ -205,6 +232,42 @@ public class LineageStore implements LineageStoreReader, LineageStoreWriter {
     });
   }
 
+  /**
+   * Fetch access information for a set of datasets, streams and programs for a given period, reading all of them
+   * within a single transaction.
+   *
+   * @param entities datasets, streams and programs for which to fetch access information
+   * @param start start time period
+   * @param end end time period
+   * @param filter filter to be applied on result set
+   * @return union of the access information of all the given entities
+   */
+  @Override
+  public Set<Relation> getRelations(final Set<? extends NamespacedEntityId> entities, final long start,
+                                    final long end, final Predicate<Relation> filter) {
+    if (entities.isEmpty()) {
+      return Collections.emptySet();
+    }
+    return execute(new TransactionExecutor.Function<LineageDataset, Set<Relation>>() {
+      @Override
+      public Set<Relation> apply(LineageDataset input) throws Exception {
+        Set<Relation> relations = new HashSet<>();
+        for (NamespacedEntityId entity : entities) {
+          if (entity instanceof DatasetId) {
+            relations.addAll(input.getRelations((DatasetId) entity, start, end, filter));
+          } else if (entity instanceof StreamId) {
+            relations.addAll(input.getRelations((StreamId) entity, start, end, filter));
+          } else if (entity instanceof ProgramId) {
+            relations.addAll(input.getRelations((ProgramId) entity, start, end, filter));
+          } else {
+            throw new IllegalArgumentException("Unsupported entity type for lineage " + entity);
+          }
+        }
+        return relations;
+      }
+    });
+  }
+
   /**
    * @return a set of access times (for program and data it accesses) associated with a program run.
    */
@@ -71,4 +71,17 @@ public interface LineageStoreReader {
    */
   Set<Relation> getRelations(ProgramId program, long start, long end,
                              Predicate<Relation> filter);
+
+  /**
+   * Fetch access information for a set of datasets, streams and programs for a given period, reading all of them
+   * within a single transaction.
+   *
+   * @param entities datasets, streams and programs for which to fetch access information
+   * @param start start time period
+   * @param end end time period
+   * @param filter filter to be applied on result set
+   * @return union of the access information of all the given entities
+   */
+  Set<Relation> getRelations(Set<? extends NamespacedEntityId> entities, long start, long end,
+                             Predicate<Relation> filter);
 }
@@ -39,14 +39,15 @@ import co.cask.cdap.proto.EntityScope;
 import co.cask.cdap.proto.audit.AuditType;
 import co.cask.cdap.proto.element.EntityTypeSimpleName;
 import co.cask.cdap.proto.id.DatasetId;
+import co.cask.cdap.proto.id.EntityId;
 import co.cask.cdap.proto.id.NamespaceId;
 import co.cask.cdap.proto.id.NamespacedEntityId;
 import co.cask.cdap.proto.metadata.MetadataRecord;
 import co.cask.cdap.proto.metadata.MetadataScope;
 import co.cask.cdap.proto.metadata.MetadataSearchResponse;
 import co.cask.cdap.proto.metadata.MetadataSearchResultRecord;
+import com.google.common.base.Strings;
 import com.google.common.base.Throwables;
-import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
@@ -67,8 +68,10 @@ import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.Nullable;
 
 /**
  * Implementation of {@link MetadataStore} used in distributed mode.
@@ -95,6 +98,15 @@ public class DefaultMetadataStore implements MetadataStore {
       }
     };
 
+  // orders entities by descending score, and entities with the same score by their string representation
+  private static final Comparator<RankedEntity> RANK_ORDER = new Comparator<RankedEntity>() {
+    @Override
+    public int compare(RankedEntity o1, RankedEntity o2) {
+      int cmp = Integer.compare(o2.score, o1.score);
+      return cmp != 0 ? cmp : o1.entityName.compareTo(o2.entityName);
+    }
+  };
+
   private final TransactionExecutorFactory txExecutorFactory;
   private final DatasetFramework dsFramework;
   private AuditPublisher auditPublisher;
@@ -428,23 +440,38 @@ public class DefaultMetadataStore implements MetadataStore {
       allResults.addAll(searchResults.getAllResults());
     }
 
-    // sort if required
-    Set<NamespacedEntityId> sortedEntities = getSortedEntities(results, sortInfo);
-    int total = getSortedEntities(allResults, sortInfo).size();
+    Set<NamespacedEntityId> sortedEntities;
+    int total;
 
     // pagination is not performed at the dataset level, because:
     // 1. scoring is needed for DEFAULT sort info. So perform it here for now.
     // 2. Even when using custom sorting, we still fetch extra results if numCursors > 1
     // TODO: Figure out how all of this can be done server (HBase) side
     if (SortInfo.DEFAULT.equals(sortInfo)) {
-      int startIndex = Math.min(offset, sortedEntities.size());
-      int endIndex = (int) Math.min(Integer.MAX_VALUE, (long) offset + limit); // Account for overflow
-      endIndex = Math.min(endIndex, sortedEntities.size());
-
-      // add 1 to maxIndex because end index is exclusive
-      sortedEntities = new LinkedHashSet<>(
-        ImmutableList.copyOf(sortedEntities).subList(startIndex, endIndex)
-      );
+      // for DEFAULT sort info, results and allResults are the same, so they are only scored once
+      Map<NamespacedEntityId, Integer> scores = getScores(results);
+      total = scores.size();
+
+      // only rank the entities needed for the requested page and the pages of the returned cursors
+      long maxRank = (long) offset + limit + (limit == 0 ? 0 : (long) limit * numCursors);
+      List<RankedEntity> ranked = getTopRanked(scores, parseCursor(cursor), (int) Math.min(maxRank, total));
+      int startIndex = Math.min(offset, ranked.size());
+      int endIndex = (int) Math.min((long) startIndex + limit, ranked.size()); // Account for overflow
+      sortedEntities = new LinkedHashSet<>();
+      for (RankedEntity rankedEntity : ranked.subList(startIndex, endIndex)) {
+        sortedEntities.add(rankedEntity.entityId);
+      }
+
+      // the cursor for a page is the position of the last entity before it. Return the cursors of the next
+      // numCursors pages.
+      if (limit > 0) {
+        for (int index = endIndex; index < ranked.size() && cursors.size() < numCursors; index += limit) {
+          cursors.add(ranked.get(index - 1).toCursor());
+        }
+      }
+    } else {
+      sortedEntities = getSortedEntities(results, sortInfo);
+      total = getSortedEntities(allResults, sortInfo).size();
     }
 
     // Fetch metadata for entities in the result list
@@ -475,6 +502,70 @@ public class DefaultMetadataStore implements MetadataStore {
       }, scope);
   }
 
+  /**
+   * Returns the number of matches of each entity in the given search results.
+   */
+  private Map<NamespacedEntityId, Integer> getScores(List<MetadataEntry> results) {
+    Map<NamespacedEntityId, Integer> scores = new HashMap<>();
+    for (MetadataEntry metadataEntry : results) {
+      //TODO Remove this null check after CDAP-7228 resolved. Since previous CDAP version may have null value.
+      if (metadataEntry != null) {
+        Integer score = scores.get(metadataEntry.getTargetId());
+        scores.put(metadataEntry.getTargetId(), score == null ? 1 : score + 1);
+      }
+    }
+    return scores;
+  }
+
+  /**
+   * Returns up to the given number of highest ranked entities that are ranked after the given cursor position,
+   * in rank order. Only the requested number of entities is kept while ranking, instead of sorting all of them.
+   */
+  private List<RankedEntity> getTopRanked(Map<NamespacedEntityId, Integer> scores, @Nullable RankedEntity after,
+                                          int size) {
+    if (size <= 0) {
+      return Collections.emptyList();
+    }
+    // the head of the queue is the lowest ranked entity kept so far
+    PriorityQueue<RankedEntity> topRanked = new PriorityQueue<>(size, Collections.reverseOrder(RANK_ORDER));
+    for (Map.Entry<NamespacedEntityId, Integer> entry : scores.entrySet()) {
+      RankedEntity rankedEntity = new RankedEntity(entry.getKey(), entry.getValue());
+      if (after != null && RANK_ORDER.compare(rankedEntity, after) <= 0) {
+        continue;
+      }
+      if (topRanked.size() < size) {
+        topRanked.add(rankedEntity);
+      } else if (RANK_ORDER.compare(rankedEntity, topRanked.peek()) < 0) {
+        topRanked.poll();
+        topRanked.add(rankedEntity);
+      }
+    }
+    List<RankedEntity> result = new ArrayList<>(topRanked);
+    Collections.sort(result, RANK_ORDER);
+    return result;
+  }
+
+  /**
+   * Parses a cursor returned by a search with {@link SortInfo#DEFAULT}, or returns {@code null} if no cursor is
+   * specified.
+   */
+  @Nullable
+  private RankedEntity parseCursor(@Nullable String cursor) throws BadRequestException {
+    if (Strings.isNullOrEmpty(cursor)) {
+      return null;
+    }
+    int idx = cursor.indexOf(RankedEntity.CURSOR_SEPARATOR);
+    try {
+      if (idx < 0) {
+        throw new IllegalArgumentException("Missing score in cursor " + cursor);
+      }
+      NamespacedEntityId entityId = EntityId.fromString(cursor.substring(idx + 1));
+      return new RankedEntity(entityId, Integer.parseInt(cursor.substring(0, idx)));
+    } catch (IllegalArgumentException | ClassCastException e) {
+      throw new BadRequestException(String.format("Invalid cursor '%s'.", cursor), e);
+    }
+  }
+
   private Set<NamespacedEntityId> getSortedEntities(List<MetadataEntry> results, SortInfo sortInfo) {
     // if sort order is not weighted, return entities in the order received.
     // in this case, the backing storage is expected to return results in the expected order.
@@ -741,4 +832,26 @@ public class DefaultMetadataStore implements MetadataStore {
   private String getTagWithVersion(String version) {
     return new String (VERSION_TAG_PREFIX + version);
   }
+
+  /**
+   * An entity with its score in a search sorted by {@link SortInfo#DEFAULT}. It also identifies a position in the
+   * search results, which is used as a cursor.
+   */
+  private static final class RankedEntity {
+    private static final char CURSOR_SEPARATOR = ':';
+
+    private final NamespacedEntityId entityId;
+    private final String entityName;
+    private final int score;
+
+    RankedEntity(NamespacedEntityId entityId, int score) {
+      this.entityId = entityId;
+      this.entityName = entityId.toString();
+      this.score = score;
+    }
+
+    String toCursor() {
+      return score + String.valueOf(CURSOR_SEPARATOR) + entityName;
+    }
+  }
 }
@@ -176,9 +176,10 @@ public interface MetadataStore {
    * @param limit the number of results to return, starting from #offset. To return all, pass {@link Integer#MAX_VALUE}
    * @param numCursors the number of cursors to return in the response. A cursor identifies the first index of the
    *                   next page for pagination purposes. Defaults to {@code 0}
-   * @param cursor the cursor that acts as the starting index for the requested page. This is only applicable when
-   *               #sortInfo is not {@link SortInfo#DEFAULT}. If offset is also specified, it is applied starting at
-   *               the cursor. If {@code null}, the first row is used as the cursor
+   * @param cursor the cursor that acts as the starting index for the requested page. When #sortInfo is
+   *               {@link SortInfo#DEFAULT}, it is a cursor returned by a previous search, and the page starts right
+   *               after the position in the ranking that it identifies. If offset is also specified, it is applied
+   *               starting at the cursor. If {@code null}, the first row is used as the cursor
    * @param showHidden boolean which specifies whether to display hidden entities (entity whose name start with "_")
    *                    or not.
    * @param entityScope a set which specifies which scope of entities to display.
@@ -17,6 +17,7 @@
 package co.cask.cdap.data2.metadata.writer;
 
 import co.cask.cdap.data2.metadata.lineage.AccessType;
+import co.cask.cdap.data2.metadata.lineage.DataAccess;
 import co.cask.cdap.data2.metadata.lineage.LineageStore;
 import co.cask.cdap.data2.metadata.lineage.LineageStoreWriter;
 import co.cask.cdap.proto.id.DatasetId;
@@ -27,6 +28,9 @@ import com.google.inject.Inject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -83,6 +87,24 @@ public class BasicLineageWriter implements LineageWriter {
     lineageStoreWriter.addAccess(run, stream, accessType, accessTime, component);
   }
 
+  @Override
+  public void addAccesses(Collection<DataAccess> accesses) {
+    List<DataAccess> toAdd = new ArrayList<>(accesses.size());
+    for (DataAccess access : accesses) {
+      NamespacedEntityId data = access.getDataset() != null ? access.getDataset() : access.getStream();
+      if (!alreadyRegistered(access.getRun(), data, access.getAccessType(), access.getComponent())) {
+        toAdd.add(access);
+      }
+    }
+    if (toAdd.isEmpty()) {
+      return;
+    }
+
+    long accessTime = System.currentTimeMillis();
+    LOG.debug("Writing {} accesses, accessTime = {}", toAdd.size(), accessTime);
+    lineageStoreWriter.addAccesses(toAdd, accessTime);
+  }
+
   private boolean alreadyRegistered(ProgramRunId run, NamespacedEntityId data, AccessType accessType,
                                     @Nullable NamespacedEntityId component) {
     return registered.putIfAbsent(new DataAccessKey(run, data, accessType, component), true) != null;
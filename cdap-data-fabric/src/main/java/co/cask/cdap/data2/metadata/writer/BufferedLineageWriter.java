@@ -0,0 +1,268 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.metadata.writer;
+
+import co.cask.cdap.api.metrics.MetricsCollectionService;
+import co.cask.cdap.api.metrics.MetricsContext;
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.data2.metadata.lineage.AccessType;
+import co.cask.cdap.data2.metadata.lineage.DataAccess;
+import co.cask.cdap.data2.registry.DataUsage;
+import co.cask.cdap.data2.registry.RuntimeUsageRegistry;
+import co.cask.cdap.proto.id.DatasetId;
+import co.cask.cdap.proto.id.EntityId;
+import co.cask.cdap.proto.id.NamespaceId;
+import co.cask.cdap.proto.id.NamespacedEntityId;
+import co.cask.cdap.proto.id.ProgramId;
+import co.cask.cdap.proto.id.ProgramRunId;
+import co.cask.cdap.proto.id.StreamId;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.AbstractScheduledService;
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link LineageWriter} and {@link RuntimeUsageRegistry} that buffers lineage and usage records and writes them to
+ * the delegates from a background thread, so that programs do not wait for them when accessing datasets.
+ *
+ * Buffered records are flushed periodically, when {@link #flush()} is called and when this service stops. Each flush
+ * writes all buffered lineage records with one call to {@link LineageWriter#addAccesses(Collection)} and all buffered
+ * usage records with one call to {@link RuntimeUsageRegistry#registerAll(Collection)}. Duplicate records are
+ * coalesced while they are buffered. At most {@link Constants.Metadata#LINEAGE_WRITER_MAX_BUFFERED} records are kept
+ * in memory; once that many are buffered, the caller flushes them. Records that fail to be written are logged and
+ * dropped, the same as when they are written directly. While the service is not running, records are written through
+ * to the delegates.
+ */
+public class BufferedLineageWriter extends AbstractScheduledService implements LineageWriter, RuntimeUsageRegistry {
+
+  public static final String LINEAGE_WRITER_DELEGATE = "lineage.writer.delegate";
+  public static final String USAGE_REGISTRY_DELEGATE = "usage.registry.delegate";
+
+  private static final Logger LOG = LoggerFactory.getLogger(BufferedLineageWriter.class);
+
+  private final LineageWriter lineageWriter;
+  private final RuntimeUsageRegistry usageRegistry;
+  private final MetricsContext metricsContext;
+  private final long flushIntervalMillis;
+  private final int maxBuffered;
+  // both guarded by bufferLock
+  private final Object bufferLock = new Object();
+  private final Set<DataAccess> bufferedAccesses = new LinkedHashSet<>();
+  private final Set<DataUsage> bufferedUsages = new LinkedHashSet<>();
+
+  @Inject
+  BufferedLineageWriter(CConfiguration cConf,
+                        @Named(LINEAGE_WRITER_DELEGATE) LineageWriter lineageWriter,
+                        @Named(USAGE_REGISTRY_DELEGATE) RuntimeUsageRegistry usageRegistry,
+                        MetricsCollectionService metricsCollectionService) {
+    this.lineageWriter = lineageWriter;
+    this.usageRegistry = usageRegistry;
+    this.metricsContext = metricsCollectionService.getContext(
+      ImmutableMap.of(Constants.Metrics.Tag.NAMESPACE, NamespaceId.SYSTEM.getNamespace(),
+                      Constants.Metrics.Tag.COMPONENT, "lineage.writer"));
+    this.flushIntervalMillis = cConf.getLong(Constants.Metadata.LINEAGE_WRITER_FLUSH_INTERVAL_MS);
+    this.maxBuffered = cConf.getInt(Constants.Metadata.LINEAGE_WRITER_MAX_BUFFERED);
+    Preconditions.checkArgument(flushIntervalMillis > 0, "%s must be greater than 0.",
+                                Constants.Metadata.LINEAGE_WRITER_FLUSH_INTERVAL_MS);
+  }
+
+  @Override
+  public void addAccess(ProgramRunId run, DatasetId datasetInstance, AccessType accessType) {
+    addAccess(run, datasetInstance, accessType, null);
+  }
+
+  @Override
+  public void addAccess(ProgramRunId run, DatasetId datasetInstance, AccessType accessType,
+                        @Nullable NamespacedEntityId component) {
+    if (!isRunning()) {
+      lineageWriter.addAccess(run, datasetInstance, accessType, component);
+      return;
+    }
+    addAccesses(Collections.singleton(new DataAccess(run, datasetInstance, accessType, component)));
+  }
+
+  @Override
+  public void addAccess(ProgramRunId run, StreamId stream, AccessType accessType) {
+    addAccess(run, stream, accessType, null);
+  }
+
+  @Override
+  public void addAccess(ProgramRunId run, StreamId stream, AccessType accessType,
+                        @Nullable NamespacedEntityId component) {
+    if (!isRunning()) {
+      lineageWriter.addAccess(run, stream, accessType, component);
+      return;
+    }
+    addAccesses(Collections.singleton(new DataAccess(run, stream, accessType, component)));
+  }
+
+  @Override
+  public void addAccesses(Collection<DataAccess> accesses) {
+    if (!isRunning()) {
+      lineageWriter.addAccesses(accesses);
+      return;
+    }
+    boolean flushNow;
+    synchronized (bufferLock) {
+      bufferedAccesses.addAll(accesses);
+      flushNow = isBufferFull();
+    }
+    flushIfNeeded(flushNow);
+  }
+
+  @Override
+  public void registerAll(Iterable<? extends EntityId> users, StreamId streamId) {
+    for (EntityId user : users) {
+      register(user, streamId);
+    }
+  }
+
+  @Override
+  public void register(EntityId user, StreamId streamId) {
+    if (user instanceof ProgramId) {
+      register((ProgramId) user, streamId);
+    }
+  }
+
+  @Override
+  public void registerAll(Iterable<? extends EntityId> users, DatasetId datasetId) {
+    for (EntityId user : users) {
+      register(user, datasetId);
+    }
+  }
+
+  @Override
+  public void register(EntityId user, DatasetId datasetId) {
+    if (user instanceof ProgramId) {
+      register((ProgramId) user, datasetId);
+    }
+  }
+
+  @Override
+  public void register(ProgramId programId, DatasetId datasetInstanceId) {
+    if (!isRunning()) {
+      usageRegistry.register(programId, datasetInstanceId);
+      return;
+    }
+    registerAll(Collections.singleton(new DataUsage(programId, datasetInstanceId)));
+  }
+
+  @Override
+  public void register(ProgramId programId, StreamId streamId) {
+    if (!isRunning()) {
+      usageRegistry.register(programId, streamId);
+      return;
+    }
+    registerAll(Collections.singleton(new DataUsage(programId, streamId)));
+  }
+
+  @Override
+  public void registerAll(Collection<DataUsage> usages) {
+    if (!isRunning()) {
+      usageRegistry.registerAll(usages);
+      return;
+    }
+    boolean flushNow;
+    synchronized (bufferLock) {
+      bufferedUsages.addAll(usages);
+      flushNow = isBufferFull();
+    }
+    flushIfNeeded(flushNow);
+  }
+
+  /**
+   * Writes all buffered records to the delegates.
+   */
+  public void flush() {
+    List<DataAccess> accesses;
+    List<DataUsage> usages;
+    synchronized (bufferLock) {
+      if (bufferedAccesses.isEmpty() && bufferedUsages.isEmpty()) {
+        return;
+      }
+      accesses = new ArrayList<>(bufferedAccesses);
+      usages = new ArrayList<>(bufferedUsages);
+      bufferedAccesses.clear();
+      bufferedUsages.clear();
+    }
+
+    int failed = 0;
+    if (!accesses.isEmpty()) {
+      try {
+        lineageWriter.addAccesses(accesses);
+      } catch (Throwable t) {
+        failed += accesses.size();
+        // Log the stacktrace as debug to not polluting the log
+        LOG.debug("Failed to write lineage records {}", accesses, t);
+      }
+    }
+    if (!usages.isEmpty()) {
+      try {
+        usageRegistry.registerAll(usages);
+      } catch (Throwable t) {
+        failed += usages.size();
+        LOG.debug("Failed to write usage records {}", usages, t);
+      }
+    }
+
+    int total = accesses.size() + usages.size();
+    if (failed > 0) {
+      LOG.warn("Failed to write {} out of {} lineage and usage records.", failed, total);
+    }
+    metricsContext.increment("lineage.records.written", total - failed);
+    metricsContext.increment("lineage.records.failed", failed);
+  }
+
+  @Override
+  protected void runOneIteration() throws Exception {
+    flush();
+  }
+
+  @Override
+  protected void shutDown() throws Exception {
+    flush();
+  }
+
+  @Override
+  protected Scheduler scheduler() {
+    return Scheduler.newFixedDelaySchedule(flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+  }
+
+  private boolean isBufferFull() {
+    return bufferedAccesses.size() + bufferedUsages.size() >= maxBuffered;
+  }
+
+  private void flushIfNeeded(boolean bufferFull) {
+    // also flush if the service stopped after the records were buffered, so that they are not left in the buffer
+    if (bufferFull || !isRunning()) {
+      flush();
+    }
+  }
+}
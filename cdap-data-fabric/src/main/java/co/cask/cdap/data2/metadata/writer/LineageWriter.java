@@ -17,11 +17,13 @@
 package co.cask.cdap.data2.metadata.writer;
 
 import co.cask.cdap.data2.metadata.lineage.AccessType;
+import co.cask.cdap.data2.metadata.lineage.DataAccess;
 import co.cask.cdap.proto.id.DatasetId;
 import co.cask.cdap.proto.id.NamespacedEntityId;
 import co.cask.cdap.proto.id.ProgramRunId;
 import co.cask.cdap.proto.id.StreamId;
 
+import java.util.Collection;
 import javax.annotation.Nullable;
 
 /**
@@ -67,4 +69,11 @@ public interface LineageWriter {
    */
   void addAccess(ProgramRunId run, StreamId stream,
                  AccessType accessType, @Nullable NamespacedEntityId component);
+
+  /**
+   * Add multiple program-dataset and program-stream accesses.
+   *
+   * @param accesses accesses to add
+   */
+  void addAccesses(Collection<DataAccess> accesses);
 }
@@ -0,0 +1,95 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.registry;
+
+import co.cask.cdap.proto.id.DatasetId;
+import co.cask.cdap.proto.id.ProgramId;
+import co.cask.cdap.proto.id.StreamId;
+
+import java.util.Objects;
+import javax.annotation.Nullable;
+
+/**
+ * Usage of a dataset or a stream by a program, used to register multiple usages at once.
+ */
+public final class DataUsage {
+  private final ProgramId program;
+  private final DatasetId dataset;
+  private final StreamId stream;
+
+  public DataUsage(ProgramId program, DatasetId dataset) {
+    this(program, dataset, null);
+  }
+
+  public DataUsage(ProgramId program, StreamId stream) {
+    this(program, null, stream);
+  }
+
+  private DataUsage(ProgramId program, @Nullable DatasetId dataset, @Nullable StreamId stream) {
+    this.program = program;
+    this.dataset = dataset;
+    this.stream = stream;
+  }
+
+  public ProgramId getProgram() {
+    return program;
+  }
+
+  /**
+   * @return the dataset used, or {@code null} if this is a stream usage
+   */
+  @Nullable
+  public DatasetId getDataset() {
+    return dataset;
+  }
+
+  /**
+   * @return the stream used, or {@code null} if this is a dataset usage
+   */
+  @Nullable
+  public StreamId getStream() {
+    return stream;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    DataUsage that = (DataUsage) o;
+    return Objects.equals(program, that.program) &&
+      Objects.equals(dataset, that.dataset) &&
+      Objects.equals(stream, that.stream);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(program, dataset, stream);
+  }
+
+  @Override
+  public String toString() {
+    return "DataUsage{" +
+      "program=" + program +
+      ", dataset=" + dataset +
+      ", stream=" + stream +
+      '}';
+  }
+}
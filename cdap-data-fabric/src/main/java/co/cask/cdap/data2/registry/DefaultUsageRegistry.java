@@ -34,6 +34,7 @@ import org.apache.tephra.TransactionExecutor;
 import org.apache.tephra.TransactionExecutorFactory;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.Set;
 
 /**
@@ -176,6 +177,21 @@ public class DefaultUsageRegistry implements UsageRegistry {
     });
   }
 
+  /**
+   * Registers multiple usages of datasets and streams by programs in one transaction.
+   *
+   * @param usages usages to register
+   */
+  @Override
+  public void registerAll(final Collection<DataUsage> usages) {
+    execute(new TransactionExecutor.Procedure<UsageDataset>() {
+      @Override
+      public void apply(UsageDataset usageDataset) throws Exception {
+        usageDataset.register(usages);
+      }
+    });
+  }
+
   /**
    * Unregisters all usage information of an application.
    *
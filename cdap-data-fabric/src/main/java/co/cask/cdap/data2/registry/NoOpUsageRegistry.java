@@ -22,6 +22,7 @@ import co.cask.cdap.proto.id.EntityId;
 import co.cask.cdap.proto.id.ProgramId;
 import co.cask.cdap.proto.id.StreamId;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Set;
 
@@ -48,6 +49,9 @@ public class NoOpUsageRegistry implements UsageRegistry {
   @Override
   public void register(final ProgramId programId, final StreamId streamId) { }
 
+  @Override
+  public void registerAll(Collection<DataUsage> usages) { }
+
   @Override
   public void unregister(final ApplicationId applicationId) { }
 
@@ -21,6 +21,8 @@ import co.cask.cdap.proto.id.EntityId;
 import co.cask.cdap.proto.id.ProgramId;
 import co.cask.cdap.proto.id.StreamId;
 
+import java.util.Collection;
+
 /**
  * Store program -> dataset/stream usage information. Differs from UsageRegistry in that UsageRegistry does not have
  * a remote implementation, usable from program runtime.
@@ -74,4 +76,11 @@ public interface RuntimeUsageRegistry {
    * @param streamId  stream
    */
   void register(ProgramId programId, StreamId streamId);
+
+  /**
+   * Registers multiple usages of datasets and streams by programs.
+   *
+   * @param usages usages to register
+   */
+  void registerAll(Collection<DataUsage> usages);
 }
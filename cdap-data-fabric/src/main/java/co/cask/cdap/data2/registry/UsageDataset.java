@@ -32,6 +32,7 @@ import co.cask.cdap.proto.id.ProgramId;
 import co.cask.cdap.proto.id.StreamId;
 import com.google.common.collect.ImmutableMap;
 
+import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
 
@@ -78,6 +79,20 @@ public class UsageDataset extends MetadataStoreDataset {
     write(orderedPairs.get(STREAM, PROGRAM).makeKey(streamId, programId), true);
   }
 
+  /**
+   * Registers multiple usages of datasets and streams by programs.
+   * @param usages usages to register
+   */
+  public void register(Collection<DataUsage> usages) {
+    for (DataUsage usage : usages) {
+      if (usage.getDataset() != null) {
+        register(usage.getProgram(), usage.getDataset());
+      } else {
+        register(usage.getProgram(), usage.getStream());
+      }
+    }
+  }
+
   /**
    * Unregisters all usage information of an application.
    * @param applicationId application
@@ -19,6 +19,7 @@ import co.cask.cdap.api.Predicate;
 import co.cask.cdap.api.data.format.FormatSpecification;
 import co.cask.cdap.api.data.schema.Schema;
 import co.cask.cdap.api.data.stream.StreamSpecification;
+import co.cask.cdap.common.BadRequestException;
 import co.cask.cdap.common.NotFoundException;
 import co.cask.cdap.common.StreamNotFoundException;
 import co.cask.cdap.common.conf.CConfiguration;
@@ -29,6 +30,7 @@ import co.cask.cdap.common.namespace.NamespacedLocationFactory;
 import co.cask.cdap.common.utils.OSDetector;
 import co.cask.cdap.data.stream.CoordinatorStreamProperties;
 import co.cask.cdap.data.stream.StreamCoordinatorClient;
+import co.cask.cdap.data.stream.StreamDataBlockCodec;
 import co.cask.cdap.data.stream.StreamFileOffset;
 import co.cask.cdap.data.stream.StreamUtils;
 import co.cask.cdap.data.stream.service.StreamMetaStore;
@@ -319,7 +321,8 @@ public class FileStreamAdmin implements StreamAdmin {
           }
 
           return new StreamConfig(streamId, config.getPartitionDuration(), config.getIndexInterval(),
-                                  config.getTTL(), getStreamLocation(streamId), config.getFormat(), threshold);
+                                  config.getTTL(), getStreamLocation(streamId), config.getFormat(), threshold,
+                                  config.getBlockCodec());
         }
       });
     } catch (Exception ex) {
@@ -335,8 +338,10 @@ public class FileStreamAdmin implements StreamAdmin {
     String ownerPrincipal = ownerAdmin.getOwnerPrincipal(streamId);
     StreamConfig config = getConfig(streamId);
     StreamSpecification spec = streamMetaStore.getStream(streamId);
+    // Only report the codec if the stream data is compressed
+    String blockCodec = config.getBlockCodec() == StreamDataBlockCodec.NONE ? null : config.getBlockCodec().name();
     return new StreamProperties(config.getTTL(), config.getFormat(), config.getNotificationThresholdMB(),
-                                spec.getDescription(), ownerPrincipal);
+                                spec.getDescription(), ownerPrincipal, blockCodec);
   }
 
   @Override
@@ -353,6 +358,7 @@ public class FileStreamAdmin implements StreamAdmin {
 
     Preconditions.checkArgument(streamLocation.isDirectory(), "Stream '%s' does not exist.", streamId);
     verifyOwner(streamId, properties.getOwnerPrincipal());
+    verifyBlockCodec(streamId, properties.getBlockCodec());
 
     streamCoordinatorClient.updateProperties(
       streamId, new Callable<CoordinatorStreamProperties>() {
@@ -413,6 +419,8 @@ public class FileStreamAdmin implements StreamAdmin {
     // revoke privileges to make sure there is no orphaned privileges
     privilegesManager.revoke(streamId);
     final Properties properties = (props == null) ? new Properties() : props;
+    final StreamDataBlockCodec blockCodec = getBlockCodec(properties.getProperty(
+      Constants.Stream.BLOCK_CODEC, cConf.get(Constants.Stream.BLOCK_CODEC, StreamDataBlockCodec.NONE.name())));
     try {
       // Grant All access to the stream created to the User
       privilegesManager.grant(streamId, authenticationContext.getPrincipal(), EnumSet.allOf(Action.class));
@@ -464,7 +472,7 @@ public class FileStreamAdmin implements StreamAdmin {
           }
 
           final StreamConfig config = new StreamConfig(streamId, partitionDuration, indexInterval,
-                                                       ttl, streamLocation, formatSpec, threshold);
+                                                       ttl, streamLocation, formatSpec, threshold, blockCodec);
           impersonator.doAs(streamId, new Callable<Void>() {
             @Override
             public Void call() throws Exception {
@@ -491,6 +499,19 @@ public class FileStreamAdmin implements StreamAdmin {
     }
   }
 
+  /**
+   * Returns the {@link StreamDataBlockCodec} of the given name, ignoring case.
+   *
+   * @throws BadRequestException if there is no codec with the given name
+   */
+  private static StreamDataBlockCodec getBlockCodec(String codecName) throws BadRequestException {
+    try {
+      return StreamDataBlockCodec.fromName(codecName);
+    } catch (IllegalArgumentException e) {
+      throw new BadRequestException(e.getMessage());
+    }
+  }
+
   private void assertNamespaceHomeExists(NamespaceId namespaceId) throws IOException {
     Location namespaceHomeLocation = Locations.getParent(getStreamBaseLocation(namespaceId));
     Preconditions.checkArgument(namespaceHomeLocation != null && namespaceHomeLocation.exists(),
@@ -839,4 +860,15 @@ public class FileStreamAdmin implements StreamAdmin {
     Preconditions.checkArgument(equals,
                                 String.format("Updating %s is not supported.", Constants.Security.PRINCIPAL));
   }
+
+  private void verifyBlockCodec(StreamId streamId,
+                                @Nullable String specifiedBlockCodec) throws IOException, BadRequestException {
+    if (specifiedBlockCodec == null) {
+      return;
+    }
+    // Existing data files are written with the current codec, hence it cannot be changed
+    if (getBlockCodec(specifiedBlockCodec) != getConfig(streamId).getBlockCodec()) {
+      throw new BadRequestException(String.format("Updating %s is not supported.", Constants.Stream.BLOCK_CODEC));
+    }
+  }
 }
@@ -18,11 +18,13 @@ package co.cask.cdap.data2.transaction.stream;
 import co.cask.cdap.api.data.format.FormatSpecification;
 import co.cask.cdap.api.data.format.Formats;
 import co.cask.cdap.api.data.schema.Schema;
+import co.cask.cdap.data.stream.StreamDataBlockCodec;
 import co.cask.cdap.proto.id.StreamId;
 import com.google.common.base.Objects;
 import org.apache.twill.filesystem.Location;
 
 import java.util.Collections;
+import javax.annotation.Nullable;
 
 /**
  * Represents the configuration of a stream. This class needs to be GSON serializable.
@@ -41,12 +43,20 @@ public final class StreamConfig {
   private final long ttl;
   private final FormatSpecification format;
   private final int notificationThresholdMB;
+  private final StreamDataBlockCodec blockCodec;
 
   private final transient Location location;
 
   public StreamConfig(StreamId streamId, long partitionDuration, long indexInterval, long ttl,
                       Location location, FormatSpecification format, int notificationThresholdMB) {
+    this(streamId, partitionDuration, indexInterval, ttl, location, format, notificationThresholdMB, null);
+  }
+
+  public StreamConfig(StreamId streamId, long partitionDuration, long indexInterval, long ttl,
+                      Location location, FormatSpecification format, int notificationThresholdMB,
+                      @Nullable StreamDataBlockCodec blockCodec) {
     this.streamId = streamId;
+    this.blockCodec = blockCodec;
     this.partitionDuration = partitionDuration;
     this.indexInterval = indexInterval;
     this.ttl = ttl;
@@ -104,6 +114,14 @@ public final class StreamConfig {
     return notificationThresholdMB;
   }
 
+  /**
+   * @return The codec for compressing the data blocks of new stream files.
+   */
+  public StreamDataBlockCodec getBlockCodec() {
+    // Configs created before block compression was added don't have the codec
+    return Objects.firstNonNull(blockCodec, StreamDataBlockCodec.NONE);
+  }
+
   @Override
   public String toString() {
     return Objects.toStringHelper(this)
@@ -114,6 +132,7 @@ public final class StreamConfig {
       .add("location", location)
       .add("format", format)
       .add("notificationThresholdMB", notificationThresholdMB)
+      .add("blockCodec", getBlockCodec())
       .toString();
   }
 
@@ -152,7 +171,8 @@ public final class StreamConfig {
                               Objects.firstNonNull(ttl, config.getTTL()),
                               config.getLocation(),
                               Objects.firstNonNull(formatSpec, config.getFormat()),
-                              Objects.firstNonNull(notificationThreshold, config.getNotificationThresholdMB()));
+                              Objects.firstNonNull(notificationThreshold, config.getNotificationThresholdMB()),
+                              config.getBlockCodec());
     }
   }
 }
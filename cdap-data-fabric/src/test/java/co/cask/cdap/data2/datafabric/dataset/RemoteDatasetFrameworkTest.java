@@ -17,9 +17,11 @@
 package co.cask.cdap.data2.datafabric.dataset;
 
 import co.cask.cdap.api.dataset.DatasetManagementException;
+import co.cask.cdap.api.dataset.DatasetProperties;
 import co.cask.cdap.api.dataset.module.DatasetDefinitionRegistry;
 import co.cask.cdap.api.dataset.module.DatasetModule;
 import co.cask.cdap.api.metrics.MetricsCollectionService;
+import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.CConfigurationUtil;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.discovery.EndpointStrategy;
@@ -27,6 +29,7 @@ import co.cask.cdap.common.discovery.RandomEndpointStrategy;
 import co.cask.cdap.common.guice.ConfigModule;
 import co.cask.cdap.common.guice.DiscoveryRuntimeModule;
 import co.cask.cdap.common.metrics.NoOpMetricsCollectionService;
+import co.cask.cdap.common.utils.Tasks;
 import co.cask.cdap.data.dataset.SystemDatasetInstantiatorFactory;
 import co.cask.cdap.data.runtime.DynamicTransactionExecutorFactory;
 import co.cask.cdap.data2.datafabric.dataset.instance.DatasetInstanceManager;
@@ -56,7 +59,10 @@ import co.cask.cdap.data2.transaction.TransactionExecutorFactory;
 import co.cask.cdap.data2.transaction.TransactionSystemClientService;
 import co.cask.cdap.explore.client.DiscoveryExploreClient;
 import co.cask.cdap.explore.client.ExploreFacade;
+import co.cask.cdap.messaging.MessagingService;
+import co.cask.cdap.messaging.guice.MessagingServerRuntimeModule;
 import co.cask.cdap.proto.NamespaceMeta;
+import co.cask.cdap.proto.id.DatasetId;
 import co.cask.cdap.proto.id.NamespaceId;
 import co.cask.cdap.security.auth.context.AuthenticationContextModules;
 import co.cask.cdap.security.authorization.AuthorizationEnforcementModule;
@@ -71,6 +77,7 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.Service;
 import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
@@ -90,6 +97,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.HashSet;
+import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -100,6 +108,9 @@ public class RemoteDatasetFrameworkTest extends AbstractDatasetFrameworkTest {
   private DatasetOpExecutorService opExecutorService;
   private DatasetService service;
   private RemoteDatasetFramework framework;
+  private DiscoveryServiceClient discoveryServiceClient;
+  private AuthenticationContext authenticationContext;
+  private DatasetInstanceService instanceService;
 
   @Before
   public void before() throws Exception {
@@ -140,9 +151,9 @@ public class RemoteDatasetFrameworkTest extends AbstractDatasetFrameworkTest {
     TransactionSystemClientService txSystemClientService = new DelegatingTransactionSystemClientService(txSystemClient);
 
     DiscoveryService discoveryService = injector.getInstance(DiscoveryService.class);
-    DiscoveryServiceClient discoveryServiceClient = injector.getInstance(DiscoveryServiceClient.class);
+    discoveryServiceClient = injector.getInstance(DiscoveryServiceClient.class);
     MetricsCollectionService metricsCollectionService = injector.getInstance(MetricsCollectionService.class);
-    AuthenticationContext authenticationContext = injector.getInstance(AuthenticationContext.class);
+    authenticationContext = injector.getInstance(AuthenticationContext.class);
 
     framework = new RemoteDatasetFramework(cConf, discoveryServiceClient, registryFactory, authenticationContext);
     SystemDatasetInstantiatorFactory datasetInstantiatorFactory =
@@ -181,7 +192,7 @@ public class RemoteDatasetFrameworkTest extends AbstractDatasetFrameworkTest {
                                                             DEFAULT_MODULES);
     DatasetOpExecutor opExecutor = new LocalDatasetOpExecutor(cConf, discoveryServiceClient, opExecutorService,
                                                               authenticationContext);
-    DatasetInstanceService instanceService = new DatasetInstanceService(
+    instanceService = new DatasetInstanceService(
       typeService, instanceManager, opExecutor, exploreFacade, namespaceQueryAdmin, ownerAdmin, authorizationEnforcer,
       privilegesManager, authenticationContext);
     instanceService.setAuditPublisher(inMemoryAuditPublisher);
@@ -229,6 +240,95 @@ public class RemoteDatasetFrameworkTest extends AbstractDatasetFrameworkTest {
     }
   }
 
+  @Test
+  public void testInstanceCache() throws Exception {
+    CConfiguration cacheConf = CConfiguration.copy(cConf);
+    cacheConf.setLong(Constants.Dataset.CLIENT_CACHE_EXPIRY_SECS, TimeUnit.HOURS.toSeconds(1));
+    RemoteDatasetFramework cachingFramework = new RemoteDatasetFramework(cacheConf, discoveryServiceClient,
+                                                                         registryFactory, authenticationContext);
+    DatasetId instance = NAMESPACE_ID.dataset("cached");
+
+    // absence of an instance is not cached
+    Assert.assertNull(cachingFramework.getDatasetSpec(instance));
+    framework.addInstance("table", instance, DatasetProperties.builder().add("key", "v1").build());
+    Assert.assertEquals("v1", cachingFramework.getDatasetSpec(instance).getProperty("key"));
+
+    // without a messaging service, an update through another client is not visible until the cached entry expires
+    framework.updateInstance(instance, DatasetProperties.builder().add("key", "v2").build());
+    Assert.assertEquals("v2", framework.getDatasetSpec(instance).getProperty("key"));
+    Assert.assertEquals("v1", cachingFramework.getDatasetSpec(instance).getProperty("key"));
+
+    // an update through the caching client invalidates its cached entry
+    cachingFramework.updateInstance(instance, DatasetProperties.builder().add("key", "v3").build());
+    Assert.assertEquals("v3", cachingFramework.getDatasetSpec(instance).getProperty("key"));
+    Assert.assertTrue(cachingFramework.hasInstance(instance));
+
+    cachingFramework.deleteInstance(instance);
+    Assert.assertFalse(cachingFramework.hasInstance(instance));
+    Assert.assertNull(cachingFramework.getDatasetSpec(instance));
+  }
+
+  @Test
+  public void testInstanceCacheInvalidation() throws Exception {
+    // publish dataset changes of the dataset service to the messaging service
+    Injector injector = Guice.createInjector(
+      new ConfigModule(cConf),
+      new DiscoveryRuntimeModule().getInMemoryModules(),
+      new MessagingServerRuntimeModule().getInMemoryModules(),
+      new AbstractModule() {
+        @Override
+        protected void configure() {
+          bind(MetricsCollectionService.class).to(NoOpMetricsCollectionService.class).in(Singleton.class);
+        }
+      }
+    );
+    MessagingService messagingService = injector.getInstance(MessagingService.class);
+    ((Service) messagingService).startAndWait();
+    try {
+      instanceService.setMessagingService(cConf, messagingService);
+
+      CConfiguration cacheConf = CConfiguration.copy(cConf);
+      cacheConf.setLong(Constants.Dataset.CLIENT_CACHE_EXPIRY_SECS, TimeUnit.HOURS.toSeconds(1));
+      final RemoteDatasetFramework cachingFramework = new RemoteDatasetFramework(cacheConf, discoveryServiceClient,
+                                                                                 registryFactory,
+                                                                                 authenticationContext);
+      cachingFramework.setMessagingService(messagingService);
+      final DatasetId instance = NAMESPACE_ID.dataset("invalidated");
+
+      framework.addInstance("table", instance, DatasetProperties.builder().add("key", "v1").build());
+      Assert.assertEquals("v1", cachingFramework.getDatasetSpec(instance).getProperty("key"));
+
+      // an update through another client invalidates the cached entry once its change is fetched
+      framework.updateInstance(instance, DatasetProperties.builder().add("key", "v2").build());
+      Tasks.waitFor("v2", new Callable<String>() {
+        @Override
+        public String call() throws Exception {
+          return cachingFramework.getDatasetSpec(instance).getProperty("key");
+        }
+      }, 10, TimeUnit.SECONDS, 100, TimeUnit.MILLISECONDS);
+
+      // so does a deletion
+      framework.deleteInstance(instance);
+      Tasks.waitFor(false, new Callable<Boolean>() {
+        @Override
+        public Boolean call() throws Exception {
+          return cachingFramework.hasInstance(instance);
+        }
+      }, 10, TimeUnit.SECONDS, 100, TimeUnit.MILLISECONDS);
+
+      // once closed, the framework stops fetching changes and no longer caches
+      cachingFramework.close();
+      framework.addInstance("table", instance, DatasetProperties.builder().add("key", "v1").build());
+      Assert.assertEquals("v1", cachingFramework.getDatasetSpec(instance).getProperty("key"));
+      framework.updateInstance(instance, DatasetProperties.builder().add("key", "v2").build());
+      Assert.assertEquals("v2", cachingFramework.getDatasetSpec(instance).getProperty("key"));
+      framework.deleteInstance(instance);
+    } finally {
+      instanceService.setMessagingService(cConf, null);
+      ((Service) messagingService).stopAndWait();
+    }
+  }
+
   private void createNamespace (NamespaceId namespaceId) throws Exception {
     // since the namespace admin here is an in memory one we need to create the location explicitly
     namespacedLocationFactory.get(namespaceId.toId()).mkdirs();
@@ -26,6 +26,7 @@ import co.cask.cdap.api.dataset.lib.cube.Interpolators;
 import co.cask.cdap.api.dataset.lib.cube.MeasureType;
 import co.cask.cdap.api.dataset.lib.cube.TimeSeries;
 import co.cask.cdap.api.dataset.lib.cube.TimeValue;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
@@ -205,6 +206,55 @@ public abstract class AbstractCubeTest {
 
   }
 
+  @Test
+  public void testRollup() throws Exception {
+    Aggregation agg1 = new DefaultAggregation(ImmutableList.of("dim1"));
+
+    Cube cube = getCube("myRollupCube", new int[] {1, 100}, ImmutableMap.of("agg1", agg1));
+
+    writeInc(cube, "metric1", 1, 1, "1");
+    writeInc(cube, "metric1", 5, 2, "1");
+    writeInc(cube, "metric1", 12, 3, "1");
+    writeInc(cube, "metric1", 25, 4, "1");
+    writeGauge(cube, "metric2", 1, 5, "1");
+    writeGauge(cube, "metric2", 5, 2, "1");
+    writeGauge(cube, "metric2", 12, 3, "1");
+
+    // there's no resolution of 10 stored, it is rolled up from resolution of 1
+    verifyCountQuery(cube, 0, 30, 10, "metric1", AggregationFunction.SUM,
+                     ImmutableMap.of("dim1", "1"), ImmutableList.<String>of(),
+                     ImmutableList.of(new TimeSeries("metric1", new HashMap<String, String>(),
+                                                     timeValues(0, 3, 10, 3, 20, 4))));
+    verifyCountQuery(cube, 0, 30, 10, "metric2", AggregationFunction.LATEST,
+                     ImmutableMap.of("dim1", "1"), ImmutableList.<String>of(),
+                     ImmutableList.of(new TimeSeries("metric2", new HashMap<String, String>(),
+                                                     timeValues(0, 2, 10, 3))));
+    verifyCountQuery(cube, 0, 30, 10, "metric2", AggregationFunction.MAX,
+                     ImmutableMap.of("dim1", "1"), ImmutableList.<String>of(),
+                     ImmutableList.of(new TimeSeries("metric2", new HashMap<String, String>(),
+                                                     timeValues(0, 5, 10, 3))));
+    verifyCountQuery(cube, 0, 30, 10, "metric2", AggregationFunction.MIN,
+                     ImmutableMap.of("dim1", "1"), ImmutableList.<String>of(),
+                     ImmutableList.of(new TimeSeries("metric2", new HashMap<String, String>(),
+                                                     timeValues(0, 2, 10, 3))));
+
+    // resolution of 150 is rolled up from resolution of 1, since it is not a multiple of 100
+    verifyCountQuery(cube, 0, 30, 150, "metric1", AggregationFunction.SUM,
+                     ImmutableMap.of("dim1", "1"), ImmutableList.<String>of(),
+                     ImmutableList.of(new TimeSeries("metric1", new HashMap<String, String>(), timeValues(0, 10))));
+
+    // query with a resolution that can't be rolled up from any stored resolution
+    Cube coarseCube = getCube("myCoarseRollupCube", new int[] {10, 100}, ImmutableMap.of("agg1", agg1));
+    try {
+      verifyCountQuery(coarseCube, 0, 30, 15, "metric1", AggregationFunction.SUM,
+                       ImmutableMap.of("dim1", "1"), ImmutableList.<String>of(), ImmutableList.<TimeSeries>of());
+      Assert.fail("Expected IllegalArgumentException");
+    } catch (Exception e) {
+      // the exception may be wrapped by the transaction executor
+      Assert.assertTrue(Throwables.getRootCause(e) instanceof IllegalArgumentException);
+    }
+  }
+
   @Test
   public void testGauges() throws Exception {
     Aggregation agg1 = new DefaultAggregation(ImmutableList.of("dim1"));
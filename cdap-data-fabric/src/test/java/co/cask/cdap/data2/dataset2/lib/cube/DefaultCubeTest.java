@@ -16,14 +16,46 @@
 
 package co.cask.cdap.data2.dataset2.lib.cube;
 
+import co.cask.cdap.api.dataset.lib.cube.AggregationFunction;
 import co.cask.cdap.api.dataset.lib.cube.Cube;
+import co.cask.cdap.api.dataset.lib.cube.CubeDeleteQuery;
+import co.cask.cdap.api.dataset.lib.cube.CubeFact;
+import co.cask.cdap.api.dataset.lib.cube.CubeQuery;
+import co.cask.cdap.api.dataset.lib.cube.DimensionValue;
+import co.cask.cdap.api.dataset.lib.cube.MeasureType;
+import co.cask.cdap.api.dataset.lib.cube.Measurement;
+import co.cask.cdap.api.dataset.lib.cube.TimeSeries;
+import co.cask.cdap.common.utils.TimeProvider;
+import co.cask.cdap.data2.dataset2.lib.table.MetricsTable;
 import co.cask.cdap.data2.dataset2.lib.table.inmemory.InMemoryMetricsTable;
 import co.cask.cdap.data2.dataset2.lib.table.inmemory.InMemoryTableService;
 import co.cask.cdap.data2.dataset2.lib.timeseries.EntityTable;
+import co.cask.cdap.data2.dataset2.lib.timeseries.Fact;
 import co.cask.cdap.data2.dataset2.lib.timeseries.FactTable;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Assert;
+import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  *
@@ -32,7 +64,263 @@ public class DefaultCubeTest extends AbstractCubeTest {
 
   @Override
   protected Cube getCube(final String name, int[] resolutions, Map<String, ? extends Aggregation> aggregations) {
+    return new DefaultCube(resolutions, createFactTableSupplier(name), aggregations,
+                           ImmutableMap.<String, AggregationAlias>of());
+  }
+
+  @Test
+  public void testQueryCache() throws Exception {
+    final AtomicLong currentTimeMillis = new AtomicLong(TimeUnit.SECONDS.toMillis(100));
+    CubeQueryCache queryCache = new CubeQueryCache(10, 10, new TimeProvider() {
+      @Override
+      public long currentTimeMillis() {
+        return currentTimeMillis.get();
+      }
+    });
+    FactTableSupplier supplier = createFactTableSupplier("myCachedCube");
+    Cube cube = new DefaultCube(new int[] {1}, supplier,
+                                ImmutableMap.of("agg1", new DefaultAggregation(ImmutableList.of("dim1"))),
+                                ImmutableMap.<String, AggregationAlias>of(), queryCache);
+
+    writeInc(cube, "metric1", 10, 1, "1");
+    writeInc(cube, "metric1", 95, 2, "1");
+    verifyCountQuery(cube, 0, 200, 1, "metric1", AggregationFunction.SUM,
+                     ImmutableMap.of("dim1", "1"), ImmutableList.<String>of(),
+                     ImmutableList.of(new TimeSeries("metric1", new HashMap<String, String>(),
+                                                     timeValues(10, 1, 95, 2))));
+
+    // facts written to settled time buckets directly to the fact table are not visible through the cache,
+    // while facts after the settled time are
+    FactTable factTable = supplier.get(1, 3600);
+    factTable.add(ImmutableList.of(new Fact(20, ImmutableList.of(new DimensionValue("dim1", "1")),
+                                            new Measurement("metric1", MeasureType.COUNTER, 3))));
+    writeInc(cube, "metric1", 98, 4, "1");
+    verifyCountQuery(cube, 0, 200, 1, "metric1", AggregationFunction.SUM,
+                     ImmutableMap.of("dim1", "1"), ImmutableList.<String>of(),
+                     ImmutableList.of(new TimeSeries("metric1", new HashMap<String, String>(),
+                                                     timeValues(10, 1, 95, 2, 98, 4))));
+
+    // a query starting later still uses the cached time series
+    verifyCountQuery(cube, 15, 200, 1, "metric1", AggregationFunction.SUM,
+                     ImmutableMap.of("dim1", "1"), ImmutableList.<String>of(),
+                     ImmutableList.of(new TimeSeries("metric1", new HashMap<String, String>(),
+                                                     timeValues(95, 2, 98, 4))));
+
+    // delete of an unsettled time range keeps the cache
+    cube.delete(new CubeDeleteQuery(98, 98, 1, ImmutableMap.of("dim1", "1"), "metric1"));
+    verifyCountQuery(cube, 0, 200, 1, "metric1", AggregationFunction.SUM,
+                     ImmutableMap.of("dim1", "1"), ImmutableList.<String>of(),
+                     ImmutableList.of(new TimeSeries("metric1", new HashMap<String, String>(),
+                                                     timeValues(10, 1, 95, 2))));
+
+    // delete of a settled time range invalidates the cache
+    cube.delete(new CubeDeleteQuery(10, 10, 1, ImmutableMap.of("dim1", "1"), "metric1"));
+    verifyCountQuery(cube, 0, 200, 1, "metric1", AggregationFunction.SUM,
+                     ImmutableMap.of("dim1", "1"), ImmutableList.<String>of(),
+                     ImmutableList.of(new TimeSeries("metric1", new HashMap<String, String>(),
+                                                     timeValues(20, 3, 95, 2))));
+
+    // a late write through the cube to a settled time bucket invalidates the cache
+    writeInc(cube, "metric1", 30, 5, "1");
+    verifyCountQuery(cube, 0, 200, 1, "metric1", AggregationFunction.SUM,
+                     ImmutableMap.of("dim1", "1"), ImmutableList.<String>of(),
+                     ImmutableList.of(new TimeSeries("metric1", new HashMap<String, String>(),
+                                                     timeValues(20, 3, 30, 5, 95, 2))));
+
+    // cached entries expire after the settle time
+    factTable.add(ImmutableList.of(new Fact(40, ImmutableList.of(new DimensionValue("dim1", "1")),
+                                            new Measurement("metric1", MeasureType.COUNTER, 6))));
+    verifyCountQuery(cube, 0, 200, 1, "metric1", AggregationFunction.SUM,
+                     ImmutableMap.of("dim1", "1"), ImmutableList.<String>of(),
+                     ImmutableList.of(new TimeSeries("metric1", new HashMap<String, String>(),
+                                                     timeValues(20, 3, 30, 5, 95, 2))));
+    currentTimeMillis.addAndGet(TimeUnit.SECONDS.toMillis(11));
+    verifyCountQuery(cube, 0, 200, 1, "metric1", AggregationFunction.SUM,
+                     ImmutableMap.of("dim1", "1"), ImmutableList.<String>of(),
+                     ImmutableList.of(new TimeSeries("metric1", new HashMap<String, String>(),
+                                                     timeValues(20, 3, 30, 5, 40, 6, 95, 2))));
+  }
+
+  @Test
+  public void testQueryLimits() throws Exception {
+    DefaultCube cube = new DefaultCube(new int[] {1}, createFactTableSupplier("myLimitCube"),
+                                       ImmutableMap.of("agg1", new DefaultAggregation(ImmutableList.of("dim1"))),
+                                       ImmutableMap.<String, AggregationAlias>of());
+    for (int i = 100; i > 0; i--) {
+      writeInc(cube, "metric1", i, i, String.valueOf(i % 10));
+    }
+
+    // the limit is applied to each time series
+    CubeQuery query = CubeQuery.builder()
+      .select().measurement("metric1", AggregationFunction.SUM)
+      .from("agg1").resolution(1, TimeUnit.SECONDS)
+      .where().timeRange(0, 200)
+      .groupBy().dimensions(ImmutableList.of("dim1"))
+      .limit(2)
+      .build();
+    Collection<TimeSeries> result = cube.query(query);
+    Assert.assertEquals(10, result.size());
+    for (TimeSeries timeSeries : result) {
+      long dim = Long.parseLong(timeSeries.getDimensionValues().get("dim1"));
+      long first = dim == 0 ? 10 : dim;
+      Assert.assertEquals(timeValues(first, first, first + 10, first + 10), timeSeries.getTimeValues());
+    }
+
+    // a query exceeding the memory limit is rejected
+    cube.setQueryMemoryLimit(1024);
+    try {
+      cube.query(query);
+      Assert.fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+
+    // the memory limit also applies to the results served from the query cache
+    CubeQueryCache queryCache = new CubeQueryCache(10, 10, new TimeProvider() {
+      @Override
+      public long currentTimeMillis() {
+        return TimeUnit.SECONDS.toMillis(1000);
+      }
+    });
+    DefaultCube cachedCube = new DefaultCube(new int[] {1}, createFactTableSupplier("myLimitCube"),
+                                             ImmutableMap.of("agg1", new DefaultAggregation(ImmutableList.of("dim1"))),
+                                             ImmutableMap.<String, AggregationAlias>of(), queryCache);
+    CubeQuery unlimitedQuery = CubeQuery.builder()
+      .select().measurement("metric1", AggregationFunction.SUM)
+      .from("agg1").resolution(1, TimeUnit.SECONDS)
+      .where().timeRange(0, 200)
+      .groupBy().dimensions(ImmutableList.of("dim1"))
+      .limit(Integer.MAX_VALUE)
+      .build();
+    Assert.assertEquals(10, cachedCube.query(unlimitedQuery).size());
+    cachedCube.setQueryMemoryLimit(1024);
+    try {
+      cachedCube.query(unlimitedQuery);
+      Assert.fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testRetryAdd() throws Exception {
+    final String name = "myRetryCube";
+    final AtomicBoolean failIncrement = new AtomicBoolean(true);
+    // Writes to the resolution 60 table fail the first time
+    FactTableSupplier supplier = new FactTableSupplier() {
+      @Override
+      public FactTable get(int resolution, int rollTime) {
+        String entityTableName = "EntityTable-" + name;
+        InMemoryTableService.create(entityTableName);
+        String dataTableName = "DataTable-" + name + "-" + resolution;
+        InMemoryTableService.create(dataTableName);
+        MetricsTable dataTable = resolution != 60 ? new InMemoryMetricsTable(dataTableName)
+          : new InMemoryMetricsTable(dataTableName) {
+          @Override
+          public void increment(NavigableMap<byte[], NavigableMap<byte[], Long>> updates) {
+            if (failIncrement.getAndSet(false)) {
+              throw new RuntimeException("Failed to increment");
+            }
+            super.increment(updates);
+          }
+        };
+        return new FactTable(dataTable, new EntityTable(new InMemoryMetricsTable(entityTableName)),
+                             resolution, rollTime);
+      }
+    };
+    DefaultCube cube = new DefaultCube(new int[] {1, 60}, supplier,
+                                       ImmutableMap.of("agg1", new DefaultAggregation(ImmutableList.of("dim1"))),
+                                       ImmutableMap.<String, AggregationAlias>of());
+
+    List<CubeFact> facts = ImmutableList.of(new CubeFact(10).addDimensionValue("dim1", "1")
+                                              .addMeasurement("metric1", MeasureType.COUNTER, 1));
+    Set<Integer> writtenResolutions = new HashSet<>();
+    try {
+      cube.add(facts, writtenResolutions);
+      Assert.fail("Expected failure when writing to resolution 60");
+    } catch (RuntimeException e) {
+      // expected
+    }
+    Assert.assertEquals(ImmutableSet.of(1), writtenResolutions);
+
+    // Retrying with the same set of written resolutions should not count the fact twice
+    cube.add(facts, writtenResolutions);
+    Assert.assertEquals(ImmutableSet.of(1, 60), writtenResolutions);
+    verifyCountQuery(cube, 0, 100, 1, "metric1", AggregationFunction.SUM,
+                     ImmutableMap.of("dim1", "1"), ImmutableList.<String>of(),
+                     ImmutableList.of(new TimeSeries("metric1", new HashMap<String, String>(), timeValues(10, 1))));
+    verifyCountQuery(cube, 0, 100, 60, "metric1", AggregationFunction.SUM,
+                     ImmutableMap.of("dim1", "1"), ImmutableList.<String>of(),
+                     ImmutableList.of(new TimeSeries("metric1", new HashMap<String, String>(), timeValues(0, 1))));
+  }
+
+  @Test
+  public void testConcurrentAdd() throws Exception {
+    final String name = "myConcurrentCube";
+    // all tables record whether they were accessed concurrently, since the fact tables share the entity table
+    final AtomicInteger activeCalls = new AtomicInteger();
+    final AtomicBoolean concurrentCalls = new AtomicBoolean();
+    String entityTableName = "EntityTable-" + name;
+    InMemoryTableService.create(entityTableName);
+    final EntityTable entityTable =
+      new EntityTable(new ConcurrencyCheckingTable(entityTableName, activeCalls, concurrentCalls));
     FactTableSupplier supplier = new FactTableSupplier() {
+      @Override
+      public FactTable get(int resolution, int rollTime) {
+        String dataTableName = "DataTable-" + name + "-" + resolution;
+        InMemoryTableService.create(dataTableName);
+        return new FactTable(new ConcurrencyCheckingTable(dataTableName, activeCalls, concurrentCalls),
+                             entityTable, resolution, rollTime);
+      }
+    };
+    final DefaultCube cube = new DefaultCube(new int[] {1, 60, 3600}, supplier,
+                                             ImmutableMap.of("agg1", new DefaultAggregation(ImmutableList.of("dim1"))),
+                                             ImmutableMap.<String, AggregationAlias>of());
+
+    // each thread adds facts with new dimension values, so that entity ids are created concurrently
+    int threads = 4;
+    final int factsPerThread = 20;
+    final CountDownLatch startLatch = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        final int thread = i;
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            startLatch.await();
+            for (int j = 0; j < factsPerThread; j++) {
+              cube.add(new CubeFact(10).addDimensionValue("dim1", thread + "-" + j)
+                         .addMeasurement("metric1", MeasureType.COUNTER, 1));
+            }
+            return null;
+          }
+        }));
+      }
+      startLatch.countDown();
+      for (Future<?> future : futures) {
+        future.get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    Assert.assertFalse("Tables were accessed concurrently", concurrentCalls.get());
+    for (int resolution : new int[] {1, 60, 3600}) {
+      for (int i = 0; i < threads; i++) {
+        for (int j = 0; j < factsPerThread; j++) {
+          verifyCountQuery(cube, 0, 100, resolution, "metric1", AggregationFunction.SUM,
+                           ImmutableMap.of("dim1", i + "-" + j), ImmutableList.<String>of(),
+                           ImmutableList.of(new TimeSeries("metric1", new HashMap<String, String>(),
+                                                           timeValues(10 / resolution * resolution, 1))));
+        }
+      }
+    }
+  }
+
+  private FactTableSupplier createFactTableSupplier(final String name) {
+    return new FactTableSupplier() {
       @Override
       public FactTable get(int resolution, int rollTime) {
         String entityTableName = "EntityTable-" + name;
@@ -45,7 +333,68 @@ public class DefaultCubeTest extends AbstractCubeTest {
 
       }
     };
+  }
+
+  /**
+   * A {@link InMemoryMetricsTable} that records whether it was written to while another write was in progress.
+   */
+  private static final class ConcurrencyCheckingTable extends InMemoryMetricsTable {
+
+    private final AtomicInteger activeCalls;
+    private final AtomicBoolean concurrentCalls;
+
+    ConcurrencyCheckingTable(String name, AtomicInteger activeCalls, AtomicBoolean concurrentCalls) {
+      super(name);
+      this.activeCalls = activeCalls;
+      this.concurrentCalls = concurrentCalls;
+    }
+
+    @Override
+    public void put(SortedMap<byte[], ? extends SortedMap<byte[], Long>> updates) {
+      enter();
+      try {
+        super.put(updates);
+      } finally {
+        activeCalls.decrementAndGet();
+      }
+    }
 
-    return new DefaultCube(resolutions, supplier, aggregations, ImmutableMap.<String, AggregationAlias>of());
+    @Override
+    public boolean swap(byte[] row, byte[] column, byte[] oldValue, byte[] newValue) {
+      enter();
+      try {
+        return super.swap(row, column, oldValue, newValue);
+      } finally {
+        activeCalls.decrementAndGet();
+      }
+    }
+
+    @Override
+    public void increment(NavigableMap<byte[], NavigableMap<byte[], Long>> updates) {
+      enter();
+      try {
+        super.increment(updates);
+      } finally {
+        activeCalls.decrementAndGet();
+      }
+    }
+
+    @Override
+    public long incrementAndGet(byte[] row, byte[] column, long delta) {
+      enter();
+      try {
+        return super.incrementAndGet(row, column, delta);
+      } finally {
+        activeCalls.decrementAndGet();
+      }
+    }
+
+    private void enter() {
+      if (activeCalls.incrementAndGet() > 1) {
+        concurrentCalls.set(true);
+      }
+      // give other threads a chance to overlap with this call
+      Thread.yield();
+    }
   }
 }
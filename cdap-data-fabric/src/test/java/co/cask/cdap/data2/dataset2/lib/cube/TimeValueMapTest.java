@@ -0,0 +1,88 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.dataset2.lib.cube;
+
+import co.cask.cdap.api.dataset.lib.cube.AggregationFunction;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Unit tests for {@link TimeValueMap}.
+ */
+public class TimeValueMapTest {
+
+  @Test
+  public void testAggregate() {
+    Map<AggregationFunction, Long> expected = new HashMap<>();
+    expected.put(AggregationFunction.SUM, 6L);
+    expected.put(AggregationFunction.MAX, 3L);
+    expected.put(AggregationFunction.MIN, 1L);
+    expected.put(AggregationFunction.LATEST, 2L);
+
+    for (Map.Entry<AggregationFunction, Long> entry : expected.entrySet()) {
+      TimeValueMap timeValues = new TimeValueMap();
+      timeValues.aggregate(0, 1, entry.getKey());
+      timeValues.aggregate(0, 3, entry.getKey());
+      timeValues.aggregate(0, 2, entry.getKey());
+      Assert.assertEquals(1, timeValues.size());
+      Assert.assertEquals((long) entry.getValue(), timeValues.getValue(0));
+      Assert.assertEquals(entry.getValue(), timeValues.get(0L));
+    }
+  }
+
+  @Test
+  public void testGrow() {
+    TimeValueMap timeValues = new TimeValueMap();
+    Map<Long, Long> expected = new HashMap<>();
+    // insert in descending order, with timestamps that are multiples of a resolution
+    for (int i = 1000; i > 0; i--) {
+      timeValues.aggregate(i * 60, i, AggregationFunction.SUM);
+      timeValues.aggregate(i * 60, i, AggregationFunction.SUM);
+      expected.put(i * 60L, i * 2L);
+    }
+
+    Assert.assertEquals(expected, timeValues);
+    long[] timestamps = timeValues.getSortedTimestamps();
+    Assert.assertEquals(1000, timestamps.length);
+    for (int i = 0; i < timestamps.length; i++) {
+      Assert.assertEquals((i + 1) * 60L, timestamps[i]);
+    }
+  }
+
+  @Test
+  public void testLimit() {
+    TimeValueMap timeValues = new TimeValueMap(10);
+    for (int i = 0; i < 1000; i++) {
+      // alternate between small and large timestamps
+      long timestamp = i % 2 == 0 ? 1000 - i : 1000 + i;
+      timeValues.aggregate(timestamp, 1, AggregationFunction.SUM);
+      timeValues.aggregate(timestamp, 1, AggregationFunction.SUM);
+    }
+
+    // the smallest timestamps are always kept, with all values aggregated
+    long[] timestamps = timeValues.getSortedTimestamps();
+    Assert.assertTrue(timestamps.length >= 10);
+    for (int i = 0; i < 10; i++) {
+      Assert.assertEquals(2 + i * 2, timestamps[i]);
+      Assert.assertEquals(2L, timeValues.getValue(timestamps[i]));
+    }
+    Assert.assertTrue(timeValues.getEstimatedSize() < 1000);
+  }
+}
@@ -19,12 +19,21 @@ package co.cask.cdap.data2.dataset2.lib.table.inmemory;
 import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.data2.dataset2.lib.table.PutValue;
 import co.cask.cdap.data2.dataset2.lib.table.Update;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
 import org.apache.tephra.Transaction;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.NavigableMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  *
@@ -97,6 +106,57 @@ public class InMemoryTableServiceTest {
     verify123();
   }
 
+  @Test
+  public void testConcurrentUpdates() throws Exception {
+    InMemoryTableService.create("concurrentTable");
+    final int threads = 8;
+    final int rows = 4;
+    final int iterations = 500;
+    final byte[] column = new byte[] {0};
+
+    final CyclicBarrier barrier = new CyclicBarrier(threads);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        final long version = t + 1;
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            barrier.await();
+            for (int i = 0; i < iterations; i++) {
+              byte[] row = Bytes.toBytes(i % rows);
+              // each thread increments the same rows and writes its own version of another column
+              InMemoryTableService.increment("concurrentTable", row, ImmutableMap.of(column, 1L));
+              NavigableMap<byte[], NavigableMap<byte[], Update>> updates = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+              NavigableMap<byte[], Update> rowUpdate = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+              rowUpdate.put(Bytes.toBytes(version), new PutValue(Bytes.toBytes(i)));
+              updates.put(row, rowUpdate);
+              InMemoryTableService.merge("concurrentTable", updates, version);
+              InMemoryTableService.getRowRange("concurrentTable", null, null, null);
+            }
+            return null;
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get(60, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>> result =
+      InMemoryTableService.getRowRange("concurrentTable", null, null, null);
+    Assert.assertEquals(rows, result.size());
+    for (NavigableMap<byte[], NavigableMap<Long, byte[]>> row : result.values()) {
+      // the increment column and one column per thread
+      Assert.assertEquals(threads + 1, row.size());
+      Assert.assertEquals((long) threads * iterations / rows, Bytes.toLong(row.get(column).firstEntry().getValue()));
+    }
+    InMemoryTableService.drop("concurrentTable");
+  }
+
   private void verify123() {
     NavigableMap<byte[], NavigableMap<Long, byte[]>> rowFromGet =
       InMemoryTableService.get("table", new byte[]{1}, new Transaction(1L, 2L, new long[0], new long[0], 1L));
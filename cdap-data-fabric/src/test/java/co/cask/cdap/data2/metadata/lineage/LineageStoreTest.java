@@ -0,0 +1,116 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.metadata.lineage;
+
+import co.cask.cdap.common.app.RunIds;
+import co.cask.cdap.data2.dataset2.DatasetFrameworkTestUtil;
+import co.cask.cdap.proto.ProgramType;
+import co.cask.cdap.proto.id.DatasetId;
+import co.cask.cdap.proto.id.FlowletId;
+import co.cask.cdap.proto.id.NamespaceId;
+import co.cask.cdap.proto.id.NamespacedEntityId;
+import co.cask.cdap.proto.id.ProgramId;
+import co.cask.cdap.proto.id.ProgramRunId;
+import co.cask.cdap.proto.id.StreamId;
+import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.apache.tephra.TransactionExecutorFactory;
+import org.apache.twill.api.RunId;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+/**
+ * Tests for {@link LineageStore}.
+ */
+public class LineageStoreTest {
+
+  @ClassRule
+  public static DatasetFrameworkTestUtil dsFrameworkUtil = new DatasetFrameworkTestUtil();
+
+  @Test
+  public void testBatchRelations() throws Exception {
+    LineageStore lineageStore =
+      new LineageStore(dsFrameworkUtil.getInjector().getInstance(TransactionExecutorFactory.class),
+                       dsFrameworkUtil.getFramework(), NamespaceId.SYSTEM.dataset("testBatchRelations"));
+
+    StreamId stream = NamespaceId.DEFAULT.stream("stream1");
+    DatasetId dataset1 = NamespaceId.DEFAULT.dataset("dataset1");
+    DatasetId dataset2 = NamespaceId.DEFAULT.dataset("dataset2");
+    ProgramId flow = NamespaceId.DEFAULT.app("app1").flow("flow1");
+    ProgramId service = NamespaceId.DEFAULT.app("app1").service("service1");
+    RunId flowRunId = RunIds.generate(10000);
+    RunId serviceRunId = RunIds.generate(20000);
+    ProgramRunId flowRun = flow.run(flowRunId.getId());
+    ProgramRunId serviceRun = service.run(serviceRunId.getId());
+
+    lineageStore.addAccess(flowRun, stream, AccessType.READ, 10000);
+    lineageStore.addAccess(flowRun, dataset1, AccessType.WRITE, 10000);
+    lineageStore.addAccess(serviceRun, dataset1, AccessType.READ, 20000);
+    lineageStore.addAccess(serviceRun, dataset2, AccessType.WRITE, 20000);
+
+    Relation flowStream = new Relation(stream, flow, AccessType.READ, flowRunId);
+    Relation flowDataset1 = new Relation(dataset1, flow, AccessType.WRITE, flowRunId);
+    Relation serviceDataset1 = new Relation(dataset1, service, AccessType.READ, serviceRunId);
+    Relation serviceDataset2 = new Relation(dataset2, service, AccessType.WRITE, serviceRunId);
+
+    // A batched read should return the union of the relations of each entity
+    Assert.assertEquals(ImmutableSet.of(flowStream, flowDataset1, serviceDataset1),
+                        lineageStore.getRelations(ImmutableSet.<NamespacedEntityId>of(stream, dataset1), 0, 100000,
+                                                  Predicates.<Relation>alwaysTrue()));
+    Assert.assertEquals(ImmutableSet.of(flowStream, flowDataset1, serviceDataset1, serviceDataset2),
+                        lineageStore.getRelations(ImmutableSet.of(flow, service), 0, 100000,
+                                                  Predicates.<Relation>alwaysTrue()));
+    Assert.assertEquals(
+      ImmutableSet.of(flowStream, flowDataset1, serviceDataset1, serviceDataset2),
+      lineageStore.getRelations(ImmutableSet.<NamespacedEntityId>of(dataset1, dataset2, stream, flow), 0, 100000,
+                                Predicates.<Relation>alwaysTrue()));
+
+    // Time range and filter should apply to every entity in the batch
+    Assert.assertEquals(ImmutableSet.of(serviceDataset1, serviceDataset2),
+                        lineageStore.getRelations(ImmutableSet.of(flow, service), 15000, 100000,
+                                                  Predicates.<Relation>alwaysTrue()));
+    Assert.assertEquals(ImmutableSet.of(),
+                        lineageStore.getRelations(ImmutableSet.of(flow, service), 0, 100000,
+                                                  Predicates.<Relation>alwaysFalse()));
+    Assert.assertEquals(ImmutableSet.of(),
+                        lineageStore.getRelations(ImmutableSet.<NamespacedEntityId>of(), 0, 100000,
+                                                  Predicates.<Relation>alwaysTrue()));
+  }
+
+  @Test
+  public void testAddAccesses() throws Exception {
+    LineageStore lineageStore =
+      new LineageStore(dsFrameworkUtil.getInjector().getInstance(TransactionExecutorFactory.class),
+                       dsFrameworkUtil.getFramework(), NamespaceId.SYSTEM.dataset("testAddAccesses"));
+
+    StreamId stream = NamespaceId.DEFAULT.stream("stream1");
+    DatasetId dataset = NamespaceId.DEFAULT.dataset("dataset1");
+    ProgramId flow = NamespaceId.DEFAULT.app("app1").flow("flow1");
+    FlowletId flowlet = flow.flowlet("flowlet1");
+    RunId runId = RunIds.generate(10000);
+    ProgramRunId run = flow.run(runId.getId());
+
+    lineageStore.addAccesses(ImmutableList.of(new DataAccess(run, stream, AccessType.READ, flowlet),
+                                              new DataAccess(run, dataset, AccessType.WRITE, null)), 10000);
+
+    Assert.assertEquals(ImmutableSet.of(new Relation(stream, flow, AccessType.READ, runId, ImmutableSet.of(flowlet)),
+                                        new Relation(dataset, flow, AccessType.WRITE, runId)),
+                        lineageStore.getRelations(flow, 0, 100000, Predicates.<Relation>alwaysTrue()));
+  }
+}
@@ -409,6 +409,52 @@ public class MetadataStoreTest {
       ImmutableList.of(streamSearchResult, flowSearchResult),
       ImmutableList.copyOf(stripMetadata(response.getResults()))
     );
+
+    // a cursor identifies the position of the last entity before each of the following pages.
+    // only 2 cursors are returned even though we requested 3 because we do not have enough data
+    response = search(ns.getNamespace(), "tag*", 0, 1, 3);
+    Assert.assertEquals(3, response.getTotal());
+    Assert.assertEquals(
+      ImmutableList.of(datasetSearchResult),
+      ImmutableList.copyOf(stripMetadata(response.getResults()))
+    );
+    List<String> cursors = response.getCursors();
+    Assert.assertEquals(2, cursors.size());
+    Assert.assertTrue(cursors.get(0).endsWith(":" + dataset.toString()));
+    Assert.assertTrue(cursors.get(1).endsWith(":" + stream.toString()));
+
+    // resume right after the first cursor returned by the previous query
+    response = search(ns.getNamespace(), "tag*", 0, 1, 3, cursors.get(0));
+    Assert.assertEquals(
+      ImmutableList.of(streamSearchResult),
+      ImmutableList.copyOf(stripMetadata(response.getResults()))
+    );
+    Assert.assertEquals(ImmutableList.of(cursors.get(1)), response.getCursors());
+
+    // offset is applied starting at the cursor
+    response = search(ns.getNamespace(), "tag*", 1, 2, 1, cursors.get(0));
+    Assert.assertEquals(
+      ImmutableList.of(flowSearchResult),
+      ImmutableList.copyOf(stripMetadata(response.getResults()))
+    );
+    Assert.assertEquals(ImmutableList.of(), response.getCursors());
+
+    // a cursor still identifies a position if its entity is not part of the results
+    response = search(ns.getNamespace(), "tag*", 0, 1, 0, "100:" + trackerDataset.toString());
+    Assert.assertEquals(
+      ImmutableList.of(datasetSearchResult),
+      ImmutableList.copyOf(stripMetadata(response.getResults()))
+    );
+
+    // invalid cursors are rejected
+    for (String invalidCursor : ImmutableList.of(dataset.toString(), "x:" + dataset.toString(), "1:invalid")) {
+      try {
+        search(ns.getNamespace(), "tag*", 0, 1, 1, invalidCursor);
+        Assert.fail("Expected search with an invalid cursor to fail: " + invalidCursor);
+      } catch (BadRequestException e) {
+        // expected
+      }
+    }
   }
 
   @AfterClass
@@ -425,6 +471,13 @@ public class MetadataStoreTest {
     return search(ns, searchQuery, offset, limit, numCursors, false);
   }
 
+  private MetadataSearchResponse search(String ns, String searchQuery, int offset, int limit, int numCursors,
+                                        String cursor) throws BadRequestException {
+    return store.search(
+      ns, searchQuery, EnumSet.allOf(EntityTypeSimpleName.class),
+      SortInfo.DEFAULT, offset, limit, numCursors, cursor, false, EnumSet.allOf(EntityScope.class));
+  }
+
   private MetadataSearchResponse search(String ns, String searchQuery,
                                         int offset, int limit, int numCursors, boolean showHidden)
     throws BadRequestException {
@@ -0,0 +1,227 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.metadata.writer;
+
+import co.cask.cdap.common.app.RunIds;
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.common.metrics.NoOpMetricsCollectionService;
+import co.cask.cdap.data2.metadata.lineage.AccessType;
+import co.cask.cdap.data2.metadata.lineage.DataAccess;
+import co.cask.cdap.data2.registry.DataUsage;
+import co.cask.cdap.data2.registry.RuntimeUsageRegistry;
+import co.cask.cdap.proto.id.DatasetId;
+import co.cask.cdap.proto.id.EntityId;
+import co.cask.cdap.proto.id.NamespaceId;
+import co.cask.cdap.proto.id.NamespacedEntityId;
+import co.cask.cdap.proto.id.ProgramId;
+import co.cask.cdap.proto.id.ProgramRunId;
+import co.cask.cdap.proto.id.StreamId;
+import com.google.common.collect.ImmutableList;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * Tests for {@link BufferedLineageWriter}.
+ */
+public class BufferedLineageWriterTest {
+
+  private static final ProgramId PROGRAM = NamespaceId.DEFAULT.app("app").flow("flow");
+  private static final ProgramRunId RUN = PROGRAM.run(RunIds.generate().getId());
+  private static final DatasetId DATASET = NamespaceId.DEFAULT.dataset("dataset");
+  private static final StreamId STREAM = NamespaceId.DEFAULT.stream("stream");
+
+  @Test
+  public void testWriteThrough() {
+    RecordingWriter recorder = new RecordingWriter();
+    BufferedLineageWriter writer = createWriter(recorder, 100);
+
+    // records are written directly while the service is not running
+    writer.addAccess(RUN, DATASET, AccessType.READ);
+    writer.register(PROGRAM, DATASET);
+    Assert.assertEquals(ImmutableList.of("lineage " + DATASET + " READ", "usage " + DATASET), recorder.records);
+  }
+
+  @Test
+  public void testBuffering() {
+    RecordingWriter recorder = new RecordingWriter();
+    BufferedLineageWriter writer = createWriter(recorder, 4);
+    writer.startAndWait();
+    try {
+      writer.addAccess(RUN, DATASET, AccessType.READ);
+      // duplicates are coalesced while buffered
+      writer.addAccess(RUN, DATASET, AccessType.READ);
+      writer.registerAll(ImmutableList.of(PROGRAM), DATASET);
+      writer.addAccess(RUN, STREAM, AccessType.WRITE);
+      Assert.assertTrue(recorder.records.isEmpty());
+
+      // the fourth distinct record fills up the buffer and gets everything flushed, with one batch for lineage
+      // and one for usage
+      writer.register(PROGRAM, STREAM);
+      Assert.assertEquals(ImmutableList.of("lineage " + DATASET + " READ", "lineage " + STREAM + " WRITE",
+                                           "usage " + DATASET, "usage " + STREAM),
+                          recorder.records);
+      Assert.assertEquals(2, recorder.batches);
+
+      writer.addAccess(RUN, DATASET, AccessType.WRITE);
+      Assert.assertEquals(4, recorder.records.size());
+    } finally {
+      writer.stopAndWait();
+    }
+    // stopping flushes the remaining records
+    Assert.assertEquals(5, recorder.records.size());
+    Assert.assertEquals("lineage " + DATASET + " WRITE", recorder.records.get(4));
+    Assert.assertEquals(3, recorder.batches);
+  }
+
+  @Test
+  public void testComponent() {
+    RecordingWriter recorder = new RecordingWriter();
+    BufferedLineageWriter writer = createWriter(recorder, 100);
+    writer.startAndWait();
+    try {
+      writer.addAccess(RUN, DATASET, AccessType.READ, NamespaceId.DEFAULT.app("app").flow("flow").flowlet("f"));
+      writer.flush();
+    } finally {
+      writer.stopAndWait();
+    }
+    // the component is kept through the batch
+    Assert.assertEquals(ImmutableList.of("lineage " + DATASET + " READ " +
+                                           NamespaceId.DEFAULT.app("app").flow("flow").flowlet("f")),
+                        recorder.records);
+  }
+
+  @Test
+  public void testFailedWrites() {
+    RecordingWriter recorder = new RecordingWriter();
+    BufferedLineageWriter writer = createWriter(recorder, 100);
+    writer.startAndWait();
+    try {
+      writer.addAccess(RUN, DATASET, AccessType.READ);
+      recorder.fail = true;
+      writer.addAccess(RUN, STREAM, AccessType.READ);
+      // failures are dropped, and do not affect the other records
+      writer.flush();
+      recorder.fail = false;
+      writer.register(PROGRAM, DATASET);
+      writer.flush();
+    } finally {
+      writer.stopAndWait();
+    }
+    Assert.assertEquals(ImmutableList.of("usage " + DATASET), recorder.records);
+  }
+
+  private BufferedLineageWriter createWriter(RecordingWriter recorder, int maxBuffered) {
+    CConfiguration cConf = CConfiguration.create();
+    // flush interval is long enough for the periodic flush to not interfere with the tests
+    cConf.setLong(Constants.Metadata.LINEAGE_WRITER_FLUSH_INTERVAL_MS, TimeUnit.HOURS.toMillis(1));
+    cConf.setInt(Constants.Metadata.LINEAGE_WRITER_MAX_BUFFERED, maxBuffered);
+    return new BufferedLineageWriter(cConf, recorder, recorder, new NoOpMetricsCollectionService());
+  }
+
+  /**
+   * Records the lineage and usage written to it.
+   */
+  private static final class RecordingWriter implements LineageWriter, RuntimeUsageRegistry {
+    private final List<String> records = new ArrayList<>();
+    private volatile boolean fail;
+    private int batches;
+
+    @Override
+    public void addAccess(ProgramRunId run, DatasetId datasetInstance, AccessType accessType) {
+      addAccess(run, datasetInstance, accessType, null);
+    }
+
+    @Override
+    public void addAccess(ProgramRunId run, DatasetId datasetInstance, AccessType accessType,
+                          @Nullable NamespacedEntityId component) {
+      record("lineage " + datasetInstance + " " + accessType);
+    }
+
+    @Override
+    public void addAccess(ProgramRunId run, StreamId stream, AccessType accessType) {
+      addAccess(run, stream, accessType, null);
+    }
+
+    @Override
+    public void addAccess(ProgramRunId run, StreamId stream, AccessType accessType,
+                          @Nullable NamespacedEntityId component) {
+      record("lineage " + stream + " " + accessType);
+    }
+
+    @Override
+    public synchronized void addAccesses(Collection<DataAccess> accesses) {
+      batches++;
+      for (DataAccess access : accesses) {
+        String data = access.getDataset() != null ? access.getDataset().toString() : access.getStream().toString();
+        String component = access.getComponent() == null ? "" : " " + access.getComponent();
+        record("lineage " + data + " " + access.getAccessType() + component);
+      }
+    }
+
+    @Override
+    public void registerAll(Iterable<? extends EntityId> users, StreamId streamId) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void register(EntityId user, StreamId streamId) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void registerAll(Iterable<? extends EntityId> users, DatasetId datasetId) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void register(EntityId user, DatasetId datasetId) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void register(ProgramId programId, DatasetId datasetInstanceId) {
+      record("usage " + datasetInstanceId);
+    }
+
+    @Override
+    public void register(ProgramId programId, StreamId streamId) {
+      record("usage " + streamId);
+    }
+
+    @Override
+    public synchronized void registerAll(Collection<DataUsage> usages) {
+      batches++;
+      for (DataUsage usage : usages) {
+        record("usage " + (usage.getDataset() != null ? usage.getDataset() : usage.getStream()));
+      }
+    }
+
+    private synchronized void record(String record) {
+      if (fail) {
+        throw new RuntimeException("Failed to write " + record);
+      }
+      records.add(record);
+    }
+  }
+}
@@ -137,6 +137,14 @@ public class UsageRegistryTest extends UsageDatasetTest {
 
     // validate that this actually re-registered previous usages (through code in wrapped usage dataset)
     Assert.assertEquals(count + 2, WrappedUsageDataset.registerCount);
+
+    // unregister app 1 again and register its usages in one batch
+    registry.unregister(flow11.getParent());
+    registry.registerAll(ImmutableList.of(new DataUsage(flow11, datasetInstance1), new DataUsage(flow12, stream1)));
+    Assert.assertEquals(ImmutableSet.of(datasetInstance1), registry.getDatasets(flow11));
+    Assert.assertEquals(ImmutableSet.of(stream1), registry.getStreams(flow12));
+    Assert.assertEquals(ImmutableSet.of(flow11), registry.getPrograms(datasetInstance1));
+    Assert.assertEquals(ImmutableSet.of(flow12, flow21, flow22), registry.getPrograms(stream1));
   }
 
   /**
@@ -21,9 +21,15 @@ import co.cask.cdap.api.data.format.StructuredRecord;
 import co.cask.cdap.api.data.format.UnexpectedFormatException;
 import co.cask.cdap.api.data.schema.Schema;
 import co.cask.cdap.hive.objectinspector.ObjectInspectorFactory;
+import co.cask.cdap.internal.io.ASMFieldAccessorFactory;
+import co.cask.cdap.internal.io.FieldAccessor;
+import co.cask.cdap.internal.io.FieldAccessorFactory;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.reflect.TypeToken;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import org.apache.hadoop.hive.serde.serdeConstants;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
@@ -35,7 +41,6 @@ import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
 import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoUtils;
 
 import java.lang.reflect.Array;
-import java.lang.reflect.Field;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -43,10 +48,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.UUID;
+import javax.annotation.Nullable;
 
 /**
  * Helper class for translating objects that fit a cdap {@link Schema} into objects
- * that Hive can understand.
+ * that Hive can understand. Instances of this class are not thread safe.
  */
 public class ObjectDeserializer {
   private final List<String> fieldNames;
@@ -55,6 +61,11 @@ public class ObjectDeserializer {
   // we can almost do without the schema. The problem is that everything in Hive is lowercase,
   // but when we look up record fields we need the case sensitive field name.
   private final Schema schema;
+  private final FieldAccessorFactory fieldAccessorFactory;
+  // schema fields and field accessors of each record, resolved once and reused for every object translated
+  private final Map<RecordKey, RecordFields> recordFieldsCache;
+  // list of translated top level fields, reused across records
+  private final List<Object> row;
 
   /**
    * Creates an ObjectTranslator that will be able to deserialize objects that fit a {@link Schema} into objects
@@ -92,6 +103,9 @@ public class ObjectDeserializer {
     // determined outside of this class, such as the stream case where timestamp and headers are read elsewhere
     this.inspector = createInspector(fieldNames, fieldTypes);
     this.schema = schema;
+    this.fieldAccessorFactory = new ASMFieldAccessorFactory();
+    this.recordFieldsCache = Maps.newHashMap();
+    this.row = Lists.newArrayListWithCapacity(this.fieldNames.size());
   }
 
   /**
@@ -105,7 +119,7 @@ public class ObjectDeserializer {
 
   /**
    * Using reflection, deserialize an object that fits a {@link Schema} into one that can be examined
-   * by an ObjectInspector.
+   * by an ObjectInspector. If the object is a record, the returned list is reused by the next call.
    *
    * @param obj object that fits a {@link Schema}.
    * @return translated object that is understandable by Hive.
@@ -116,13 +130,14 @@ public class ObjectDeserializer {
     if (fieldTypes.size() == 1) {
       return deserializeField(obj, fieldTypes.get(0), schema);
     } else {
-      return flattenRecord(obj, fieldNames, fieldTypes, schema);
+      return flattenRecord(obj, fieldNames, fieldTypes, schema, row);
     }
   }
 
   /**
    * Using reflection, flatten an object into a list of fields so it can be examined by an ObjectInspector.
    * Assumes the field names and types given as input were derived from the schema of the object.
+   * The returned list is reused by the next call.
    *
    * @param obj object that fits a {@link Schema}.
    * @return list of fields in the record, translated to be understandable by Hive.
@@ -130,11 +145,12 @@ public class ObjectDeserializer {
    * @throws IllegalAccessException
    */
   public List<Object> translateRecord(Object obj) throws NoSuchFieldException, IllegalAccessException {
-    return flattenRecord(obj, fieldNames, fieldTypes, schema);
+    return flattenRecord(obj, fieldNames, fieldTypes, schema, row);
   }
 
-  private List<Object> flattenRecord(Object obj, List<String> fieldNames, List<TypeInfo> fieldTypes,
-                                     Schema schema) throws NoSuchFieldException, IllegalAccessException {
+  private List<Object> flattenRecord(Object obj, List<String> fieldNames, List<TypeInfo> fieldTypes, Schema schema,
+                                     @Nullable List<Object> reuse)
+    throws NoSuchFieldException, IllegalAccessException {
     boolean isNullable = schema.isNullable();
     if (obj == null) {
       if (isNullable) {
@@ -147,15 +163,17 @@ public class ObjectDeserializer {
       schema = schema.getNonNullable();
     }
 
-    Map<String, Schema.Field> fieldMap = getFieldMap(schema);
-    List<Object> objectFields = Lists.newArrayListWithCapacity(fieldNames.size());
+    RecordFields recordFields = getRecordFields(schema, fieldNames);
+    List<Object> objectFields;
+    if (reuse == null) {
+      objectFields = Lists.newArrayListWithCapacity(fieldNames.size());
+    } else {
+      reuse.clear();
+      objectFields = reuse;
+    }
     for (int i = 0; i < fieldNames.size(); i++) {
-      String hiveName = fieldNames.get(i);
-      TypeInfo fieldType = fieldTypes.get(i);
-      Schema.Field schemaField = fieldMap.get(hiveName);
-      // use the name from the schema field in case it is not all lowercase
-      Object recordField = getRecordField(obj, schemaField.getName());
-      objectFields.add(deserializeField(recordField, fieldType, schemaField.getSchema()));
+      Object recordField = recordFields.get(obj, i);
+      objectFields.add(deserializeField(recordField, fieldTypes.get(i), recordFields.getSchema(i)));
     }
     return objectFields;
   }
@@ -203,7 +221,7 @@ public class ObjectDeserializer {
         StructTypeInfo structTypeInfo = (StructTypeInfo) typeInfo;
         ArrayList<String> innerFieldNames = structTypeInfo.getAllStructFieldNames();
         ArrayList<TypeInfo> innerFieldTypes = structTypeInfo.getAllStructFieldTypeInfos();
-        return flattenRecord(field, innerFieldNames, innerFieldTypes, schema);
+        return flattenRecord(field, innerFieldNames, innerFieldTypes, schema, null);
       case UNION:
         // TODO: decide what to do here
         return field;
@@ -313,26 +331,15 @@ public class ObjectDeserializer {
     return translatedMap;
   }
 
-  // get a field from the object using the get method if the object is a StructuredRecord,
-  // or using reflection if it is not.
-  private Object getRecordField(Object record, String fieldName)
-    throws NoSuchFieldException, IllegalAccessException {
-    if (record instanceof StructuredRecord) {
-      return ((StructuredRecord) record).get(fieldName);
+  // get the schema fields of a record schema in the order of the given hive field names.
+  private RecordFields getRecordFields(Schema schema, List<String> hiveNames) {
+    RecordKey key = new RecordKey(schema, hiveNames);
+    RecordFields recordFields = recordFieldsCache.get(key);
+    if (recordFields == null) {
+      recordFields = new RecordFields(schema, hiveNames);
+      recordFieldsCache.put(key, recordFields);
     }
-    Class recordClass = record.getClass();
-    Field field = recordClass.getDeclaredField(fieldName);
-    field.setAccessible(true);
-    return field.get(record);
-  }
-
-  // get a map from the expected hive name of a field in the schema to the field in the schema.
-  private Map<String, Schema.Field> getFieldMap(Schema schema) {
-    Map<String, Schema.Field> fieldMap = Maps.newHashMap();
-    for (Schema.Field field : schema.getFields()) {
-      fieldMap.put(field.getName().toLowerCase(), field);
-    }
-    return fieldMap;
+    return recordFields;
   }
 
   private ObjectInspector createInspector(List<String> fieldNames, List<TypeInfo> fieldTypes) {
@@ -342,4 +349,87 @@ public class ObjectDeserializer {
     }
     return ObjectInspectorFactory.getStandardStructObjectInspector(fieldNames, fieldInspectors);
   }
+
+  /**
+   * Key for the {@link RecordFields} of a record. The schemas and the hive field names of records come from the
+   * schema and the {@link TypeInfo TypeInfos} of this deserializer, which don't change, hence they are compared
+   * by identity.
+   */
+  private static final class RecordKey {
+    private final Schema schema;
+    private final List<String> hiveNames;
+
+    RecordKey(Schema schema, List<String> hiveNames) {
+      this.schema = schema;
+      this.hiveNames = hiveNames;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      RecordKey that = (RecordKey) o;
+      return schema == that.schema && hiveNames == that.hiveNames;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * System.identityHashCode(schema) + System.identityHashCode(hiveNames);
+    }
+  }
+
+  /**
+   * The schema fields of a record in the order of the hive field names, along with the generated
+   * {@link FieldAccessor FieldAccessors} to read them from objects of the most recently seen record class.
+   */
+  private final class RecordFields {
+    private final Schema.Field[] schemaFields;
+    private Class<?> recordClass;
+    private FieldAccessor[] fieldAccessors;
+
+    RecordFields(Schema schema, List<String> hiveNames) {
+      // get a map from the expected hive name of a field in the schema to the field in the schema.
+      Map<String, Schema.Field> fieldMap = Maps.newHashMap();
+      for (Schema.Field field : schema.getFields()) {
+        fieldMap.put(field.getName().toLowerCase(), field);
+      }
+      this.schemaFields = new Schema.Field[hiveNames.size()];
+      for (int i = 0; i < schemaFields.length; i++) {
+        schemaFields[i] = fieldMap.get(hiveNames.get(i));
+      }
+    }
+
+    Schema getSchema(int index) {
+      return schemaFields[index].getSchema();
+    }
+
+    // get a field from the object using the get method if the object is a StructuredRecord,
+    // or using a generated field accessor if it is not.
+    // use the name from the schema field in case it is not all lowercase
+    Object get(Object record, int index) throws NoSuchFieldException {
+      if (record instanceof StructuredRecord) {
+        return ((StructuredRecord) record).get(schemaFields[index].getName());
+      }
+      if (record.getClass() != recordClass) {
+        recordClass = record.getClass();
+        fieldAccessors = new FieldAccessor[schemaFields.length];
+      }
+      FieldAccessor fieldAccessor = fieldAccessors[index];
+      if (fieldAccessor == null) {
+        try {
+          fieldAccessor = fieldAccessorFactory.getFieldAccessor(TypeToken.of(recordClass),
+                                                                schemaFields[index].getName());
+        } catch (UncheckedExecutionException e) {
+          Throwables.propagateIfInstanceOf(e.getCause(), NoSuchFieldException.class);
+          throw e;
+        }
+        fieldAccessors[index] = fieldAccessor;
+      }
+      return fieldAccessor.get(record);
+    }
+  }
 }
@@ -65,6 +65,8 @@ public class StreamSerDe implements SerDe {
   private ObjectInspector inspector;
   private AbstractStreamEventRecordFormat<?> streamFormat;
   private ObjectDeserializer deserializer;
+  // row returned by deserialize, reused across stream events
+  private final List<Object> event = Lists.newArrayList();
 
   // initialize gets called multiple times by Hive. It may seem like a good idea to put additional settings into
   // the conf, but be very careful when doing so. If there are multiple hive tables involved in a query, initialize
@@ -141,7 +143,7 @@ public class StreamSerDe implements SerDe {
     StreamEvent streamEvent = (StreamEvent) objectWritable.get();
 
     // timestamp and headers are always guaranteed to be first.
-    List<Object> event = Lists.newArrayList();
+    event.clear();
     event.add(streamEvent.getTimestamp());
     event.add(streamEvent.getHeaders());
 
@@ -384,6 +384,18 @@ public class ObjectDeserializerTest {
     assertSimpleRecordEquals((List<Object>) expected.get(2), (List<Object>) translated.get(2));
   }
 
+  @Test
+  public void testTranslateMultipleRecords() throws Exception {
+    // field lookups and the returned list are reused across records, so translate records one after another
+    ObjectDeserializer translator = new ObjectDeserializer(
+      HiveSimpleRecord.getFieldNames(), HiveSimpleRecord.getFieldTypes(), schemaGenerator.generate(SimpleRecord.class));
+    SimpleRecord record1 = new SimpleRecord(new URI("http://abc.com"), new URL("http://123.com"));
+    SimpleRecord record2 = new SimpleRecord(new URI("http://def.com"), new URL("http://456.com"));
+    assertSimpleRecordEquals(new HiveSimpleRecord(record1).getAsList(), translator.translateRecord(record1));
+    assertSimpleRecordEquals(new HiveSimpleRecord(record2).getAsList(), translator.translateRecord(record2));
+    assertSimpleRecordEquals(new HiveSimpleRecord(record1).getAsList(), translator.translateRecord(record1));
+  }
+
   @SuppressWarnings("unchecked")
   private void assertSimpleRecordEquals(List<Object> expected, List<Object> actual) {
     // compare the non-array fields
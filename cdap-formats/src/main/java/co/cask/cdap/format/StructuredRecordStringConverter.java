@@ -19,11 +19,8 @@ package co.cask.cdap.format;
 import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.data.format.StructuredRecord;
 import co.cask.cdap.api.data.schema.Schema;
-import com.google.common.base.Function;
-import com.google.common.base.Joiner;
 import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Iterables;
 import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonToken;
 import com.google.gson.stream.JsonWriter;
@@ -113,13 +110,15 @@ public final class StructuredRecordStringConverter {
    * Converts a {@link StructuredRecord} to a delimited string.
    */
   public static String toDelimitedString(final StructuredRecord record, String delimiter) {
-    return Joiner.on(delimiter).join(
-      Iterables.transform(record.getSchema().getFields(), new Function<Schema.Field, String>() {
-        @Override
-        public String apply(Schema.Field field) {
-          return record.get(field.getName()).toString();
-        }
-      }));
+    int numFields = record.getSchema().getFields().size();
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < numFields; i++) {
+      if (i > 0) {
+        builder.append(delimiter);
+      }
+      builder.append(record.get(i).toString());
+    }
+    return builder.toString();
   }
 
   /**
@@ -377,9 +376,13 @@ public final class StructuredRecordStringConverter {
     }
 
     StructuredRecord record = (StructuredRecord) value;
+    // Fields can be accessed by position if the record has the same schema instance, which is the common case
+    boolean sameSchema = record.getSchema() == schema;
+    List<Schema.Field> fields = schema.getFields();
     writer.beginObject();
-    for (Schema.Field field : schema.getFields()) {
-      Object fieldValue = record.get(field.getName());
+    for (int i = 0; i < fields.size(); i++) {
+      Schema.Field field = fields.get(i);
+      Object fieldValue = sameSchema ? record.get(i) : record.get(field.getName());
       if (fieldValue != null) {
         writer.name(field.getName());
         writeJson(writer, field.getSchema(), fieldValue);
@@ -0,0 +1,129 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.gateway.discovery;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of the number of outstanding requests and an exponentially weighted moving average of the
+ * response latency for each backend endpoint the router talks to.
+ */
+public final class EndpointStats {
+
+  // Weight given to the newest latency sample
+  private static final double ALPHA = 0.3d;
+  // Time after which the latency of an endpoint that received no samples is halved, so that an endpoint
+  // which was slow for a while gets picked again eventually
+  private static final long DECAY_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+  private final LoadingCache<InetSocketAddress, Endpoint> endpoints;
+
+  public EndpointStats() {
+    this.endpoints = CacheBuilder.newBuilder()
+      .expireAfterAccess(1, TimeUnit.HOURS)
+      .build(new CacheLoader<InetSocketAddress, Endpoint>() {
+        @Override
+        public Endpoint load(InetSocketAddress key) throws Exception {
+          return new Endpoint();
+        }
+      });
+  }
+
+  /**
+   * Returns the {@link Endpoint} statistics for the given address, creating it if needed.
+   */
+  public Endpoint get(InetSocketAddress address) {
+    return endpoints.getUnchecked(address);
+  }
+
+  /**
+   * Returns a snapshot of statistics of all known endpoints, keyed by {@code host:port}.
+   */
+  public Map<String, Endpoint> getAll() {
+    Map<String, Endpoint> result = new HashMap<>();
+    for (Map.Entry<InetSocketAddress, Endpoint> entry : endpoints.asMap().entrySet()) {
+      InetSocketAddress address = entry.getKey();
+      result.put(address.getHostName() + ":" + address.getPort(), entry.getValue());
+    }
+    return result;
+  }
+
+  /**
+   * Statistics of a single endpoint.
+   */
+  public static final class Endpoint {
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicLong latencyNanos = new AtomicLong();
+    private volatile long lastSampleNanos = System.nanoTime();
+
+    /**
+     * Called when a request is sent to the endpoint.
+     */
+    public void requestStarted() {
+      outstanding.incrementAndGet();
+    }
+
+    /**
+     * Called when a request sent to the endpoint finished, either with a complete response or a failure.
+     */
+    public void requestCompleted() {
+      outstanding.decrementAndGet();
+    }
+
+    /**
+     * Adds a latency sample to the moving average.
+     */
+    public void recordLatency(long nanos) {
+      long old;
+      long updated;
+      do {
+        old = latencyNanos.get();
+        updated = old == 0L ? nanos : (long) (old + (nanos - old) * ALPHA);
+      } while (!latencyNanos.compareAndSet(old, updated));
+      lastSampleNanos = System.nanoTime();
+    }
+
+    public int getOutstanding() {
+      return outstanding.get();
+    }
+
+    /**
+     * Returns the moving average latency in nanoseconds, or {@code 0} if no sample was recorded yet.
+     */
+    public long getLatencyNanos() {
+      long latency = latencyNanos.get();
+      long idle = System.nanoTime() - lastSampleNanos;
+      return idle <= DECAY_NANOS ? latency : (long) (latency * DECAY_NANOS / (double) (DECAY_NANOS + idle));
+    }
+
+    /**
+     * Returns the load score of this endpoint. An endpoint with lower score is preferred.
+     */
+    public double getScore() {
+      return (getOutstanding() + 1) * (double) Math.max(1L, getLatencyNanos());
+    }
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.gateway.discovery;
+
+import co.cask.cdap.common.discovery.AbstractEndpointStrategy;
+import com.google.common.collect.Iterables;
+import org.apache.twill.discovery.Discoverable;
+import org.apache.twill.discovery.ServiceDiscovered;
+
+import java.util.concurrent.ThreadLocalRandom;
+import javax.annotation.Nullable;
+
+/**
+ * Picks an endpoint using the power of two choices: two endpoints are sampled at random and the one with
+ * fewer outstanding requests weighted by its moving average latency, as tracked by {@link EndpointStats}, is
+ * returned. Endpoints without latency samples are preferred so that new instances get traffic quickly.
+ */
+public final class LatencyAwareEndpointStrategy extends AbstractEndpointStrategy {
+
+  private final EndpointStats endpointStats;
+
+  public LatencyAwareEndpointStrategy(ServiceDiscovered serviceDiscovered, EndpointStats endpointStats) {
+    super(serviceDiscovered);
+    this.endpointStats = endpointStats;
+  }
+
+  @Nullable
+  @Override
+  public Discoverable pick() {
+    Discoverable[] discoverables = Iterables.toArray(serviceDiscovered, Discoverable.class);
+    if (discoverables.length == 0) {
+      return null;
+    }
+    if (discoverables.length == 1) {
+      return discoverables[0];
+    }
+
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int first = random.nextInt(discoverables.length);
+    int second = random.nextInt(discoverables.length - 1);
+    if (second >= first) {
+      second++;
+    }
+
+    double firstScore = endpointStats.get(discoverables[first].getSocketAddress()).getScore();
+    double secondScore = endpointStats.get(discoverables[second].getSocketAddress()).getScore();
+    return firstScore <= secondScore ? discoverables[first] : discoverables[second];
+  }
+}
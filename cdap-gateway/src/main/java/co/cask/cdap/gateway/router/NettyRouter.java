@@ -22,6 +22,7 @@ import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.conf.SConfiguration;
 import co.cask.cdap.gateway.router.handlers.HttpRequestHandler;
 import co.cask.cdap.gateway.router.handlers.HttpStatusRequestHandler;
+import co.cask.cdap.gateway.router.handlers.OutboundConnectionPool;
 import co.cask.cdap.gateway.router.handlers.SecurityAuthenticationHttpHandler;
 import co.cask.cdap.security.auth.AccessTokenTransformer;
 import co.cask.cdap.security.auth.TokenValidator;
@@ -60,6 +61,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.lang.management.ManagementFactory;
 import java.net.BindException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
@@ -70,6 +72,11 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 /**
  * Proxies request to a set of servers. Experimental.
@@ -95,11 +102,13 @@ public class NettyRouter extends AbstractIdleService {
   private final boolean sslEnabled;
   private final SSLHandlerFactory sslHandlerFactory;
   private final int connectionTimeout;
+  private final OutboundConnectionPool connectionPool;
 
   private Timer timer;
   private ServerBootstrap serverBootstrap;
   private ClientBootstrap clientBootstrap;
   private DiscoveryServiceClient discoveryServiceClient;
+  private boolean backendStatsRegistered;
 
   @Inject
   public NettyRouter(CConfiguration cConf, SConfiguration sConf, @Named(Constants.Router.ADDRESS) InetAddress hostname,
@@ -143,6 +152,7 @@ public class NettyRouter extends AbstractIdleService {
       this.sslHandlerFactory = null;
     }
     this.connectionTimeout = cConf.getInt(Constants.Router.CONNECTION_TIMEOUT_SECS);
+    this.connectionPool = new OutboundConnectionPool(cConf.getInt(Constants.Router.CLIENT_POOL_MAX_IDLE_PER_ENDPOINT));
     LOG.info("Using connection timeout: {}", connectionTimeout);
     LOG.info("Service to Port Mapping - {}", this.serviceToPortMap);
   }
@@ -164,12 +174,14 @@ public class NettyRouter extends AbstractIdleService {
     bootstrapClient(connectionTracker);
 
     bootstrapServer(connectionTracker);
+    registerBackendStats();
   }
 
   @Override
   protected void shutDown() throws Exception {
     LOG.info("Stopping Netty Router...");
 
+    unregisterBackendStats();
     try {
       if (!channelGroup.close().await(CLOSE_CHANNEL_TIMEOUT_SECS, TimeUnit.SECONDS)) {
         LOG.warn("Timeout when closing all channels.");
@@ -247,7 +259,8 @@ public class NettyRouter extends AbstractIdleService {
           }
           // for now there's only one hardcoded rule, but if there will be more, we may want it generic and configurable
           pipeline.addLast("http-request-handler",
-                           new HttpRequestHandler(clientBootstrap, serviceLookup, ImmutableList.<ProxyRule>of()));
+                           new HttpRequestHandler(clientBootstrap, serviceLookup, ImmutableList.<ProxyRule>of(),
+                                                  connectionPool));
           return pipeline;
         }
       }
@@ -306,6 +319,36 @@ public class NettyRouter extends AbstractIdleService {
     clientBootstrap.setOption("bufferFactory", new DirectChannelBufferFactory());
   }
 
+  /**
+   * Registers the {@link RouterBackendStatsMXBean} of this router. Only the first router in a JVM gets registered.
+   */
+  private void registerBackendStats() {
+    try {
+      MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+      mbs.registerMBean(new RouterBackendStats(serviceLookup.getEndpointStats(), connectionPool),
+                        new ObjectName(RouterBackendStats.OBJECT_NAME));
+      backendStatsRegistered = true;
+    } catch (InstanceAlreadyExistsException e) {
+      LOG.debug("MBean {} already registered. Ignoring.", RouterBackendStats.OBJECT_NAME);
+    } catch (JMException e) {
+      LOG.warn("Failed to register MBean {}.", RouterBackendStats.OBJECT_NAME, e);
+    }
+  }
+
+  private void unregisterBackendStats() {
+    if (!backendStatsRegistered) {
+      return;
+    }
+    backendStatsRegistered = false;
+    try {
+      ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(RouterBackendStats.OBJECT_NAME));
+    } catch (InstanceNotFoundException e) {
+      LOG.debug("MBean {} not found while un-registering. Ignoring.", RouterBackendStats.OBJECT_NAME);
+    } catch (JMException e) {
+      LOG.warn("Error while un-registering MBean {}.", RouterBackendStats.OBJECT_NAME, e);
+    }
+  }
+
   private boolean isSSLEnabled() {
     return sslEnabled;
   }
@@ -0,0 +1,222 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.gateway.router;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * A table of routing rules organized as a trie over URI path segments. Each rule has a pattern of path segments,
+ * in which {@code null} means "accept any segment". A rule is either a prefix rule, which matches paths that have
+ * at least as many segments as the pattern, or an exact rule, which matches paths that have the same number of
+ * segments. A rule can optionally be restricted to one HTTP method.
+ *
+ * When more than one rule matches a path, the one that was added to the table first wins, which gives the same
+ * result as checking the rules one by one in the order they were added.
+ */
+final class RouteTable {
+
+  /**
+   * Resolves the {@link RouteDestination} of a path matched by a rule.
+   */
+  interface RouteResolver {
+
+    /**
+     * Returns the {@link RouteDestination} for the given path segments, or {@code null} if the request should
+     * not be routed.
+     */
+    @Nullable
+    RouteDestination resolve(String[] uriParts);
+  }
+
+  /**
+   * Returns a {@link RouteResolver} that always resolves to the given destination.
+   */
+  static RouteResolver fixed(@Nullable final RouteDestination destination) {
+    return new RouteResolver() {
+      @Nullable
+      @Override
+      public RouteDestination resolve(String[] uriParts) {
+        return destination;
+      }
+    };
+  }
+
+  static Builder builder() {
+    return new Builder();
+  }
+
+  private final Node root;
+
+  private RouteTable(Node root) {
+    this.root = root;
+  }
+
+  /**
+   * Finds the first rule that matches the given path segments and HTTP method.
+   *
+   * @param uriParts path segments of the request
+   * @param method the HTTP method name of the request
+   * @return the matching {@link Rule} or {@code null} if no rule matches
+   */
+  @Nullable
+  Rule lookup(String[] uriParts, String method) {
+    return lookup(root, uriParts, 0, method, null);
+  }
+
+  @Nullable
+  private Rule lookup(Node node, String[] uriParts, int depth, String method, @Nullable Rule best) {
+    // No rule under this node can be better than the one found already
+    if (best != null && node.minPriority > best.priority) {
+      return best;
+    }
+
+    best = selectRule(node.prefixRules, method, best);
+    if (depth == uriParts.length) {
+      return selectRule(node.exactRules, method, best);
+    }
+
+    Node child = node.children.get(uriParts[depth]);
+    if (child != null) {
+      best = lookup(child, uriParts, depth + 1, method, best);
+    }
+    if (node.wildcard != null) {
+      best = lookup(node.wildcard, uriParts, depth + 1, method, best);
+    }
+    return best;
+  }
+
+  @Nullable
+  private Rule selectRule(List<Rule> rules, String method, @Nullable Rule best) {
+    for (Rule rule : rules) {
+      if (best != null && rule.priority > best.priority) {
+        // Rules in a node are sorted by priority
+        break;
+      }
+      if (rule.method == null || rule.method.equals(method)) {
+        return rule;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * A routing rule in the {@link RouteTable}.
+   */
+  static final class Rule {
+    private final int priority;
+    private final String method;
+    private final RouteResolver resolver;
+
+    private Rule(int priority, @Nullable String method, RouteResolver resolver) {
+      this.priority = priority;
+      this.method = method;
+      this.resolver = resolver;
+    }
+
+    @Nullable
+    RouteDestination resolve(String[] uriParts) {
+      return resolver.resolve(uriParts);
+    }
+  }
+
+  /**
+   * A node in the trie, representing one path segment.
+   */
+  private static final class Node {
+    private final Map<String, Node> children = Maps.newHashMap();
+    private final List<Rule> prefixRules = Lists.newArrayList();
+    private final List<Rule> exactRules = Lists.newArrayList();
+    private Node wildcard;
+    // Smallest priority among all rules in the subtree rooted at this node
+    private int minPriority = Integer.MAX_VALUE;
+  }
+
+  /**
+   * Builder for {@link RouteTable}. Rules added earlier take precedence over the ones added later.
+   */
+  static final class Builder {
+    private final Node root = new Node();
+    private int priority;
+
+    private Builder() {
+    }
+
+    /**
+     * Adds a prefix rule.
+     */
+    Builder add(RouteResolver resolver, String... pattern) {
+      return add(false, null, resolver, pattern);
+    }
+
+    /**
+     * Adds a prefix rule that only matches requests of the given HTTP method.
+     */
+    Builder add(String method, RouteResolver resolver, String... pattern) {
+      return add(false, method, resolver, pattern);
+    }
+
+    /**
+     * Adds an exact rule.
+     */
+    Builder addExact(RouteResolver resolver, String... pattern) {
+      return add(true, null, resolver, pattern);
+    }
+
+    RouteTable build() {
+      return new RouteTable(root);
+    }
+
+    private Builder add(boolean exact, @Nullable String method, RouteResolver resolver, String... pattern) {
+      Preconditions.checkArgument(pattern.length > 0, "Pattern cannot be empty");
+      Rule rule = new Rule(priority++, method, resolver);
+
+      Node node = root;
+      node.minPriority = Math.min(node.minPriority, rule.priority);
+      for (String segment : pattern) {
+        Node child;
+        if (segment == null) {
+          child = node.wildcard;
+          if (child == null) {
+            child = node.wildcard = new Node();
+          }
+        } else {
+          child = node.children.get(segment);
+          if (child == null) {
+            child = new Node();
+            node.children.put(segment, child);
+          }
+        }
+        node = child;
+        node.minPriority = Math.min(node.minPriority, rule.priority);
+      }
+
+      // Priority always increases, hence the lists are sorted by priority
+      if (exact) {
+        node.exactRules.add(rule);
+      } else {
+        node.prefixRules.add(rule);
+      }
+      return this;
+    }
+  }
+}
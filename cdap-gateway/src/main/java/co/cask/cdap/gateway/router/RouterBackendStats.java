@@ -0,0 +1,63 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.gateway.router;
+
+import co.cask.cdap.gateway.discovery.EndpointStats;
+import co.cask.cdap.gateway.router.handlers.OutboundConnectionPool;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exposes {@link EndpointStats} and {@link OutboundConnectionPool} occupancy of the router through JMX.
+ */
+final class RouterBackendStats implements RouterBackendStatsMXBean {
+
+  static final String OBJECT_NAME = "co.cask.cdap.router:type=BackendStats";
+
+  private final EndpointStats endpointStats;
+  private final OutboundConnectionPool connectionPool;
+
+  RouterBackendStats(EndpointStats endpointStats, OutboundConnectionPool connectionPool) {
+    this.endpointStats = endpointStats;
+    this.connectionPool = connectionPool;
+  }
+
+  @Override
+  public Map<String, Integer> getOutstandingRequests() {
+    Map<String, Integer> result = new HashMap<>();
+    for (Map.Entry<String, EndpointStats.Endpoint> entry : endpointStats.getAll().entrySet()) {
+      result.put(entry.getKey(), entry.getValue().getOutstanding());
+    }
+    return result;
+  }
+
+  @Override
+  public Map<String, Long> getLatencyMicros() {
+    Map<String, Long> result = new HashMap<>();
+    for (Map.Entry<String, EndpointStats.Endpoint> entry : endpointStats.getAll().entrySet()) {
+      result.put(entry.getKey(), TimeUnit.NANOSECONDS.toMicros(entry.getValue().getLatencyNanos()));
+    }
+    return result;
+  }
+
+  @Override
+  public Map<String, Integer> getIdleConnections() {
+    return connectionPool.getIdleConnections();
+  }
+}
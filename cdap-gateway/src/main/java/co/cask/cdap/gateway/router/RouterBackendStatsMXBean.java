@@ -0,0 +1,41 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.gateway.router;
+
+import java.util.Map;
+import javax.management.MXBean;
+
+/**
+ * {@link MXBean} representing statistics of the backend endpoints the router forwards requests to.
+ * All maps are keyed by {@code host:port} of the endpoint.
+ */
+public interface RouterBackendStatsMXBean {
+  /**
+   * Returns the number of requests sent to each endpoint that haven't been fully responded yet.
+   */
+  Map<String, Integer> getOutstandingRequests();
+
+  /**
+   * Returns the moving average of the time to the response head, in microseconds, for each endpoint.
+   */
+  Map<String, Long> getLatencyMicros();
+
+  /**
+   * Returns the number of idle pooled connections to each endpoint.
+   */
+  Map<String, Integer> getIdleConnections();
+}
@@ -22,6 +22,9 @@ import co.cask.http.AbstractHttpHandler;
 import org.apache.commons.lang.StringUtils;
 import org.jboss.netty.handler.codec.http.HttpRequest;
 
+import java.util.Arrays;
+import javax.annotation.Nullable;
+
 /**
  * Class to match the request path to corresponding service like app-fabric, or metrics service.
  */
@@ -41,6 +44,8 @@ public final class RouterPathLookup extends AbstractHttpHandler {
   public static final RouteDestination STREAMS_SERVICE = new RouteDestination(Constants.Service.STREAMS);
   public static final RouteDestination PREVIEW_HTTP = new RouteDestination(Constants.Service.PREVIEW_HTTP);
 
+  private static final RouteTable V3_ROUTES = createV3Routes();
+
   /**
    * Returns the CDAP service which will handle the HttpRequest
    *
@@ -73,128 +78,122 @@ public final class RouterPathLookup extends AbstractHttpHandler {
   }
 
   private RouteDestination getV3RoutingService(String [] uriParts, AllowedMethod requestMethod) {
-    if ((uriParts.length >= 2) && uriParts[1].equals("feeds")) {
+    RouteTable.Rule rule = V3_ROUTES.lookup(uriParts, requestMethod.name());
+    return rule == null ? APP_FABRIC_HTTP : rule.resolve(uriParts);
+  }
+
+  /**
+   * Creates the {@link RouteTable} for v3 APIs. Rules are listed in the order of precedence.
+   */
+  private static RouteTable createV3Routes() {
+    RouteTable.RouteResolver appFabric = RouteTable.fixed(APP_FABRIC_HTTP);
+    RouteTable.RouteResolver metrics = RouteTable.fixed(METRICS);
+    RouteTable.RouteResolver metadata = RouteTable.fixed(METADATA_SERVICE);
+    RouteTable.RouteResolver explore = RouteTable.fixed(EXPLORE_HTTP_USER_SERVICE);
+
+    RouteTable.Builder builder = RouteTable.builder()
       // TODO find a better way to handle that - this looks hackish
-      return null;
-    } else if ((uriParts.length >= 11) && "versions".equals(uriParts[5]) && "services".equals(uriParts[7])
-      && "methods".equals(uriParts[9])) {
+      .add(RouteTable.fixed(null), "v3", "feeds")
+
       // User defined services (version specific) handle methods on them:
       //Path: "/v3/namespaces/{namespace-id}/apps/{app-id}/versions/{version-id}/services/{service-id}/methods/
       //       <user-defined-method-path>"
-      String serviceName = ServiceDiscoverable.getName(uriParts[2], uriParts[4], uriParts[8]);
-      String version = uriParts[6];
-      return new RouteDestination(serviceName, version);
-    } else if ((uriParts.length >= 9) && "services".equals(uriParts[5]) && "methods".equals(uriParts[7])) {
+      .add(new RouteTable.RouteResolver() {
+        @Override
+        public RouteDestination resolve(String[] uriParts) {
+          return new RouteDestination(ServiceDiscoverable.getName(uriParts[2], uriParts[4], uriParts[8]), uriParts[6]);
+        }
+      }, "v3", null, null, null, null, "versions", null, "services", null, "methods", null)
+
       //User defined services handle methods on them:
       //Path: "/v3/namespaces/{namespace-id}/apps/{app-id}/services/{service-id}/methods/<user-defined-method-path>"
-      return new RouteDestination(ServiceDiscoverable.getName(uriParts[2], uriParts[4], uriParts[6]));
-    } else if (matches(uriParts, "v3", "system", "services", null, "logs")) {
+      .add(new RouteTable.RouteResolver() {
+        @Override
+        public RouteDestination resolve(String[] uriParts) {
+          return new RouteDestination(ServiceDiscoverable.getName(uriParts[2], uriParts[4], uriParts[6]));
+        }
+      }, "v3", null, null, null, null, "services", null, "methods", null)
+
       //Log Handler Path /v3/system/services/<service-id>/logs
-      return METRICS;
-    } else if (matches(uriParts, "v3", "namespaces", null, "apps", null, "metadata") ||
-      matches(uriParts, "v3", "namespaces", null, "apps", null, null, null, "metadata") ||
-      matches(uriParts, "v3", "namespaces", null, "artifacts", null, "versions", null, "metadata") ||
-      matches(uriParts, "v3", "namespaces", null, "datasets", null, "metadata") ||
-      matches(uriParts, "v3", "namespaces", null, "streams", null, "metadata") ||
-      matches(uriParts, "v3", "namespaces", null, "streams", null, "views", null, "metadata") ||
-
-      matches(uriParts, "v3", "namespaces", null, "apps", null, "metadata", "properties") ||
-      matches(uriParts, "v3", "namespaces", null, "artifacts", null, "versions", null, "metadata", "properties") ||
-      matches(uriParts, "v3", "namespaces", null, "apps", null, null, null, "metadata", "properties") ||
-      matches(uriParts, "v3", "namespaces", null, "datasets", null, "metadata", "properties") ||
-      matches(uriParts, "v3", "namespaces", null, "streams", null, "metadata", "properties") ||
-      matches(uriParts, "v3", "namespaces", null, "streams", null, "views", null, "metadata", "properties") ||
-
-      matches(uriParts, "v3", "namespaces", null, "apps", null, "metadata", "tags") ||
-      matches(uriParts, "v3", "namespaces", null, "artifacts", null, "versions", null, "metadata", "tags") ||
-      matches(uriParts, "v3", "namespaces", null, "apps", null, null, null, "metadata", "tags") ||
-      matches(uriParts, "v3", "namespaces", null, "datasets", null, "metadata", "tags") ||
-      matches(uriParts, "v3", "namespaces", null, "streams", null, "metadata", "tags") ||
-      matches(uriParts, "v3", "namespaces", null, "streams", null, "views", null, "metadata", "tags") ||
-
-      matches(uriParts, "v3", "namespaces", null, "metadata", "search") ||
-      matches(uriParts, "v3", "namespaces", null, "datasets", null, "lineage") ||
-      matches(uriParts, "v3", "namespaces", null, "streams", null, "lineage") ||
-      matches(uriParts, "v3", "namespaces", null, "apps", null, null, null, "runs", null, "metadata")) {
-      return METADATA_SERVICE;
-    } else if (matches(uriParts, "v3", "security", "authorization") ||
-      matches(uriParts, "v3", "namespaces", null, "securekeys")) {
+      .add(metrics, "v3", "system", "services", null, "logs");
+
+    for (String suffix : new String[] { null, "properties", "tags" }) {
+      addMetadataRoute(builder, metadata, suffix, "v3", "namespaces", null, "apps", null, "metadata");
+      addMetadataRoute(builder, metadata, suffix, "v3", "namespaces", null, "artifacts", null, "versions", null,
+                       "metadata");
+      addMetadataRoute(builder, metadata, suffix, "v3", "namespaces", null, "apps", null, null, null, "metadata");
+      addMetadataRoute(builder, metadata, suffix, "v3", "namespaces", null, "datasets", null, "metadata");
+      addMetadataRoute(builder, metadata, suffix, "v3", "namespaces", null, "streams", null, "metadata");
+      addMetadataRoute(builder, metadata, suffix, "v3", "namespaces", null, "streams", null, "views", null,
+                       "metadata");
+    }
+
+    builder
+      .add(metadata, "v3", "namespaces", null, "metadata", "search")
+      .add(metadata, "v3", "namespaces", null, "datasets", null, "lineage")
+      .add(metadata, "v3", "namespaces", null, "streams", null, "lineage")
+      .add(metadata, "v3", "namespaces", null, "apps", null, null, null, "runs", null, "metadata")
+
       // Authorization and Secure Store Handlers currently run in App Fabric
-      return APP_FABRIC_HTTP;
-    } else if (matches(uriParts, "v3", "security", "store", "namespaces", null)) {
-      return APP_FABRIC_HTTP;
-    } else if ((matches(uriParts, "v3", "namespaces", null, "streams", null, "programs")
-      || matches(uriParts, "v3", "namespaces", null, "data", "datasets", null, "programs")) &&
-      requestMethod.equals(AllowedMethod.GET)) {
-      return APP_FABRIC_HTTP;
-    } else if (matches(uriParts, "v3", "namespaces", null, "previews")) {
-      return PREVIEW_HTTP;
-    } else if (matches(uriParts, "v3", "system", "serviceproviders")) {
-      return APP_FABRIC_HTTP;
-    } else if ((uriParts.length >= 4) && uriParts[1].equals("namespaces") && uriParts[3].equals("streams")) {
-      return STREAMS_SERVICE;
-    } else if ((uriParts.length >= 8 && uriParts[7].equals("logs")) ||
-      (uriParts.length >= 10 && uriParts[9].equals("logs")) ||
-      (uriParts.length >= 6 && uriParts[5].equals("logs"))) {
+      .add(appFabric, "v3", "security", "authorization")
+      .add(appFabric, "v3", "namespaces", null, "securekeys")
+      .add(appFabric, "v3", "security", "store", "namespaces", null)
+
+      .add(AllowedMethod.GET.name(), appFabric, "v3", "namespaces", null, "streams", null, "programs")
+      .add(AllowedMethod.GET.name(), appFabric, "v3", "namespaces", null, "data", "datasets", null, "programs")
+      .add(RouteTable.fixed(PREVIEW_HTTP), "v3", "namespaces", null, "previews")
+      .add(appFabric, "v3", "system", "serviceproviders")
+      .add(RouteTable.fixed(STREAMS_SERVICE), "v3", "namespaces", null, "streams")
+
       //Log Handler Paths:
       // /v3/namespaces/<namespaceid>/apps/<appid>/<programid-type>/<programid>/logs
       // /v3/namespaces/{namespace-id}/apps/{app-id}/{program-type}/{program-id}/runs/{run-id}/logs
-      return METRICS;
-    } else if (uriParts.length >= 2 && uriParts[1].equals("metrics")) {
+      .add(metrics, "v3", null, null, null, null, null, null, "logs")
+      .add(metrics, "v3", null, null, null, null, null, null, null, null, "logs")
+      .add(metrics, "v3", null, null, null, null, "logs")
+
       //Metrics Search Handler Path /v3/metrics
-      return METRICS;
-    } else if (uriParts.length >= 5 && uriParts[1].equals("data") && uriParts[2].equals("explore") &&
-      (uriParts[3].equals("queries") || uriParts[3].equals("jdbc") || uriParts[3].equals("namespaces"))) {
-      // non-namespaced explore operations. For example, /v3/data/explore/queries/{id}
-      return EXPLORE_HTTP_USER_SERVICE;
-    } else if (uriParts.length >= 6 && uriParts[3].equals("data") && uriParts[4].equals("explore") &&
-      (uriParts[5].equals("queries") || uriParts[5].equals("streams") || uriParts[5].equals("datasets")
-        || uriParts[5].equals("tables") || uriParts[5].equals("jdbc"))) {
-      // namespaced explore operations. For example, /v3/namespaces/{namespace-id}/data/explore/streams/{stream}/enable
-      return EXPLORE_HTTP_USER_SERVICE;
-    } else if ((uriParts.length == 3) && uriParts[1].equals("explore") && uriParts[2].equals("status")) {
-      return EXPLORE_HTTP_USER_SERVICE;
-    } else if (uriParts.length == 7 && uriParts[3].equals("data") && uriParts[4].equals("datasets") &&
-      (uriParts[6].equals("flows") || uriParts[6].equals("workers") || uriParts[6].equals("mapreduce"))) {
-      // namespaced app fabric data operations:
-      // /v3/namespaces/{namespace-id}/data/datasets/{name}/flows
-      // /v3/namespaces/{namespace-id}/data/datasets/{name}/workers
-      // /v3/namespaces/{namespace-id}/data/datasets/{name}/mapreduce
-      return APP_FABRIC_HTTP;
-    } else if ((uriParts.length >= 4) && uriParts[3].equals("data")) {
-      // other data operations. For example:
-      // /v3/namespaces/{namespace-id}/data/datasets
-      // /v3/namespaces/{namespace-id}/data/datasets/{name}
-      // /v3/namespaces/{namespace-id}/data/datasets/{name}/properties
-      // /v3/namespaces/{namespace-id}/data/datasets/{name}/admin/{method}
-      return DATASET_MANAGER;
+      .add(metrics, "v3", "metrics");
+
+    // non-namespaced explore operations. For example, /v3/data/explore/queries/{id}
+    for (String type : new String[] { "queries", "jdbc", "namespaces" }) {
+      builder.add(explore, "v3", "data", "explore", type, null);
     }
-    return APP_FABRIC_HTTP;
+    // namespaced explore operations. For example, /v3/namespaces/{namespace-id}/data/explore/streams/{stream}/enable
+    for (String type : new String[] { "queries", "streams", "datasets", "tables", "jdbc" }) {
+      builder.add(explore, "v3", null, null, "data", "explore", type);
+    }
+    builder.addExact(explore, "v3", "explore", "status");
+
+    // namespaced app fabric data operations:
+    // /v3/namespaces/{namespace-id}/data/datasets/{name}/flows
+    // /v3/namespaces/{namespace-id}/data/datasets/{name}/workers
+    // /v3/namespaces/{namespace-id}/data/datasets/{name}/mapreduce
+    for (String programType : new String[] { "flows", "workers", "mapreduce" }) {
+      builder.addExact(appFabric, "v3", null, null, "data", "datasets", null, programType);
+    }
+
+    // other data operations. For example:
+    // /v3/namespaces/{namespace-id}/data/datasets
+    // /v3/namespaces/{namespace-id}/data/datasets/{name}
+    // /v3/namespaces/{namespace-id}/data/datasets/{name}/properties
+    // /v3/namespaces/{namespace-id}/data/datasets/{name}/admin/{method}
+    builder.add(RouteTable.fixed(DATASET_MANAGER), "v3", null, null, "data");
+
+    return builder.build();
   }
 
   /**
-   * Determines if actual matches expected.
-   *
-   * - actual may be longer than expected, but we'll return true as long as expected was found
-   * - null in expected means "accept any string"
-   *
-   * @param actual actual string array to check
-   * @param expected expected string array format
-   * @return true if actual matches expected
+   * Adds a metadata route, optionally with an extra path segment appended to the pattern.
    */
-  private boolean matches(String[] actual, String... expected) {
-    if (actual.length < expected.length) {
-      return false;
-    }
-
-    for (int i = 0; i < expected.length; i++) {
-      if (expected[i] == null) {
-        continue;
-      }
-      if (!expected[i].equals(actual[i])) {
-        return false;
-      }
+  private static void addMetadataRoute(RouteTable.Builder builder, RouteTable.RouteResolver resolver,
+                                       @Nullable String suffix, String... pattern) {
+    if (suffix == null) {
+      builder.add(resolver, pattern);
+      return;
     }
-    return true;
+    String[] extended = Arrays.copyOf(pattern, pattern.length + 1);
+    extended[pattern.length] = suffix;
+    builder.add(resolver, extended);
   }
 }
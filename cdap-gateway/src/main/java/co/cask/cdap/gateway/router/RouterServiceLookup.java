@@ -22,6 +22,8 @@ import co.cask.cdap.common.discovery.EndpointStrategy;
 import co.cask.cdap.common.discovery.RandomEndpointStrategy;
 import co.cask.cdap.common.service.ServiceDiscoverable;
 import co.cask.cdap.common.utils.Networks;
+import co.cask.cdap.gateway.discovery.EndpointStats;
+import co.cask.cdap.gateway.discovery.LatencyAwareEndpointStrategy;
 import co.cask.cdap.gateway.discovery.RouteFallbackStrategy;
 import co.cask.cdap.gateway.discovery.UserServiceEndpointStrategy;
 import co.cask.cdap.route.store.RouteStore;
@@ -61,6 +63,8 @@ public class RouterServiceLookup {
   private final RouterPathLookup routerPathLookup;
   private final RouteStore routeStore;
   private final RouteFallbackStrategy fallbackStrategy;
+  private final boolean latencyAwareStrategy;
+  private final EndpointStats endpointStats;
 
   @Inject
   public RouterServiceLookup(CConfiguration cConf, DiscoveryServiceClient discoveryServiceClient,
@@ -78,6 +82,8 @@ public class RouterServiceLookup {
     this.routeStore = routeStore;
     this.fallbackStrategy = RouteFallbackStrategy.valueOfRouteFallbackStrategy(
       cConf.get(Constants.Router.ROUTER_USERSERVICE_FALLBACK_STRAGEY));
+    this.latencyAwareStrategy = "latency".equalsIgnoreCase(cConf.get(Constants.Router.ENDPOINT_STRATEGY));
+    this.endpointStats = new EndpointStats();
   }
 
   /**
@@ -139,6 +145,13 @@ public class RouterServiceLookup {
     }
   }
 
+  /**
+   * @return the statistics of the backend endpoints requests are routed to.
+   */
+  public EndpointStats getEndpointStats() {
+    return endpointStats;
+  }
+
   public void updateServiceMap(Map<Integer, String> serviceMap) {
     serviceMapRef.set(serviceMap);
   }
@@ -200,6 +213,7 @@ public class RouterServiceLookup {
     EndpointStrategy endpointStrategy = ServiceDiscoverable.isServiceDiscoverable(serviceName) ?
       new UserServiceEndpointStrategy(serviceDiscovered, routeStore, ServiceDiscoverable.getId(serviceName),
                                       fallbackStrategy, routeDestination.getVersion()) :
+      latencyAwareStrategy ? new LatencyAwareEndpointStrategy(serviceDiscovered, endpointStats) :
       new RandomEndpointStrategy(serviceDiscovered);
     if (endpointStrategy.pick(300L, TimeUnit.MILLISECONDS) == null) {
       LOG.debug("Discoverable endpoint {} not found", routeDestination);
@@ -19,6 +19,7 @@ package co.cask.cdap.gateway.router.handlers;
 import co.cask.cdap.common.HandlerException;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.discovery.EndpointStrategy;
+import co.cask.cdap.gateway.discovery.EndpointStats;
 import co.cask.cdap.gateway.router.ProxyRule;
 import co.cask.cdap.gateway.router.RouterServiceLookup;
 import co.cask.cdap.security.tools.PermissiveTrustManagerFactory;
@@ -74,6 +75,8 @@ public class HttpRequestHandler extends SimpleChannelUpstreamHandler {
   // Data structure is used to clean up the channel futures on connection close.
   private final Map<WrappedDiscoverable, MessageSender> discoveryLookup;
   private final List<ProxyRule> proxyRules;
+  private final EndpointStats endpointStats;
+  private final OutboundConnectionPool connectionPool;
 
   private final AtomicInteger exceptionsHandled = new AtomicInteger(0);
   private MessageSender chunkSender;
@@ -82,10 +85,19 @@ public class HttpRequestHandler extends SimpleChannelUpstreamHandler {
   public HttpRequestHandler(ClientBootstrap clientBootstrap,
                             RouterServiceLookup serviceLookup,
                             List<ProxyRule> proxyRules) {
+    this(clientBootstrap, serviceLookup, proxyRules, new OutboundConnectionPool(0));
+  }
+
+  public HttpRequestHandler(ClientBootstrap clientBootstrap,
+                            RouterServiceLookup serviceLookup,
+                            List<ProxyRule> proxyRules,
+                            OutboundConnectionPool connectionPool) {
     this.clientBootstrap = clientBootstrap;
     this.serviceLookup = serviceLookup;
     this.discoveryLookup = new HashMap<>();
     this.proxyRules = proxyRules;
+    this.endpointStats = serviceLookup.getEndpointStats();
+    this.connectionPool = connectionPool;
   }
 
   @Override
@@ -116,50 +128,11 @@ public class HttpRequestHandler extends SimpleChannelUpstreamHandler {
       WrappedDiscoverable discoverable = getDiscoverable(request,
                                                          (InetSocketAddress) inboundChannel.getLocalAddress());
 
-      // If no event sender, make new connection, otherwise reuse existing one.
+      // If no event sender, reuse a pooled connection or make a new one, otherwise reuse the existing one.
       MessageSender sender =  discoveryLookup.get(discoverable);
       if (sender == null || !sender.isConnected()) {
-        InetSocketAddress address = discoverable.getSocketAddress();
-
-        ChannelFuture future = clientBootstrap.connect(address);
-        final Channel outboundChannel = future.getChannel();
-        outboundChannel.getPipeline().addAfter("request-encoder",
-                                               "outbound-handler", new OutboundHandler(inboundChannel));
-        if (Arrays.equals(Constants.Security.SSL_URI_SCHEME.getBytes(), discoverable.getPayload())) {
-          SSLContext clientContext = null;
-          try {
-            clientContext = SSLContext.getInstance("TLS");
-            clientContext.init(null, PermissiveTrustManagerFactory.getTrustManagers(), null);
-          } catch (NoSuchAlgorithmException | KeyManagementException e) {
-            throw new RuntimeException("SSL is enabled for app-fabric but failed to create SSLContext in the router " +
-                                         "client.", e);
-          }
-          SSLEngine engine = clientContext.createSSLEngine();
-          engine.setUseClientMode(true);
-          engine.setEnabledProtocols(new String[] {"TLSv1.2", "TLSv1.1", "TLSv1"});
-          outboundChannel.getPipeline().addFirst("ssl", new SslHandler(engine));
-          LOG.trace("Adding ssl handler to the pipeline.");
-        }
-        sender = new MessageSender(inboundChannel, future);
+        sender = createSender(inboundChannel, discoverable);
         discoveryLookup.put(discoverable, sender);
-
-        // Remember the in-flight outbound channel
-        inboundChannel.setAttachment(outboundChannel);
-        outboundChannel.getCloseFuture().addListener(new ChannelFutureListener() {
-          @Override
-          public void operationComplete(ChannelFuture future) throws Exception {
-            inboundChannel.getPipeline().execute(new Runnable() {
-              @Override
-              public void run() {
-                // When the outbound channel closed,
-                // close the inbound channel as well if it carries the in-flight request
-                if (outboundChannel.equals(inboundChannel.getAttachment())) {
-                  closeOnFlush(inboundChannel);
-                }
-              }
-            });
-          }
-        });
       } else {
         Channel outboundChannel = (Channel) inboundChannel.getAttachment();
         if (outboundChannel != null) {
@@ -182,6 +155,64 @@ public class HttpRequestHandler extends SimpleChannelUpstreamHandler {
     }
   }
 
+  private MessageSender createSender(Channel inboundChannel, WrappedDiscoverable discoverable) {
+    Channel pooledChannel = connectionPool.acquire(discoverable);
+    if (pooledChannel != null) {
+      LOG.trace("Reusing pooled connection {} for {}", pooledChannel, inboundChannel);
+      pooledChannel.getPipeline().replace("outbound-handler", "outbound-handler", new OutboundHandler(inboundChannel));
+      pooledChannel.setReadable(true);
+      inboundChannel.setAttachment(pooledChannel);
+      return new MessageSender(inboundChannel, Channels.succeededFuture(pooledChannel),
+                               pooledChannel.getPipeline().get(ResponseTracker.class));
+    }
+
+    InetSocketAddress address = discoverable.getSocketAddress();
+
+    ChannelFuture future = clientBootstrap.connect(address);
+    final Channel outboundChannel = future.getChannel();
+    outboundChannel.getPipeline().addAfter("request-encoder",
+                                           "outbound-handler", new OutboundHandler(inboundChannel));
+    ResponseTracker responseTracker = new ResponseTracker(endpointStats.get(address));
+    outboundChannel.getPipeline().addAfter("response-decoder", "response-tracker", responseTracker);
+    if (Arrays.equals(Constants.Security.SSL_URI_SCHEME.getBytes(), discoverable.getPayload())) {
+      SSLContext clientContext = null;
+      try {
+        clientContext = SSLContext.getInstance("TLS");
+        clientContext.init(null, PermissiveTrustManagerFactory.getTrustManagers(), null);
+      } catch (NoSuchAlgorithmException | KeyManagementException e) {
+        throw new RuntimeException("SSL is enabled for app-fabric but failed to create SSLContext in the router " +
+                                     "client.", e);
+      }
+      SSLEngine engine = clientContext.createSSLEngine();
+      engine.setUseClientMode(true);
+      engine.setEnabledProtocols(new String[] {"TLSv1.2", "TLSv1.1", "TLSv1"});
+      outboundChannel.getPipeline().addFirst("ssl", new SslHandler(engine));
+      LOG.trace("Adding ssl handler to the pipeline.");
+    }
+
+    // Remember the in-flight outbound channel
+    inboundChannel.setAttachment(outboundChannel);
+    outboundChannel.getCloseFuture().addListener(new ChannelFutureListener() {
+      @Override
+      public void operationComplete(ChannelFuture future) throws Exception {
+        // The outbound channel may have served multiple inbound channels through the connection pool,
+        // hence always look up the one it is currently serving.
+        final Channel inboundChannel = outboundChannel.getPipeline().get(OutboundHandler.class).getInboundChannel();
+        inboundChannel.getPipeline().execute(new Runnable() {
+          @Override
+          public void run() {
+            // When the outbound channel closed,
+            // close the inbound channel as well if it carries the in-flight request
+            if (outboundChannel.equals(inboundChannel.getAttachment())) {
+              closeOnFlush(inboundChannel);
+            }
+          }
+        });
+      }
+    });
+    return new MessageSender(inboundChannel, future, responseTracker);
+  }
+
   private HttpRequest applyProxyRules(HttpRequest request) {
     for (ProxyRule rule : proxyRules) {
       request = rule.apply(request);
@@ -245,10 +276,15 @@ public class HttpRequestHandler extends SimpleChannelUpstreamHandler {
 
   @Override
   public void channelClosed(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
-    // Close all event sender
+    // Return idle outbound connections to the pool and close all other event senders
     LOG.trace("Channel closed {}", ctx.getChannel());
-    for (Closeable c : discoveryLookup.values()) {
-      Closeables.closeQuietly(c);
+    for (Map.Entry<WrappedDiscoverable, MessageSender> entry : discoveryLookup.entrySet()) {
+      MessageSender sender = entry.getValue();
+      if (sender.isIdle() && connectionPool.release(entry.getKey(), sender.getChannel())) {
+        LOG.trace("Released connection {} to the pool", sender.getChannel());
+        continue;
+      }
+      Closeables.closeQuietly(sender);
     }
     channelClosed = true;
     super.channelClosed(ctx, e);
@@ -293,23 +329,39 @@ public class HttpRequestHandler extends SimpleChannelUpstreamHandler {
   private static final class MessageSender implements Closeable {
     private final Channel inBoundChannel;
     private final ChannelFuture channelFuture;
+    private final ResponseTracker responseTracker;
     private final Queue<OutboundMessage> messages;
     private final AtomicBoolean writer;
 
-    private MessageSender(Channel inBoundChannel, ChannelFuture channelFuture) {
+    private MessageSender(Channel inBoundChannel, ChannelFuture channelFuture, ResponseTracker responseTracker) {
       this.inBoundChannel = inBoundChannel;
       this.channelFuture = channelFuture;
+      this.responseTracker = responseTracker;
       this.messages = Queues.newConcurrentLinkedQueue();
       this.writer = new AtomicBoolean(false);
     }
 
+    private Channel getChannel() {
+      return channelFuture.getChannel();
+    }
+
     private boolean isConnected() {
       return channelFuture.getChannel().isConnected();
     }
 
+    /**
+     * Returns {@code true} if the outbound connection has no request in flight and can be reused.
+     */
+    private boolean isIdle() {
+      return channelFuture.isSuccess() && isConnected() && messages.isEmpty() && responseTracker.isIdle();
+    }
+
     private void send(Object msg) {
       // Attach the outbound channel to the inbound to indicate the in-flight request outbound.
       inBoundChannel.setAttachment(channelFuture.getChannel());
+      if (msg instanceof HttpRequest) {
+        responseTracker.requestSent((HttpRequest) msg);
+      }
 
       final OutboundMessage message = new OutboundMessage(msg);
       messages.add(message);
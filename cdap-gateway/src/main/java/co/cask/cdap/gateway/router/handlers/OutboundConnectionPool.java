@@ -0,0 +1,113 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.gateway.router.handlers;
+
+import org.jboss.netty.channel.Channel;
+
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.Nullable;
+
+/**
+ * A pool of idle keep-alive connections to backend endpoints. Connections are returned to the pool when the
+ * inbound channel that was using them is closed, and get picked up by the next inbound channel that routes to
+ * the same endpoint. Idle connections are still closed by the idle timeout of the client pipeline, after which
+ * they are dropped from the pool lazily.
+ */
+public final class OutboundConnectionPool {
+
+  private final int maxIdlePerEndpoint;
+  private final ConcurrentMap<WrappedDiscoverable, Queue<Channel>> idleChannels;
+
+  /**
+   * Creates a pool that keeps at most {@code maxIdlePerEndpoint} idle connections for each endpoint.
+   * Pooling is disabled if it is not positive.
+   */
+  public OutboundConnectionPool(int maxIdlePerEndpoint) {
+    this.maxIdlePerEndpoint = maxIdlePerEndpoint;
+    this.idleChannels = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Removes and returns an idle connected channel to the given endpoint, or {@code null} if there is none.
+   */
+  @Nullable
+  Channel acquire(WrappedDiscoverable discoverable) {
+    Queue<Channel> channels = idleChannels.get(discoverable);
+    if (channels == null) {
+      return null;
+    }
+    Channel channel = channels.poll();
+    while (channel != null && !channel.isConnected()) {
+      channel = channels.poll();
+    }
+    return channel;
+  }
+
+  /**
+   * Offers an idle channel to the pool.
+   *
+   * @return {@code true} if the channel is pooled, {@code false} if the caller should close it
+   */
+  boolean release(WrappedDiscoverable discoverable, Channel channel) {
+    if (maxIdlePerEndpoint <= 0 || !channel.isConnected()) {
+      return false;
+    }
+    Queue<Channel> channels = idleChannels.get(discoverable);
+    if (channels == null) {
+      Queue<Channel> newChannels = new ConcurrentLinkedQueue<>();
+      channels = idleChannels.putIfAbsent(discoverable, newChannels);
+      if (channels == null) {
+        channels = newChannels;
+      }
+    }
+    // Drop closed channels before checking the limit
+    for (Channel idle : channels) {
+      if (!idle.isConnected()) {
+        channels.remove(idle);
+      }
+    }
+    if (channels.size() >= maxIdlePerEndpoint) {
+      return false;
+    }
+    return channels.offer(channel);
+  }
+
+  /**
+   * Returns the number of idle pooled connections for each endpoint, keyed by {@code host:port}.
+   */
+  public Map<String, Integer> getIdleConnections() {
+    Map<String, Integer> result = new HashMap<>();
+    for (Map.Entry<WrappedDiscoverable, Queue<Channel>> entry : idleChannels.entrySet()) {
+      InetSocketAddress address = entry.getKey().getSocketAddress();
+      String key = address.getHostName() + ":" + address.getPort();
+      int count = result.containsKey(key) ? result.get(key) : 0;
+      for (Channel channel : entry.getValue()) {
+        if (channel.isConnected()) {
+          count++;
+        }
+      }
+      result.put(key, count);
+    }
+    return result;
+  }
+}
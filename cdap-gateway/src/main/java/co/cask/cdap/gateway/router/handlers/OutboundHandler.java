@@ -42,12 +42,21 @@ public class OutboundHandler extends SimpleChannelUpstreamHandler {
     this.inboundChannel = inboundChannel;
   }
 
+  /**
+   * Returns the inbound channel that responses are forwarded to.
+   */
+  Channel getInboundChannel() {
+    return inboundChannel;
+  }
+
   @Override
   public void messageReceived(ChannelHandlerContext ctx, MessageEvent event) throws Exception {
-    // write the channel buffer to inbound channel
     ChannelBuffer wrappedMessage = ChannelBuffers.wrappedBuffer((ChannelBuffer) event.getMessage());
-    Channels.write(inboundChannel, wrappedMessage);
+    // Let the response be decoded and tracked before the client sees it, so that by the time the client closes
+    // the connection after reading the response, the outbound connection is known to be reusable.
     super.messageReceived(ctx, event);
+    // write the channel buffer to inbound channel
+    Channels.write(inboundChannel, wrappedMessage);
   }
 
   @Override
@@ -0,0 +1,111 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.gateway.router.handlers;
+
+import co.cask.cdap.gateway.discovery.EndpointStats;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelStateEvent;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
+import org.jboss.netty.handler.codec.http.HttpChunk;
+import org.jboss.netty.handler.codec.http.HttpHeaders;
+import org.jboss.netty.handler.codec.http.HttpMethod;
+import org.jboss.netty.handler.codec.http.HttpRequest;
+import org.jboss.netty.handler.codec.http.HttpResponse;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Tracks requests sent over an outbound channel and the decoded responses coming back, to maintain the
+ * {@link EndpointStats} of the endpoint and to tell whether the channel can be reused for another request.
+ * It sits after the response decoder in the outbound pipeline.
+ */
+final class ResponseTracker extends SimpleChannelUpstreamHandler {
+
+  private final EndpointStats.Endpoint endpoint;
+  // Start time of each request that hasn't been fully responded yet, in the order they were sent
+  private final Queue<Long> pendingRequests = new ConcurrentLinkedQueue<>();
+  private volatile boolean reusable = true;
+  private volatile boolean headReceived;
+
+  ResponseTracker(EndpointStats.Endpoint endpoint) {
+    this.endpoint = endpoint;
+  }
+
+  /**
+   * Called when a request is about to be written to the outbound channel.
+   */
+  void requestSent(HttpRequest request) {
+    // The response decoder cannot tell a response to HEAD from one without a body, hence don't reuse
+    // the connection afterwards.
+    if (!HttpHeaders.isKeepAlive(request) || HttpMethod.HEAD.equals(request.getMethod())) {
+      reusable = false;
+    }
+    endpoint.requestStarted();
+    pendingRequests.add(System.nanoTime());
+  }
+
+  /**
+   * Returns {@code true} if all requests sent through the channel were fully responded and the connection
+   * can be kept alive.
+   */
+  boolean isIdle() {
+    return reusable && pendingRequests.isEmpty();
+  }
+
+  @Override
+  public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+    Object message = e.getMessage();
+    if (message instanceof HttpResponse) {
+      HttpResponse response = (HttpResponse) message;
+      // Skip informational responses such as 100-continue
+      if (response.getStatus().getCode() >= 200) {
+        if (!HttpHeaders.isKeepAlive(response)) {
+          reusable = false;
+        }
+        Long startTime = pendingRequests.peek();
+        if (startTime != null && !headReceived) {
+          endpoint.recordLatency(System.nanoTime() - startTime);
+        }
+        headReceived = true;
+        if (!response.isChunked()) {
+          responseCompleted();
+        }
+      }
+    } else if (message instanceof HttpChunk && ((HttpChunk) message).isLast()) {
+      responseCompleted();
+    }
+    super.messageReceived(ctx, e);
+  }
+
+  @Override
+  public void channelClosed(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
+    reusable = false;
+    while (pendingRequests.poll() != null) {
+      endpoint.requestCompleted();
+    }
+    super.channelClosed(ctx, e);
+  }
+
+  private void responseCompleted() {
+    headReceived = false;
+    if (pendingRequests.poll() != null) {
+      endpoint.requestCompleted();
+    }
+  }
+}
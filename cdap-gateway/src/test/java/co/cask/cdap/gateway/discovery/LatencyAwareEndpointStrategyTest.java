@@ -0,0 +1,88 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.gateway.discovery;
+
+import org.apache.twill.discovery.Discoverable;
+import org.apache.twill.discovery.InMemoryDiscoveryService;
+import org.apache.twill.discovery.ServiceDiscovered;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link LatencyAwareEndpointStrategy} and {@link EndpointStats}.
+ */
+public class LatencyAwareEndpointStrategyTest {
+
+  @Test
+  public void testPick() throws Exception {
+    InMemoryDiscoveryService discoveryService = new InMemoryDiscoveryService();
+    InetSocketAddress slow = new InetSocketAddress("localhost", 10001);
+    InetSocketAddress busy = new InetSocketAddress("localhost", 10002);
+    InetSocketAddress fast = new InetSocketAddress("localhost", 10003);
+    for (InetSocketAddress address : new InetSocketAddress[] { slow, busy, fast }) {
+      discoveryService.register(new Discoverable("service", address));
+    }
+    ServiceDiscovered serviceDiscovered = discoveryService.discover("service");
+
+    EndpointStats stats = new EndpointStats();
+    LatencyAwareEndpointStrategy strategy = new LatencyAwareEndpointStrategy(serviceDiscovered, stats);
+
+    stats.get(slow).recordLatency(TimeUnit.MILLISECONDS.toNanos(100));
+    stats.get(busy).recordLatency(TimeUnit.MILLISECONDS.toNanos(1));
+    stats.get(fast).recordLatency(TimeUnit.MILLISECONDS.toNanos(1));
+    for (int i = 0; i < 10; i++) {
+      stats.get(busy).requestStarted();
+    }
+
+    // The slow endpoint always loses against any other endpoint sampled with it
+    for (int i = 0; i < 1000; i++) {
+      Assert.assertNotEquals(slow, strategy.pick().getSocketAddress());
+    }
+
+    // Once the busy endpoint drains, it is as good as the fast one
+    for (int i = 0; i < 10; i++) {
+      stats.get(busy).requestCompleted();
+    }
+    boolean busyPicked = false;
+    for (int i = 0; i < 1000 && !busyPicked; i++) {
+      busyPicked = busy.equals(strategy.pick().getSocketAddress());
+    }
+    Assert.assertTrue(busyPicked);
+  }
+
+  @Test
+  public void testEndpointStats() {
+    EndpointStats.Endpoint endpoint = new EndpointStats().get(new InetSocketAddress("localhost", 10000));
+    Assert.assertEquals(0L, endpoint.getLatencyNanos());
+    Assert.assertEquals(1d, endpoint.getScore(), 0d);
+
+    endpoint.recordLatency(1000L);
+    Assert.assertEquals(1000L, endpoint.getLatencyNanos());
+    endpoint.recordLatency(2000L);
+    Assert.assertEquals(1300L, endpoint.getLatencyNanos());
+
+    endpoint.requestStarted();
+    endpoint.requestStarted();
+    Assert.assertEquals(2, endpoint.getOutstanding());
+    Assert.assertEquals(3900d, endpoint.getScore(), 0d);
+    endpoint.requestCompleted();
+    Assert.assertEquals(1, endpoint.getOutstanding());
+  }
+}
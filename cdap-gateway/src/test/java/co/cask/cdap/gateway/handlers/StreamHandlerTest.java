@@ -153,6 +153,60 @@ public class StreamHandlerTest extends GatewayTestBase {
     Assert.assertEquals(expected, actual);
   }
 
+  @Test
+  public void testBlockCodec() throws Exception {
+    // Should not be able to create a stream with an unknown codec
+    HttpURLConnection urlConn = openURL(createURL("streams/invalidCodecStream"), HttpMethod.PUT);
+    urlConn.setDoOutput(true);
+    StreamProperties properties = new StreamProperties(1L, null, 128, null, null, "lzo");
+    urlConn.getOutputStream().write(GSON.toJson(properties).getBytes(Charsets.UTF_8));
+    Assert.assertEquals(HttpResponseStatus.BAD_REQUEST.getCode(), urlConn.getResponseCode());
+    urlConn.disconnect();
+
+    // Create a stream with the snappy codec, given in lower case
+    urlConn = openURL(createURL("streams/snappyStream"), HttpMethod.PUT);
+    urlConn.setDoOutput(true);
+    properties = new StreamProperties(1L, null, 128, null, null, "snappy");
+    urlConn.getOutputStream().write(GSON.toJson(properties).getBytes(Charsets.UTF_8));
+    Assert.assertEquals(HttpResponseStatus.OK.getCode(), urlConn.getResponseCode());
+    urlConn.disconnect();
+
+    // The codec should be returned in its canonical name
+    urlConn = openURL(createStreamInfoURL("snappyStream"), HttpMethod.GET);
+    Assert.assertEquals(HttpResponseStatus.OK.getCode(), urlConn.getResponseCode());
+    StreamProperties actual = GSON.fromJson(new String(ByteStreams.toByteArray(urlConn.getInputStream()),
+                                                       Charsets.UTF_8), StreamProperties.class);
+    urlConn.disconnect();
+    Assert.assertEquals("SNAPPY", actual.getBlockCodec());
+
+    // Updating with the same codec is allowed, but the codec cannot be changed
+    StreamProperties newProps = new StreamProperties(2L, null, null, null, null, "SNAPPY");
+    urlConn = openURL(createPropertiesURL("snappyStream"), HttpMethod.PUT);
+    urlConn.setDoOutput(true);
+    urlConn.getOutputStream().write(GSON.toJson(newProps).getBytes(Charsets.UTF_8));
+    Assert.assertEquals(HttpResponseStatus.OK.getCode(), urlConn.getResponseCode());
+    urlConn.disconnect();
+
+    newProps = new StreamProperties(2L, null, null, null, null, "deflate");
+    urlConn = openURL(createPropertiesURL("snappyStream"), HttpMethod.PUT);
+    urlConn.setDoOutput(true);
+    urlConn.getOutputStream().write(GSON.toJson(newProps).getBytes(Charsets.UTF_8));
+    Assert.assertEquals(HttpResponseStatus.BAD_REQUEST.getCode(), urlConn.getResponseCode());
+    urlConn.disconnect();
+
+    // A stream created without a codec doesn't report one
+    urlConn = openURL(createURL("streams/plainStream"), HttpMethod.PUT);
+    Assert.assertEquals(HttpResponseStatus.OK.getCode(), urlConn.getResponseCode());
+    urlConn.disconnect();
+
+    urlConn = openURL(createStreamInfoURL("plainStream"), HttpMethod.GET);
+    Assert.assertEquals(HttpResponseStatus.OK.getCode(), urlConn.getResponseCode());
+    actual = GSON.fromJson(new String(ByteStreams.toByteArray(urlConn.getInputStream()), Charsets.UTF_8),
+                           StreamProperties.class);
+    urlConn.disconnect();
+    Assert.assertNull(actual.getBlockCodec());
+  }
+
   @Test
   public void testOwner() throws Exception {
     // Should not be able to create a stream with invalid principal format
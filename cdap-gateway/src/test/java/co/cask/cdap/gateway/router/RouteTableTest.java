@@ -0,0 +1,92 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.gateway.router;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.annotation.Nullable;
+
+/**
+ * Unit tests for {@link RouteTable}.
+ */
+public class RouteTableTest {
+
+  private static final RouteDestination A = new RouteDestination("a");
+  private static final RouteDestination B = new RouteDestination("b");
+  private static final RouteDestination C = new RouteDestination("c");
+  private static final RouteDestination D = new RouteDestination("d");
+
+  @Test
+  public void testPrecedence() {
+    RouteTable table = RouteTable.builder()
+      .add(RouteTable.fixed(A), "v3", null, "x")
+      .add(RouteTable.fixed(B), "v3", "ns")
+      .add(RouteTable.fixed(C), "v3", "ns", "x")
+      .build();
+
+    // Rule added earlier wins, even if it is on the wildcard branch
+    Assert.assertEquals(A, lookup(table, "GET", "v3", "ns", "x"));
+    Assert.assertEquals(A, lookup(table, "GET", "v3", "other", "x", "y"));
+    Assert.assertEquals(B, lookup(table, "GET", "v3", "ns", "y"));
+    Assert.assertEquals(B, lookup(table, "GET", "v3", "ns"));
+    Assert.assertNull(table.lookup(new String[] { "v3" }, "GET"));
+    Assert.assertNull(table.lookup(new String[] { "v3", "other", "y" }, "GET"));
+  }
+
+  @Test
+  public void testExactAndMethod() {
+    RouteTable table = RouteTable.builder()
+      .add("GET", RouteTable.fixed(A), "v3", null, "programs")
+      .addExact(RouteTable.fixed(B), "v3", null, "status")
+      .add(RouteTable.fixed(C), "v3", null)
+      .add(new RouteTable.RouteResolver() {
+        @Nullable
+        @Override
+        public RouteDestination resolve(String[] uriParts) {
+          return new RouteDestination(uriParts[1]);
+        }
+      }, "v3")
+      .build();
+
+    Assert.assertEquals(A, lookup(table, "GET", "v3", "ns", "programs"));
+    Assert.assertEquals(C, lookup(table, "POST", "v3", "ns", "programs"));
+    Assert.assertEquals(B, lookup(table, "GET", "v3", "ns", "status"));
+    Assert.assertEquals(C, lookup(table, "GET", "v3", "ns", "status", "more"));
+    Assert.assertEquals(C, lookup(table, "GET", "v3", "ns"));
+
+    table = RouteTable.builder()
+      .addExact(RouteTable.fixed(D), "v3", "x", "y")
+      .add(new RouteTable.RouteResolver() {
+        @Nullable
+        @Override
+        public RouteDestination resolve(String[] uriParts) {
+          return new RouteDestination(uriParts[1]);
+        }
+      }, "v3", null)
+      .build();
+    Assert.assertEquals(D, lookup(table, "GET", "v3", "x", "y"));
+    Assert.assertEquals(new RouteDestination("x"), lookup(table, "GET", "v3", "x", "z"));
+  }
+
+  @Nullable
+  private RouteDestination lookup(RouteTable table, String method, String... uriParts) {
+    RouteTable.Rule rule = table.lookup(uriParts, method);
+    Assert.assertNotNull(rule);
+    return rule.resolve(uriParts);
+  }
+}
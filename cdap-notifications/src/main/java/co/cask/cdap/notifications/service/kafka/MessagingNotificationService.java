@@ -60,6 +60,8 @@ import java.util.concurrent.atomic.AtomicBoolean;
  */
 public class MessagingNotificationService extends AbstractNotificationService {
   private static final Logger LOG = LoggerFactory.getLogger(MessagingNotificationService.class);
+  // Maximum time to wait for new notifications in each fetch, which matches the maximum back-off delay
+  private static final long MAX_FETCH_WAIT_MILLIS = 3000L;
 
   private final MessagingService messagingService;
   private final TopicId notificationTopic;
@@ -135,8 +137,11 @@ public class MessagingNotificationService extends AbstractNotificationService {
 
       @Override
       public void run() {
+        long fetchStartTime = System.currentTimeMillis();
         try {
           MessageFetcher fetcher = messagingService.prepareFetch(notificationTopic);
+          // Wait for new notifications on the server side instead of polling
+          fetcher.setWaitTimeout(MAX_FETCH_WAIT_MILLIS);
           if (messageId == null) {
             fetcher.setStartTime(startTime);
           } else {
@@ -166,9 +171,10 @@ public class MessagingNotificationService extends AbstractNotificationService {
         // Back-off if it was empty fetch.
         if (emptyFetchCount > 0) {
           // Schedule the next fetch. Exponential strategy doesn't use the time component,
-          // so doesn't matter what we passed in
-          subscribeExecutor.schedule(this,
-                                     scheduleStrategy.nextRetry(emptyFetchCount, startTime), TimeUnit.MILLISECONDS);
+          // so doesn't matter what we passed in. Time spent waiting in the fetch counts toward the delay.
+          long delay = scheduleStrategy.nextRetry(emptyFetchCount, startTime)
+            - (System.currentTimeMillis() - fetchStartTime);
+          subscribeExecutor.schedule(this, Math.max(0L, delay), TimeUnit.MILLISECONDS);
         } else {
           subscribeExecutor.execute(this);
         }
@@ -35,6 +35,8 @@ public class StreamProperties {
   @SerializedName("notification.threshold.mb")
   private final Integer notificationThresholdMB;
   private final String description;
+  @SerializedName("block.codec")
+  private final String blockCodec;
 
   public StreamProperties(Long ttl, FormatSpecification format, Integer notificationThresholdMB) {
     this(ttl, format, notificationThresholdMB, null, null);
@@ -47,11 +49,18 @@ public class StreamProperties {
 
   public StreamProperties(Long ttl, FormatSpecification format, Integer notificationThresholdMB,
                           @Nullable String description, @Nullable String ownerPrincipal) {
+    this(ttl, format, notificationThresholdMB, description, ownerPrincipal, null);
+  }
+
+  public StreamProperties(Long ttl, FormatSpecification format, Integer notificationThresholdMB,
+                          @Nullable String description, @Nullable String ownerPrincipal,
+                          @Nullable String blockCodec) {
     this.ttl = ttl;
     this.format = format;
     this.notificationThresholdMB = notificationThresholdMB;
     this.description = description;
     this.ownerPrincipal = ownerPrincipal;
+    this.blockCodec = blockCodec;
   }
 
   /**
@@ -92,6 +101,14 @@ public class StreamProperties {
     return ownerPrincipal;
   }
 
+  /**
+   * @return The name of the codec used to compress the data blocks of the stream
+   */
+  @Nullable
+  public String getBlockCodec() {
+    return blockCodec;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -107,12 +124,13 @@ public class StreamProperties {
       Objects.equals(format, that.format) &&
       Objects.equals(notificationThresholdMB, that.notificationThresholdMB) &&
       Objects.equals(description, that.description) &&
-      Objects.equals(ownerPrincipal, that.ownerPrincipal);
+      Objects.equals(ownerPrincipal, that.ownerPrincipal) &&
+      Objects.equals(blockCodec, that.blockCodec);
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(ttl, format, notificationThresholdMB, description, ownerPrincipal);
+    return Objects.hash(ttl, format, notificationThresholdMB, description, ownerPrincipal, blockCodec);
   }
 
   @Override
@@ -123,6 +141,7 @@ public class StreamProperties {
       ", notificationThresholdMB=" + notificationThresholdMB +
       ", description=" + description +
       ", ownerPrincipal=" + ownerPrincipal +
+      ", blockCodec=" + blockCodec +
       '}';
   }
 }
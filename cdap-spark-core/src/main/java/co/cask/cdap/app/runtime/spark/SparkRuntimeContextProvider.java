@@ -31,6 +31,7 @@ import co.cask.cdap.common.lang.FilterClassLoader;
 import co.cask.cdap.common.logging.LoggingContextAccessor;
 import co.cask.cdap.data.stream.StreamCoordinatorClient;
 import co.cask.cdap.data2.dataset2.DatasetFramework;
+import co.cask.cdap.data2.metadata.writer.BufferedLineageWriter;
 import co.cask.cdap.data2.metadata.writer.ProgramContextAware;
 import co.cask.cdap.data2.transaction.stream.StreamAdmin;
 import co.cask.cdap.internal.app.runtime.ProgramClassLoader;
@@ -142,18 +143,21 @@ public final class SparkRuntimeContextProvider {
       final StreamCoordinatorClient streamCoordinatorClient = injector.getInstance(StreamCoordinatorClient.class);
       final AuthorizationEnforcementService enforcementService =
         injector.getInstance(AuthorizationEnforcementService.class);
+      final BufferedLineageWriter lineageWriter = injector.getInstance(BufferedLineageWriter.class);
 
       // Use the shutdown hook to shutdown services, since this class should only be loaded from System classloader
       // of the spark executor, hence there should be exactly one instance only.
       // The problem with not shutting down nicely is that some logs/metrics might be lost
       Services.chainStart(logAppenderService, zkClientService,
-                          kafkaClientService, metricsCollectionService, streamCoordinatorClient, enforcementService);
+                          kafkaClientService, metricsCollectionService, streamCoordinatorClient, enforcementService,
+                          lineageWriter);
       Runtime.getRuntime().addShutdownHook(new Thread() {
         @Override
         public void run() {
           // The logger may already been shutdown. Use System.out/err instead
           System.out.println("Shutting SparkClassLoader services");
-          Future<List<ListenableFuture<Service.State>>> future = Services.chainStop(enforcementService,
+          Future<List<ListenableFuture<Service.State>>> future = Services.chainStop(lineageWriter,
+                                                                                    enforcementService,
                                                                                     logAppenderService,
                                                                                     streamCoordinatorClient,
                                                                                     metricsCollectionService,
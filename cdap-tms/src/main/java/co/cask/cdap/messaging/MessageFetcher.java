@@ -22,6 +22,8 @@ import co.cask.cdap.messaging.data.RawMessage;
 import org.apache.tephra.Transaction;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 import javax.annotation.Nullable;
 
 /**
@@ -35,9 +37,13 @@ public abstract class MessageFetcher {
   private boolean includeStart = true;
   private Long startTime;
   private Transaction transaction;
+  private Integer partition;
+  private final Map<Integer, byte[]> resumeMessages = new HashMap<>();
 
   // by default there is virtually no limit
   private int limit = Integer.MAX_VALUE;
+  // by default there is no waiting for new messages
+  private long waitTimeoutMillis;
 
   /**
    * Setup the message fetching starting point based on the given message id. Calling this method
@@ -82,6 +88,41 @@ public abstract class MessageFetcher {
     return this;
   }
 
+  /**
+   * Sets the partition of the topic to fetch messages from. If no partition is set, messages from all
+   * partitions of the topic are fetched and merged in the order of message ids. Since each partition is written
+   * independently, a merged fetch should be resumed with {@link #setResumeMessage(int, byte[])} for each partition
+   * instead of from a single message id, otherwise messages may be missed.
+   *
+   * @param partition the partition to fetch from, starting from {@code 0}
+   * @return this instance
+   */
+  public MessageFetcher setPartition(int partition) {
+    if (partition < 0) {
+      throw new IllegalArgumentException("Invalid message fetching partition. Partition must be >= 0");
+    }
+    this.partition = partition;
+    return this;
+  }
+
+  /**
+   * Sets the message id of the given partition to resume fetching from. Fetching from the partition will start
+   * right after the given message id, which is typically the id of the last {@link RawMessage} consumed from
+   * that partition as given by {@link RawMessage#getPartition()}. Partitions without a resume message id start
+   * from the position set by {@link #setStartMessage(byte[], boolean)} or {@link #setStartTime(long)}.
+   *
+   * @param partition the partition, starting from {@code 0}
+   * @param messageId the message id to resume after
+   * @return this instance
+   */
+  public MessageFetcher setResumeMessage(int partition, byte[] messageId) {
+    if (partition < 0) {
+      throw new IllegalArgumentException("Invalid message fetching partition. Partition must be >= 0");
+    }
+    resumeMessages.put(partition, messageId);
+    return this;
+  }
+
   /**
    * Sets the maximum limit on number of messages to be fetched. By default, this is set to {@code Integer.MAX_VALUE}.
    *
@@ -96,6 +137,22 @@ public abstract class MessageFetcher {
     return this;
   }
 
+  /**
+   * Sets the maximum time to wait for new messages to arrive if there is no message available at the time of
+   * fetching. The {@link #fetch()} call will block up to the given time until some messages are available.
+   * By default, this is set to {@code 0}, meaning no waiting.
+   *
+   * @param waitTimeoutMillis maximum time in milliseconds to wait for new messages
+   * @return this instance
+   */
+  public MessageFetcher setWaitTimeout(long waitTimeoutMillis) {
+    if (waitTimeoutMillis < 0) {
+      throw new IllegalArgumentException("Invalid message fetching wait timeout. Wait timeout must be >= 0");
+    }
+    this.waitTimeoutMillis = waitTimeoutMillis;
+    return this;
+  }
+
   @Nullable
   protected byte[] getStartOffset() {
     return startOffset;
@@ -115,10 +172,26 @@ public abstract class MessageFetcher {
     return transaction;
   }
 
+  @Nullable
+  protected Integer getPartition() {
+    return partition;
+  }
+
+  /**
+   * Returns the message ids to resume after for each partition.
+   */
+  protected Map<Integer, byte[]> getResumeMessages() {
+    return resumeMessages;
+  }
+
   protected int getLimit() {
     return limit;
   }
 
+  protected long getWaitTimeout() {
+    return waitTimeoutMillis;
+  }
+
   /**
    * Returns a {@link CloseableIterator} that iterates over messages fetched from the messaging system.
    *
@@ -23,6 +23,8 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
 import javax.annotation.Nullable;
 
 /**
@@ -56,6 +58,12 @@ public final class Schemas {
      */
     public static final class ConsumeRequest {
       public static final Schema SCHEMA = loadSchema(ConsumeRequest.class);
+
+      /**
+       * Schema used by clients that predate the optional {@code waitTimeout} and {@code partition} fields.
+       * It is used as the writer schema to decode requests from those clients.
+       */
+      public static final Schema LEGACY_SCHEMA = truncateSchema(SCHEMA, "waitTimeout");
     }
 
     /**
@@ -63,6 +71,18 @@ public final class Schemas {
      */
     public static final class ConsumeResponse {
       public static final Schema SCHEMA = loadSchema(ConsumeResponse.class);
+
+      /**
+       * Schema of the response sent to clients that predate the {@code partition} field of each message.
+       */
+      public static final Schema LEGACY_SCHEMA = Schema.createArray(truncateSchema(SCHEMA.getElementType(),
+                                                                                   "partition"));
+
+      /**
+       * Response header that is set to {@code true} if the messages in the response carry the {@code partition}
+       * field. Responses without it, including those from servers that predate the field, use the legacy schema.
+       */
+      public static final String PARTITION_HEADER = "CDAP-Messaging-Partition";
     }
   }
 
@@ -70,6 +90,22 @@ public final class Schemas {
     // protect the constructor
   }
 
+  /**
+   * Creates a copy of the given record {@link Schema} that only contains the fields before the given field.
+   */
+  private static Schema truncateSchema(Schema schema, String fieldName) {
+    List<Schema.Field> fields = new ArrayList<>();
+    for (Schema.Field field : schema.getFields()) {
+      if (field.name().equals(fieldName)) {
+        break;
+      }
+      fields.add(new Schema.Field(field.name(), field.schema(), field.doc(), field.defaultValue()));
+    }
+    Schema result = Schema.createRecord(schema.getName(), schema.getDoc(), schema.getNamespace(), false);
+    result.setFields(fields);
+    return result;
+  }
+
   /**
    * Creates a {@link Schema} instance based on the given class name.
    */
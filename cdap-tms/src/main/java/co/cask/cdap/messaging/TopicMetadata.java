@@ -30,6 +30,12 @@ public class TopicMetadata {
 
   public static final String GENERATION_KEY = MessagingUtils.Constants.GENERATION_KEY;
   public static final String TTL_KEY = MessagingUtils.Constants.TTL_KEY;
+  public static final String PARTITIONS_KEY = "partitions";
+  // Property for marking an internal topic that stores a partition of the topic named by the property value
+  public static final String PARTITION_OF_KEY = "partition.of";
+
+  // Maximum number of partitions that a topic can have
+  public static final int MAX_PARTITIONS = 64;
 
   private final TopicId topicId;
   private final Map<String, String> properties;
@@ -109,6 +115,17 @@ public class TopicMetadata {
     return Integer.parseInt(properties.get(TTL_KEY));
   }
 
+  /**
+   * Returns the number of partitions of the topic. If the partitions property is absent, {@code 1} is returned.
+   */
+  public int getPartitions() {
+    if (!validated) {
+      validatePartitions();
+    }
+    String partitions = properties.get(PARTITIONS_KEY);
+    return partitions == null ? 1 : Integer.parseInt(partitions);
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -142,6 +159,7 @@ public class TopicMetadata {
   private void validateProperties() {
     validateTTL();
     validateGeneration();
+    validatePartitions();
   }
 
   /**
@@ -183,6 +201,29 @@ public class TopicMetadata {
     }
   }
 
+  /**
+   * Validates the optional "partitions" property of the given topic.
+   *
+   * @throws IllegalArgumentException if the partitions value is not a number, or not in the range
+   *                                  of [1, {@link #MAX_PARTITIONS}].
+   */
+  private void validatePartitions() {
+    String partitions = properties.get(PARTITIONS_KEY);
+    if (partitions == null) {
+      return;
+    }
+    try {
+      int value = Integer.parseInt(partitions);
+      if (value <= 0 || value > MAX_PARTITIONS) {
+        throw new IllegalArgumentException("The partitions property must be between 1 and " + MAX_PARTITIONS
+                                             + " for topic " + topicId);
+      }
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("The partitions property must be a number between 1 and " + MAX_PARTITIONS
+                                           + " for topic " + topicId, e);
+    }
+  }
+
   /**
    * Turns a list of {@link Object} into a {@link Map} by using even index objects as keys and the following odd index
    * objects as values. The {@link Object#toString()} method will be used to convert {@link Object} to {@link String}.
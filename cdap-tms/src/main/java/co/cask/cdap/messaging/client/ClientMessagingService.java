@@ -16,7 +16,6 @@
 
 package co.cask.cdap.messaging.client;
 
-import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.dataset.lib.AbstractCloseableIterator;
 import co.cask.cdap.api.dataset.lib.CloseableIterator;
 import co.cask.cdap.api.messaging.TopicAlreadyExistsException;
@@ -25,6 +24,7 @@ import co.cask.cdap.common.ServiceUnavailableException;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.http.DefaultHttpRequestConfig;
 import co.cask.cdap.common.internal.remote.RemoteClient;
+import co.cask.cdap.common.io.ByteBuffers;
 import co.cask.cdap.messaging.MessageFetcher;
 import co.cask.cdap.messaging.MessagingService;
 import co.cask.cdap.messaging.RollbackDetail;
@@ -49,10 +49,8 @@ import com.google.gson.reflect.TypeToken;
 import com.google.inject.Inject;
 import org.apache.avro.Schema;
 import org.apache.avro.generic.GenericData;
-import org.apache.avro.generic.GenericDatumReader;
 import org.apache.avro.generic.GenericDatumWriter;
 import org.apache.avro.generic.GenericRecord;
-import org.apache.avro.io.DatumReader;
 import org.apache.avro.io.DatumWriter;
 import org.apache.avro.io.Decoder;
 import org.apache.avro.io.DecoderFactory;
@@ -64,7 +62,9 @@ import org.apache.twill.discovery.DiscoveryServiceClient;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.reflect.Type;
+import java.net.ConnectException;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.nio.ByteBuffer;
@@ -72,6 +72,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import javax.annotation.Nullable;
@@ -178,15 +179,12 @@ public final class ClientMessagingService implements MessagingService {
   @Nullable
   @Override
   public RollbackDetail publish(StoreRequest request) throws TopicNotFoundException, IOException {
-    HttpResponse response = performWriteRequest(request, true);
-
-    byte[] body = response.getResponseBody();
+    byte[] body = performWriteRequest(request, true);
     if (body.length == 0) {
       return null;
     }
 
-    // It has rollback detail, verify the content-type and decode it
-    verifyContentType(response.getHeaders().asMap(), "avro/binary");
+    // It has rollback detail, which the content-type was already verified
     return new ClientRollbackDetail(body);
   }
 
@@ -220,40 +218,117 @@ public final class ClientMessagingService implements MessagingService {
    *
    * @param request contains information about what to write
    * @param publish {@code true} to make publish call, {@code false} to make store call.
-   * @return the response from the server
+   * @return the response body from the server
    * @throws IOException if failed to perform the write operation
    * @throws TopicNotFoundException if the topic to write to does not exist
    */
-  private HttpResponse performWriteRequest(StoreRequest request,
-                                           boolean publish) throws IOException, TopicNotFoundException {
-    GenericRecord record = new GenericData.Record(Schemas.V1.PublishRequest.SCHEMA);
-    if (request.isTransactional()) {
-      record.put("transactionWritePointer", request.getTransactionWritePointer());
+  private byte[] performWriteRequest(StoreRequest request,
+                                     boolean publish) throws IOException, TopicNotFoundException {
+    ExposedByteArrayOutputStream os = encodePublishRequest(request);
+
+    // Make the publish request. The HttpURLConnection is used directly instead of the RemoteClient, which always
+    // disconnects after the call. By fully consuming the response without disconnecting, the underlying
+    // connection can be reused by subsequent requests.
+    String writeType = publish ? "publish" : "store";
+    TopicId topicId = request.getTopicId();
+    final HttpURLConnection urlConn = openPostConnection(topicId, writeType, 0L);
+    urlConn.setFixedLengthStreamingMode(os.size());
+    try (OutputStream output = urlConn.getOutputStream()) {
+      os.writeTo(output);
+    } catch (ConnectException e) {
+      throw new ServiceUnavailableException(Constants.Service.MESSAGING_SERVICE, e);
     }
-    record.put("messages", convertPayloads(request));
 
-    // Encode the request as avro
+    int responseCode = urlConn.getResponseCode();
+    if (responseCode == HttpURLConnection.HTTP_NOT_FOUND) {
+      readErrorBody(urlConn);
+      throw new TopicNotFoundException(topicId.getNamespace(), topicId.getTopic());
+    }
+    handleError(responseCode, new Supplier<String>() {
+      @Override
+      public String get() {
+        return readErrorBody(urlConn);
+      }
+    }, "Failed to " + writeType + " message to topic " + topicId);
+
+    byte[] body;
+    try (InputStream input = urlConn.getInputStream()) {
+      body = ByteStreams.toByteArray(input);
+    }
+    if (body.length > 0) {
+      verifyContentType(urlConn.getHeaderFields(), "avro/binary");
+    }
+    return body;
+  }
+
+  /**
+   * Encodes the given {@link StoreRequest} based on the {@link Schemas.V1.PublishRequest#SCHEMA}. The encoding is
+   * done directly with the {@link Encoder} so that no intermediate {@link GenericRecord} and payload list
+   * are needed.
+   */
+  private ExposedByteArrayOutputStream encodePublishRequest(StoreRequest request) throws IOException {
     ExposedByteArrayOutputStream os = new ExposedByteArrayOutputStream();
     Encoder encoder = EncoderFactory.get().directBinaryEncoder(os, null);
 
-    DatumWriter<GenericRecord> datumWriter = new GenericDatumWriter<>(Schemas.V1.PublishRequest.SCHEMA);
-    datumWriter.write(record, encoder);
+    // The transactionWritePointer field is an union of (long, null)
+    if (request.isTransactional()) {
+      encoder.writeIndex(0);
+      encoder.writeLong(request.getTransactionWritePointer());
+    } else {
+      encoder.writeIndex(1);
+      encoder.writeNull();
+    }
 
-    // Make the publish request
-    String writeType = publish ? "publish" : "store";
-    TopicId topicId = request.getTopicId();
-    HttpRequest httpRequest = remoteClient.requestBuilder(HttpMethod.POST, createTopicPath(topicId) + "/" + writeType)
-      .addHeader(HttpHeaders.CONTENT_TYPE, "avro/binary")
-      .withBody(os.toByteBuffer())
-      .build();
+    // The messages field is an array of bytes. Since the number of payloads is not known upfront,
+    // each payload is written as an array block of one item.
+    encoder.writeArrayStart();
+    while (request.hasNext()) {
+      encoder.setItemCount(1);
+      encoder.startItem();
+      encoder.writeBytes(request.next());
+    }
+    encoder.writeArrayEnd();
+    encoder.flush();
+    return os;
+  }
 
-    HttpResponse response = remoteClient.execute(httpRequest);
+  /**
+   * Opens a {@link HttpURLConnection} for making a POST request with avro binary content to the given topic.
+   *
+   * @param topicId the topic to make request to
+   * @param path the path under the topic resource
+   * @param extraReadTimeoutMillis extra time in milliseconds to add to the read timeout
+   * @return a {@link HttpURLConnection} that is ready for writing out the request body
+   */
+  private HttpURLConnection openPostConnection(TopicId topicId, String path,
+                                               long extraReadTimeoutMillis) throws IOException {
+    URL url = remoteClient.resolve(createTopicPath(topicId) + "/" + path);
+    HttpURLConnection urlConn = (HttpURLConnection) url.openConnection();
+    urlConn.setConnectTimeout(HTTP_REQUEST_CONFIG.getConnectTimeout());
+    int readTimeout = HTTP_REQUEST_CONFIG.getReadTimeout();
+    urlConn.setReadTimeout(readTimeout <= 0 ? readTimeout
+                             : (int) Math.min(Integer.MAX_VALUE, readTimeout + extraReadTimeoutMillis));
+    urlConn.setRequestMethod("POST");
+    urlConn.setRequestProperty(HttpHeaders.CONTENT_TYPE, "avro/binary");
+    urlConn.setDoInput(true);
+    urlConn.setDoOutput(true);
+    return urlConn;
+  }
 
-    if (response.getResponseCode() == HttpURLConnection.HTTP_NOT_FOUND) {
-      throw new TopicNotFoundException(topicId.getNamespace(), topicId.getTopic());
+  /**
+   * Reads the response body from the error stream of the given {@link HttpURLConnection}. Fully reading and closing
+   * the error stream also allows the underlying connection to be reused.
+   */
+  private String readErrorBody(HttpURLConnection urlConn) {
+    InputStream errorStream = urlConn.getErrorStream();
+    if (errorStream == null) {
+      return "";
+    }
+    try (InputStream is = errorStream) {
+      return new String(ByteStreams.toByteArray(is), StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      return "";
     }
-    handleError(response, "Failed to " + writeType + " message to topic " + topicId);
-    return response;
   }
 
   /**
@@ -292,18 +367,6 @@ public final class ClientMessagingService implements MessagingService {
     }
   }
 
-  /**
-   * Converts the payloads carried by the given {@link StoreRequest} into a {@link List} of {@link ByteBuffer},
-   * which is needed by the avro record.
-   */
-  private List<ByteBuffer> convertPayloads(StoreRequest request) {
-    List<ByteBuffer> payloads = new ArrayList<>();
-    while (request.hasNext()) {
-      payloads.add(ByteBuffer.wrap(request.next()));
-    }
-    return payloads;
-  }
-
   /**
    * Encodes the given {@link RollbackDetail} as expected by the rollback call. This method is rarely used
    * as the call to {@link #rollback(TopicId, RollbackDetail)} expects a {@link ClientRollbackDetail} which
@@ -366,15 +429,9 @@ public final class ClientMessagingService implements MessagingService {
   private final class ClientMessageFetcher extends MessageFetcher {
 
     private final TopicId topicId;
-    private final DatumReader<GenericRecord> messageReader;
-    private GenericRecord messageRecord;
 
     private ClientMessageFetcher(TopicId topicId) {
       this.topicId = topicId;
-
-      // These are for reading individual message (response is an array of messages)
-      this.messageRecord = new GenericData.Record(Schemas.V1.ConsumeResponse.SCHEMA.getElementType());
-      this.messageReader = new GenericDatumReader<>(Schemas.V1.ConsumeResponse.SCHEMA.getElementType());
     }
 
     @Override
@@ -393,17 +450,24 @@ public final class ClientMessagingService implements MessagingService {
       if (getTransaction() != null) {
         record.put("transaction", ByteBuffer.wrap(TRANSACTION_CODEC.encode(getTransaction())));
       }
+      if (getWaitTimeout() > 0) {
+        record.put("waitTimeout", getWaitTimeout());
+      }
+      if (getPartition() != null) {
+        record.put("partition", getPartition());
+      }
+      if (!getResumeMessages().isEmpty()) {
+        Map<String, ByteBuffer> resumeFrom = new HashMap<>();
+        for (Map.Entry<Integer, byte[]> entry : getResumeMessages().entrySet()) {
+          resumeFrom.put(Integer.toString(entry.getKey()), ByteBuffer.wrap(entry.getValue()));
+        }
+        record.put("resumeFrom", resumeFrom);
+      }
 
       // The cask common http library doesn't support read streaming, and we don't want to buffer all messages
       // in memory, hence we use the HttpURLConnection directly instead.
-      URL url = remoteClient.resolve(createTopicPath(topicId) + "/poll");
-      final HttpURLConnection urlConn = (HttpURLConnection)  url.openConnection();
-      urlConn.setConnectTimeout(HTTP_REQUEST_CONFIG.getConnectTimeout());
-      urlConn.setReadTimeout(HTTP_REQUEST_CONFIG.getReadTimeout());
-      urlConn.setRequestMethod("POST");
-      urlConn.setRequestProperty(HttpHeaders.CONTENT_TYPE, "avro/binary");
-      urlConn.setDoInput(true);
-      urlConn.setDoOutput(true);
+      // The read timeout is extended to include the time that the server may wait for new messages.
+      final HttpURLConnection urlConn = openPostConnection(topicId, "poll", getWaitTimeout());
 
       // Send the request
       Encoder encoder = EncoderFactory.get().directBinaryEncoder(urlConn.getOutputStream(), null);
@@ -419,27 +483,27 @@ public final class ClientMessagingService implements MessagingService {
         @Override
         public String get() {
           // If there is any error, read the response body from the error stream
-          InputStream errorStream = urlConn.getErrorStream();
-          try {
-            return errorStream == null ? "" : new String(ByteStreams.toByteArray(errorStream),
-                                                         StandardCharsets.UTF_8);
-          } catch (IOException e) {
-            return "";
-          }
+          return readErrorBody(urlConn);
         }
       }, "Failed to update topic " + topicId);
       verifyContentType(urlConn.getHeaderFields(), "avro/binary");
+      // Servers that predate the partition field don't send it, in which case all messages are from partition 0
+      final boolean hasPartition =
+        Boolean.parseBoolean(urlConn.getHeaderField(Schemas.V1.ConsumeResponse.PARTITION_HEADER));
 
       // Decode the avro array manually instead of using DatumReader in order to support streaming decode.
-      final Decoder decoder = DecoderFactory.get().binaryDecoder(urlConn.getInputStream(), null);
+      final InputStream input = urlConn.getInputStream();
+      final Decoder decoder = DecoderFactory.get().binaryDecoder(input, null);
       final long initialItemCount = decoder.readArrayStart();
       return new AbstractCloseableIterator<RawMessage>() {
 
         private long itemCount = initialItemCount;
+        private boolean completed;
 
         @Override
         protected RawMessage computeNext() {
           if (initialItemCount == 0) {
+            completed = true;
             return endOfData();
           }
 
@@ -448,19 +512,20 @@ public final class ClientMessagingService implements MessagingService {
               itemCount = decoder.arrayNext();
               if (itemCount == 0) {
                 // The zero item count signals the end of the array
+                completed = true;
                 return endOfData();
               }
             }
 
             itemCount--;
 
-            // Use DatumReader to decode individual message
-            // This provides greater flexibility on schema evolution.
-            // The response will likely always be an array, but the element schema can evolve.
-            messageRecord = messageReader.read(messageRecord, decoder);
-
-            return new RawMessage(Bytes.toBytes((ByteBuffer) messageRecord.get("id")),
-                                  Bytes.toBytes((ByteBuffer) messageRecord.get("payload")));
+            // Decode individual message directly based on the element schema of Schemas.V1.ConsumeResponse.SCHEMA,
+            // which is a record of (bytes id, bytes payload, int partition), or of LEGACY_SCHEMA without partition.
+            // The byte arrays are used without copying, since the decoder allocates a new buffer for each read.
+            byte[] id = ByteBuffers.getByteArray(decoder.readBytes(null));
+            byte[] payload = ByteBuffers.getByteArray(decoder.readBytes(null));
+            int partition = hasPartition ? decoder.readInt() : 0;
+            return new RawMessage(id, payload, partition);
           } catch (IOException e) {
             throw Throwables.propagate(e);
           }
@@ -468,7 +533,17 @@ public final class ClientMessagingService implements MessagingService {
 
         @Override
         public void close() {
-          urlConn.disconnect();
+          if (!completed) {
+            // Not all messages were read, disconnect to avoid reading the remaining response
+            urlConn.disconnect();
+            return;
+          }
+          // Close the stream without disconnecting so that the underlying connection can be reused
+          try {
+            input.close();
+          } catch (IOException e) {
+            urlConn.disconnect();
+          }
         }
       };
     }
@@ -17,15 +17,22 @@
 package co.cask.cdap.messaging.data;
 
 /**
- * Represents a unique message in the messaging system. It contains the message id and the payload
+ * Represents a unique message in the messaging system. It contains the message id, the payload and
+ * the topic partition that the message belongs to.
  */
 public class RawMessage {
   private final byte[] id;
   private final byte[] payload;
+  private final int partition;
 
   public RawMessage(byte[] id, byte[] payload) {
+    this(id, payload, 0);
+  }
+
+  public RawMessage(byte[] id, byte[] payload, int partition) {
     this.id = id;
     this.payload = payload;
+    this.partition = partition;
   }
 
   /**
@@ -41,4 +48,11 @@ public class RawMessage {
   public byte[] getPayload() {
     return payload;
   }
+
+  /**
+   * Returns the partition of the topic that this message belongs to.
+   */
+  public int getPartition() {
+    return partition;
+  }
 }
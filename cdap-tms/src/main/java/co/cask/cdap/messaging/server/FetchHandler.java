@@ -34,12 +34,10 @@ import co.cask.http.BodyProducer;
 import co.cask.http.HttpResponder;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.inject.Inject;
-import org.apache.avro.generic.GenericData;
+import org.apache.avro.Schema;
 import org.apache.avro.generic.GenericDatumReader;
-import org.apache.avro.generic.GenericDatumWriter;
 import org.apache.avro.generic.GenericRecord;
 import org.apache.avro.io.DatumReader;
-import org.apache.avro.io.DatumWriter;
 import org.apache.avro.io.Decoder;
 import org.apache.avro.io.DecoderFactory;
 import org.apache.avro.io.Encoder;
@@ -55,11 +53,14 @@ import org.jboss.netty.handler.codec.http.HttpResponseStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.net.SocketException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
 import javax.annotation.Nullable;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
@@ -76,11 +77,23 @@ public final class FetchHandler extends AbstractHttpHandler {
 
   private final MessagingService messagingService;
   private int messageChunkSize;
+  private long maxWaitTimeoutMillis;
+  // Limits the number of consume requests waiting for new messages, since they hold executor threads that are
+  // shared with publish and store requests
+  private final Semaphore waitPermits;
 
   @Inject
   FetchHandler(CConfiguration cConf, MessagingService messagingService) {
     this.messagingService = messagingService;
     this.messageChunkSize = cConf.getInt(Constants.MessagingSystem.HTTP_SERVER_CONSUME_CHUNK_SIZE);
+    // Waiting for new messages blocks the handler thread, which is only allowed if there are executor threads.
+    // Otherwise the netty IO threads would get blocked. At least one executor thread is always left to other requests.
+    int maxWaiters = Math.min(cConf.getInt(Constants.MessagingSystem.HTTP_SERVER_MAX_POLL_WAITERS),
+                              cConf.getInt(Constants.MessagingSystem.HTTP_SERVER_EXECUTOR_THREADS) - 1);
+    this.maxWaitTimeoutMillis = maxWaiters > 0
+      ? cConf.getLong(Constants.MessagingSystem.HTTP_SERVER_MAX_POLL_WAIT_MS)
+      : 0L;
+    this.waitPermits = new Semaphore(Math.max(0, maxWaiters));
   }
 
   @POST
@@ -96,27 +109,53 @@ public final class FetchHandler extends AbstractHttpHandler {
       throw new BadRequestException("Only avro/binary content type is supported.");
     }
 
-    // Decode the poll request
-    Decoder decoder = DecoderFactory.get().directBinaryDecoder(new ChannelBufferInputStream(request.getContent()),
-                                                               null);
-    DatumReader<GenericRecord> datumReader = new GenericDatumReader<>(Schemas.V1.ConsumeRequest.SCHEMA);
+    // Decode the poll request. Requests from older clients don't carry the trailing optional fields,
+    // in which case the request is decoded again with the legacy schema and the missing fields take their defaults.
+    // The response to older clients also omits the fields that they don't understand.
+    ChannelBuffer content = request.getContent();
+    int readerIndex = content.readerIndex();
+    GenericRecord consumeRequest;
+    boolean legacyRequest = false;
+    try {
+      consumeRequest = decodeConsumeRequest(content, Schemas.V1.ConsumeRequest.SCHEMA);
+    } catch (EOFException e) {
+      content.readerIndex(readerIndex);
+      consumeRequest = decodeConsumeRequest(content, Schemas.V1.ConsumeRequest.LEGACY_SCHEMA);
+      legacyRequest = true;
+    }
 
     // Fetch the messages
-    CloseableIterator<RawMessage> iterator = fetchMessages(datumReader.read(null, decoder), topicId);
+    CloseableIterator<RawMessage> iterator = fetchMessages(consumeRequest, topicId);
     try {
-      responder.sendContent(HttpResponseStatus.OK, new MessagesBodyProducer(iterator, messageChunkSize),
-                            ImmutableMultimap.of(HttpHeaders.Names.CONTENT_TYPE, "avro/binary"));
+      ImmutableMultimap.Builder<String, String> headers = ImmutableMultimap.builder();
+      headers.put(HttpHeaders.Names.CONTENT_TYPE, "avro/binary");
+      if (!legacyRequest) {
+        headers.put(Schemas.V1.ConsumeResponse.PARTITION_HEADER, Boolean.TRUE.toString());
+      }
+      responder.sendContent(HttpResponseStatus.OK,
+                            new MessagesBodyProducer(iterator, messageChunkSize, !legacyRequest),
+                            headers.build());
     } catch (Throwable t) {
       iterator.close();
       throw t;
     }
   }
 
+  /**
+   * Decodes the consume request written with the given schema into a {@link GenericRecord} of the
+   * {@link Schemas.V1.ConsumeRequest#SCHEMA}.
+   */
+  private GenericRecord decodeConsumeRequest(ChannelBuffer content, Schema writerSchema) throws IOException {
+    Decoder decoder = DecoderFactory.get().directBinaryDecoder(new ChannelBufferInputStream(content), null);
+    DatumReader<GenericRecord> datumReader = new GenericDatumReader<>(writerSchema, Schemas.V1.ConsumeRequest.SCHEMA);
+    return datumReader.read(null, decoder);
+  }
+
   /**
    * Creates a {@link CloseableIterator} of {@link RawMessage} based on the given fetch request.
    */
-  private CloseableIterator<RawMessage> fetchMessages(GenericRecord fetchRequest,
-                                                      TopicId topicId) throws IOException, TopicNotFoundException {
+  private CloseableIterator<RawMessage> fetchMessages(GenericRecord fetchRequest, TopicId topicId)
+    throws IOException, TopicNotFoundException, BadRequestException {
     MessageFetcher fetcher = messagingService.prepareFetch(topicId);
 
     Object startFrom = fetchRequest.get("startFrom");
@@ -143,7 +182,41 @@ public final class FetchHandler extends AbstractHttpHandler {
       fetcher.setTransaction(TRANSACTION_CODEC.decode(ByteBuffers.getByteArray(encodedTx)));
     }
 
-    return fetcher.fetch();
+    Integer partition = (Integer) fetchRequest.get("partition");
+    if (partition != null) {
+      fetcher.setPartition(partition);
+    }
+
+    @SuppressWarnings("unchecked")
+    Map<CharSequence, ByteBuffer> resumeFrom = (Map<CharSequence, ByteBuffer>) fetchRequest.get("resumeFrom");
+    if (resumeFrom != null) {
+      for (Map.Entry<CharSequence, ByteBuffer> entry : resumeFrom.entrySet()) {
+        try {
+          fetcher.setResumeMessage(Integer.parseInt(entry.getKey().toString()),
+                                   Bytes.toBytes(entry.getValue()));
+        } catch (NumberFormatException e) {
+          throw new BadRequestException("Invalid partition '" + entry.getKey() + "' in resumeFrom");
+        }
+      }
+    }
+
+    Long waitTimeout = (Long) fetchRequest.get("waitTimeout");
+    boolean waiting = false;
+    if (waitTimeout != null && waitTimeout > 0 && maxWaitTimeoutMillis > 0) {
+      // Without a permit, the request is served without waiting, and the client will retry after its own back-off
+      waiting = waitPermits.tryAcquire();
+      if (waiting) {
+        fetcher.setWaitTimeout(Math.min(waitTimeout, maxWaitTimeoutMillis));
+      }
+    }
+
+    try {
+      return fetcher.fetch();
+    } finally {
+      if (waiting) {
+        waitPermits.release();
+      }
+    }
   }
 
   /**
@@ -158,30 +231,17 @@ public final class FetchHandler extends AbstractHttpHandler {
     private final int messageChunkSize;
     private final ChannelBuffer chunk;
     private final Encoder encoder;
-    private final GenericRecord messageRecord;
-    private final DatumWriter<GenericRecord> messageWriter;
+    private final boolean includePartition;
     private boolean arrayStarted;
     private boolean arrayEnded;
 
-    MessagesBodyProducer(CloseableIterator<RawMessage> iterator, int messageChunkSize) {
+    MessagesBodyProducer(CloseableIterator<RawMessage> iterator, int messageChunkSize, boolean includePartition) {
       this.iterator = iterator;
       this.messages = new ArrayList<>();
       this.messageChunkSize = messageChunkSize;
       this.chunk = ChannelBuffers.dynamicBuffer(messageChunkSize);
       this.encoder = EncoderFactory.get().directBinaryEncoder(new ChannelBufferOutputStream(chunk), null);
-
-      // These are for writing individual message (response is an array of messages)
-      this.messageRecord = new GenericData.Record(Schemas.V1.ConsumeResponse.SCHEMA.getElementType());
-      this.messageWriter = new GenericDatumWriter<GenericRecord>(Schemas.V1.ConsumeResponse.SCHEMA.getElementType()) {
-        @Override
-        protected void writeBytes(Object datum, Encoder out) throws IOException {
-          if (datum instanceof byte[]) {
-            out.writeBytes((byte[]) datum);
-          } else {
-            super.writeBytes(datum, out);
-          }
-        }
-      };
+      this.includePartition = includePartition;
     }
 
     @Override
@@ -215,12 +275,14 @@ public final class FetchHandler extends AbstractHttpHandler {
       for (RawMessage message : messages) {
         encoder.startItem();
 
-        // Write individual message (array element) with DatumWrite.
-        // This provides greater flexibility on schema evolution.
-        // The response will likely always be an array, but the element schema can evolve.
-        messageRecord.put("id", message.getId());
-        messageRecord.put("payload", message.getPayload());
-        messageWriter.write(messageRecord, encoder);
+        // Write individual message (array element) directly based on the element schema of
+        // Schemas.V1.ConsumeResponse.SCHEMA, which is a record of (bytes id, bytes payload, int partition).
+        // This avoids creating GenericRecord and going through the DatumWriter for every message.
+        encoder.writeBytes(message.getId());
+        encoder.writeBytes(message.getPayload());
+        if (includePartition) {
+          encoder.writeInt(message.getPartition());
+        }
       }
 
       if (!iterator.hasNext()) {
@@ -27,6 +27,7 @@ import co.cask.cdap.proto.id.TopicId;
 import co.cask.http.AbstractHttpHandler;
 import co.cask.http.HttpResponder;
 import com.google.inject.Inject;
+import org.apache.avro.AvroRuntimeException;
 import org.apache.avro.Schema;
 import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericDatumReader;
@@ -47,7 +48,7 @@ import org.jboss.netty.handler.codec.http.HttpRequest;
 import org.jboss.netty.handler.codec.http.HttpResponseStatus;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import javax.annotation.Nullable;
@@ -137,8 +138,7 @@ public final class StoreHandler extends AbstractHttpHandler {
 
     Decoder decoder = DecoderFactory.get().directBinaryDecoder(new ChannelBufferInputStream(request.getContent()),
                                                                null);
-    DatumReader<GenericRecord> datumReader = new GenericDatumReader<>(Schemas.V1.PublishRequest.SCHEMA);
-    return new GenericRecordStoreRequest(topicId, datumReader.read(null, decoder));
+    return decodeStoreRequest(topicId, decoder);
   }
 
   /**
@@ -170,29 +170,63 @@ public final class StoreHandler extends AbstractHttpHandler {
   }
 
   /**
-   * A {@link StoreRequest} that gets the request information from {@link GenericRecord}.
+   * Decodes the publish request body based on the {@link Schemas.V1.PublishRequest#SCHEMA} directly from the
+   * {@link Decoder}, without creating intermediate {@link GenericRecord}. The whole body is decoded and validated
+   * before the request is handed to the {@link MessagingService}, so that a malformed request only fails its
+   * own caller instead of the batch of concurrent publishes it is committed with.
    */
-  private static final class GenericRecordStoreRequest extends StoreRequest {
+  private static StoreRequest decodeStoreRequest(TopicId topicId, Decoder decoder) throws BadRequestException {
+    try {
+      Long transactionWritePointer = decodeTransactionWritePointer(decoder);
+      List<byte[]> payloads = new ArrayList<>();
+      long itemCount = decoder.readArrayStart();
+      while (itemCount > 0) {
+        for (long i = 0; i < itemCount; i++) {
+          payloads.add(ByteBuffers.getByteArray(decoder.readBytes(null)));
+        }
+        // The zero item count signals the end of the array
+        itemCount = decoder.arrayNext();
+      }
+      return new DecodedStoreRequest(topicId, transactionWritePointer, payloads);
+    } catch (IOException | AvroRuntimeException e) {
+      throw new BadRequestException("Failed to decode publish request for topic " + topicId + ": " + e.getMessage(),
+                                    e);
+    }
+  }
+
+  /**
+   * Decodes the transactionWritePointer field, which is an union of (long, null).
+   */
+  @Nullable
+  private static Long decodeTransactionWritePointer(Decoder decoder) throws IOException {
+    int index = decoder.readIndex();
+    if (index == 0) {
+      return decoder.readLong();
+    }
+    if (index != 1) {
+      throw new IOException("Invalid union index " + index + " for transactionWritePointer");
+    }
+    decoder.readNull();
+    return null;
+  }
 
-    private final Iterator<ByteBuffer> payloadIterator;
+  /**
+   * A {@link StoreRequest} backed by payloads that were already decoded from the request body.
+   */
+  private static final class DecodedStoreRequest extends StoreRequest {
 
-    @SuppressWarnings("unchecked")
-    GenericRecordStoreRequest(TopicId topicId, GenericRecord genericRecord) {
-      super(topicId, genericRecord.get("transactionWritePointer") != null,
-            genericRecord.get("transactionWritePointer") == null
-              ? -1L
-              : Long.parseLong(genericRecord.get("transactionWritePointer").toString()));
+    private final Iterator<byte[]> payloads;
 
-      this.payloadIterator = ((List<ByteBuffer>) genericRecord.get("messages")).iterator();
+    DecodedStoreRequest(TopicId topicId, @Nullable Long transactionWritePointer, List<byte[]> payloads) {
+      super(topicId, transactionWritePointer != null,
+            transactionWritePointer == null ? -1L : transactionWritePointer);
+      this.payloads = payloads.iterator();
     }
 
     @Nullable
     @Override
     protected byte[] doComputeNext() {
-      if (!payloadIterator.hasNext()) {
-        return null;
-      }
-      return ByteBuffers.getByteArray(payloadIterator.next());
+      return payloads.hasNext() ? payloads.next() : null;
     }
   }
 
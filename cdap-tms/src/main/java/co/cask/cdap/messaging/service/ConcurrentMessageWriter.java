@@ -21,8 +21,11 @@ import co.cask.cdap.api.metrics.NoopMetricsContext;
 import co.cask.cdap.messaging.RollbackDetail;
 import co.cask.cdap.messaging.StoreRequest;
 import co.cask.cdap.messaging.TopicMetadata;
+import co.cask.cdap.proto.id.TopicId;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Throwables;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.util.concurrent.Uninterruptibles;
 
 import java.io.Closeable;
 import java.io.IOException;
@@ -31,15 +34,18 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
 
 /**
  * Class to support writing to message/payload tables with high concurrency.
  *
- * It uses a non-blocking algorithm to batch writes from concurrent threads. The algorithm is the same as
- * the one used in ConcurrentStreamWriter.
+ * It uses a group commit algorithm to batch writes from concurrent threads. Threads that are not writing
+ * are parked instead of spinning, so that a large number of concurrent publishers doesn't burn CPU while
+ * waiting for the writer.
  *
  * The algorithm is like this:
  *
@@ -48,16 +54,21 @@ import javax.annotation.concurrent.ThreadSafe;
  * <pre>
  * 1. Constructs a PendingStoreRequest locally and enqueue it to a ConcurrentLinkedQueue.
  * 2. Use CAS to set an AtomicBoolean flag to true.
- * 3. If successfully set the flag to true, this thread becomes the writer and proceed to run step 4-7.
- * 4. Provides an Iterator of PendingStoreRequest, which consumes from the ConcurrentLinkedQueue mentioned in step 1.
- * 5. The message table store method will consume the Iterator until it is empty
- * 6. Set the state of each PendingStoreRequest that are written to COMPLETED (succeed/failure).
+ * 3. If successfully set the flag to true, this thread becomes the writer and proceed to run step 4-8.
+ * 4. Optionally waits for the configured linger time to let more requests join the batch.
+ * 5. Provides an Iterator of PendingStoreRequest, which consumes from the ConcurrentLinkedQueue mentioned in step 1,
+ *    until the queue is empty or the payload size of the batch reached the configured maximum.
+ * 6. Set the state of each PendingStoreRequest that are written to COMPLETED (succeed/failure) and
+ *    unpark the waiting threads.
  * 7. Set the AtomicBoolean flag back to false.
- * 8. If the PendingStoreRequest enqueued by this thread is NOT COMPLETED, go back to step 2.
+ * 8. If the queue is not empty, unpark the thread of the request at the head of the queue so that it can
+ *    try to become the writer.
+ * 9. If the PendingStoreRequest enqueued by this thread is NOT COMPLETED, park and go back to step 2 when unparked.
  * </pre>
  *
- * The spin lock between step 2 to step 8 is necessary as it guarantees events enqueued by all threads would eventually
- * get written and flushed.
+ * Step 8 is necessary as it guarantees events enqueued by all threads would eventually get written and flushed.
+ * A thread can only fail the CAS in step 2 if some other thread is holding the flag, which will perform step 8
+ * after releasing it.
  */
 @ThreadSafe
 final class ConcurrentMessageWriter implements Closeable {
@@ -65,6 +76,7 @@ final class ConcurrentMessageWriter implements Closeable {
   private final StoreRequestWriter<?> messagesWriter;
   private final MetricsCollector metricsCollector;
   private final PendingStoreQueue pendingStoreQueue;
+  private final long lingerNanos;
   private final AtomicBoolean writerFlag;
   private final AtomicBoolean closed;
 
@@ -76,16 +88,37 @@ final class ConcurrentMessageWriter implements Closeable {
     this(messagesWriter, new NoopMetricsContext());
   }
 
+  /**
+   * Constructor with unbounded batch size and no linger time. This constructor should only be used in unit-testing.
+   */
+  @VisibleForTesting
+  ConcurrentMessageWriter(StoreRequestWriter<?> messagesWriter, MetricsCollector metricsCollector) {
+    this(messagesWriter, metricsCollector, new MessageWriteNotifier(), Long.MAX_VALUE, 0L);
+  }
+
   /**
    * Constructor.
    *
    * @param messagesWriter the {@link StoreRequestWriter} for persisting {@link StoreRequest}.
    * @param metricsCollector the {@link MetricsCollector} for collecting metrics emitted by this class.
+   * @param writeNotifier the {@link MessageWriteNotifier} to notify after messages are successfully written.
+   * @param maxBatchBytes the maximum number of payload bytes to write in one batch. A batch always contains
+   *                      at least one {@link StoreRequest}, regardless of its size.
+   * @param lingerMillis the number of milliseconds the writer waits for more requests before writing a batch.
+   *                     A value of {@code 0} means no waiting.
    */
-  ConcurrentMessageWriter(StoreRequestWriter<?> messagesWriter, MetricsCollector metricsCollector) {
+  ConcurrentMessageWriter(StoreRequestWriter<?> messagesWriter, MetricsCollector metricsCollector,
+                          MessageWriteNotifier writeNotifier, long maxBatchBytes, long lingerMillis) {
+    if (maxBatchBytes <= 0) {
+      throw new IllegalArgumentException("Maximum batch size must be positive: " + maxBatchBytes);
+    }
+    if (lingerMillis < 0) {
+      throw new IllegalArgumentException("Linger time must not be negative: " + lingerMillis);
+    }
     this.messagesWriter = messagesWriter;
     this.metricsCollector = metricsCollector;
-    this.pendingStoreQueue = new PendingStoreQueue(metricsCollector);
+    this.pendingStoreQueue = new PendingStoreQueue(metricsCollector, writeNotifier, maxBatchBytes);
+    this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
     this.writerFlag = new AtomicBoolean();
     this.closed = new AtomicBoolean();
   }
@@ -111,11 +144,17 @@ final class ConcurrentMessageWriter implements Closeable {
 
     metricsCollector.increment("persist.requested", 1L);
 
+    boolean interrupted = false;
     while (!pendingStoreRequest.isCompleted()) {
       if (!tryWrite()) {
-        Thread.yield();
+        LockSupport.park(this);
+        // Clear the interrupt flag so that park won't return immediately, and restore it after completion.
+        interrupted = Thread.interrupted() || interrupted;
       }
     }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
 
     if (pendingStoreRequest.isSuccess()) {
       metricsCollector.increment("persist.success", 1L);
@@ -134,7 +173,7 @@ final class ConcurrentMessageWriter implements Closeable {
   }
 
   /**
-   * Tries to acquire the writer flag and persist the pending requests.
+   * Tries to acquire the writer flag and persist one batch of the pending requests.
    *
    * @return {@code true} if acquired the writer flag and called {@link PendingStoreQueue#persist(StoreRequestWriter)};
    *         otherwise {@code false} will be returned.
@@ -144,10 +183,15 @@ final class ConcurrentMessageWriter implements Closeable {
       return false;
     }
     try {
+      if (lingerNanos > 0) {
+        Uninterruptibles.sleepUninterruptibly(lingerNanos, TimeUnit.NANOSECONDS);
+      }
       pendingStoreQueue.persist(messagesWriter);
     } finally {
       writerFlag.set(false);
     }
+    // Hand over the writer role to a thread that still has pending request.
+    pendingStoreQueue.signalHead();
     return true;
   }
 
@@ -157,27 +201,32 @@ final class ConcurrentMessageWriter implements Closeable {
       return;
     }
     // Flush everything in the queue.
-    // When this thread can grab the writer flag, all pending write requests must be completed since the closed
-    // flag was already set to false.
-    while (!tryWrite()) {
+    // Since the closed flag was already set to true, no new request can be added. Keep writing until the
+    // writer flag is acquired by this thread and the queue is empty.
+    while (!tryWrite() || !pendingStoreQueue.isEmpty()) {
       Thread.yield();
     }
     messagesWriter.close();
   }
 
   /**
-   * A resettable {@link Iterator} to provide {@link StoreRequest} to {@link StoreRequestWriter}.
-   * Except the {@link #enqueue(PendingStoreRequest)} method, all methods on this class can only be
-   * called while holding the writer flag.
+   * A queue of {@link PendingStoreRequest} to provide {@link StoreRequest} to {@link StoreRequestWriter} in
+   * batches. Except the {@link #enqueue(PendingStoreRequest)}, {@link #isEmpty()} and {@link #signalHead()} methods,
+   * all methods on this class can only be called while holding the writer flag.
    */
   private static final class PendingStoreQueue {
 
     private final MetricsCollector metricsCollector;
+    private final MessageWriteNotifier writeNotifier;
+    private final long maxBatchBytes;
     private final Queue<PendingStoreRequest> writeQueue;
     private final List<PendingStoreRequest> inflightRequests;
 
-    private PendingStoreQueue(MetricsCollector metricsCollector) {
+    private PendingStoreQueue(MetricsCollector metricsCollector, MessageWriteNotifier writeNotifier,
+                              long maxBatchBytes) {
       this.metricsCollector = metricsCollector;
+      this.writeNotifier = writeNotifier;
+      this.maxBatchBytes = maxBatchBytes;
       this.writeQueue = new ConcurrentLinkedQueue<>();
       this.inflightRequests = new ArrayList<>(100);
     }
@@ -190,32 +239,97 @@ final class ConcurrentMessageWriter implements Closeable {
     }
 
     /**
-     * Persists all {@link PendingStoreRequest} currently in the queue with the given writer.
+     * Returns {@code true} if there is no pending request in the queue.
+     */
+    boolean isEmpty() {
+      return writeQueue.isEmpty();
+    }
+
+    /**
+     * Unparks the thread that enqueued the request at the head of the queue, if there is one.
+     */
+    void signalHead() {
+      PendingStoreRequest head = writeQueue.peek();
+      if (head != null) {
+        head.signalWaiter();
+      }
+    }
+
+    /**
+     * Persists a batch of {@link PendingStoreRequest} from the queue with the given writer. The batch ends when
+     * the queue is empty or when the payload size of the batch reached the max batch size.
      */
     void persist(StoreRequestWriter<?> writer) {
-      // Capture all current events.
-      // The reason for capturing instead of using a live iterator is to avoid the possible case of infinite write
-      // time. E.g. while generating the entry to write to the storage table, a new store request get enqueued.
-      // The number of requests in the queue is bounded by the number of threads that call this method.
+      // The batch is bounded by the max batch size instead of by capturing all current events up front.
+      // This avoids the possible case of infinite write time. E.g. while generating the entry to write to
+      // the storage table, a new store request get enqueued.
+      // The number of requests in the queue is also bounded by the number of threads that call this method.
       // Since this method is expected to be called (indirectly) from a http handler thread, that is bounded by
       // the thread pool size used by the http service.
       inflightRequests.clear();
-      PendingStoreRequest request = writeQueue.poll();
-      while (request != null) {
-        inflightRequests.add(request);
-        request = writeQueue.poll();
-      }
-
-      metricsCollector.gauge("persist.queue.size", inflightRequests.size());
 
+      long startNanos = System.nanoTime();
       try {
-        writer.write(inflightRequests.iterator());
+        writer.write(new AbstractIterator<PendingStoreRequest>() {
+          private long batchBytes;
+
+          @Override
+          protected PendingStoreRequest computeNext() {
+            // Payloads of a request are consumed before the next request is asked for, hence the size
+            // of the last request is known at this point.
+            if (!inflightRequests.isEmpty()) {
+              batchBytes += inflightRequests.get(inflightRequests.size() - 1).getPayloadBytes();
+              if (batchBytes >= maxBatchBytes) {
+                return endOfData();
+              }
+            }
+            PendingStoreRequest request = writeQueue.poll();
+            if (request == null) {
+              return endOfData();
+            }
+            inflightRequests.add(request);
+            return request;
+          }
+        });
+        emitMetrics(startNanos);
+        notifyWritten();
         completeAll(null);
       } catch (Throwable t) {
+        emitMetrics(startNanos);
         completeAll(t);
       }
     }
 
+    /**
+     * Emits metrics about the current batch.
+     */
+    private void emitMetrics(long startNanos) {
+      long endNanos = System.nanoTime();
+      long maxWaitNanos = 0L;
+      long batchBytes = 0L;
+      for (PendingStoreRequest request : inflightRequests) {
+        maxWaitNanos = Math.max(maxWaitNanos, startNanos - request.getEnqueueTimeNanos());
+        batchBytes += request.getPayloadBytes();
+      }
+      metricsCollector.gauge("persist.queue.size", inflightRequests.size());
+      metricsCollector.gauge("persist.batch.bytes", batchBytes);
+      metricsCollector.gauge("persist.queue.wait.ms", TimeUnit.NANOSECONDS.toMillis(maxWaitNanos));
+      metricsCollector.gauge("persist.write.latency.ms", TimeUnit.NANOSECONDS.toMillis(endNanos - startNanos));
+    }
+
+    /**
+     * Notifies the {@link MessageWriteNotifier} for topics of all inflight requests.
+     */
+    private void notifyWritten() {
+      TopicId lastTopicId = null;
+      for (PendingStoreRequest request : inflightRequests) {
+        if (!request.getTopicId().equals(lastTopicId)) {
+          lastTopicId = request.getTopicId();
+          writeNotifier.messagesWritten(lastTopicId);
+        }
+      }
+    }
+
     /**
      * Marks all inflight requests as collected through the {@link Iterator#next()} method as completed.
      * This method must be called while holding the writer flag.
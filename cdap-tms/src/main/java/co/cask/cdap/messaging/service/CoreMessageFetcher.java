@@ -16,6 +16,8 @@
 
 package co.cask.cdap.messaging.service;
 
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.dataset.lib.AbstractCloseableIterator;
 import co.cask.cdap.api.dataset.lib.CloseableIterator;
 import co.cask.cdap.messaging.MessageFetcher;
 import co.cask.cdap.messaging.TopicMetadata;
@@ -25,11 +27,17 @@ import co.cask.cdap.messaging.store.MessageTable;
 import co.cask.cdap.messaging.store.PayloadTable;
 import co.cask.cdap.proto.id.TopicId;
 import com.google.common.base.Throwables;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.PeekingIterator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 
@@ -42,22 +50,106 @@ final class CoreMessageFetcher extends MessageFetcher {
   private static final Logger LOG = LoggerFactory.getLogger(CoreMessageFetcher.class);
 
   private final TopicMetadata topicMetadata;
+  private final List<TopicMetadata> partitions;
+  private final MessageWriteNotifier writeNotifier;
   private final TableProvider<MessageTable> messageTableProvider;
   private final TableProvider<PayloadTable> payloadTableProvider;
 
+  /**
+   * Constructor.
+   *
+   * @param topicMetadata the {@link TopicMetadata} of the topic to fetch from
+   * @param partitions list of {@link TopicMetadata} for storing messages of each partition of the topic. The
+   *                   list index is the partition number
+   * @param writeNotifier the {@link MessageWriteNotifier} for waiting for new messages
+   * @param messageTableProvider provider for the {@link MessageTable}
+   * @param payloadTableProvider provider for the {@link PayloadTable}
+   */
   CoreMessageFetcher(TopicMetadata topicMetadata,
+                     List<TopicMetadata> partitions,
+                     MessageWriteNotifier writeNotifier,
                      TableProvider<MessageTable> messageTableProvider,
                      TableProvider<PayloadTable> payloadTableProvider) {
     this.topicMetadata = topicMetadata;
+    this.partitions = partitions;
+    this.writeNotifier = writeNotifier;
     this.messageTableProvider = messageTableProvider;
     this.payloadTableProvider = payloadTableProvider;
   }
 
   @Override
   public CloseableIterator<RawMessage> fetch() throws IOException {
+    long waitTimeoutMillis = getWaitTimeout();
+    if (waitTimeoutMillis <= 0) {
+      return doFetch();
+    }
+
+    // Keep fetching until there are messages or the wait timeout reached.
+    // The generation of the write signal is acquired before fetching so that no write performed after
+    // the fetch started would be missed.
+    MessageWriteNotifier.WriteSignal signal = writeNotifier.getSignal(topicMetadata.getTopicId());
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitTimeoutMillis);
+    while (true) {
+      long generation = signal.getGeneration();
+      CloseableIterator<RawMessage> iterator = doFetch();
+      long remaining = deadline - System.nanoTime();
+      if (remaining <= 0 || iterator.hasNext()) {
+        return iterator;
+      }
+      iterator.close();
+
+      try {
+        if (!signal.await(generation, remaining, TimeUnit.NANOSECONDS)) {
+          // Writes from other messaging service instances are not notified, hence always fetch one more time
+          return doFetch();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return doFetch();
+      }
+    }
+  }
+
+  /**
+   * Creates a {@link CloseableIterator} that scans the {@link MessageTable} and {@link PayloadTable}.
+   */
+  private CloseableIterator<RawMessage> doFetch() throws IOException {
+    Integer partition = getPartition();
+    if (partition != null) {
+      if (partition >= partitions.size()) {
+        throw new IllegalArgumentException("Partition " + partition + " does not exist in topic "
+                                             + topicMetadata.getTopicId() + " with "
+                                             + partitions.size() + " partitions");
+      }
+      return fetchPartition(partition);
+    }
+    if (partitions.size() == 1) {
+      return fetchPartition(0);
+    }
+
+    // Fetch from all partitions and merge them
+    List<CloseableIterator<RawMessage>> iterators = new ArrayList<>(partitions.size());
+    try {
+      for (int i = 0; i < partitions.size(); i++) {
+        iterators.add(fetchPartition(i));
+      }
+    } catch (Throwable t) {
+      for (CloseableIterator<RawMessage> iterator : iterators) {
+        closeQuietly(iterator);
+      }
+      throw t;
+    }
+    return new MergedMessageIterator(iterators, getLimit());
+  }
+
+  /**
+   * Creates a {@link CloseableIterator} that scans the {@link MessageTable} and {@link PayloadTable} for
+   * messages stored under the given partition.
+   */
+  private CloseableIterator<RawMessage> fetchPartition(int partition) throws IOException {
     MessageTable messageTable = messageTableProvider.get();
     try {
-      return new MessageCloseableIterator(messageTable);
+      return new MessageCloseableIterator(partitions.get(partition), partition, messageTable);
     } catch (Throwable t) {
       closeQuietly(messageTable);
       throw t;
@@ -114,6 +206,8 @@ final class CoreMessageFetcher extends MessageFetcher {
   private final class MessageCloseableIterator implements CloseableIterator<RawMessage> {
 
     private final CloseableIterator<MessageTable.Entry> messageIterator;
+    private final TopicMetadata topicMetadata;
+    private final int partition;
     private final TopicId topicId;
     private final MessageTable messageTable;
     private RawMessage nextMessage;
@@ -123,15 +217,27 @@ final class CoreMessageFetcher extends MessageFetcher {
     private int messageLimit;
     private PayloadTable payloadTable;
 
-    MessageCloseableIterator(MessageTable messageTable) throws IOException {
+    MessageCloseableIterator(TopicMetadata topicMetadata, int partition,
+                             MessageTable messageTable) throws IOException {
+      this.topicMetadata = topicMetadata;
+      this.partition = partition;
       this.topicId = topicMetadata.getTopicId();
       this.messageTable = messageTable;
-      this.inclusive = isIncludeStart();
       this.messageLimit = getLimit();
 
       long ttl = topicMetadata.getTTL();
-      MessageId startOffset = getStartOffset() == null ? null : new MessageId(getStartOffset());
+      MessageId startOffset;
       Long startTime = getStartTime();
+      byte[] resumeMessage = getResumeMessages().get(partition);
+      if (resumeMessage != null) {
+        // Resume right after the last message consumed from this partition
+        startOffset = new MessageId(resumeMessage);
+        startTime = null;
+        this.inclusive = false;
+      } else {
+        startOffset = getStartOffset() == null ? null : new MessageId(getStartOffset());
+        this.inclusive = isIncludeStart();
+      }
 
       // Lower bound of messages that are still valid
       long smallestPublishTime = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(ttl);
@@ -149,7 +255,7 @@ final class CoreMessageFetcher extends MessageFetcher {
           messageIterator = messageTable.fetch(topicMetadata, createMessageTableMessageId(startOffset),
                                                true, messageLimit, getTransaction());
         } else {
-          messageIterator = messageTable.fetch(topicMetadata, startOffset, isIncludeStart(),
+          messageIterator = messageTable.fetch(topicMetadata, startOffset, inclusive,
                                                messageLimit, getTransaction());
         }
       }
@@ -168,7 +274,8 @@ final class CoreMessageFetcher extends MessageFetcher {
         if (payloadIterator != null && payloadIterator.hasNext()) {
           PayloadTable.Entry payloadEntry = payloadIterator.next();
           // messageEntry is guaranteed to be non-null if payloadIterator is non-null
-          nextMessage = new RawMessage(createMessageId(messageEntry, payloadEntry), payloadEntry.getPayload());
+          nextMessage = new RawMessage(createMessageId(messageEntry, payloadEntry), payloadEntry.getPayload(),
+                                       partition);
           break;
         }
 
@@ -189,7 +296,7 @@ final class CoreMessageFetcher extends MessageFetcher {
             }
           } else {
             // Otherwise, the message entry is the next message
-            nextMessage = new RawMessage(createMessageId(messageEntry, null), messageEntry.getPayload());
+            nextMessage = new RawMessage(createMessageId(messageEntry, null), messageEntry.getPayload(), partition);
           }
         } else {
           // If there is no more message from the message iterator as well, then no more message to fetch
@@ -224,4 +331,52 @@ final class CoreMessageFetcher extends MessageFetcher {
       closeQuietly(messageTable);
     }
   }
+
+  /**
+   * A {@link CloseableIterator} that merges messages from multiple {@link CloseableIterator} in the order of
+   * message ids.
+   */
+  private final class MergedMessageIterator extends AbstractCloseableIterator<RawMessage> {
+
+    private final List<CloseableIterator<RawMessage>> iterators;
+    private final PriorityQueue<PeekingIterator<RawMessage>> queue;
+    private int messageLimit;
+
+    MergedMessageIterator(List<CloseableIterator<RawMessage>> iterators, int limit) {
+      this.iterators = iterators;
+      this.queue = new PriorityQueue<>(iterators.size(), new Comparator<PeekingIterator<RawMessage>>() {
+        @Override
+        public int compare(PeekingIterator<RawMessage> o1, PeekingIterator<RawMessage> o2) {
+          return Bytes.compareTo(o1.peek().getId(), o2.peek().getId());
+        }
+      });
+      this.messageLimit = limit;
+      for (CloseableIterator<RawMessage> iterator : iterators) {
+        if (iterator.hasNext()) {
+          queue.add(Iterators.peekingIterator(iterator));
+        }
+      }
+    }
+
+    @Override
+    protected RawMessage computeNext() {
+      if (messageLimit <= 0 || queue.isEmpty()) {
+        return endOfData();
+      }
+      PeekingIterator<RawMessage> iterator = queue.poll();
+      RawMessage message = iterator.next();
+      if (iterator.hasNext()) {
+        queue.add(iterator);
+      }
+      messageLimit--;
+      return message;
+    }
+
+    @Override
+    public void close() {
+      for (CloseableIterator<RawMessage> iterator : iterators) {
+        closeQuietly(iterator);
+      }
+    }
+  }
 }
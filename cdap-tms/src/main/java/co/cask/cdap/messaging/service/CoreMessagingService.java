@@ -51,6 +51,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -62,6 +63,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
 
@@ -74,6 +76,11 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
 
   private static final Logger LOG = LoggerFactory.getLogger(CoreMessagingService.class);
 
+  // Partitions other than partition 0 of a topic are stored as internal topics named <topic>--p<partition>.
+  // Internal topics are identified by the TopicMetadata.PARTITION_OF_KEY property, not by the name, since
+  // the name may as well be used by a user topic.
+  private static final String PARTITION_SEPARATOR = "--p";
+
   private final CConfiguration cConf;
   private final TableFactory tableFactory;
   private final LoadingCache<TopicId, TopicMetadata> topicCache;
@@ -81,6 +88,8 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
   private final LoadingCache<TopicId, ConcurrentMessageWriter> payloadTableWriterCache;
   private final TimeProvider timeProvider;
   private final MetricsCollectionService metricsCollectionService;
+  private final MessageWriteNotifier writeNotifier;
+  private final AtomicInteger publishCounter;
 
   @Inject
   CoreMessagingService(CConfiguration cConf, TableFactory tableFactory,
@@ -93,6 +102,8 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
                        MetricsCollectionService metricsCollectionService) {
     this.cConf = cConf;
     this.tableFactory = tableFactory;
+    this.writeNotifier = new MessageWriteNotifier();
+    this.publishCounter = new AtomicInteger();
     this.topicCache = createTopicCache();
     this.messageTableWriterCache = createTableWriterCache(true, cConf);
     this.payloadTableWriterCache = createTableWriterCache(false, cConf);
@@ -112,30 +123,71 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
 
   @Override
   public void createTopic(TopicMetadata topicMetadata) throws TopicAlreadyExistsException, IOException {
+    TopicId topicId = topicMetadata.getTopicId();
     try (MetadataTable metadataTable = createMetadataTable()) {
       Map<String, String> properties = createDefaultProperties();
       properties.putAll(topicMetadata.getProperties());
-      metadataTable.createTopic(new TopicMetadata(topicMetadata.getTopicId(), properties, true));
+      properties.remove(TopicMetadata.PARTITION_OF_KEY);
+      TopicMetadata metadata = new TopicMetadata(topicId, properties, true);
+      checkPartitionTopics(metadataTable, metadata);
+      metadataTable.createTopic(metadata);
+      createPartitionTopics(metadataTable, metadata);
     }
   }
 
   @Override
   public void updateTopic(TopicMetadata topicMetadata) throws TopicNotFoundException, IOException {
+    TopicId topicId = topicMetadata.getTopicId();
     try (MetadataTable metadataTable = createMetadataTable()) {
       Map<String, String> properties = createDefaultProperties();
       properties.putAll(topicMetadata.getProperties());
-      metadataTable.updateTopic(new TopicMetadata(topicMetadata.getTopicId(), properties, true));
-      topicCache.invalidate(topicMetadata.getTopicId());
+      TopicMetadata existing = metadataTable.getMetadata(topicId);
+      // Whether a topic is a partition topic cannot be changed through update
+      properties.remove(TopicMetadata.PARTITION_OF_KEY);
+      if (existing.getProperties().containsKey(TopicMetadata.PARTITION_OF_KEY)) {
+        properties.put(TopicMetadata.PARTITION_OF_KEY, existing.getProperties().get(TopicMetadata.PARTITION_OF_KEY));
+      }
+      TopicMetadata metadata = new TopicMetadata(topicId, properties, true);
+
+      int partitions = existing.getPartitions();
+      if (metadata.getPartitions() < partitions) {
+        throw new IllegalArgumentException("Number of partitions of topic " + topicId
+                                             + " cannot be reduced from " + partitions);
+      }
+      checkPartitionTopics(metadataTable, metadata);
+
+      metadataTable.updateTopic(metadata);
+      topicCache.invalidate(topicId);
+
+      // Propagates the new properties to the existing partitions and creates the new ones
+      for (int i = 1; i < partitions; i++) {
+        TopicId partitionTopicId = getPartitionTopicId(topicId, i);
+        metadataTable.updateTopic(createPartitionMetadata(partitionTopicId, metadata));
+        topicCache.invalidate(partitionTopicId);
+      }
+      createPartitionTopics(metadataTable, metadata);
     }
   }
 
   @Override
   public void deleteTopic(TopicId topicId) throws TopicNotFoundException, IOException {
     try (MetadataTable metadataTable = createMetadataTable()) {
+      int partitions = metadataTable.getMetadata(topicId).getPartitions();
       metadataTable.deleteTopic(topicId);
-      topicCache.invalidate(topicId);
-      messageTableWriterCache.invalidate(topicId);
-      payloadTableWriterCache.invalidate(topicId);
+      invalidateTopic(topicId);
+
+      for (int i = 1; i < partitions; i++) {
+        TopicId partitionTopicId = getPartitionTopicId(topicId, i);
+        try {
+          if (isPartitionOf(metadataTable.getMetadata(partitionTopicId), topicId)) {
+            metadataTable.deleteTopic(partitionTopicId);
+          }
+        } catch (TopicNotFoundException e) {
+          // This can happen if a previous topic creation failed half way
+          LOG.debug("Partition topic {} of topic {} does not exist", partitionTopicId, topicId);
+        }
+        invalidateTopic(partitionTopicId);
+      }
     }
   }
 
@@ -153,14 +205,26 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
   @Override
   public List<TopicId> listTopics(NamespaceId namespaceId) throws IOException {
     try (MetadataTable metadataTable = createMetadataTable()) {
-      return metadataTable.listTopics(namespaceId);
+      List<TopicId> topics = new ArrayList<>();
+      for (TopicId topicId : metadataTable.listTopics(namespaceId)) {
+        // Only topics with names that can be a partition topic name need to have the metadata checked
+        if (!topicId.getTopic().contains(PARTITION_SEPARATOR) || !isPartitionTopic(metadataTable, topicId)) {
+          topics.add(topicId);
+        }
+      }
+      return topics;
     }
   }
 
   @Override
   public MessageFetcher prepareFetch(final TopicId topicId) throws TopicNotFoundException, IOException {
     final TopicMetadata metadata = getTopic(topicId);
-    return new CoreMessageFetcher(metadata, new TableProvider<MessageTable>() {
+    List<TopicMetadata> partitions = new ArrayList<>(metadata.getPartitions());
+    partitions.add(metadata);
+    for (int i = 1; i < metadata.getPartitions(); i++) {
+      partitions.add(getTopic(getPartitionTopicId(topicId, i)));
+    }
+    return new CoreMessageFetcher(metadata, partitions, writeNotifier, new TableProvider<MessageTable>() {
       @Override
       public MessageTable get() throws IOException {
         return createMessageTable(metadata);
@@ -177,8 +241,18 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
   @Override
   public RollbackDetail publish(StoreRequest request) throws TopicNotFoundException, IOException {
     try {
-      TopicMetadata metadata = topicCache.get(request.getTopicId());
-      return messageTableWriterCache.get(request.getTopicId()).persist(request, metadata);
+      TopicId topicId = request.getTopicId();
+      TopicMetadata metadata = topicCache.get(topicId);
+
+      // Transactional messages always go to the first partition so that a single rollback can undo them.
+      // Non-transactional messages are spread across partitions, each of which has its own writer.
+      int partitions = metadata.getPartitions();
+      if (!request.isTransactional() && partitions > 1) {
+        int partition = (publishCounter.getAndIncrement() & Integer.MAX_VALUE) % partitions;
+        topicId = getPartitionTopicId(topicId, partition);
+        metadata = topicCache.get(topicId);
+      }
+      return messageTableWriterCache.get(topicId).persist(request, metadata);
     } catch (ExecutionException e) {
       Throwable cause = Objects.firstNonNull(e.getCause(), e);
       Throwables.propagateIfPossible(cause, TopicNotFoundException.class, IOException.class);
@@ -361,6 +435,8 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
   private LoadingCache<TopicId, ConcurrentMessageWriter> createTableWriterCache(final boolean messageTable,
                                                                                 final CConfiguration cConf) {
     long expireSecs = cConf.getLong(Constants.MessagingSystem.TABLE_CACHE_EXPIRATION_SECONDS);
+    final long maxBatchBytes = cConf.getLong(Constants.MessagingSystem.WRITER_BATCH_MAX_BYTES);
+    final long lingerMillis = cConf.getLong(Constants.MessagingSystem.WRITER_BATCH_LINGER_MS);
 
     return CacheBuilder.newBuilder()
       .expireAfterAccess(expireSecs, TimeUnit.SECONDS)
@@ -392,11 +468,99 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
             Constants.Metrics.Tag.TABLE, messageTable ? "message" : "payload"
           ));
 
-          return new ConcurrentMessageWriter(messagesWriter, metricsContext);
+          // Only writes to the message table make messages visible to fetchers
+          MessageWriteNotifier notifier = messageTable ? writeNotifier : new MessageWriteNotifier();
+          return new ConcurrentMessageWriter(messagesWriter, metricsContext, notifier, maxBatchBytes, lingerMillis);
         }
       });
   }
 
+  /**
+   * Verifies that names of the internal topics for storing partitions of the given topic are not taken by other
+   * topics.
+   *
+   * @throws IllegalArgumentException if the name of a partition topic is used by a topic that is not a partition
+   *                                  of the given topic
+   */
+  private void checkPartitionTopics(MetadataTable metadataTable, TopicMetadata metadata) throws IOException {
+    for (int i = 1; i < metadata.getPartitions(); i++) {
+      TopicId partitionTopicId = getPartitionTopicId(metadata.getTopicId(), i);
+      try {
+        if (!isPartitionOf(metadataTable.getMetadata(partitionTopicId), metadata.getTopicId())) {
+          throw new IllegalArgumentException("Cannot use " + metadata.getPartitions() + " partitions for topic "
+                                               + metadata.getTopicId() + " since topic " + partitionTopicId
+                                               + " already exists");
+        }
+      } catch (TopicNotFoundException e) {
+        // Expected
+      }
+    }
+  }
+
+  /**
+   * Creates the internal topics for storing partitions of the given topic. Partitions that already exist are left
+   * untouched, so that this method can be called again to complete a previous partial creation.
+   */
+  private void createPartitionTopics(MetadataTable metadataTable, TopicMetadata metadata) throws IOException {
+    for (int i = 1; i < metadata.getPartitions(); i++) {
+      TopicId partitionTopicId = getPartitionTopicId(metadata.getTopicId(), i);
+      try {
+        metadataTable.createTopic(createPartitionMetadata(partitionTopicId, metadata));
+      } catch (TopicAlreadyExistsException e) {
+        LOG.debug("Partition topic {} already exists", partitionTopicId);
+      }
+    }
+  }
+
+  /**
+   * Creates the {@link TopicMetadata} of a partition topic based on the {@link TopicMetadata} of the topic.
+   */
+  private TopicMetadata createPartitionMetadata(TopicId partitionTopicId, TopicMetadata metadata) {
+    Map<String, String> properties = new HashMap<>(metadata.getProperties());
+    properties.remove(TopicMetadata.PARTITIONS_KEY);
+    properties.put(TopicMetadata.PARTITION_OF_KEY, metadata.getTopicId().getTopic());
+    return new TopicMetadata(partitionTopicId, properties, true);
+  }
+
+  /**
+   * Removes all cached states of the given topic.
+   */
+  private void invalidateTopic(TopicId topicId) {
+    topicCache.invalidate(topicId);
+    messageTableWriterCache.invalidate(topicId);
+    payloadTableWriterCache.invalidate(topicId);
+  }
+
+  /**
+   * Returns the {@link TopicId} of the internal topic that stores the given partition of a topic.
+   */
+  private static TopicId getPartitionTopicId(TopicId topicId, int partition) {
+    if (partition == 0) {
+      return topicId;
+    }
+    return topicId.getParent().topic(topicId.getTopic() + PARTITION_SEPARATOR + partition);
+  }
+
+  /**
+   * Returns {@code true} if the given {@link TopicId} is the internal topic of a topic partition.
+   */
+  private static boolean isPartitionTopic(MetadataTable metadataTable, TopicId topicId) throws IOException {
+    try {
+      return metadataTable.getMetadata(topicId).getProperties().containsKey(TopicMetadata.PARTITION_OF_KEY);
+    } catch (TopicNotFoundException e) {
+      // The topic was deleted concurrently, hence not a partition topic of an existing topic
+      return false;
+    }
+  }
+
+  /**
+   * Returns {@code true} if the given {@link TopicMetadata} is of an internal topic for a partition of
+   * the given topic.
+   */
+  private static boolean isPartitionOf(TopicMetadata metadata, TopicId topicId) {
+    return topicId.getTopic().equals(metadata.getProperties().get(TopicMetadata.PARTITION_OF_KEY));
+  }
+
   /**
    * Creates a new instance of {@link MetadataTable}.
    */
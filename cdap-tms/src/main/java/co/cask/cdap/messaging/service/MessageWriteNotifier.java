@@ -0,0 +1,106 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.messaging.service;
+
+import co.cask.cdap.proto.id.TopicId;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+import java.util.concurrent.TimeUnit;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Provides notification to message fetchers that are waiting for new messages being written to a topic.
+ * Only writes performed through the same {@link CoreMessagingService} instance are notified.
+ */
+@ThreadSafe
+final class MessageWriteNotifier {
+
+  // Using weak values so that signals are only retained while there are fetchers waiting on it
+  private final LoadingCache<TopicId, WriteSignal> signals = CacheBuilder.newBuilder()
+    .weakValues()
+    .build(new CacheLoader<TopicId, WriteSignal>() {
+      @Override
+      public WriteSignal load(TopicId topicId) throws Exception {
+        return new WriteSignal();
+      }
+    });
+
+  /**
+   * Returns the {@link WriteSignal} for the given topic. The caller should hold on to the returned instance
+   * for as long as it needs to wait on it.
+   */
+  WriteSignal getSignal(TopicId topicId) {
+    return signals.getUnchecked(topicId);
+  }
+
+  /**
+   * Notifies all fetchers that are waiting on the given topic that new messages were written.
+   */
+  void messagesWritten(TopicId topicId) {
+    WriteSignal signal = signals.getIfPresent(topicId);
+    if (signal != null) {
+      signal.signal();
+    }
+  }
+
+  /**
+   * A signal that gets triggered on every write to a topic.
+   */
+  static final class WriteSignal {
+
+    private long generation;
+
+    private WriteSignal() {
+    }
+
+    /**
+     * Returns the current generation of this signal. The generation gets incremented on every write.
+     */
+    synchronized long getGeneration() {
+      return generation;
+    }
+
+    /**
+     * Waits until the generation of this signal is different than the given one.
+     *
+     * @param generation the generation as returned by {@link #getGeneration()}
+     * @param timeout the maximum time to wait
+     * @param unit the unit of the timeout
+     * @return {@code true} if the generation has changed, {@code false} if timeout reached
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    synchronized boolean await(long generation, long timeout, TimeUnit unit) throws InterruptedException {
+      long remaining = unit.toNanos(timeout);
+      long deadline = System.nanoTime() + remaining;
+      while (this.generation == generation) {
+        if (remaining <= 0) {
+          return false;
+        }
+        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        remaining = deadline - System.nanoTime();
+      }
+      return true;
+    }
+
+    private synchronized void signal() {
+      generation++;
+      notifyAll();
+    }
+  }
+}
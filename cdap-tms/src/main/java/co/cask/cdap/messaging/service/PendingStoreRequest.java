@@ -19,17 +19,23 @@ package co.cask.cdap.messaging.service;
 import co.cask.cdap.messaging.StoreRequest;
 import co.cask.cdap.messaging.TopicMetadata;
 
+import java.util.concurrent.locks.LockSupport;
 import javax.annotation.Nullable;
 
 /**
  * A {@link StoreRequest} that represents a pending store request to the underlying storage table.
+ * The thread that created an instance of this class is the waiter thread, which will get unparked
+ * when the request is completed or when it should attempt to become the writer.
  */
 final class PendingStoreRequest extends StoreRequest {
 
   private final StoreRequest originalRequest;
   private final TopicMetadata metadata;
+  private final Thread waiter;
+  private final long enqueueTimeNanos;
 
-  private boolean completed;
+  private volatile boolean completed;
+  private long payloadBytes;
   private long startTimestamp;
   private long endTimestamp;
   private int startSequenceId;
@@ -41,6 +47,8 @@ final class PendingStoreRequest extends StoreRequest {
           originalRequest.getTransactionWritePointer());
     this.originalRequest = originalRequest;
     this.metadata = topicMetadata;
+    this.waiter = Thread.currentThread();
+    this.enqueueTimeNanos = System.nanoTime();
   }
 
   TopicMetadata getTopicMetadata() {
@@ -64,8 +72,30 @@ final class PendingStoreRequest extends StoreRequest {
   }
 
   void completed(@Nullable Throwable failureCause) {
-    completed = true;
     this.failureCause = failureCause;
+    completed = true;
+    LockSupport.unpark(waiter);
+  }
+
+  /**
+   * Unparks the thread that is waiting for this request to complete.
+   */
+  void signalWaiter() {
+    LockSupport.unpark(waiter);
+  }
+
+  /**
+   * Returns the {@link System#nanoTime()} when this request was created.
+   */
+  long getEnqueueTimeNanos() {
+    return enqueueTimeNanos;
+  }
+
+  /**
+   * Returns the total number of payload bytes consumed from this request so far.
+   */
+  long getPayloadBytes() {
+    return payloadBytes;
   }
 
   void setStartTimestamp(long startTimestamp) {
@@ -103,7 +133,12 @@ final class PendingStoreRequest extends StoreRequest {
   @Nullable
   @Override
   protected byte[] doComputeNext() {
-    return originalRequest.hasNext() ? originalRequest.next() : null;
+    if (!originalRequest.hasNext()) {
+      return null;
+    }
+    byte[] payload = originalRequest.next();
+    payloadBytes += payload.length;
+    return payload;
   }
 
   @Override
@@ -23,11 +23,14 @@ import co.cask.cdap.api.messaging.TopicNotFoundException;
 import co.cask.cdap.api.metrics.MetricsCollectionService;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.common.discovery.RandomEndpointStrategy;
 import co.cask.cdap.common.guice.ConfigModule;
 import co.cask.cdap.common.guice.DiscoveryRuntimeModule;
 import co.cask.cdap.common.metrics.NoOpMetricsCollectionService;
+import co.cask.cdap.messaging.MessageFetcher;
 import co.cask.cdap.messaging.MessagingService;
 import co.cask.cdap.messaging.RollbackDetail;
+import co.cask.cdap.messaging.Schemas;
 import co.cask.cdap.messaging.TopicMetadata;
 import co.cask.cdap.messaging.client.ClientMessagingService;
 import co.cask.cdap.messaging.client.StoreRequestBuilder;
@@ -36,12 +39,23 @@ import co.cask.cdap.messaging.data.RawMessage;
 import co.cask.cdap.messaging.guice.MessagingServerRuntimeModule;
 import co.cask.cdap.proto.id.NamespaceId;
 import co.cask.cdap.proto.id.TopicId;
+import com.google.common.base.Stopwatch;
 import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
 import com.google.common.collect.Iterators;
 import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.Encoder;
+import org.apache.avro.io.EncoderFactory;
 import org.apache.tephra.Transaction;
+import org.apache.twill.discovery.Discoverable;
 import org.apache.twill.discovery.DiscoveryServiceClient;
 import org.junit.AfterClass;
 import org.junit.Assert;
@@ -51,11 +65,20 @@ import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Tests for {@link MessagingHttpService}.
@@ -68,12 +91,15 @@ public class MessagingHttpServiceTest {
   private static CConfiguration cConf;
   private static MessagingHttpService httpService;
   private static MessagingService client;
+  private static DiscoveryServiceClient discoveryClient;
 
   @BeforeClass
   public static void init() throws IOException {
     cConf = CConfiguration.create();
     cConf.set(Constants.CFG_LOCAL_DATA_DIR, TEMP_FOLDER.newFolder().getAbsolutePath());
     cConf.setInt(Constants.MessagingSystem.HTTP_SERVER_CONSUME_CHUNK_SIZE, 128);
+    // Only one consume request can wait for new messages at a time
+    cConf.setInt(Constants.MessagingSystem.HTTP_SERVER_MAX_POLL_WAITERS, 1);
 
     Injector injector = Guice.createInjector(
       new ConfigModule(cConf),
@@ -90,7 +116,8 @@ public class MessagingHttpServiceTest {
     httpService = injector.getInstance(MessagingHttpService.class);
     httpService.startAndWait();
 
-    client = new ClientMessagingService(injector.getInstance(DiscoveryServiceClient.class));
+    discoveryClient = injector.getInstance(DiscoveryServiceClient.class);
+    client = new ClientMessagingService(discoveryClient);
   }
 
   @AfterClass
@@ -403,6 +430,260 @@ public class MessagingHttpServiceTest {
     client.deleteTopic(topicId);
   }
 
+  @Test
+  public void testWaitFetch() throws Exception {
+    final TopicId topicId = new NamespaceId("ns1").topic("testWaitFetch");
+    client.createTopic(new TopicMetadata(topicId));
+
+    // Fetch from an empty topic should return empty after the wait timeout
+    Stopwatch stopwatch = new Stopwatch().start();
+    try (CloseableIterator<RawMessage> iterator = client.prepareFetch(topicId).setWaitTimeout(300L).fetch()) {
+      Assert.assertFalse(iterator.hasNext());
+    }
+    Assert.assertTrue(stopwatch.elapsedTime(TimeUnit.MILLISECONDS) >= 300L);
+
+    // Publish a message after the fetch started. The fetch should return it before the wait timeout.
+    Thread publisher = new Thread() {
+      @Override
+      public void run() {
+        try {
+          TimeUnit.MILLISECONDS.sleep(500);
+          client.publish(StoreRequestBuilder.of(topicId).addPayloads("m0").build());
+        } catch (Exception e) {
+          throw Throwables.propagate(e);
+        }
+      }
+    };
+    publisher.start();
+
+    stopwatch.reset().start();
+    List<RawMessage> messages = new ArrayList<>();
+    try (CloseableIterator<RawMessage> iterator = client.prepareFetch(topicId).setWaitTimeout(10000L).fetch()) {
+      Iterators.addAll(messages, iterator);
+    }
+    Assert.assertTrue(stopwatch.elapsedTime(TimeUnit.MILLISECONDS) < 10000L);
+    Assert.assertEquals(1, messages.size());
+    Assert.assertEquals("m0", Bytes.toString(messages.get(0).getPayload()));
+
+    publisher.join();
+    client.deleteTopic(topicId);
+  }
+
+  @Test
+  public void testWaitFetchLimit() throws Exception {
+    final TopicId topicId = new NamespaceId("ns1").topic("testWaitFetchLimit");
+    client.createTopic(new TopicMetadata(topicId));
+
+    // Start a fetch that waits on the empty topic, which takes the only wait permit
+    final Stopwatch waitingStopwatch = new Stopwatch();
+    Thread waitingFetch = new Thread() {
+      @Override
+      public void run() {
+        waitingStopwatch.start();
+        try (CloseableIterator<RawMessage> iterator = client.prepareFetch(topicId).setWaitTimeout(2000L).fetch()) {
+          Assert.assertFalse(iterator.hasNext());
+        } catch (Exception e) {
+          throw Throwables.propagate(e);
+        }
+        waitingStopwatch.stop();
+      }
+    };
+    waitingFetch.start();
+    TimeUnit.MILLISECONDS.sleep(500);
+
+    // Another fetch can't wait while the first one is waiting, hence returns right away
+    Stopwatch stopwatch = new Stopwatch().start();
+    try (CloseableIterator<RawMessage> iterator = client.prepareFetch(topicId).setWaitTimeout(2000L).fetch()) {
+      Assert.assertFalse(iterator.hasNext());
+    }
+    Assert.assertTrue(stopwatch.elapsedTime(TimeUnit.MILLISECONDS) < 1500L);
+
+    waitingFetch.join();
+    Assert.assertTrue(waitingStopwatch.elapsedTime(TimeUnit.MILLISECONDS) >= 2000L);
+
+    // Once the permit is released, fetches wait again
+    stopwatch.reset().start();
+    try (CloseableIterator<RawMessage> iterator = client.prepareFetch(topicId).setWaitTimeout(300L).fetch()) {
+      Assert.assertFalse(iterator.hasNext());
+    }
+    Assert.assertTrue(stopwatch.elapsedTime(TimeUnit.MILLISECONDS) >= 300L);
+
+    client.deleteTopic(topicId);
+  }
+
+  @Test
+  public void testLegacyConsumeRequest() throws Exception {
+    TopicId topicId = new NamespaceId("ns1").topic("testLegacyConsumeRequest");
+    client.createTopic(new TopicMetadata(topicId));
+    client.publish(StoreRequestBuilder.of(topicId).addPayloads("m0", "m1").build());
+
+    // Send a consume request encoded with the schema used by older clients, which has no wait timeout or partition
+    HttpURLConnection urlConn = openAvroPost(topicId, "poll");
+    try {
+      GenericRecord record = new GenericData.Record(Schemas.V1.ConsumeRequest.LEGACY_SCHEMA);
+      record.put("startFrom", 0L);
+      record.put("inclusive", true);
+      Encoder encoder = EncoderFactory.get().directBinaryEncoder(urlConn.getOutputStream(), null);
+      new GenericDatumWriter<GenericRecord>(Schemas.V1.ConsumeRequest.LEGACY_SCHEMA).write(record, encoder);
+
+      Assert.assertEquals(HttpURLConnection.HTTP_OK, urlConn.getResponseCode());
+      // the response doesn't advertise the partition field, which older clients don't understand
+      Assert.assertNull(urlConn.getHeaderField(Schemas.V1.ConsumeResponse.PARTITION_HEADER));
+      try (InputStream is = urlConn.getInputStream()) {
+        Decoder decoder = DecoderFactory.get().binaryDecoder(is, null);
+        GenericData.Array<GenericRecord> messages =
+          new GenericDatumReader<GenericData.Array<GenericRecord>>(Schemas.V1.ConsumeResponse.LEGACY_SCHEMA)
+            .read(null, decoder);
+        Assert.assertEquals(2, messages.size());
+        Assert.assertEquals("m0", Bytes.toString((ByteBuffer) messages.get(0).get("payload")));
+        Assert.assertEquals("m1", Bytes.toString((ByteBuffer) messages.get(1).get("payload")));
+      }
+    } finally {
+      urlConn.disconnect();
+    }
+
+    client.deleteTopic(topicId);
+  }
+
+  @Test
+  public void testMalformedPublish() throws Exception {
+    TopicId topicId = new NamespaceId("ns1").topic("testMalformedPublish");
+    client.createTopic(new TopicMetadata(topicId));
+
+    // A publish request with truncated payload should be rejected with 400
+    HttpURLConnection urlConn = openAvroPost(topicId, "publish");
+    try {
+      Encoder encoder = EncoderFactory.get().directBinaryEncoder(urlConn.getOutputStream(), null);
+      // Non-transactional, an array of one 10 bytes payload, but only 3 bytes are written
+      encoder.writeIndex(1);
+      encoder.writeNull();
+      encoder.writeArrayStart();
+      encoder.setItemCount(1);
+      encoder.startItem();
+      encoder.writeLong(10);
+      encoder.writeFixed(new byte[3]);
+      Assert.assertEquals(HttpURLConnection.HTTP_BAD_REQUEST, urlConn.getResponseCode());
+    } finally {
+      urlConn.disconnect();
+    }
+
+    // Well-formed publish is not affected
+    client.publish(StoreRequestBuilder.of(topicId).addPayloads("m0").build());
+    try (CloseableIterator<RawMessage> iterator = client.prepareFetch(topicId).fetch()) {
+      Assert.assertEquals("m0", Bytes.toString(iterator.next().getPayload()));
+      Assert.assertFalse(iterator.hasNext());
+    }
+
+    client.deleteTopic(topicId);
+  }
+
+  @Test
+  public void testPartitionedTopic() throws Exception {
+    NamespaceId nsId = new NamespaceId("ns1");
+    TopicId topicId = nsId.topic("testPartitionedTopic");
+    client.createTopic(new TopicMetadata(topicId, TopicMetadata.PARTITIONS_KEY, 3));
+    Assert.assertEquals(3, client.getTopic(topicId).getPartitions());
+
+    // Internal partition topics should not be visible
+    Assert.assertEquals(Collections.singletonList(topicId), client.listTopics(nsId));
+    try {
+      client.createTopic(new TopicMetadata(nsId.topic("testPartitionedTopic--p1")));
+      Assert.fail("Expected failure when creating topic with name used by a partition");
+    } catch (TopicAlreadyExistsException e) {
+      // Expected
+    }
+
+    // Publish 9 messages, they should be spread evenly across partitions
+    for (int i = 0; i < 9; i++) {
+      client.publish(StoreRequestBuilder.of(topicId).addPayloads("m" + i).build());
+    }
+
+    Set<String> payloads = new HashSet<>();
+    for (int partition = 0; partition < 3; partition++) {
+      List<RawMessage> messages = new ArrayList<>();
+      try (CloseableIterator<RawMessage> iterator = client.prepareFetch(topicId).setPartition(partition).fetch()) {
+        Iterators.addAll(messages, iterator);
+      }
+      Assert.assertEquals(3, messages.size());
+      for (RawMessage message : messages) {
+        Assert.assertEquals(partition, message.getPartition());
+        payloads.add(Bytes.toString(message.getPayload()));
+      }
+    }
+    Assert.assertEquals(9, payloads.size());
+
+    // Fetching without partition should merge messages from all partitions in message id order
+    List<RawMessage> messages = new ArrayList<>();
+    try (CloseableIterator<RawMessage> iterator = client.prepareFetch(topicId).fetch()) {
+      Iterators.addAll(messages, iterator);
+    }
+    Assert.assertEquals(9, messages.size());
+    for (int i = 1; i < messages.size(); i++) {
+      Assert.assertTrue(Bytes.compareTo(messages.get(i - 1).getId(), messages.get(i).getId()) <= 0);
+    }
+
+    // Limit applies to the merged result
+    messages.clear();
+    try (CloseableIterator<RawMessage> iterator = client.prepareFetch(topicId).setLimit(4).fetch()) {
+      Iterators.addAll(messages, iterator);
+    }
+    Assert.assertEquals(4, messages.size());
+
+    // Resuming the merged fetch from the last message of each partition should return the rest of the messages
+    Map<Integer, byte[]> resumeMessages = new HashMap<>();
+    payloads.clear();
+    for (RawMessage message : messages) {
+      resumeMessages.put(message.getPartition(), message.getId());
+      payloads.add(Bytes.toString(message.getPayload()));
+    }
+    MessageFetcher fetcher = client.prepareFetch(topicId);
+    for (Map.Entry<Integer, byte[]> entry : resumeMessages.entrySet()) {
+      fetcher.setResumeMessage(entry.getKey(), entry.getValue());
+    }
+    messages.clear();
+    try (CloseableIterator<RawMessage> iterator = fetcher.fetch()) {
+      Iterators.addAll(messages, iterator);
+    }
+    Assert.assertEquals(5, messages.size());
+    for (RawMessage message : messages) {
+      Assert.assertTrue(payloads.add(Bytes.toString(message.getPayload())));
+    }
+    Assert.assertEquals(9, payloads.size());
+
+    // Fetching from a non-existing partition should fail
+    try {
+      client.prepareFetch(topicId).setPartition(3).fetch();
+      Assert.fail("Expected failure when fetching from non-existing partition");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+
+    // Number of partitions can be increased but not decreased
+    client.updateTopic(new TopicMetadata(topicId, TopicMetadata.PARTITIONS_KEY, 4));
+    Assert.assertEquals(4, client.getTopic(topicId).getPartitions());
+    try {
+      client.updateTopic(new TopicMetadata(topicId, TopicMetadata.PARTITIONS_KEY, 2));
+      Assert.fail("Expected failure when reducing number of partitions");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+
+    client.deleteTopic(topicId);
+    Assert.assertTrue(client.listTopics(nsId).isEmpty());
+
+    // User topic can have a name that looks like a partition topic, and it cannot be taken as a partition
+    TopicId userTopicId = nsId.topic("userTopic--p1");
+    client.createTopic(new TopicMetadata(userTopicId));
+    Assert.assertEquals(Collections.singletonList(userTopicId), client.listTopics(nsId));
+    try {
+      client.createTopic(new TopicMetadata(nsId.topic("userTopic"), TopicMetadata.PARTITIONS_KEY, 2));
+      Assert.fail("Expected failure when a partition topic name is used by another topic");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+    client.deleteTopic(userTopicId);
+  }
+
   @Test
   public void testPayloadTable() throws Exception {
     // This test is to verify storing transaction messages to the payload table
@@ -460,4 +741,21 @@ public class MessagingHttpServiceTest {
 
     client.deleteTopic(topicId);
   }
+
+  /**
+   * Opens a {@link HttpURLConnection} for posting avro binary content directly to the given topic endpoint.
+   */
+  private HttpURLConnection openAvroPost(TopicId topicId, String path) throws IOException {
+    Discoverable discoverable = new RandomEndpointStrategy(
+      discoveryClient.discover(Constants.Service.MESSAGING_SERVICE)).pick(10, TimeUnit.SECONDS);
+    Assert.assertNotNull(discoverable);
+    InetSocketAddress address = discoverable.getSocketAddress();
+    URL url = new URL(String.format("http://%s:%d/v1/namespaces/%s/topics/%s/%s", address.getHostName(),
+                                    address.getPort(), topicId.getNamespace(), topicId.getTopic(), path));
+    HttpURLConnection urlConn = (HttpURLConnection) url.openConnection();
+    urlConn.setDoOutput(true);
+    urlConn.setRequestMethod("POST");
+    urlConn.setRequestProperty("Content-Type", "avro/binary");
+    return urlConn;
+  }
 }
@@ -46,6 +46,7 @@ import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Nullable;
 
 /**
@@ -268,6 +269,54 @@ public class ConcurrentMessageWriterTest {
     }
   }
 
+  @Test
+  public void testBatchSizeLimit() throws InterruptedException {
+    int threadCount = 10;
+    final int requestPerThread = 20;
+    final List<String> payload = Arrays.asList("0123456789", "0123456789");
+
+    final TopicId topicId = NamespaceId.DEFAULT.topic("t");
+    final TopicMetadata metadata = new TopicMetadata(topicId, new HashMap<String, String>(), 1);
+    TestStoreRequestWriter testWriter = new TestStoreRequestWriter(new TimeProvider.IncrementalTimeProvider(), 5L);
+
+    // With max batch size smaller than the payload size of a single request, each batch can only have one request.
+    final AtomicInteger maxBatchSize = new AtomicInteger();
+    final ConcurrentMessageWriter writer = new ConcurrentMessageWriter(testWriter, new MetricsCollector() {
+      @Override
+      public void increment(String metricName, long value) {
+        // No-op
+      }
+
+      @Override
+      public void gauge(String metricName, long value) {
+        if ("persist.queue.size".equals(metricName)) {
+          maxBatchSize.set(Math.max(maxBatchSize.get(), (int) value));
+        }
+      }
+    }, new MessageWriteNotifier(), 10L, 0L);
+
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    for (int i = 0; i < threadCount; i++) {
+      executor.submit(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            for (int i = 0; i < requestPerThread; i++) {
+              writer.persist(new TestStoreRequest(topicId, payload), metadata);
+            }
+          } catch (Exception e) {
+            LOG.error("Exception raised when persisting.", e);
+          }
+        }
+      });
+    }
+    executor.shutdown();
+    Assert.assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+    Assert.assertEquals(1, maxBatchSize.get());
+    Assert.assertEquals(payload.size() * threadCount * requestPerThread, testWriter.getMessages().get(topicId).size());
+  }
+
   /**
    * A {@link StoreRequestWriter} that turns all payloads to {@link RawMessage} and stores it in a List.
    */
@@ -17,6 +17,7 @@
 package co.cask.cdap.api.metrics;
 
 import java.util.Collection;
+import java.util.Set;
 
 /**
  * Stores and provides access to metrics data.
@@ -43,6 +44,16 @@ public interface MetricStore {
    */
   void add(Collection<? extends MetricValues> metricValues) throws Exception;
 
+  /**
+   * Adds {@link MetricValues}s to the resolutions of the store that are not in the given set. Each resolution is
+   * added to the set once the values are written to it, so that a failed add can be retried with the same
+   * metric values and set without counting any value twice.
+   * @param metricValues metric values to add.
+   * @param writtenResolutions resolutions that the metric values were already written to
+   * @throws Exception
+   */
+  void add(Collection<? extends MetricValues> metricValues, Set<Integer> writtenResolutions) throws Exception;
+
   /**
    * Queries metrics data.
    * @param query query to execute
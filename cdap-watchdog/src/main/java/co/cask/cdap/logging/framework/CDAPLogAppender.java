@@ -55,6 +55,7 @@ public class CDAPLogAppender extends AppenderBase<ILoggingEvent> implements Flus
   private String dirPermissions;
   private String filePermissions;
   private int syncIntervalBytes;
+  private long indexIntervalBytes;
   private long maxFileLifetimeMs;
   private long maxFileSizeInBytes;
 
@@ -86,6 +87,14 @@ public class CDAPLogAppender extends AppenderBase<ILoggingEvent> implements Flus
     this.syncIntervalBytes = syncIntervalBytes;
   }
 
+  /**
+   * Sets the minimum number of bytes covered by each entry of the log file index. Non-positive value disables
+   * the index. This is called by the logback framework.
+   */
+  public void setIndexIntervalBytes(long indexIntervalBytes) {
+    this.indexIntervalBytes = indexIntervalBytes;
+  }
+
   /**
    * Sets the maximum lifetime of a file. This is called by the logback framework.
    */
@@ -112,7 +121,7 @@ public class CDAPLogAppender extends AppenderBase<ILoggingEvent> implements Flus
     if (context instanceof AppenderContext) {
       AppenderContext context = (AppenderContext) this.context;
       logFileManager = new LogFileManager(dirPermissions, filePermissions, maxFileLifetimeMs, maxFileSizeInBytes,
-                                          syncIntervalBytes, LogSchema.LoggingEvent.SCHEMA,
+                                          syncIntervalBytes, indexIntervalBytes, LogSchema.LoggingEvent.SCHEMA,
                                           new FileMetaDataWriter(context.getDatasetManager(), context),
                                           context.getLocationFactory());
     } else if (!Boolean.TRUE.equals(context.getObject(Constants.Logging.PIPELINE_VALIDATION))) {
@@ -19,6 +19,7 @@ package co.cask.cdap.logging.framework;
 import co.cask.cdap.common.io.Locations;
 import co.cask.cdap.common.io.Syncable;
 import co.cask.cdap.logging.meta.FileMetaDataWriter;
+import co.cask.cdap.logging.write.LogFileIndex;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.io.Closeables;
 import com.google.common.util.concurrent.Uninterruptibles;
@@ -50,6 +51,7 @@ final class LogFileManager implements Flushable, Syncable {
   private final String dirPermissions;
   private final String filePermissions;
   private final int syncIntervalBytes;
+  private final long indexIntervalBytes;
   private final long maxLifetimeMillis;
   private final long maxFileSizeInBytes;
   private final Map<LogPathIdentifier, LogFileOutputStream> outputStreamMap;
@@ -58,13 +60,14 @@ final class LogFileManager implements Flushable, Syncable {
   private final Schema schema;
 
   LogFileManager(String dirPermissions, String filePermissions,
-                 long maxFileLifetimeMs, long maxFileSizeInBytes, int syncIntervalBytes,
+                 long maxFileLifetimeMs, long maxFileSizeInBytes, int syncIntervalBytes, long indexIntervalBytes,
                  Schema schema, FileMetaDataWriter fileMetaDataWriter, LocationFactory locationFactory) {
     this.dirPermissions = dirPermissions;
     this.filePermissions = filePermissions;
     this.maxLifetimeMillis = maxFileLifetimeMs;
     this.maxFileSizeInBytes = maxFileSizeInBytes;
     this.syncIntervalBytes = syncIntervalBytes;
+    this.indexIntervalBytes = indexIntervalBytes;
     this.schema = schema;
     this.fileMetaDataWriter = fileMetaDataWriter;
     this.logsDirectoryLocation = locationFactory.create("logs");
@@ -95,7 +98,8 @@ final class LogFileManager implements Flushable, Syncable {
                                                  long timestamp) throws IOException {
     TimeStampLocation location = createLocation(identifier);
     LogFileOutputStream logFileOutputStream = new LogFileOutputStream(
-      location.getLocation(), filePermissions, schema, syncIntervalBytes, location.getTimeStamp(), new Closeable() {
+      location.getLocation(), filePermissions, schema, syncIntervalBytes, indexIntervalBytes,
+      location.getTimeStamp(), new Closeable() {
       @Override
       public void close() throws IOException {
         outputStreamMap.remove(identifier);
@@ -113,6 +117,7 @@ final class LogFileManager implements Flushable, Syncable {
       // delete created file as there was exception while writing meta data
       Closeables.closeQuietly(logFileOutputStream);
       Locations.deleteQuietly(location.getLocation());
+      Locations.deleteQuietly(LogFileIndex.getIndexLocation(location.getLocation()));
       throw new IOException(e);
     }
 
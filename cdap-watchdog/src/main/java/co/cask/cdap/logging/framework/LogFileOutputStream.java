@@ -19,6 +19,7 @@ package co.cask.cdap.logging.framework;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import co.cask.cdap.common.io.Syncable;
 import co.cask.cdap.logging.serialize.LoggingEvent;
+import co.cask.cdap.logging.write.LogFileIndex;
 import com.google.common.io.Closeables;
 import org.apache.avro.Schema;
 import org.apache.avro.file.DataFileWriter;
@@ -32,12 +33,16 @@ import java.io.Closeable;
 import java.io.Flushable;
 import java.io.IOException;
 import java.io.OutputStream;
+import javax.annotation.Nullable;
 
 /**
  * Represents output stream for a log file.
  *
  * Since there is no way to check the state of the underlying file on an exception,
  * all methods of this class assume that the file state is bad on any exception and close the file.
+ *
+ * If index interval is positive, a {@link LogFileIndex} is written next to the log file. Writing the index is
+ * best effort; on failure the index stops growing and readers scan the rest of the log file.
  */
 
 class LogFileOutputStream implements Closeable, Flushable, Syncable {
@@ -50,10 +55,11 @@ class LogFileOutputStream implements Closeable, Flushable, Syncable {
 
   private OutputStream outputStream;
   private DataFileWriter<GenericRecord> dataFileWriter;
+  private LogFileIndex.Writer indexWriter;
   private long fileSize;
 
-  LogFileOutputStream(Location location, String filePermissions, Schema schema, int syncIntervalBytes, long createTime,
-                      Closeable closeable) throws IOException {
+  LogFileOutputStream(Location location, String filePermissions, Schema schema, int syncIntervalBytes,
+                      long indexIntervalBytes, long createTime, Closeable closeable) throws IOException {
     this.location = location;
     this.schema = schema;
     this.closeable = closeable;
@@ -69,6 +75,18 @@ class LogFileOutputStream implements Closeable, Flushable, Syncable {
       Closeables.closeQuietly(dataFileWriter);
       throw e;
     }
+    this.indexWriter = indexIntervalBytes > 0 ? createIndexWriter(filePermissions, indexIntervalBytes) : null;
+  }
+
+  @Nullable
+  private LogFileIndex.Writer createIndexWriter(String filePermissions, long indexIntervalBytes) {
+    try {
+      // The first block starts right after the header
+      return new LogFileIndex.Writer(location, filePermissions, dataFileWriter.sync(), indexIntervalBytes);
+    } catch (IOException e) {
+      LOG.warn("Failed to create index for log file {}. Log file will not be indexed.", location, e);
+      return null;
+    }
   }
 
   Location getLocation() {
@@ -77,6 +95,9 @@ class LogFileOutputStream implements Closeable, Flushable, Syncable {
 
   void append(ILoggingEvent event) throws IOException {
     dataFileWriter.append(LoggingEvent.encode(schema, event));
+    if (indexWriter != null) {
+      indexWriter.add(event);
+    }
   }
 
   /**
@@ -98,6 +119,7 @@ class LogFileOutputStream implements Closeable, Flushable, Syncable {
   @Override
   public void flush() throws IOException {
     fileSize = dataFileWriter.sync();
+    syncIndex(false);
   }
 
   @Override
@@ -114,9 +136,41 @@ class LogFileOutputStream implements Closeable, Flushable, Syncable {
   public void close() throws IOException {
     LOG.trace("Closing file {}", location);
     try {
+      closeIndex();
       dataFileWriter.close();
     } finally {
       closeable.close();
     }
   }
+
+  private void closeIndex() {
+    if (indexWriter == null) {
+      return;
+    }
+    try {
+      // Sync to get the final position of the log file for the last index entry
+      fileSize = dataFileWriter.sync();
+      syncIndex(true);
+    } catch (IOException e) {
+      LOG.warn("Failed to sync log file {} on close.", location, e);
+    }
+    Closeables.closeQuietly(indexWriter);
+    indexWriter = null;
+  }
+
+  /**
+   * Writes an index entry up to the current file size if needed.
+   */
+  private void syncIndex(boolean force) {
+    if (indexWriter == null) {
+      return;
+    }
+    try {
+      indexWriter.sync(fileSize, force);
+    } catch (IOException e) {
+      LOG.warn("Failed to write index for log file {}. Stop indexing the rest of the file.", location, e);
+      Closeables.closeQuietly(indexWriter);
+      indexWriter = null;
+    }
+  }
 }
@@ -18,38 +18,70 @@ package co.cask.cdap.logging.read;
 
 import co.cask.cdap.api.dataset.lib.AbstractCloseableIterator;
 import co.cask.cdap.api.dataset.lib.CloseableIterator;
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.logging.LoggingContext;
 import co.cask.cdap.logging.context.LoggingContextHelper;
 import co.cask.cdap.logging.filter.AndFilter;
 import co.cask.cdap.logging.filter.Filter;
 import co.cask.cdap.logging.meta.FileMetaDataReader;
 import co.cask.cdap.logging.write.LogLocation;
+import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.google.inject.Inject;
+import org.apache.twill.common.Threads;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 
 /**
  * Reads log events from a file.
+ *
+ * If {@link Constants.Logging#READER_PARALLELISM} is larger than one, multiple log files are read concurrently.
+ * Events from the files are merged by timestamp, and each file has a bounded number of events read ahead.
+ * The files are read by a pool of up to that many threads, which is shut down by {@link #close()}.
  */
-public class FileLogReader implements LogReader {
+public class FileLogReader implements LogReader, Closeable {
   private static final Logger LOG = LoggerFactory.getLogger(FileLogReader.class);
 
   private final FileMetaDataReader fileMetadataReader;
+  private final int parallelism;
+  private final int readAheadEvents;
+  @Nullable
+  private final ExecutorService executor;
 
   @Inject
-  public FileLogReader(FileMetaDataReader fileMetadataReader) {
+  public FileLogReader(CConfiguration cConf, FileMetaDataReader fileMetadataReader) {
     this.fileMetadataReader = fileMetadataReader;
+    this.parallelism = Math.max(1, cConf.getInt(Constants.Logging.READER_PARALLELISM));
+    this.readAheadEvents = Math.max(1, cConf.getInt(Constants.Logging.READER_READ_AHEAD_EVENTS));
+    this.executor = parallelism > 1 ? createExecutor(parallelism) : null;
+  }
+
+  @Override
+  public void close() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
   }
 
   @Override
@@ -75,6 +107,16 @@ public class FileLogReader implements LogReader {
         return;
       }
 
+      if (parallelism > 1 && sortedFilesInRange.size() > 1) {
+        try (CloseableIterator<LogEvent> events = readMerged(sortedFilesInRange, logFilter, fromTimeMs,
+                                                             Long.MAX_VALUE, maxEvents)) {
+          while (callback.getCount() < maxEvents && events.hasNext()) {
+            callback.handle(events.next());
+          }
+        }
+        return;
+      }
+
       for (LogLocation file : sortedFilesInRange) {
         LOG.trace("Reading file {}", file);
         file.readLog(logFilter, fromTimeMs, Long.MAX_VALUE, maxEvents - callback.getCount(), callback);
@@ -107,6 +149,13 @@ public class FileLogReader implements LogReader {
       long fromTimeMs = readRange.getToMillis() - 1;
 
       LOG.trace("Using fromTimeMs={}, readRange={}", fromTimeMs, readRange);
+      if (parallelism > 1 && sortedFilesInRange.size() > 1) {
+        for (LogEvent event : readPrevParallel(sortedFilesInRange, logFilter, fromTimeMs, maxEvents)) {
+          callback.handle(event);
+        }
+        return;
+      }
+
       List<Collection<LogEvent>> logSegments = Lists.newLinkedList();
       int count = 0;
       for (LogLocation file : Lists.reverse(sortedFilesInRange)) {
@@ -160,6 +209,10 @@ public class FileLogReader implements LogReader {
         };
       }
 
+      if (parallelism > 1 && sortedFilesInRange.size() > 1) {
+        return readMerged(sortedFilesInRange, logFilter, fromTimeMs, toTimeMs, Integer.MAX_VALUE);
+      }
+
       final Iterator<LogLocation> filesIter = sortedFilesInRange.iterator();
 
       CloseableIterator closeableIterator = new CloseableIterator() {
@@ -201,6 +254,87 @@ public class FileLogReader implements LogReader {
     }
   }
 
+  /**
+   * Reads the given log files concurrently and merges the events by timestamp.
+   */
+  private CloseableIterator<LogEvent> readMerged(List<LogLocation> sortedFiles, final Filter logFilter,
+                                                 final long fromTimeMs, final long toTimeMs, final int maxEvents) {
+    return new MergingLogEventIterator(sortedFiles, new Function<LogLocation, CloseableIterator<LogEvent>>() {
+      @Override
+      public CloseableIterator<LogEvent> apply(LogLocation file) {
+        return file.readLog(logFilter, fromTimeMs, toTimeMs, maxEvents);
+      }
+    }, executor, parallelism, readAheadEvents);
+  }
+
+  /**
+   * Reads the latest events from the given log files, with multiple files read concurrently starting from the latest
+   * one. Reading stops once enough events are collected.
+   *
+   * @return the latest events ordered by file, then by the position in the file
+   */
+  private Iterable<LogEvent> readPrevParallel(List<LogLocation> sortedFiles, final Filter logFilter,
+                                              final long fromTimeMs, final int maxEvents) {
+    Iterator<LogLocation> files = Lists.reverse(sortedFiles).iterator();
+    List<Future<Collection<LogEvent>>> reads = Lists.newLinkedList();
+    List<Collection<LogEvent>> logSegments = Lists.newArrayList();
+    int count = 0;
+
+    try {
+      while (count < maxEvents && (files.hasNext() || !reads.isEmpty())) {
+        // Keep up to parallelism number of files being read
+        while (files.hasNext() && reads.size() < parallelism) {
+          final LogLocation file = files.next();
+          reads.add(executor.submit(new Callable<Collection<LogEvent>>() {
+            @Override
+            public Collection<LogEvent> call() {
+              LOG.trace("Reading file {}", file);
+              try {
+                return file.readLogPrev(logFilter, fromTimeMs, maxEvents);
+              } catch (IOException e) {
+                LOG.warn("Got exception reading log file {}", file, e);
+                return ImmutableList.of();
+              }
+            }
+          }));
+        }
+
+        Collection<LogEvent> events = getReadResult(reads.remove(0));
+        logSegments.add(events);
+        count += events.size();
+      }
+    } finally {
+      // The remaining reads are not needed
+      for (Future<Collection<LogEvent>> read : reads) {
+        read.cancel(false);
+      }
+    }
+
+    // Each file can return up to maxEvents, hence skip the earliest events if there are more than needed
+    int skip = count > maxEvents ? count - maxEvents : 0;
+    return Iterables.skip(Iterables.concat(Lists.reverse(logSegments)), skip);
+  }
+
+  /**
+   * Creates the executor for reading log files concurrently. Reads of concurrent queries beyond the pool size
+   * wait in the queue, and the threads die after being idle.
+   */
+  private static ExecutorService createExecutor(int threads) {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                                                         new LinkedBlockingQueue<Runnable>(),
+                                                         Threads.createDaemonThreadFactory("log-file-reader-%d"));
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  private Collection<LogEvent> getReadResult(Future<Collection<LogEvent>> read) {
+    try {
+      return Uninterruptibles.getUninterruptibly(read);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
   /**
    * See {@link com.google.common.collect.Iterators#concat(Iterator)}. The difference is that the input types and return
    * type are CloseableIterator, which closes the inputs that it has opened.
@@ -0,0 +1,234 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.logging.read;
+
+import co.cask.cdap.api.dataset.lib.AbstractCloseableIterator;
+import co.cask.cdap.api.dataset.lib.CloseableIterator;
+import co.cask.cdap.logging.write.LogLocation;
+import com.google.common.base.Function;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Iterators;
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link CloseableIterator} that reads multiple log files concurrently and merges the {@link LogEvent}s
+ * by timestamp. Log files are read in chunks of events using the given executor, with at most one chunk read
+ * ahead for each file. Up to the given parallelism number of files are read concurrently, and a log file
+ * is always included in the merge before any event later than the file start time is returned.
+ */
+final class MergingLogEventIterator extends AbstractCloseableIterator<LogEvent> {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MergingLogEventIterator.class);
+
+  private static final Comparator<LogFileSource> SOURCE_COMPARATOR = new Comparator<LogFileSource>() {
+    @Override
+    public int compare(LogFileSource o1, LogFileSource o2) {
+      int cmp = Longs.compare(o1.getCurrent().getLoggingEvent().getTimeStamp(),
+                              o2.getCurrent().getLoggingEvent().getTimeStamp());
+      // For events with the same timestamp, keep the order of the files
+      return cmp == 0 ? Ints.compare(o1.index, o2.index) : cmp;
+    }
+  };
+
+  private final Queue<LogLocation> files;
+  private final Function<LogLocation, CloseableIterator<LogEvent>> reader;
+  private final ExecutorService executor;
+  private final int parallelism;
+  private final int chunkSize;
+  private final Queue<LogFileSource> started;
+  private final PriorityQueue<LogFileSource> merging;
+  private final List<LogFileSource> opened;
+
+  /**
+   * Creates an instance.
+   *
+   * @param sortedFiles log files to read, sorted by the start time
+   * @param reader function to open a {@link CloseableIterator} of events for a given log file
+   * @param executor executor for reading the log files
+   * @param parallelism maximum number of files being read ahead concurrently
+   * @param chunkSize number of events to read ahead for each file
+   */
+  MergingLogEventIterator(List<LogLocation> sortedFiles, Function<LogLocation, CloseableIterator<LogEvent>> reader,
+                          ExecutorService executor, int parallelism, int chunkSize) {
+    this.files = new LinkedList<>(sortedFiles);
+    this.reader = reader;
+    this.executor = executor;
+    this.parallelism = parallelism;
+    this.chunkSize = chunkSize;
+    this.started = new LinkedList<>();
+    this.merging = new PriorityQueue<>(Math.max(1, Math.min(parallelism, sortedFiles.size())), SOURCE_COMPARATOR);
+    this.opened = new ArrayList<>();
+  }
+
+  @Override
+  protected LogEvent computeNext() {
+    while (true) {
+      // Start reading ahead files up to the parallelism
+      while (!files.isEmpty() && merging.size() + started.size() < parallelism) {
+        started.add(openNext());
+      }
+
+      // The next file needs to be merged if it can have events not later than the current smallest one
+      LogFileSource min = merging.peek();
+      long nextStartTime = !started.isEmpty() ? started.peek().file.getEventTimeMs()
+        : !files.isEmpty() ? files.peek().getEventTimeMs() : Long.MAX_VALUE;
+      if (nextStartTime != Long.MAX_VALUE
+        && (min == null || nextStartTime <= min.getCurrent().getLoggingEvent().getTimeStamp())) {
+        LogFileSource source = started.isEmpty() ? openNext() : started.poll();
+        if (source.advance()) {
+          merging.add(source);
+        } else {
+          source.close();
+        }
+        continue;
+      }
+
+      if (min == null) {
+        return endOfData();
+      }
+
+      merging.poll();
+      LogEvent event = min.getCurrent();
+      if (min.advance()) {
+        merging.add(min);
+      } else {
+        min.close();
+      }
+      return event;
+    }
+  }
+
+  @Override
+  public void close() {
+    for (LogFileSource source : opened) {
+      source.close();
+    }
+    opened.clear();
+    merging.clear();
+    started.clear();
+    files.clear();
+  }
+
+  private LogFileSource openNext() {
+    LogFileSource source = new LogFileSource(opened.size(), files.poll());
+    opened.add(source);
+    return source;
+  }
+
+  /**
+   * Reads events of a log file in chunks using the executor.
+   */
+  private final class LogFileSource implements Callable<List<LogEvent>> {
+
+    private final int index;
+    private final LogLocation file;
+    private CloseableIterator<LogEvent> iterator;
+    private Iterator<LogEvent> chunk;
+    private Future<List<LogEvent>> nextChunk;
+    private LogEvent current;
+
+    LogFileSource(int index, LogLocation file) {
+      this.index = index;
+      this.file = file;
+      this.chunk = Iterators.emptyIterator();
+      this.nextChunk = executor.submit(this);
+    }
+
+    /**
+     * Reads the next chunk of events. It is called from the executor, with at most one call active at a time.
+     */
+    @Override
+    public List<LogEvent> call() {
+      if (iterator == null) {
+        LOG.trace("Reading file {}", file);
+        iterator = reader.apply(file);
+      }
+      List<LogEvent> events = new ArrayList<>(chunkSize);
+      while (events.size() < chunkSize && iterator.hasNext()) {
+        events.add(iterator.next());
+      }
+      return events;
+    }
+
+    @Nullable
+    LogEvent getCurrent() {
+      return current;
+    }
+
+    /**
+     * Moves to the next event of the file.
+     *
+     * @return {@code true} if there is a next event, {@code false} if the end of file is reached
+     */
+    boolean advance() {
+      while (!chunk.hasNext()) {
+        if (nextChunk == null) {
+          current = null;
+          return false;
+        }
+        List<LogEvent> events = takeChunk();
+        // Read ahead the next chunk unless reached the end
+        nextChunk = events.size() < chunkSize ? null : executor.submit(this);
+        chunk = events.iterator();
+      }
+      current = chunk.next();
+      return true;
+    }
+
+    void close() {
+      // Wait for the pending read to complete before closing the file
+      if (nextChunk != null) {
+        try {
+          takeChunk();
+        } catch (Exception e) {
+          LOG.debug("Exception while reading log file {}", file, e);
+        }
+      }
+      if (iterator != null) {
+        iterator.close();
+        iterator = null;
+      }
+    }
+
+    private List<LogEvent> takeChunk() {
+      Future<List<LogEvent>> future = nextChunk;
+      nextChunk = null;
+      try {
+        return Uninterruptibles.getUninterruptibly(future);
+      } catch (ExecutionException e) {
+        throw Throwables.propagate(e.getCause());
+      }
+    }
+  }
+}
@@ -306,6 +306,8 @@ public final class LogCleanup implements Runnable {
           if (diskFileLocations.contains(fileLocation)) {
             diskFileLocations.remove(fileLocation);
           }
+          // The index file of a log file is kept together with it
+          diskFileLocations.remove(LogFileIndex.getIndexLocation(fileLocation));
         } catch (Exception e) {
           LOG.warn("Got exception while accessing path {}", uri.toString(), e);
         }
@@ -405,6 +407,10 @@ public final class LogCleanup implements Runnable {
           if (location.exists()) {
             LOG.info("Deleting log file {}", location);
             location.delete();
+            Location indexLocation = LogFileIndex.getIndexLocation(location);
+            if (indexLocation.exists()) {
+              indexLocation.delete();
+            }
             parentDirs.put(namespacedLogBaseDir.toString(), getParent(location));
           }
           return null;
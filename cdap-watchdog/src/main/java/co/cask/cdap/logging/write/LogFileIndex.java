@@ -0,0 +1,316 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.logging.write;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import co.cask.cdap.common.io.Locations;
+import co.cask.cdap.logging.filter.AndFilter;
+import co.cask.cdap.logging.filter.Filter;
+import co.cask.cdap.logging.filter.LogLevelExpression;
+import co.cask.cdap.logging.filter.OrFilter;
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import org.apache.hadoop.fs.Syncable;
+import org.apache.twill.filesystem.Location;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * A sidecar index for an Avro log file written by the CDAP log appender. The index file is stored next to the log
+ * file, with the log file name plus the {@code .idx} suffix.
+ *
+ * <pre>
+ * {@code
+ *
+ * Index file format:
+ *
+ * index_file = <header> <entry>*
+ * header = "I" "1"
+ * entry = <start_position> <end_position> <min_timestamp> <max_timestamp> <min_level> <max_level>
+ * start_position, end_position = 8 bytes int64, sync positions in the log file
+ * min_timestamp, max_timestamp = 8 bytes int64, event timestamps in milliseconds
+ * min_level, max_level = 4 bytes int32, logback level int values
+ * }
+ * </pre>
+ *
+ * Each entry covers the Avro blocks between two sync positions of the log file and entries are contiguous.
+ * The log file may have events after the end position of the last entry, which are not indexed yet.
+ */
+public final class LogFileIndex {
+
+  private static final String INDEX_SUFFIX = ".idx";
+  private static final byte[] MAGIC_HEADER = {'I', '1'};
+  private static final int ENTRY_SIZE = 40;
+
+  private final List<Entry> entries;
+
+  /**
+   * Returns the {@link Location} of the index file for the given log file.
+   */
+  public static Location getIndexLocation(Location logLocation) throws IOException {
+    Location parent = Locations.getParent(logLocation);
+    if (parent == null) {
+      throw new IOException("Log file has no parent directory: " + logLocation);
+    }
+    return parent.append(logLocation.getName() + INDEX_SUFFIX);
+  }
+
+  /**
+   * Reads the index of the given log file.
+   *
+   * @param logLocation location of the log file
+   * @param fileLength the readable length of the log file; entries that go beyond it are ignored
+   * @return the {@link LogFileIndex} or {@code null} if there is no index for the log file
+   * @throws IOException if failed to read the index file
+   */
+  @Nullable
+  public static LogFileIndex read(Location logLocation, long fileLength) throws IOException {
+    Location indexLocation = getIndexLocation(logLocation);
+    if (!indexLocation.exists()) {
+      return null;
+    }
+
+    byte[] content;
+    try (InputStream is = indexLocation.getInputStream()) {
+      content = ByteStreams.toByteArray(is);
+    }
+    if (content.length < MAGIC_HEADER.length
+      || !Arrays.equals(MAGIC_HEADER, Arrays.copyOf(content, MAGIC_HEADER.length))) {
+      throw new IOException("Invalid header in log index file " + indexLocation);
+    }
+
+    // Only take complete entries that are contiguous and within the readable part of the log file,
+    // since the index file can be written concurrently.
+    ByteBuffer buffer = ByteBuffer.wrap(content, MAGIC_HEADER.length, content.length - MAGIC_HEADER.length);
+    ImmutableList.Builder<Entry> entries = ImmutableList.builder();
+    long lastEnd = -1L;
+    while (buffer.remaining() >= ENTRY_SIZE) {
+      Entry entry = new Entry(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong(),
+                              buffer.getInt(), buffer.getInt());
+      if ((lastEnd >= 0 && entry.getStart() != lastEnd) || entry.getEnd() > fileLength) {
+        break;
+      }
+      entries.add(entry);
+      lastEnd = entry.getEnd();
+    }
+    return new LogFileIndex(entries.build());
+  }
+
+  private LogFileIndex(List<Entry> entries) {
+    this.entries = entries;
+  }
+
+  /**
+   * Returns the list of contiguous entries in this index, ordered by position.
+   */
+  public List<Entry> getEntries() {
+    return entries;
+  }
+
+  /**
+   * Returns the position in the log file where the indexed part ends, or {@code -1} if there is no entry.
+   */
+  public long getIndexedEnd() {
+    return entries.isEmpty() ? -1L : entries.get(entries.size() - 1).getEnd();
+  }
+
+  /**
+   * An index entry for a range of blocks in a log file.
+   */
+  public static final class Entry {
+    private final long start;
+    private final long end;
+    private final long minTimestamp;
+    private final long maxTimestamp;
+    private final int minLevel;
+    private final int maxLevel;
+
+    Entry(long start, long end, long minTimestamp, long maxTimestamp, int minLevel, int maxLevel) {
+      this.start = start;
+      this.end = end;
+      this.minTimestamp = minTimestamp;
+      this.maxTimestamp = maxTimestamp;
+      this.minLevel = minLevel;
+      this.maxLevel = maxLevel;
+    }
+
+    public long getStart() {
+      return start;
+    }
+
+    public long getEnd() {
+      return end;
+    }
+
+    public long getMinTimestamp() {
+      return minTimestamp;
+    }
+
+    public long getMaxTimestamp() {
+      return maxTimestamp;
+    }
+
+    public int getMinLevel() {
+      return minLevel;
+    }
+
+    public int getMaxLevel() {
+      return maxLevel;
+    }
+
+    /**
+     * Returns {@code false} if none of the events in this entry can match the given {@link Filter}
+     * based on the log levels.
+     */
+    public boolean mayMatch(Filter filter) {
+      if (filter instanceof LogLevelExpression) {
+        return maxLevel >= ((LogLevelExpression) filter).getLevel().toInt();
+      }
+      if (filter instanceof AndFilter) {
+        for (Filter expression : ((AndFilter) filter).getExpressions()) {
+          if (!mayMatch(expression)) {
+            return false;
+          }
+        }
+        return true;
+      }
+      if (filter instanceof OrFilter) {
+        for (Filter expression : ((OrFilter) filter).getExpressions()) {
+          if (mayMatch(expression)) {
+            return true;
+          }
+        }
+        return false;
+      }
+      return true;
+    }
+
+    @Override
+    public String toString() {
+      return Objects.toStringHelper(this)
+        .add("start", start)
+        .add("end", end)
+        .add("minTimestamp", minTimestamp)
+        .add("maxTimestamp", maxTimestamp)
+        .add("minLevel", minLevel)
+        .add("maxLevel", maxLevel)
+        .toString();
+    }
+  }
+
+  /**
+   * Writer for the index of a log file that is being written. The log file writer calls {@link #add(ILoggingEvent)}
+   * for every event appended and {@link #sync(long, boolean)} with every sync position of the log file.
+   */
+  @NotThreadSafe
+  public static final class Writer implements Closeable {
+
+    private final OutputStream output;
+    private final long intervalBytes;
+    private final ByteBuffer buffer;
+
+    private long startPosition;
+    private int events;
+    private long minTimestamp;
+    private long maxTimestamp;
+    private int minLevel;
+    private int maxLevel;
+
+    /**
+     * Creates a writer for the index of the given log file.
+     *
+     * @param logLocation location of the log file
+     * @param permissions permissions for the index file
+     * @param startPosition position in the log file where the first block starts
+     * @param intervalBytes minimum number of bytes in the log file covered by each index entry
+     * @throws IOException if failed to create the index file
+     */
+    public Writer(Location logLocation, String permissions,
+                  long startPosition, long intervalBytes) throws IOException {
+      this.output = getIndexLocation(logLocation).getOutputStream(permissions);
+      this.intervalBytes = intervalBytes;
+      this.buffer = ByteBuffer.allocate(ENTRY_SIZE);
+      this.startPosition = startPosition;
+      output.write(MAGIC_HEADER);
+    }
+
+    /**
+     * Adds an event that was appended to the log file.
+     */
+    public void add(ILoggingEvent event) {
+      long timestamp = event.getTimeStamp();
+      int level = event.getLevel().toInt();
+      if (events++ == 0) {
+        minTimestamp = maxTimestamp = timestamp;
+        minLevel = maxLevel = level;
+        return;
+      }
+      minTimestamp = Math.min(minTimestamp, timestamp);
+      maxTimestamp = Math.max(maxTimestamp, timestamp);
+      minLevel = Math.min(minLevel, level);
+      maxLevel = Math.max(maxLevel, level);
+    }
+
+    /**
+     * Notifies about a sync position of the log file. All events added before are written before that position.
+     * An entry is written if the events added since the last entry cover at least the index interval.
+     *
+     * @param position the sync position
+     * @param force {@code true} to write an entry regardless of the index interval
+     * @throws IOException if failed to write to the index file
+     */
+    public void sync(long position, boolean force) throws IOException {
+      if (events == 0) {
+        // Nothing to index, just move the start of the next entry
+        startPosition = position;
+        return;
+      }
+      if (!force && position - startPosition < intervalBytes) {
+        return;
+      }
+
+      buffer.clear();
+      buffer.putLong(startPosition).putLong(position)
+        .putLong(minTimestamp).putLong(maxTimestamp)
+        .putInt(minLevel).putInt(maxLevel);
+      output.write(buffer.array(), 0, buffer.position());
+      // Make the entry visible to readers of the log file that is still being written
+      if (output instanceof Syncable) {
+        ((Syncable) output).hflush();
+      } else {
+        output.flush();
+      }
+
+      startPosition = position;
+      events = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+      output.close();
+    }
+  }
+}
@@ -43,9 +43,11 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.concurrent.Callable;
+import javax.annotation.Nullable;
 
 /**
  * LogLocation representing a log file and methods to read the file's contents.
@@ -151,6 +153,11 @@ public class LogLocation {
         return ImmutableList.of();
       }
 
+      LogFileIndex index = readIndex();
+      if (index != null && !index.getEntries().isEmpty()) {
+        return readLogPrev(dataFileReader, index, logFilter, fromTimeMs, maxEvents);
+      }
+
       List<List<LogEvent>> logSegments = Lists.newArrayList();
       List<LogEvent> logSegment;
       int count = 0;
@@ -205,6 +212,43 @@ public class LogLocation {
     }
   }
 
+  /**
+   * Reads log events backward using the {@link LogFileIndex}, starting from the part of the file that is not indexed
+   * yet, then each index entry in reverse order. Entries that only have events later than fromTimeMs or
+   * that cannot match the filter are skipped without reading.
+   */
+  private Collection<LogEvent> readLogPrev(DataFileReader<GenericRecord> dataFileReader, LogFileIndex index,
+                                           Filter logFilter, long fromTimeMs, int maxEvents) throws IOException {
+    List<List<LogEvent>> logSegments = Lists.newArrayList();
+    int count = 0;
+
+    dataFileReader.seek(index.getIndexedEnd());
+    List<LogEvent> logSegment = readToEndSyncPosition(dataFileReader, logFilter, fromTimeMs, -1);
+    if (!logSegment.isEmpty()) {
+      logSegments.add(logSegment);
+      count += logSegment.size();
+    }
+
+    List<LogFileIndex.Entry> entries = index.getEntries();
+    for (int i = entries.size() - 1; i >= 0 && count < maxEvents; i--) {
+      LogFileIndex.Entry entry = entries.get(i);
+      if (entry.getMinTimestamp() > fromTimeMs || !entry.mayMatch(logFilter)) {
+        continue;
+      }
+      dataFileReader.seek(entry.getStart());
+      logSegment = readToEndSyncPosition(dataFileReader, logFilter, fromTimeMs, entry.getEnd());
+      if (!logSegment.isEmpty()) {
+        logSegments.add(logSegment);
+        count += logSegment.size();
+      }
+      LOG.trace("Read logevents {} from indexed position {} to endPosition {}", count,
+                entry.getStart(), entry.getEnd());
+    }
+
+    int skip = count >= maxEvents ? count - maxEvents : 0;
+    return Lists.newArrayList(Iterables.skip(Iterables.concat(Lists.reverse(logSegments)), skip));
+  }
+
   /**
    *  Read current block in Avro file from current block sync marker to next block sync marker
    */
@@ -259,6 +303,9 @@ public class LogLocation {
     private final long maxEvents;
 
     private DataFileReader<GenericRecord> dataFileReader;
+    // Index entries not yet passed by the reader, or null if the file is not indexed
+    private Iterator<LogFileIndex.Entry> indexEntries;
+    private LogFileIndex.Entry indexEntry;
 
     private ILoggingEvent loggingEvent;
     private GenericRecord datum;
@@ -276,7 +323,10 @@ public class LogLocation {
 
       try {
         dataFileReader = createReader();
-        if (dataFileReader.hasNext()) {
+        LogFileIndex index = readIndex();
+        if (index != null && !index.getEntries().isEmpty()) {
+          seekWithIndex(index);
+        } else if (dataFileReader.hasNext()) {
           datum = dataFileReader.next();
           loggingEvent = LoggingEvent.decode(datum);
           long prevPrevSyncPos = 0;
@@ -308,11 +358,48 @@ public class LogLocation {
       }
     }
 
+    /**
+     * Seeks to the first index entry that has events not earlier than fromTimeMs,
+     * or to the end of the indexed part of the file if there is no such entry.
+     */
+    private void seekWithIndex(LogFileIndex index) throws IOException {
+      indexEntries = index.getEntries().iterator();
+      while (indexEntries.hasNext()) {
+        indexEntry = indexEntries.next();
+        if (indexEntry.getMaxTimestamp() >= fromTimeMs) {
+          break;
+        }
+      }
+      if (indexEntry.getMaxTimestamp() < fromTimeMs) {
+        indexEntry = null;
+        dataFileReader.seek(index.getIndexedEnd());
+      } else {
+        dataFileReader.seek(indexEntry.getStart());
+      }
+      LOG.trace("Seek to pos {} using index", dataFileReader.previousSync());
+    }
+
+    /**
+     * Skips the index entries that have been read fully or that cannot match the filter.
+     */
+    private void skipIndexEntries() throws IOException {
+      long position = dataFileReader.previousSync();
+      while (indexEntry != null && (position >= indexEntry.getEnd() || !indexEntry.mayMatch(logFilter))) {
+        long end = indexEntry.getEnd();
+        indexEntry = indexEntries.hasNext() ? indexEntries.next() : null;
+        if (position < end) {
+          // Jump over the entry that cannot match
+          position = indexEntry == null ? end : indexEntry.getStart();
+          dataFileReader.seek(position);
+        }
+      }
+    }
+
     // will compute the next LogEvent and set the field 'next', unless its already set
     private void computeNext() {
       try {
         // read events from file
-        while (next == null && dataFileReader.hasNext()) {
+        while (next == null && hasNextEvent()) {
           loggingEvent = LoggingEvent.decode(dataFileReader.next(datum));
           if (loggingEvent.getTimeStamp() >= fromTimeMs && logFilter.match(loggingEvent)) {
             ++count;
@@ -333,6 +420,13 @@ public class LogLocation {
       }
     }
 
+    private boolean hasNextEvent() throws IOException {
+      if (indexEntries != null) {
+        skipIndexEntries();
+      }
+      return dataFileReader.hasNext();
+    }
+
     @Override
     public void close() {
       try {
@@ -364,6 +458,23 @@ public class LogLocation {
     }
   }
 
+  /**
+   * Reads the {@link LogFileIndex} of this log file, if there is one.
+   */
+  @Nullable
+  private LogFileIndex readIndex() {
+    // Index is only written by the current log framework
+    if (!VERSION_1.equals(frameworkVersion)) {
+      return null;
+    }
+    try {
+      return LogFileIndex.read(location, location.length());
+    } catch (IOException e) {
+      LOG.debug("Failed to read index for log file {}. Reading without index.", location, e);
+      return null;
+    }
+  }
+
   private DataFileReader<GenericRecord> createReader() throws IOException {
     boolean shouldImpersonate = this.getFrameworkVersion().equals(VERSION_0);
     return new DataFileReader<>(new LocationSeekableInput(location, namespaceId, impersonator, shouldImpersonate),
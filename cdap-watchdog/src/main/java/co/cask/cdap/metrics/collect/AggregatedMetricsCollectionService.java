@@ -26,15 +26,19 @@ import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.util.concurrent.AbstractExecutionThreadService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
@@ -49,7 +53,10 @@ public abstract class AggregatedMetricsCollectionService extends AbstractExecuti
   private static final long CACHE_EXPIRE_MINUTES = 1;
 
   private final LoadingCache<Map<String, String>, MetricsContext> collectors;
-  private final LoadingCache<Map<String, String>, LoadingCache<String, AggregatedMetricsEmitter>> emitters;
+  private final ConcurrentMap<Map<String, String>, EmitterGroup> emitterGroups;
+  // Groups removed from emitterGroups, which will be emitted once more in the next round to catch late updates.
+  // Only accessed from the publishing thread.
+  private List<EmitterGroup> retiredGroups;
   private Thread runThread;
 
   public AggregatedMetricsCollectionService() {
@@ -57,24 +64,8 @@ public abstract class AggregatedMetricsCollectionService extends AbstractExecuti
       .expireAfterAccess(CACHE_EXPIRE_MINUTES, TimeUnit.MINUTES)
       .build(createCollectorLoader());
 
-    this.emitters = CacheBuilder.newBuilder()
-      // NOTE : we don't need to have removalListener to  emit metrics, as we have expireAfterAccess set for a minute,
-      // emitters.get() is used to increment/gauge and that would reset the access time,
-      // and since runOneIteration() emits all the metrics for the scheduled duration (every 1 second)
-      // there wont be any loss of emitter entries.
-      .expireAfterAccess(CACHE_EXPIRE_MINUTES, TimeUnit.MINUTES)
-      .build(new CacheLoader<Map<String, String>, LoadingCache<String, AggregatedMetricsEmitter>>() {
-        @Override
-        public LoadingCache<String, AggregatedMetricsEmitter> load(Map<String, String> tags) throws Exception {
-          return CacheBuilder.newBuilder().expireAfterAccess(CACHE_EXPIRE_MINUTES, TimeUnit.MINUTES).
-            build(new CacheLoader<String, AggregatedMetricsEmitter>() {
-              @Override
-              public AggregatedMetricsEmitter load(String metricName) throws Exception {
-                return new AggregatedMetricsEmitter(metricName);
-              }
-            });
-        }
-      });
+    this.emitterGroups = new ConcurrentHashMap<>();
+    this.retiredGroups = new ArrayList<>();
   }
 
   /**
@@ -102,6 +93,14 @@ public abstract class AggregatedMetricsCollectionService extends AbstractExecuti
     return TimeUnit.SECONDS.toMillis(Constants.MetricsCollector.DEFAULT_FREQUENCY_SECONDS);
   }
 
+  /**
+   * Returns the time in milliseconds that a set of tags or a metric can stay idle before its aggregation
+   * state is released.
+   */
+  protected long getIdleExpireMillis() {
+    return TimeUnit.MINUTES.toMillis(CACHE_EXPIRE_MINUTES);
+  }
+
   @Override
   protected void startUp() throws Exception {
     runThread = Thread.currentThread();
@@ -128,7 +127,7 @@ public abstract class AggregatedMetricsCollectionService extends AbstractExecuti
 
     LOG.trace("Start log collection for timestamp {}", timestamp);
 
-    Iterator<MetricValues> metrics = getMetrics(timestamp);
+    Iterator<MetricValues> metrics = getMetrics(timestamp, currentTimeMillis);
     try {
       publish(metrics);
     } catch (InterruptedException e) {
@@ -175,44 +174,57 @@ public abstract class AggregatedMetricsCollectionService extends AbstractExecuti
     }
   }
 
-  private Iterator<MetricValues> getMetrics(final long timestamp) {
-    // NOTE : emitters.asMap does not reset the access time in cache,
-    // so it's the preferred way to access the cache entries. as we access and emit metrics every second.
-    final Iterator<Map.Entry<Map<String, String>, LoadingCache<String, AggregatedMetricsEmitter>>> iterator =
-      emitters.asMap().entrySet().iterator();
+  private Iterator<MetricValues> getMetrics(final long timestamp, final long currentTimeMillis) {
+    // Emit the groups retired in the last round together with all active groups.
+    // Groups and emitters that have been idle for longer than the expiration time are retired.
+    final long expireMillis = getIdleExpireMillis();
+    final Iterator<EmitterGroup> iterator = Iterators.concat(retiredGroups.iterator(),
+                                                             emitterGroups.values().iterator());
+    retiredGroups = new ArrayList<>();
+
     return new AbstractIterator<MetricValues>() {
       @Override
       protected MetricValues computeNext() {
         while (iterator.hasNext()) {
-          Map.Entry<Map<String, String>, LoadingCache<String, AggregatedMetricsEmitter>> entry = iterator.next();
-          Map<String, AggregatedMetricsEmitter> metricEmitters = entry.getValue().asMap();
-          // +1 because we add extra metric about how many metric values did we emit in this context (see below)
-          List<MetricValue> metricValues = Lists.newArrayListWithCapacity(metricEmitters.size() + 1);
-          for (Map.Entry<String, AggregatedMetricsEmitter> emitterEntry : metricEmitters.entrySet()) {
-            MetricValue metricValue = emitterEntry.getValue().emit();
-            // skip increment by 0
-            if (metricValue.getType() == MetricType.COUNTER && metricValue.getValue() == 0) {
-              continue;
-            }
-            metricValues.add(metricValue);
-          }
+          EmitterGroup group = iterator.next();
+          List<MetricValue> metricValues = group.emit(currentTimeMillis, expireMillis);
 
           if (metricValues.isEmpty()) {
             // skip if there are no metric values to send
+            if (!group.isRetired() && currentTimeMillis - group.lastActiveMillis >= expireMillis) {
+              // Remove the group first so that contexts won't resolve to it again after seeing it retired
+              emitterGroups.remove(group.getTags(), group);
+              group.retire();
+              retiredGroups.add(group);
+            }
             continue;
           }
+          group.lastActiveMillis = currentTimeMillis;
 
           // number of emitted metrics
           metricValues.add(new MetricValue("metrics.emitted.count", MetricType.COUNTER, metricValues.size() + 1));
 
           LOG.trace("Emit metric {}", metricValues);
-          return new MetricValues(entry.getKey(), timestamp, metricValues);
+          return new MetricValues(group.getTags(), timestamp, metricValues);
         }
         return endOfData();
       }
     };
   }
 
+  /**
+   * Returns the {@link EmitterGroup} for the given set of tags, creating one if it doesn't exist.
+   */
+  private EmitterGroup getEmitterGroup(Map<String, String> tags) {
+    EmitterGroup group = emitterGroups.get(tags);
+    if (group != null) {
+      return group;
+    }
+    group = new EmitterGroup(tags);
+    EmitterGroup existing = emitterGroups.putIfAbsent(tags, group);
+    return existing == null ? group : existing;
+  }
+
   private CacheLoader<Map<String, String>, MetricsContext> createCollectorLoader() {
     return new CacheLoader<Map<String, String>, MetricsContext>() {
       @Override
@@ -225,19 +237,21 @@ public abstract class AggregatedMetricsCollectionService extends AbstractExecuti
   private final class MetricsContextImpl implements MetricsContext {
 
     private final Map<String, String> tags;
+    private volatile EmitterGroup emitterGroup;
 
     private MetricsContextImpl(final Map<String, String> tags) {
       this.tags = ImmutableMap.copyOf(tags);
+      this.emitterGroup = getEmitterGroup(this.tags);
     }
 
     @Override
     public void increment(String metricName, long value) {
-      emitters.getUnchecked(tags).getUnchecked(metricName).increment(value);
+      getEmitter(metricName).increment(value);
     }
 
     @Override
     public void gauge(String metricName, long value) {
-      emitters.getUnchecked(tags).getUnchecked(metricName).gauge(value);
+      getEmitter(metricName).gauge(value);
     }
 
     @Override
@@ -263,5 +277,98 @@ public abstract class AggregatedMetricsCollectionService extends AbstractExecuti
       allTags.putAll(tags);
       return collectors.getUnchecked(allTags);
     }
+
+    private AggregatedMetricsEmitter getEmitter(String metricName) {
+      EmitterGroup group = emitterGroup;
+      if (group.isRetired()) {
+        // The group was retired due to inactivity. A value updated on the retired group right after the check
+        // will still be emitted, as retired groups are emitted one more time.
+        group = getEmitterGroup(tags);
+        emitterGroup = group;
+      }
+      return group.getEmitter(metricName);
+    }
+  }
+
+  /**
+   * The set of {@link AggregatedMetricsEmitter} for the same set of tags. It is shared by all
+   * {@link MetricsContext} of the same tags so that metrics are resolved without looking up the tags.
+   */
+  private static final class EmitterGroup {
+
+    private final Map<String, String> tags;
+    private final ConcurrentMap<String, AggregatedMetricsEmitter> emitters;
+    private volatile boolean retired;
+    // Last time that this group emitted metrics. Only accessed from the publishing thread.
+    private long lastActiveMillis;
+    // Emitters removed from emitters, which will be emitted once more in the next round to catch late updates.
+    // Only accessed from the publishing thread.
+    private List<AggregatedMetricsEmitter> retiredEmitters;
+
+    EmitterGroup(Map<String, String> tags) {
+      this.tags = tags;
+      this.emitters = new ConcurrentHashMap<>();
+      this.lastActiveMillis = System.currentTimeMillis();
+      this.retiredEmitters = new ArrayList<>();
+    }
+
+    /**
+     * Emits the values of the emitters retired in the last round and of all active emitters, skipping counters
+     * of zero. Emitters that have been idle for longer than the expiration time are retired.
+     */
+    List<MetricValue> emit(long currentTimeMillis, long expireMillis) {
+      List<AggregatedMetricsEmitter> lastRetired = retiredEmitters;
+      retiredEmitters = new ArrayList<>();
+
+      // +1 because we add extra metric about how many metric values did we emit in this context
+      List<MetricValue> metricValues = Lists.newArrayListWithCapacity(emitters.size() + lastRetired.size() + 1);
+      for (AggregatedMetricsEmitter emitter : lastRetired) {
+        MetricValue metricValue = emitter.emit();
+        if (!isZeroCounter(metricValue)) {
+          metricValues.add(metricValue);
+        }
+      }
+      for (AggregatedMetricsEmitter emitter : emitters.values()) {
+        MetricValue metricValue = emitter.emit();
+        // skip increment by 0
+        if (isZeroCounter(metricValue)) {
+          // Updates after the removal go to a new emitter. Late updates to this one are emitted in the next round
+          if (currentTimeMillis - emitter.getLastActiveMillis() >= expireMillis
+            && emitters.remove(metricValue.getName(), emitter)) {
+            retiredEmitters.add(emitter);
+          }
+          continue;
+        }
+        emitter.setLastActive(currentTimeMillis);
+        metricValues.add(metricValue);
+      }
+      return metricValues;
+    }
+
+    private boolean isZeroCounter(MetricValue metricValue) {
+      return metricValue.getType() == MetricType.COUNTER && metricValue.getValue() == 0;
+    }
+
+    Map<String, String> getTags() {
+      return tags;
+    }
+
+    AggregatedMetricsEmitter getEmitter(String metricName) {
+      AggregatedMetricsEmitter emitter = emitters.get(metricName);
+      if (emitter != null) {
+        return emitter;
+      }
+      emitter = new AggregatedMetricsEmitter(metricName);
+      AggregatedMetricsEmitter existing = emitters.putIfAbsent(metricName, emitter);
+      return existing == null ? emitter : existing;
+    }
+
+    boolean isRetired() {
+      return retired;
+    }
+
+    void retire() {
+      retired = true;
+    }
   }
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright © 2014 Cask Data, Inc.
+ * Copyright © 2014-2017 Cask Data, Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not
  * use this file except in compliance with the License. You may obtain a copy of
@@ -22,19 +22,33 @@ import org.slf4j.LoggerFactory;
 
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * {@link MetricsEmitter} that aggregates  values for a metric
  * during collection and emit the aggregated value when emit.
+ *
+ * Increments are first applied to a single counter. Once contention on it is detected, increments are spread
+ * over a set of padded counters indexed by thread, which are summed up on emit.
  */
 final class AggregatedMetricsEmitter implements MetricsEmitter {
   private static final Logger LOG = LoggerFactory.getLogger(AggregatedMetricsEmitter.class);
 
+  // Number of longs between two stripe counters, so that each of them is on a different cache line
+  private static final int STRIPE_PADDING = 8;
+  private static final int STRIPES = stripesCount();
+
   private final String name;
-  // metric value
+  // metric value when there is no contention
   private final AtomicLong value;
+  // metric value increments under contention, created on first contention
+  private volatile AtomicLongArray stripes;
+  // last gauge value
+  private final AtomicLong gaugeValue;
   // specifies if the metric type is gauge or counter
   private final AtomicBoolean gaugeUsed;
+  // Last time that this emitter emitted a value. Only accessed from the thread that calls emit.
+  private long lastActiveMillis;
 
   AggregatedMetricsEmitter(String name) {
     if (name == null || name.isEmpty()) {
@@ -43,24 +57,79 @@ final class AggregatedMetricsEmitter implements MetricsEmitter {
 
     this.name = name;
     this.value = new AtomicLong();
+    this.gaugeValue = new AtomicLong();
     this.gaugeUsed = new AtomicBoolean(false);
+    this.lastActiveMillis = System.currentTimeMillis();
   }
 
   void increment(long value) {
-    this.value.addAndGet(value);
+    AtomicLongArray stripes = this.stripes;
+    if (stripes == null) {
+      long current = this.value.get();
+      if (this.value.compareAndSet(current, current + value)) {
+        return;
+      }
+      stripes = getStripes();
+    }
+    int stripe = (int) (Thread.currentThread().getId() & (STRIPES - 1));
+    stripes.addAndGet(stripe * STRIPE_PADDING, value);
   }
 
-
   @Override
   public MetricValue emit() {
     // todo CDAP-2195 - potential race condition , reseting value and type has to be done together
-    long value = this.value.getAndSet(0);
-    MetricType type = gaugeUsed.getAndSet(false) ? MetricType.GAUGE : MetricType.COUNTER;
-    return new MetricValue(name, type, value);
+    long value = resetCounters();
+    if (gaugeUsed.getAndSet(false)) {
+      return new MetricValue(name, MetricType.GAUGE, gaugeValue.get() + value);
+    }
+    return new MetricValue(name, MetricType.COUNTER, value);
   }
 
   public void gauge(long value) {
-    this.value.set(value);
+    // A gauge overrides all previous increments
+    resetCounters();
+    this.gaugeValue.set(value);
     this.gaugeUsed.set(true);
   }
+
+  /**
+   * Returns the last time that this emitter emitted a non-zero value, as recorded by {@link #setLastActive(long)}.
+   */
+  long getLastActiveMillis() {
+    return lastActiveMillis;
+  }
+
+  void setLastActive(long timeMillis) {
+    this.lastActiveMillis = timeMillis;
+  }
+
+  /**
+   * Resets all counters to zero and returns the sum of them.
+   */
+  private long resetCounters() {
+    long sum = value.getAndSet(0);
+    AtomicLongArray stripes = this.stripes;
+    if (stripes != null) {
+      for (int i = 0; i < STRIPES; i++) {
+        sum += stripes.getAndSet(i * STRIPE_PADDING, 0);
+      }
+    }
+    return sum;
+  }
+
+  private synchronized AtomicLongArray getStripes() {
+    if (stripes == null) {
+      stripes = new AtomicLongArray(STRIPES * STRIPE_PADDING);
+    }
+    return stripes;
+  }
+
+  /**
+   * Returns the number of stripes, which is the smallest power of two that is not less than the number of
+   * processors, capped at 16.
+   */
+  private static int stripesCount() {
+    int processors = Math.min(Runtime.getRuntime().availableProcessors(), 16);
+    return Integer.highestOneBit(Math.max(processors * 2 - 1, 1));
+  }
 }
@@ -21,11 +21,8 @@ import co.cask.cdap.api.metrics.MetricValues;
 import co.cask.cdap.common.ServiceUnavailableException;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
-import co.cask.cdap.common.io.BinaryEncoder;
-import co.cask.cdap.common.io.Encoder;
 import co.cask.cdap.common.service.RetryStrategies;
 import co.cask.cdap.common.service.RetryStrategy;
-import co.cask.cdap.internal.io.DatumWriter;
 import co.cask.cdap.messaging.MessagingService;
 import co.cask.cdap.messaging.client.StoreRequestBuilder;
 import co.cask.cdap.proto.id.NamespaceId;
@@ -37,7 +34,6 @@ import com.google.inject.name.Named;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -54,25 +50,19 @@ public class MessagingMetricsCollectionService extends AggregatedMetricsCollecti
 
   private static final Logger LOG = LoggerFactory.getLogger(MessagingMetricsCollectionService.class);
 
+  // Maximum size of a batch of MetricValues in one message
+  private static final int MAX_BATCH_BYTES = 256 * 1024;
+
   private final MessagingService messagingService;
-  private final DatumWriter<MetricValues> recordWriter;
-  private final ByteArrayOutputStream encoderOutputStream;
-  private final Encoder encoder;
   private final Map<Integer, TopicPayload> topicPayloads;
 
   @Inject
   MessagingMetricsCollectionService(@Named(Constants.Metrics.TOPIC_PREFIX) String topicPrefix,
                                     @Named(Constants.Metrics.MESSAGING_TOPIC_NUM) int totalTopicNum,
                                     CConfiguration cConf,
-                                    MessagingService messagingService,
-                                    DatumWriter<MetricValues> recordWriter) {
+                                    MessagingService messagingService) {
     Preconditions.checkArgument(totalTopicNum > 0, "Constants.Metrics.MESSAGING_TOPIC_NUM must be a positive integer");
     this.messagingService = messagingService;
-    this.recordWriter = recordWriter;
-
-    // Parent guarantees the publish method would not get called concurrently, hence safe to reuse the same instances.
-    this.encoderOutputStream = new ByteArrayOutputStream(1024);
-    this.encoder = new BinaryEncoder(encoderOutputStream);
 
     RetryStrategy retryStrategy = RetryStrategies.fromConfiguration(cConf, "system.metrics.");
     this.topicPayloads = new LinkedHashMap<>(totalTopicNum);
@@ -85,14 +75,10 @@ public class MessagingMetricsCollectionService extends AggregatedMetricsCollecti
   protected void publish(Iterator<MetricValues> metrics) throws Exception {
     int size = topicPayloads.size();
     while (metrics.hasNext() && isRunning()) {
-      encoderOutputStream.reset();
       MetricValues metricValues = metrics.next();
-      // Encode MetricValues into bytes
-      recordWriter.encode(metricValues, encoder);
-      // Calculate the topic number with the hashcode of MetricValues' tags and store the encoded payload in the
-      // corresponding list of the topic number
-      topicPayloads.get(Math.abs(metricValues.getTags().hashCode() % size))
-        .addPayload(encoderOutputStream.toByteArray());
+      // Calculate the topic number with the hashcode of MetricValues' tags and add the MetricValues to the
+      // batch of the topic number
+      topicPayloads.get(Math.abs(metricValues.getTags().hashCode() % size)).addMetricValues(metricValues);
     }
     publishMetric(topicPayloads.values());
   }
@@ -104,24 +90,38 @@ public class MessagingMetricsCollectionService extends AggregatedMetricsCollecti
   }
 
   /**
-   * Private to carry payloads to be published to a topic.
+   * Private to carry payloads to be published to a topic. Each payload is a batch of {@link MetricValues}
+   * encoded with {@link MetricValuesBatchCodec}.
    */
   private final class TopicPayload {
     private final TopicId topicId;
     private final List<byte[]> payloads;
     private final RetryStrategy retryStrategy;
+    private final MetricValuesBatchCodec.Writer batchWriter;
 
     private TopicPayload(TopicId topicId, RetryStrategy retryStrategy) {
       this.topicId = topicId;
       this.retryStrategy = retryStrategy;
       this.payloads = new ArrayList<>();
+      this.batchWriter = new MetricValuesBatchCodec.Writer();
+    }
+
+    void addMetricValues(MetricValues metricValues) throws IOException {
+      batchWriter.add(metricValues);
+      if (batchWriter.getEncodedSize() >= MAX_BATCH_BYTES) {
+        flushBatch();
+      }
     }
 
-    void addPayload(byte[] payload) {
-      payloads.add(payload);
+    private void flushBatch() {
+      if (batchWriter.size() > 0) {
+        payloads.add(batchWriter.toByteArray());
+        batchWriter.reset();
+      }
     }
 
     void publish(MessagingService messagingService) throws IOException {
+      flushBatch();
       if (payloads.isEmpty()) {
         return;
       }
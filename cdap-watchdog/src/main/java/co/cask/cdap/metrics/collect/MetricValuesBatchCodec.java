@@ -0,0 +1,236 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package co.cask.cdap.metrics.collect;
+
+import co.cask.cdap.api.metrics.MetricType;
+import co.cask.cdap.api.metrics.MetricValue;
+import co.cask.cdap.api.metrics.MetricValues;
+import co.cask.cdap.common.io.BinaryDecoder;
+import co.cask.cdap.common.io.BinaryEncoder;
+import co.cask.cdap.common.io.Decoder;
+import co.cask.cdap.common.io.Encoder;
+import com.google.common.collect.ImmutableMap;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes and decodes a batch of {@link MetricValues} into a single message payload. Within a batch, tag maps
+ * and strings (tag names, tag values and metric names) are dictionary encoded, with each distinct value written
+ * out in full only once, and timestamps are encoded as the difference from the previous record.
+ *
+ * A batch payload starts with the {@link #MAGIC} byte, followed by the format version and the records. Payloads
+ * encoded as individual {@link MetricValues} records follow the reflection generated schema, which orders the
+ * fields by name. Hence they always start with the zig-zag encoded block count of the {@code metrics} array,
+ * which is a non-negative number and hence has an even first byte. This allows both formats to be
+ * distinguished with {@link #isBatch(byte[])}.
+ */
+public final class MetricValuesBatchCodec {
+
+  private static final byte MAGIC = 0x01;
+  private static final int VERSION = 1;
+  private static final MetricType[] METRIC_TYPES = MetricType.values();
+
+  private MetricValuesBatchCodec() {
+    // no-op
+  }
+
+  /**
+   * Returns {@code true} if the given payload is encoded by the {@link Writer}.
+   */
+  public static boolean isBatch(byte[] payload) {
+    return payload.length > 0 && payload[0] == MAGIC;
+  }
+
+  /**
+   * Decodes the given batch payload.
+   *
+   * @param payload a payload encoded by the {@link Writer}
+   * @return the list of {@link MetricValues} in the same order as they were added to the batch
+   * @throws IOException if the payload is not a valid batch payload
+   */
+  public static List<MetricValues> decode(byte[] payload) throws IOException {
+    if (!isBatch(payload)) {
+      throw new IOException("Payload is not a batch of MetricValues");
+    }
+    ByteArrayInputStream input = new ByteArrayInputStream(payload, 1, payload.length - 1);
+    Decoder decoder = new BinaryDecoder(input);
+    int version = decoder.readInt();
+    if (version != VERSION) {
+      throw new IOException("Unsupported MetricValues batch version " + version);
+    }
+
+    List<String> strings = new ArrayList<>();
+    List<Map<String, String>> tagsList = new ArrayList<>();
+    List<MetricValues> result = new ArrayList<>();
+    long timestamp = 0L;
+
+    while (input.available() > 0) {
+      int tagsIndex = decoder.readInt();
+      Map<String, String> tags;
+      if (tagsIndex < 0) {
+        int size = decoder.readInt();
+        ImmutableMap.Builder<String, String> builder = ImmutableMap.builder();
+        for (int i = 0; i < size; i++) {
+          builder.put(readString(decoder, strings), readString(decoder, strings));
+        }
+        tags = builder.build();
+        tagsList.add(tags);
+      } else {
+        tags = get(tagsList, tagsIndex, "tags");
+      }
+
+      timestamp += decoder.readLong();
+
+      int size = decoder.readInt();
+      List<MetricValue> metrics = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        String name = readString(decoder, strings);
+        int type = decoder.readInt();
+        if (type < 0 || type >= METRIC_TYPES.length) {
+          throw new IOException("Invalid metric type " + type);
+        }
+        metrics.add(new MetricValue(name, METRIC_TYPES[type], decoder.readLong()));
+      }
+      result.add(new MetricValues(tags, timestamp, metrics));
+    }
+    return result;
+  }
+
+  private static String readString(Decoder decoder, List<String> strings) throws IOException {
+    int index = decoder.readInt();
+    if (index >= 0) {
+      return get(strings, index, "string");
+    }
+    String str = decoder.readString();
+    strings.add(str);
+    return str;
+  }
+
+  private static <T> T get(List<T> list, int index, String type) throws IOException {
+    if (index >= list.size()) {
+      throw new IOException("Invalid " + type + " reference " + index + " in MetricValues batch");
+    }
+    return list.get(index);
+  }
+
+  /**
+   * Writer for encoding {@link MetricValues} into a batch payload. This class is not thread safe.
+   */
+  public static final class Writer {
+
+    private final ByteArrayOutputStream output;
+    private final Encoder encoder;
+    private final Map<String, Integer> strings;
+    private final Map<Map<String, String>, Integer> tagsIndices;
+    private long timestamp;
+    private int size;
+
+    public Writer() {
+      this.output = new ByteArrayOutputStream(1024);
+      this.encoder = new BinaryEncoder(output);
+      this.strings = new HashMap<>();
+      this.tagsIndices = new HashMap<>();
+      reset();
+    }
+
+    /**
+     * Adds a {@link MetricValues} to the batch.
+     */
+    public Writer add(MetricValues metricValues) throws IOException {
+      Map<String, String> tags = metricValues.getTags();
+      Integer tagsIndex = tagsIndices.get(tags);
+      if (tagsIndex != null) {
+        encoder.writeInt(tagsIndex);
+      } else {
+        encoder.writeInt(-1);
+        encoder.writeInt(tags.size());
+        for (Map.Entry<String, String> entry : tags.entrySet()) {
+          writeString(entry.getKey());
+          writeString(entry.getValue());
+        }
+        tagsIndices.put(tags, tagsIndices.size());
+      }
+
+      encoder.writeLong(metricValues.getTimestamp() - timestamp);
+      timestamp = metricValues.getTimestamp();
+
+      encoder.writeInt(metricValues.getMetrics().size());
+      for (MetricValue metricValue : metricValues.getMetrics()) {
+        writeString(metricValue.getName());
+        encoder.writeInt(metricValue.getType().ordinal());
+        encoder.writeLong(metricValue.getValue());
+      }
+      size++;
+      return this;
+    }
+
+    /**
+     * Returns the number of {@link MetricValues} added since the last reset.
+     */
+    public int size() {
+      return size;
+    }
+
+    /**
+     * Returns the number of bytes encoded so far.
+     */
+    public int getEncodedSize() {
+      return output.size();
+    }
+
+    /**
+     * Returns the encoded batch payload.
+     */
+    public byte[] toByteArray() {
+      return output.toByteArray();
+    }
+
+    /**
+     * Resets this writer to start a new batch.
+     */
+    public void reset() {
+      output.reset();
+      strings.clear();
+      tagsIndices.clear();
+      timestamp = 0L;
+      size = 0;
+      output.write(MAGIC);
+      try {
+        encoder.writeInt(VERSION);
+      } catch (IOException e) {
+        // Cannot happen when writing to ByteArrayOutputStream
+        throw new IllegalStateException(e);
+      }
+    }
+
+    private void writeString(String str) throws IOException {
+      Integer index = strings.get(str);
+      if (index != null) {
+        encoder.writeInt(index);
+      } else {
+        encoder.writeInt(-1);
+        encoder.writeString(str);
+        strings.put(str, strings.size());
+      }
+    }
+  }
+}
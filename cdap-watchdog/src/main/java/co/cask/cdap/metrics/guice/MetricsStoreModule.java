@@ -31,7 +31,8 @@ public final class MetricsStoreModule extends PrivateModule {
   @Override
   protected void configure() {
     bind(MetricDatasetFactory.class).to(DefaultMetricDatasetFactory.class).in(Scopes.SINGLETON);
-    bind(MetricStore.class).to(DefaultMetricStore.class);
+    // Single instance so that deletes through any MetricStore invalidate the shared query cache
+    bind(MetricStore.class).to(DefaultMetricStore.class).in(Scopes.SINGLETON);
     expose(MetricStore.class);
   }
 }
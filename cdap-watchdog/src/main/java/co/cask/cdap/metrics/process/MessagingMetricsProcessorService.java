@@ -36,6 +36,7 @@ import co.cask.cdap.messaging.MessageFetcher;
 import co.cask.cdap.messaging.MessagingService;
 import co.cask.cdap.messaging.MessagingUtils;
 import co.cask.cdap.messaging.data.RawMessage;
+import co.cask.cdap.metrics.collect.MetricValuesBatchCodec;
 import co.cask.cdap.metrics.store.MetricDatasetFactory;
 import co.cask.cdap.proto.id.NamespaceId;
 import co.cask.cdap.proto.id.TopicId;
@@ -54,22 +55,18 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Deque;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedDeque;
-import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.Nullable;
 
 /**
- * Process metrics by consuming metrics being published to TMS.
+ * Process metrics by consuming metrics being published to TMS. Each metrics topic is processed by its own thread,
+ * which aggregates metrics in memory and persists them together with the last processed message id of the topic.
  */
 public class MessagingMetricsProcessorService extends AbstractExecutionThreadService {
   private static final Logger LOG = LoggerFactory.getLogger(MessagingMetricsProcessorService.class);
@@ -84,13 +81,10 @@ public class MessagingMetricsProcessorService extends AbstractExecutionThreadSer
   private final MetricStore metricStore;
   private final Map<String, String> metricsContextMap;
   private final int fetcherLimit;
-  private final ConcurrentLinkedDeque<MetricValues> records;
-  private final ConcurrentMap<TopicIdMetaKey, byte[]> topicMessageIds;
-  private final AtomicBoolean persistingFlag;
   private final int metricsProcessIntervalMillis;
   private final List<ProcessMetricsThread> processMetricsThreads;
 
-  private long recordsProcessed;
+  private final AtomicLong recordsProcessed;
 
   private MetricsConsumerMetaTable metaTable;
 
@@ -139,9 +133,7 @@ public class MessagingMetricsProcessorService extends AbstractExecutionThreadSer
     this.fetcherLimit = fetcherLimit;
     this.metricsContextMap = metricsContext.getTags();
     this.processMetricsThreads = new ArrayList<>();
-    this.records = new ConcurrentLinkedDeque<>();
-    this.topicMessageIds = new ConcurrentHashMap<>();
-    this.persistingFlag = new AtomicBoolean();
+    this.recordsProcessed = new AtomicLong();
     this.metricsProcessIntervalMillis = metricsProcessIntervalMillis;
   }
 
@@ -203,8 +195,6 @@ public class MessagingMetricsProcessorService extends AbstractExecutionThreadSer
         Thread.currentThread().interrupt();
       }
     }
-    // Persist records and messageId's after all ProcessMetricsThread's complete.
-    persistRecordsMessageIds(records, topicMessageIds);
   }
 
   @Override
@@ -217,71 +207,84 @@ public class MessagingMetricsProcessorService extends AbstractExecutionThreadSer
     LOG.info("Metrics Processing Service stopped.");
   }
 
-  private void persistRecordsMessageIds(Deque<MetricValues> metricValues, Map<TopicIdMetaKey, byte[]> messageIds) {
-    try {
-      if (!metricValues.isEmpty()) {
-        persistRecords(metricValues);
-      }
-      try {
-        metaTable.saveMessageIds(messageIds);
-      } catch (Exception e) {
-        LOG.error("Failed to persist messageId's of consumed messages.", e);
-      }
-    } catch (Exception e) {
-      LOG.error("Failed to persist metrics.", e);
-    }
-  }
-
-  private void persistRecords(Deque<MetricValues> metricValues) throws Exception {
+  /**
+   * Creates the list of {@link MetricValues} to persist from the given aggregator, which includes metrics about
+   * the metrics processing itself.
+   */
+  private List<MetricValues> createPersistBatch(MetricValuesAggregator aggregator) {
+    List<MetricValues> metricValues = aggregator.getAggregates();
     long now = System.currentTimeMillis();
-    long lastRecordTime = metricValues.getLast().getTimestamp();
+    long lastRecordTime = aggregator.getLastTimestamp();
     long delay = now - TimeUnit.SECONDS.toMillis(lastRecordTime);
     metricValues.add(
       new MetricValues(metricsContextMap, TimeUnit.MILLISECONDS.toSeconds(now), ImmutableList.of(
-        new MetricValue("metrics.process.count", MetricType.COUNTER, metricValues.size()),
+        new MetricValue("metrics.process.count", MetricType.COUNTER, aggregator.getRecordsCount()),
         new MetricValue("metrics.process.delay.ms", MetricType.GAUGE, delay))));
-    metricStore.add(metricValues);
-    recordsProcessed += metricValues.size();
 
     PROGRESS_LOG.debug("{} metrics records processed. Last metric record's timestamp: {}. Metrics process delay: {}",
-                       recordsProcessed, lastRecordTime, delay);
+                       recordsProcessed.get() + aggregator.getRecordsCount(), lastRecordTime, delay);
+    return metricValues;
   }
 
   private class ProcessMetricsThread extends Thread {
     private final TopicIdMetaKey topicIdMetaKey;
     private final PayloadInputStream payloadInput;
     private final BinaryDecoder decoder;
+    private final MetricValuesAggregator aggregator;
+    // Resolutions of the metric store that the pending batch was written to
+    private final Set<Integer> writtenResolutions;
+    private byte[] lastMessageId;
+    // Batch of metrics taken from the aggregator that is not yet fully persisted, and the message id to save
+    // after it is persisted
+    private List<MetricValues> pendingBatch;
+    private long pendingRecordsCount;
+    private byte[] pendingMessageId;
 
     ProcessMetricsThread(TopicIdMetaKey topicIdMetaKey, @Nullable byte[] messageId) {
       super(String.format("ProcessMetricsThread-%s", topicIdMetaKey.getTopicId()));
       setDaemon(true);
-      if (messageId != null) {
-        topicMessageIds.put(topicIdMetaKey, messageId);
-      }
+      this.lastMessageId = messageId;
       this.topicIdMetaKey = topicIdMetaKey;
       this.payloadInput = new PayloadInputStream();
       this.decoder = new BinaryDecoder(payloadInput);
+      this.aggregator = new MetricValuesAggregator();
+      this.writtenResolutions = new HashSet<>();
     }
 
     @Override
     public void run() {
       while (isRunning()) {
         try {
-          processMetrics();
-          TimeUnit.MILLISECONDS.sleep(metricsProcessIntervalMillis);
+          long startTime = System.currentTimeMillis();
+          if (processMetrics()) {
+            TimeUnit.MILLISECONDS.sleep(metricsProcessIntervalMillis);
+          } else {
+            // The fetch already waited for new messages, only sleep for the remaining of the interval
+            long elapsed = System.currentTimeMillis() - startTime;
+            TimeUnit.MILLISECONDS.sleep(Math.max(0L, metricsProcessIntervalMillis - elapsed));
+          }
         } catch (InterruptedException e) {
           // It's triggered by stop
           Thread.currentThread().interrupt();
         }
       }
+      // Persist records that failed to be persisted before stopping
+      persistMetrics();
     }
 
-    private void processMetrics() {
+    /**
+     * Fetches and persists metrics from the topic.
+     *
+     * @return {@code true} if any message was fetched
+     */
+    private boolean processMetrics() {
+      boolean fetched = false;
       // Decode the metrics records.
       try {
         MessageFetcher fetcher = messagingService.prepareFetch(topicIdMetaKey.getTopicId());
         fetcher.setLimit(fetcherLimit);
-        byte[] lastMessageId = topicMessageIds.get(topicIdMetaKey);
+        // Wait for new messages up to the process interval, so that new metrics are picked up as soon as they arrive
+        fetcher.setWaitTimeout(metricsProcessIntervalMillis);
         if (lastMessageId != null) {
           if (LOG.isTraceEnabled()) {
             LOG.trace("Start fetching from lastMessageId = {}", Bytes.toStringBinary(lastMessageId));
@@ -292,57 +295,77 @@ public class MessagingMetricsProcessorService extends AbstractExecutionThreadSer
           fetcher.setStartTime(0L);
         }
 
-        byte[] currentMessageId = null;
         try (CloseableIterator<RawMessage> iterator = fetcher.fetch()) {
           while (iterator.hasNext() && isRunning()) {
             RawMessage input = iterator.next();
+            fetched = true;
             try {
-              payloadInput.reset(input.getPayload());
-              MetricValues metricValues = recordReader.read(decoder, recordSchema);
-              records.add(metricValues);
-              currentMessageId = input.getId();
-              if (LOG.isTraceEnabled()) {
-                LOG.trace("Received message {} with metrics: {}", Bytes.toStringBinary(currentMessageId), metricValues);
+              byte[] payload = input.getPayload();
+              if (MetricValuesBatchCodec.isBatch(payload)) {
+                List<MetricValues> batch = MetricValuesBatchCodec.decode(payload);
+                for (MetricValues metricValues : batch) {
+                  aggregator.add(metricValues);
+                }
+                lastMessageId = input.getId();
+                if (LOG.isTraceEnabled()) {
+                  LOG.trace("Received message {} with metrics: {}", Bytes.toStringBinary(lastMessageId), batch);
+                }
+              } else {
+                // Message published as an individual MetricValues record
+                payloadInput.reset(payload);
+                MetricValues metricValues = recordReader.read(decoder, recordSchema);
+                aggregator.add(metricValues);
+                lastMessageId = input.getId();
+                if (LOG.isTraceEnabled()) {
+                  LOG.trace("Received message {} with metrics: {}",
+                            Bytes.toStringBinary(lastMessageId), metricValues);
+                }
               }
             } catch (IOException e) {
               LOG.warn("Failed to decode message to MetricValue. Skipped. {}", e.getMessage());
             }
           }
         }
+      } catch (Exception e) {
+        LOG.warn("Failed to process metrics. Will be retried in next iteration.", e);
+      }
+      persistMetrics();
+      return fetched;
+    }
 
-        if (currentMessageId != null) {
-          topicMessageIds.put(topicIdMetaKey, currentMessageId);
+    /**
+     * Persists the aggregated metrics and the last processed message id of the topic. If persisting failed,
+     * the batch is kept and retried on the next call, only writing to the resolutions that were not yet written,
+     * so that no metric is counted twice. Metrics aggregated in the meantime are persisted as the next batch.
+     */
+    private void persistMetrics() {
+      while (true) {
+        if (pendingBatch == null) {
+          // Skip persisting if the records is empty
+          if (aggregator.isEmpty()) {
+            return;
+          }
+          pendingBatch = createPersistBatch(aggregator);
+          pendingRecordsCount = aggregator.getRecordsCount();
+          pendingMessageId = lastMessageId;
+          aggregator.clear();
         }
 
-        // Skip persisting if the records is empty
-        if (records.isEmpty()) {
+        try {
+          metricStore.add(pendingBatch, writtenResolutions);
+        } catch (Exception e) {
+          LOG.error("Failed to persist metrics. Will be retried in next iteration.", e);
           return;
         }
+        pendingBatch = null;
+        writtenResolutions.clear();
+        recordsProcessed.addAndGet(pendingRecordsCount);
 
-        // Ensure there's only one thread can persist records and messageId's when the persistingFlag is false.
-        // The thread set persistingFlag to true when it starts to persist.
-        if (!persistingFlag.compareAndSet(false, true)) {
-          LOG.trace("Cannot persist because persistingFlag is taken by another thread.");
-          return;
-        }
         try {
-          Deque<MetricValues> recordsCopy = new LinkedList<>();
-          Map<TopicIdMetaKey, byte[]> topicMessageIdsCopy = new HashMap<>(topicMessageIds);
-          // TODO: (CDAP-8327) there is a risk of running out-of-memory if other threads keep writing to records
-          Iterator<MetricValues> iterator = records.iterator();
-          while (iterator.hasNext()) {
-            recordsCopy.add(iterator.next());
-            iterator.remove();
-          }
-          persistRecordsMessageIds(recordsCopy, topicMessageIdsCopy);
+          metaTable.saveMessageIds(Collections.singletonMap(topicIdMetaKey, pendingMessageId));
         } catch (Exception e) {
-          LOG.error("Failed to persist consumed messages.", e);
-        } finally {
-          // Set persistingFlag back to false after persisting completes.
-          persistingFlag.set(false);
+          LOG.error("Failed to persist messageId's of consumed messages.", e);
         }
-      } catch (Exception e) {
-        LOG.warn("Failed to process metrics. Will be retried in next iteration.", e);
       }
     }
   }
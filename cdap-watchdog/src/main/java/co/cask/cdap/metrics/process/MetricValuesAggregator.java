@@ -0,0 +1,166 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package co.cask.cdap.metrics.process;
+
+import co.cask.cdap.api.metrics.MetricType;
+import co.cask.cdap.api.metrics.MetricValue;
+import co.cask.cdap.api.metrics.MetricValues;
+import com.google.common.base.Objects;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregates {@link MetricValues} in memory by tags, timestamp and metric name, so that the same metric
+ * for the same context and the same second is written to the metric store only once. Counters are summed up.
+ * A gauge replaces the value aggregated so far, and counters following a gauge are added to it,
+ * which is the same result as applying the original values one by one to the metric store.
+ *
+ * This class is not thread safe.
+ */
+final class MetricValuesAggregator {
+
+  private final Map<AggregationKey, Map<String, AggregatedValue>> aggregates = new LinkedHashMap<>();
+  private int recordsCount;
+  private long lastTimestamp;
+
+  /**
+   * Adds the given {@link MetricValues} to the aggregation.
+   */
+  void add(MetricValues metricValues) {
+    AggregationKey key = new AggregationKey(metricValues.getTags(), metricValues.getTimestamp());
+    Map<String, AggregatedValue> values = aggregates.get(key);
+    if (values == null) {
+      values = new LinkedHashMap<>();
+      aggregates.put(key, values);
+    }
+    for (MetricValue metricValue : metricValues.getMetrics()) {
+      AggregatedValue value = values.get(metricValue.getName());
+      if (value == null) {
+        values.put(metricValue.getName(), new AggregatedValue(metricValue));
+      } else {
+        value.add(metricValue);
+      }
+    }
+    recordsCount++;
+    lastTimestamp = metricValues.getTimestamp();
+  }
+
+  /**
+   * Returns {@code true} if nothing has been added since the last {@link #clear()}.
+   */
+  boolean isEmpty() {
+    return recordsCount == 0;
+  }
+
+  /**
+   * Returns the number of {@link MetricValues} added since the last {@link #clear()}.
+   */
+  int getRecordsCount() {
+    return recordsCount;
+  }
+
+  /**
+   * Returns the timestamp of the last {@link MetricValues} added.
+   */
+  long getLastTimestamp() {
+    return lastTimestamp;
+  }
+
+  /**
+   * Returns the aggregated result as a list of {@link MetricValues}.
+   */
+  List<MetricValues> getAggregates() {
+    List<MetricValues> result = new ArrayList<>(aggregates.size());
+    for (Map.Entry<AggregationKey, Map<String, AggregatedValue>> entry : aggregates.entrySet()) {
+      Collection<AggregatedValue> values = entry.getValue().values();
+      List<MetricValue> metrics = new ArrayList<>(values.size());
+      for (AggregatedValue value : values) {
+        metrics.add(new MetricValue(value.name, value.type, value.value));
+      }
+      AggregationKey key = entry.getKey();
+      result.add(new MetricValues(key.tags, key.timestamp, metrics));
+    }
+    return result;
+  }
+
+  /**
+   * Clears all aggregated values.
+   */
+  void clear() {
+    aggregates.clear();
+    recordsCount = 0;
+  }
+
+  /**
+   * Key for aggregating {@link MetricValues} of the same context and timestamp.
+   */
+  private static final class AggregationKey {
+    private final Map<String, String> tags;
+    private final long timestamp;
+    private final int hashCode;
+
+    AggregationKey(Map<String, String> tags, long timestamp) {
+      this.tags = tags;
+      this.timestamp = timestamp;
+      this.hashCode = Objects.hashCode(tags, timestamp);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      AggregationKey other = (AggregationKey) o;
+      return timestamp == other.timestamp && tags.equals(other.tags);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  /**
+   * Mutable aggregated value of a metric.
+   */
+  private static final class AggregatedValue {
+    private final String name;
+    private MetricType type;
+    private long value;
+
+    AggregatedValue(MetricValue metricValue) {
+      this.name = metricValue.getName();
+      this.type = metricValue.getType();
+      this.value = metricValue.getValue();
+    }
+
+    void add(MetricValue metricValue) {
+      if (metricValue.getType() == MetricType.GAUGE) {
+        type = MetricType.GAUGE;
+        value = metricValue.getValue();
+      } else {
+        value += metricValue.getValue();
+      }
+    }
+  }
+}
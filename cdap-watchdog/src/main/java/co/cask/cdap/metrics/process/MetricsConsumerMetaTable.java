@@ -46,7 +46,7 @@ public class MetricsConsumerMetaTable {
     metaTable.put(updates);
   }
 
-  public <T extends MetricsMetaKey> void saveMessageIds(Map<T, byte[]> messageIds) throws Exception {
+  public synchronized <T extends MetricsMetaKey> void saveMessageIds(Map<T, byte[]> messageIds) throws Exception {
     SortedMap<byte[], SortedMap<byte[], byte[]>> updates = new TreeMap<>(Bytes.BYTES_COMPARATOR);
     for (Map.Entry<T, byte[]> entry : messageIds.entrySet()) {
       SortedMap<byte[], byte[]> map = new TreeMap<>(Bytes.BYTES_COMPARATOR);
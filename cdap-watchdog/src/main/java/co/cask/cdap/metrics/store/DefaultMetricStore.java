@@ -16,7 +16,6 @@
 
 package co.cask.cdap.metrics.store;
 
-import co.cask.cdap.api.dataset.lib.cube.Cube;
 import co.cask.cdap.api.dataset.lib.cube.CubeDeleteQuery;
 import co.cask.cdap.api.dataset.lib.cube.CubeExploreQuery;
 import co.cask.cdap.api.dataset.lib.cube.CubeFact;
@@ -35,9 +34,11 @@ import co.cask.cdap.api.metrics.MetricValue;
 import co.cask.cdap.api.metrics.MetricValues;
 import co.cask.cdap.api.metrics.MetricsContext;
 import co.cask.cdap.api.metrics.TagValue;
+import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.data2.dataset2.lib.cube.Aggregation;
 import co.cask.cdap.data2.dataset2.lib.cube.AggregationAlias;
+import co.cask.cdap.data2.dataset2.lib.cube.CubeQueryCache;
 import co.cask.cdap.data2.dataset2.lib.cube.DefaultAggregation;
 import co.cask.cdap.data2.dataset2.lib.cube.DefaultCube;
 import co.cask.cdap.data2.dataset2.lib.cube.FactTableSupplier;
@@ -54,6 +55,7 @@ import com.google.inject.Inject;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -84,7 +86,7 @@ public class DefaultMetricStore implements MetricStore {
                                                          Constants.Metrics.Tag.WORKFLOW_RUN_ID)));
 
   private final int resolutions[];
-  private final Supplier<Cube> cube;
+  private final Supplier<DefaultCube> cube;
   private MetricsContext metricsContext;
 
 
@@ -197,13 +199,19 @@ public class DefaultMetricStore implements MetricStore {
   }
 
   @Inject
-  public DefaultMetricStore(final MetricDatasetFactory dsFactory) {
+  public DefaultMetricStore(final MetricDatasetFactory dsFactory, CConfiguration cConf) {
     // 1 sec, 1 min, 1 hour and "all time totals"
-    this(dsFactory, new int[] {1, 60, 3600, TOTALS_RESOLUTION});
+    this(dsFactory, new int[] {1, 60, 3600, TOTALS_RESOLUTION}, createQueryCache(cConf),
+         cConf.getLong(Constants.Metrics.QUERY_MEMORY_LIMIT_BYTES, Long.MAX_VALUE));
   }
 
   // NOTE: should never be used apart from data migration during cdap upgrade
   public DefaultMetricStore(final MetricDatasetFactory dsFactory, final int resolutions[]) {
+    this(dsFactory, resolutions, null, Long.MAX_VALUE);
+  }
+
+  private DefaultMetricStore(final MetricDatasetFactory dsFactory, final int resolutions[],
+                             @Nullable final CubeQueryCache queryCache, final long queryMemoryLimit) {
     this.resolutions = resolutions;
     final FactTableSupplier factTableSupplier = new FactTableSupplier() {
       @Override
@@ -212,16 +220,27 @@ public class DefaultMetricStore implements MetricStore {
         return dsFactory.getOrCreateFactTable(resolution);
       }
     };
-    this.cube = Suppliers.memoize(new Supplier<Cube>() {
+    this.cube = Suppliers.memoize(new Supplier<DefaultCube>() {
       @Override
-      public Cube get() {
-        DefaultCube cube = new DefaultCube(resolutions, factTableSupplier, AGGREGATIONS, AGGREGATIONS_ALIAS_DIMENSIONS);
+      public DefaultCube get() {
+        DefaultCube cube = new DefaultCube(resolutions, factTableSupplier, AGGREGATIONS,
+                                           AGGREGATIONS_ALIAS_DIMENSIONS, queryCache);
         cube.setMetricsCollector(metricsContext);
+        cube.setQueryMemoryLimit(queryMemoryLimit);
         return cube;
       }
     });
   }
 
+  @Nullable
+  private static CubeQueryCache createQueryCache(CConfiguration cConf) {
+    int size = cConf.getInt(Constants.Metrics.QUERY_CACHE_SIZE, 0);
+    if (size <= 0) {
+      return null;
+    }
+    return new CubeQueryCache(size, cConf.getLong(Constants.Metrics.QUERY_CACHE_SETTLE_SECONDS, 60));
+  }
+
   @Override
   public void setMetricsContext(MetricsContext metricsContext) {
     this.metricsContext = metricsContext;
@@ -234,6 +253,11 @@ public class DefaultMetricStore implements MetricStore {
 
   @Override
   public void add(Collection<? extends MetricValues> metricValues) throws Exception {
+    add(metricValues, new HashSet<Integer>());
+  }
+
+  @Override
+  public void add(Collection<? extends MetricValues> metricValues, Set<Integer> writtenResolutions) throws Exception {
     List<CubeFact> facts = Lists.newArrayListWithCapacity(metricValues.size());
     for (MetricValues metricValue : metricValues) {
       String scope = metricValue.getTags().get(Constants.Metrics.Tag.SCOPE);
@@ -250,7 +274,7 @@ public class DefaultMetricStore implements MetricStore {
         .addMeasurements(metrics);
       facts.add(fact);
     }
-    cube.get().add(facts);
+    cube.get().add(facts, writtenResolutions);
   }
 
   @Override
@@ -129,6 +129,7 @@ public class TestFileLogging {
     FileLogReader logReader = injector.getInstance(FileLogReader.class);
     LoggingTester tester = new LoggingTester();
     tester.testGetNext(logReader, loggingContext);
+    logReader.close();
   }
 
   @Test
@@ -137,6 +138,7 @@ public class TestFileLogging {
     FileLogReader logReader = injector.getInstance(FileLogReader.class);
     LoggingTester tester = new LoggingTester();
     tester.testGetPrev(logReader, loggingContext);
+    logReader.close();
   }
 
   @Test
@@ -202,5 +204,6 @@ public class TestFileLogging {
     events =
       Lists.newArrayList(logTail.getLog(loggingContext1, 0, Long.MAX_VALUE, Filter.EMPTY_FILTER));
     Assert.assertEquals(100, events.size());
+    logTail.close();
   }
 }
@@ -0,0 +1,138 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.logging.framework;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.logging.filter.Filter;
+import co.cask.cdap.logging.filter.LogLevelExpression;
+import co.cask.cdap.logging.read.LogEvent;
+import co.cask.cdap.logging.serialize.LogSchema;
+import co.cask.cdap.logging.write.LogFileIndex;
+import co.cask.cdap.logging.write.LogLocation;
+import co.cask.cdap.security.impersonation.DefaultImpersonator;
+import co.cask.cdap.security.impersonation.Impersonator;
+import co.cask.cdap.security.impersonation.UnsupportedUGIProvider;
+import com.google.common.collect.Lists;
+import org.apache.twill.filesystem.LocalLocationFactory;
+import org.apache.twill.filesystem.Location;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Tests for writing and reading log files with {@link LogFileIndex}.
+ */
+public class LogFileIndexTest {
+
+  @ClassRule
+  public static final TemporaryFolder TMP_FOLDER = new TemporaryFolder();
+
+  private static final Impersonator IMPERSONATOR = new DefaultImpersonator(CConfiguration.create(),
+                                                                           new UnsupportedUGIProvider());
+  private static final Logger LOGGER = (Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME);
+
+  @Test
+  public void testIndexedRead() throws Exception {
+    Location location = new LocalLocationFactory(TMP_FOLDER.newFolder()).create("test.avro");
+    LogFileOutputStream outputStream = new LogFileOutputStream(location, "600", LogSchema.LoggingEvent.SCHEMA,
+                                                               1024 * 1024, 1024, 0L, new Closeable() {
+      @Override
+      public void close() throws IOException {
+        // no-op
+      }
+    });
+
+    // Writes 10000 events with timestamp 0 to 9999. First half are DEBUG and second half are INFO,
+    // except one ERROR event.
+    for (int i = 0; i < 10000; i++) {
+      Level level = i == 7777 ? Level.ERROR : (i < 5000 ? Level.DEBUG : Level.INFO);
+      LoggingEvent event = new LoggingEvent("co.cask.Test", LOGGER, level, "Message " + i, null, null);
+      event.setTimeStamp(i);
+      outputStream.append(event);
+      if (i % 100 == 99) {
+        outputStream.flush();
+      }
+    }
+
+    // The index should be readable while the file is still open
+    LogFileIndex index = LogFileIndex.read(location, location.length());
+    Assert.assertNotNull(index);
+    Assert.assertFalse(index.getEntries().isEmpty());
+    outputStream.close();
+
+    index = LogFileIndex.read(location, location.length());
+    Assert.assertNotNull(index);
+    Assert.assertEquals(location.length(), index.getIndexedEnd());
+    List<LogFileIndex.Entry> entries = index.getEntries();
+    Assert.assertEquals(0L, entries.get(0).getMinTimestamp());
+    Assert.assertEquals(9999L, entries.get(entries.size() - 1).getMaxTimestamp());
+    int errorEntries = 0;
+    for (LogFileIndex.Entry entry : entries) {
+      if (entry.mayMatch(new LogLevelExpression("ERROR"))) {
+        errorEntries++;
+      }
+    }
+    Assert.assertEquals(1, errorEntries);
+
+    LogLocation logLocation = new LogLocation(LogLocation.VERSION_1, 0L, 0L, location, "default", IMPERSONATOR);
+    verifyRead(logLocation);
+
+    // Reads should give the same result without the index
+    Assert.assertTrue(LogFileIndex.getIndexLocation(location).delete());
+    verifyRead(logLocation);
+  }
+
+  private void verifyRead(LogLocation logLocation) throws Exception {
+    // Read a time range
+    List<LogEvent> events = Lists.newArrayList(logLocation.readLog(Filter.EMPTY_FILTER, 5000, 5100, 1000));
+    Assert.assertEquals(100, events.size());
+    for (int i = 0; i < events.size(); i++) {
+      Assert.assertEquals(5000L + i, events.get(i).getLoggingEvent().getTimeStamp());
+    }
+
+    // Read with level filter
+    events = Lists.newArrayList(logLocation.readLog(new LogLevelExpression("ERROR"), 0, 10000, 1000));
+    Assert.assertEquals(1, events.size());
+    Assert.assertEquals(7777L, events.get(0).getLoggingEvent().getTimeStamp());
+
+    events = Lists.newArrayList(logLocation.readLog(new LogLevelExpression("INFO"), 4000, 5010, 1000));
+    Assert.assertEquals(10, events.size());
+    Assert.assertEquals(5000L, events.get(0).getLoggingEvent().getTimeStamp());
+
+    // Read backward
+    Collection<LogEvent> prevEvents = logLocation.readLogPrev(Filter.EMPTY_FILTER, 3000, 50);
+    Assert.assertEquals(50, prevEvents.size());
+    long expected = 2951L;
+    for (LogEvent event : prevEvents) {
+      Assert.assertEquals(expected++, event.getLoggingEvent().getTimeStamp());
+    }
+
+    prevEvents = logLocation.readLogPrev(new LogLevelExpression("ERROR"), 9999, 10);
+    Assert.assertEquals(1, prevEvents.size());
+    Assert.assertEquals(7777L, prevEvents.iterator().next().getLoggingEvent().getTimeStamp());
+  }
+}
@@ -131,6 +131,7 @@ public class LogFileManagerTest {
 
     FileMetaDataWriter fileMetaDataWriter = new FileMetaDataWriter(datasetManager, transactional);
     LogFileManager logFileManager = new LogFileManager("700", "600", maxLifeTimeMs, maxFileSizeInBytes, syncInterval,
+                                                       syncInterval,
                                                        LogSchema.LoggingEvent.SCHEMA,
                                                        fileMetaDataWriter,
                                                        injector.getInstance(LocationFactory.class));
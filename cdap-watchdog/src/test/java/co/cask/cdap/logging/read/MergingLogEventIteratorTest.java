@@ -0,0 +1,141 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.logging.read;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import co.cask.cdap.api.dataset.lib.CloseableIterator;
+import co.cask.cdap.logging.write.LogLocation;
+import com.google.common.base.Function;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit tests for {@link MergingLogEventIterator}.
+ */
+public class MergingLogEventIteratorTest {
+
+  private static final Logger LOGGER = (Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME);
+
+  private ExecutorService executor;
+
+  @Before
+  public void init() {
+    executor = Executors.newCachedThreadPool();
+  }
+
+  @After
+  public void finish() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testMerge() {
+    // Ten files, each has 500 events. Files overlap in time with the next file.
+    final Map<LogLocation, List<LogEvent>> fileEvents = Maps.newLinkedHashMap();
+    for (int i = 0; i < 10; i++) {
+      List<LogEvent> events = Lists.newArrayList();
+      for (int j = 0; j < 500; j++) {
+        events.add(createEvent(i * 300 + j, "File " + i + " event " + j));
+      }
+      fileEvents.put(new LogLocation(LogLocation.VERSION_1, i * 300, i * 300, null, "default", null), events);
+    }
+
+    final AtomicInteger openCount = new AtomicInteger();
+    Function<LogLocation, CloseableIterator<LogEvent>> reader =
+      new Function<LogLocation, CloseableIterator<LogEvent>>() {
+        @Override
+        public CloseableIterator<LogEvent> apply(LogLocation file) {
+          openCount.incrementAndGet();
+          final Iterator<LogEvent> iterator = fileEvents.get(file).iterator();
+          return new CloseableIterator<LogEvent>() {
+            @Override
+            public void close() {
+              openCount.decrementAndGet();
+            }
+
+            @Override
+            public boolean hasNext() {
+              return iterator.hasNext();
+            }
+
+            @Override
+            public LogEvent next() {
+              return iterator.next();
+            }
+
+            @Override
+            public void remove() {
+              throw new UnsupportedOperationException();
+            }
+          };
+        }
+      };
+
+    // Read all events, which should be sorted by timestamp
+    List<LogLocation> files = Lists.newArrayList(fileEvents.keySet());
+    try (CloseableIterator<LogEvent> iterator = new MergingLogEventIterator(files, reader, executor, 3, 64)) {
+      long lastTimestamp = -1L;
+      int count = 0;
+      while (iterator.hasNext()) {
+        long timestamp = iterator.next().getLoggingEvent().getTimeStamp();
+        Assert.assertTrue(timestamp >= lastTimestamp);
+        lastTimestamp = timestamp;
+        count++;
+      }
+      Assert.assertEquals(5000, count);
+    }
+    Assert.assertEquals(0, openCount.get());
+
+    // Stop in the middle, all opened files should be closed
+    try (CloseableIterator<LogEvent> iterator = new MergingLogEventIterator(files, reader, executor, 3, 64)) {
+      for (int i = 0; i < 1000; i++) {
+        Assert.assertTrue(iterator.hasNext());
+        iterator.next();
+      }
+    }
+    Assert.assertEquals(0, openCount.get());
+
+    // Same timestamp events are returned in the order of files
+    try (CloseableIterator<LogEvent> iterator = new MergingLogEventIterator(files, reader, executor, 3, 64)) {
+      for (int i = 0; i < 300; i++) {
+        iterator.next();
+      }
+      Assert.assertEquals("File 0 event 300", iterator.next().getLoggingEvent().getMessage());
+      Assert.assertEquals("File 1 event 0", iterator.next().getLoggingEvent().getMessage());
+    }
+  }
+
+  private LogEvent createEvent(long timestamp, String message) {
+    LoggingEvent event = new LoggingEvent("co.cask.Test", LOGGER, Level.INFO, message, null, null);
+    event.setTimeStamp(timestamp);
+    return new LogEvent(event, new LogOffset(LogOffset.INVALID_KAFKA_OFFSET, timestamp));
+  }
+}
@@ -26,13 +26,20 @@ import org.junit.Assert;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -195,6 +202,121 @@ public class AggregatedMetricsCollectionServiceTest {
     service.stop().get(5, TimeUnit.SECONDS);
   }
 
+  @Test
+  public void testIdleMetrics() throws Exception {
+    final BlockingQueue<MetricValues> published = new LinkedBlockingQueue<>();
+    AggregatedMetricsCollectionService service = new AggregatedMetricsCollectionService() {
+      @Override
+      protected void publish(Iterator<MetricValues> metrics) {
+        Iterators.addAll(published, metrics);
+      }
+
+      @Override
+      protected long getInitialDelayMillis() {
+        return 100L;
+      }
+
+      @Override
+      protected long getPeriodMillis() {
+        return 100L;
+      }
+
+      @Override
+      protected long getIdleExpireMillis() {
+        return 200L;
+      }
+    };
+
+    service.startAndWait();
+    try {
+      MetricsContext context = service.getContext(ImmutableMap.of(Constants.Metrics.Tag.NAMESPACE, NAMESPACE));
+      context.increment(METRIC, 1);
+      Assert.assertEquals(1L, getMetricValue(published.poll(10, TimeUnit.SECONDS).getMetrics(), METRIC));
+
+      // Keep the tags active with another metric, while the first metric stays idle and gets retired
+      for (int i = 0; i < 5; i++) {
+        context.increment(GAUGE_METRIC, 1);
+        MetricValues record = published.poll(10, TimeUnit.SECONDS);
+        Assert.assertNotNull(record);
+        Assert.assertEquals(0L, getMetricValue(record.getMetrics(), METRIC));
+      }
+
+      // Updates to a retired metric should still be published
+      context.increment(METRIC, 2);
+      long total = 0;
+      while (total < 2L) {
+        MetricValues record = published.poll(10, TimeUnit.SECONDS);
+        Assert.assertNotNull(record);
+        total += getMetricValue(record.getMetrics(), METRIC);
+      }
+      Assert.assertEquals(2L, total);
+    } finally {
+      service.stopAndWait();
+    }
+  }
+
+  @Test
+  public void testConcurrentIncrement() throws Exception {
+    final BlockingQueue<MetricValues> published = new LinkedBlockingQueue<>();
+    AggregatedMetricsCollectionService service = new AggregatedMetricsCollectionService() {
+      @Override
+      protected void publish(Iterator<MetricValues> metrics) {
+        Iterators.addAll(published, metrics);
+      }
+
+      @Override
+      protected long getInitialDelayMillis() {
+        return 100L;
+      }
+
+      @Override
+      protected long getPeriodMillis() {
+        return 100L;
+      }
+    };
+
+    service.startAndWait();
+    try {
+      // Increment the same metric from multiple threads while metrics are being published
+      final MetricsContext context = service.getContext(ImmutableMap.of(Constants.Metrics.Tag.NAMESPACE, NAMESPACE));
+      final int threads = 8;
+      final int increments = 100000;
+      final CyclicBarrier barrier = new CyclicBarrier(threads);
+      ExecutorService executor = Executors.newFixedThreadPool(threads);
+      try {
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+          futures.add(executor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+              barrier.await();
+              for (int i = 0; i < increments; i++) {
+                context.increment(METRIC, 1);
+              }
+              return null;
+            }
+          }));
+        }
+        for (Future<?> future : futures) {
+          future.get(30, TimeUnit.SECONDS);
+        }
+      } finally {
+        executor.shutdownNow();
+      }
+
+      // No increment should be lost across publishing rounds
+      long total = 0;
+      while (total < threads * increments) {
+        MetricValues record = published.poll(10, TimeUnit.SECONDS);
+        Assert.assertNotNull(record);
+        total += getMetricValue(record.getMetrics(), METRIC);
+      }
+      Assert.assertEquals(threads * increments, total);
+    } finally {
+      service.stopAndWait();
+    }
+  }
+
   private void verifyCounterMetricsValue(MetricValues metricValues) {
     Assert.assertNotNull(metricValues);
     Map<String, String> tags = metricValues.getTags();
@@ -15,7 +15,6 @@
  */
 package co.cask.cdap.metrics.collect;
 
-import co.cask.cdap.api.data.schema.Schema;
 import co.cask.cdap.api.data.schema.UnsupportedTypeException;
 import co.cask.cdap.api.dataset.lib.CloseableIterator;
 import co.cask.cdap.api.messaging.TopicNotFoundException;
@@ -23,13 +22,10 @@ import co.cask.cdap.api.metrics.MetricValue;
 import co.cask.cdap.api.metrics.MetricValues;
 import co.cask.cdap.api.metrics.MetricsCollectionService;
 import co.cask.cdap.common.conf.CConfiguration;
-import co.cask.cdap.common.io.BinaryDecoder;
-import co.cask.cdap.internal.io.ReflectionDatumReader;
 import co.cask.cdap.messaging.data.RawMessage;
 import co.cask.cdap.metrics.MetricsTestBase;
 import co.cask.cdap.proto.id.NamespaceId;
 import co.cask.cdap.proto.id.TopicId;
-import co.cask.common.io.ByteBufferInputStream;
 import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
@@ -41,7 +37,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -63,8 +58,7 @@ public class MessagingMetricsCollectionServiceTest extends MetricsTestBase {
     MetricsCollectionService collectionService = new MessagingMetricsCollectionService(TOPIC_PREFIX,
                                                                                        PARTITION_SIZE,
                                                                                        CConfiguration.create(),
-                                                                                       messagingService,
-                                                                                       recordWriter);
+                                                                                       messagingService);
     collectionService.startAndWait();
 
     // publish metrics for different context
@@ -83,37 +77,33 @@ public class MessagingMetricsCollectionServiceTest extends MetricsTestBase {
     expected.put("tag.2", "processed", 2L);
     expected.put("tag.3", "processed", 3L);
 
-    ReflectionDatumReader<MetricValues> recordReader = new ReflectionDatumReader<>(schema, metricValueType);
-    assertMetricsFromMessaging(schema, recordReader, expected);
+    assertMetricsFromMessaging(expected);
   }
 
-  private void assertMetricsFromMessaging(final Schema schema,
-                                          ReflectionDatumReader recordReader,
-                                          Table<String, String, Long> expected)
+  private void assertMetricsFromMessaging(Table<String, String, Long> expected)
     throws InterruptedException, TopicNotFoundException, IOException {
 
-    // Consume from kafka
+    // Consume from messaging
     final Map<String, MetricValues> metrics = Maps.newHashMap();
-    ByteBufferInputStream is = new ByteBufferInputStream(null);
     for (int i = 0; i < PARTITION_SIZE; i++) {
     TopicId topicId = NamespaceId.SYSTEM.topic(TOPIC_PREFIX + i);
       try (CloseableIterator<RawMessage> iterator = messagingService.prepareFetch(topicId).fetch()) {
         while (iterator.hasNext()) {
           RawMessage message = iterator.next();
-          MetricValues metricsRecord = (MetricValues) recordReader.read(
-            new BinaryDecoder(is.reset(ByteBuffer.wrap(message.getPayload()))), schema);
-          StringBuilder flattenContext = new StringBuilder();
-          // for verifying expected results, sorting tags
-          Map<String, String> tags = Maps.newTreeMap();
-          tags.putAll(metricsRecord.getTags());
-          for (Map.Entry<String, String> tag : tags.entrySet()) {
-            flattenContext.append(tag.getKey()).append(".").append(tag.getValue()).append(".");
+          for (MetricValues metricsRecord : MetricValuesBatchCodec.decode(message.getPayload())) {
+            StringBuilder flattenContext = new StringBuilder();
+            // for verifying expected results, sorting tags
+            Map<String, String> tags = Maps.newTreeMap();
+            tags.putAll(metricsRecord.getTags());
+            for (Map.Entry<String, String> tag : tags.entrySet()) {
+              flattenContext.append(tag.getKey()).append(".").append(tag.getValue()).append(".");
+            }
+            // removing trailing "."
+            if (flattenContext.length() > 0) {
+              flattenContext.deleteCharAt(flattenContext.length() - 1);
+            }
+            metrics.put(flattenContext.toString(), metricsRecord);
           }
-          // removing trailing "."
-          if (flattenContext.length() > 0) {
-            flattenContext.deleteCharAt(flattenContext.length() - 1);
-          }
-          metrics.put(flattenContext.toString(), metricsRecord);
         }
       } catch (IOException e) {
         LOG.info("Failed to decode message to MetricValue. Skipped. {}", e.getMessage());
@@ -0,0 +1,109 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package co.cask.cdap.metrics.collect;
+
+import co.cask.cdap.api.metrics.MetricType;
+import co.cask.cdap.api.metrics.MetricValue;
+import co.cask.cdap.api.metrics.MetricValues;
+import co.cask.cdap.common.io.BinaryEncoder;
+import co.cask.cdap.internal.io.ReflectionDatumWriter;
+import co.cask.cdap.internal.io.ReflectionSchemaGenerator;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unit test for {@link MetricValuesBatchCodec}.
+ */
+public class MetricValuesBatchCodecTest {
+
+  @Test
+  public void testEncodeDecode() throws Exception {
+    Map<String, String> tags1 = ImmutableMap.of("namespace", "ns1", "app", "app1");
+    Map<String, String> tags2 = ImmutableMap.of("namespace", "ns1", "app", "app2");
+    Map<String, String> emptyTags = Collections.emptyMap();
+
+    List<MetricValues> expected = new ArrayList<>();
+    expected.add(new MetricValues(tags1, "processed", 1490000000L, 10L, MetricType.COUNTER));
+    expected.add(new MetricValues(tags2, 1490000000L, ImmutableList.of(
+      new MetricValue("processed", MetricType.COUNTER, 5L),
+      new MetricValue("memory", MetricType.GAUGE, Long.MAX_VALUE))));
+    expected.add(new MetricValues(tags1, "processed", 1490000001L, -3L, MetricType.COUNTER));
+    expected.add(new MetricValues(emptyTags, "memory", 1489999999L, 0L, MetricType.GAUGE));
+
+    MetricValuesBatchCodec.Writer writer = new MetricValuesBatchCodec.Writer();
+    for (MetricValues metricValues : expected) {
+      writer.add(metricValues);
+    }
+    Assert.assertEquals(expected.size(), writer.size());
+
+    byte[] payload = writer.toByteArray();
+    Assert.assertTrue(MetricValuesBatchCodec.isBatch(payload));
+    assertEquals(expected, MetricValuesBatchCodec.decode(payload));
+
+    // After reset, the writer should encode a new independent batch
+    writer.reset();
+    Assert.assertEquals(0, writer.size());
+    writer.add(expected.get(2));
+    assertEquals(expected.subList(2, 3), MetricValuesBatchCodec.decode(writer.toByteArray()));
+  }
+
+  @Test
+  public void testSingleRecordPayload() throws Exception {
+    // Payloads of individual MetricValues records must not be treated as batches
+    ReflectionDatumWriter<MetricValues> recordWriter =
+      new ReflectionDatumWriter<>(new ReflectionSchemaGenerator().generate(MetricValues.class));
+
+    // The schema orders the fields by name, hence a record starts with the block count of the metrics array
+    Map<String, String> tags = ImmutableMap.of("namespace", "ns1", "app", "app1", "flow", "flow1");
+    for (int count : new int[] { 0, 1, 2, 100 }) {
+      List<MetricValue> metrics = new ArrayList<>();
+      for (int i = 0; i < count; i++) {
+        metrics.add(new MetricValue("metric" + i, MetricType.COUNTER, i));
+      }
+      ByteArrayOutputStream os = new ByteArrayOutputStream();
+      recordWriter.encode(new MetricValues(tags, 1490000000L, metrics), new BinaryEncoder(os));
+      Assert.assertFalse(MetricValuesBatchCodec.isBatch(os.toByteArray()));
+    }
+  }
+
+  private void assertEquals(List<MetricValues> expected, List<MetricValues> actual) {
+    Assert.assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      MetricValues expectedValues = expected.get(i);
+      MetricValues actualValues = actual.get(i);
+      Assert.assertEquals(expectedValues.getTags(), actualValues.getTags());
+      Assert.assertEquals(expectedValues.getTimestamp(), actualValues.getTimestamp());
+      Assert.assertEquals(expectedValues.getMetrics().size(), actualValues.getMetrics().size());
+
+      Iterator<MetricValue> actualIterator = actualValues.getMetrics().iterator();
+      for (MetricValue expectedValue : expectedValues.getMetrics()) {
+        MetricValue actualValue = actualIterator.next();
+        Assert.assertEquals(expectedValue.getName(), actualValue.getName());
+        Assert.assertEquals(expectedValue.getType(), actualValue.getType());
+        Assert.assertEquals(expectedValue.getValue(), actualValue.getValue());
+      }
+    }
+  }
+}
@@ -38,11 +38,11 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -116,7 +116,7 @@ public class MessagingMetricsProcessorServiceTest extends MetricsProcessorServic
 
   private static class MockMetricStore implements MetricStore {
 
-    private final Map<String, Long> metricsMap = new HashMap<>();
+    private final Map<String, Long> metricsMap = new ConcurrentHashMap<>();
 
     @Override
     public void setMetricsContext(MetricsContext metricsContext) {
@@ -129,7 +129,16 @@ public class MessagingMetricsProcessorServiceTest extends MetricsProcessorServic
     }
 
     @Override
-    public void add(Collection<? extends MetricValues> metricValues) throws Exception {
+    public void add(Collection<? extends MetricValues> metricValues,
+                    Set<Integer> writtenResolutions) throws Exception {
+      // There is only one resolution in this mock
+      if (writtenResolutions.add(0)) {
+        add(metricValues);
+      }
+    }
+
+    @Override
+    public synchronized void add(Collection<? extends MetricValues> metricValues) throws Exception {
       for (MetricValues metric : metricValues) {
         for (MetricValue metricValue : metric.getMetrics()) {
           // Skip metrics generated by MessagingMetricsProcessorService
@@ -0,0 +1,86 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package co.cask.cdap.metrics.process;
+
+import co.cask.cdap.api.metrics.MetricType;
+import co.cask.cdap.api.metrics.MetricValue;
+import co.cask.cdap.api.metrics.MetricValues;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unit test for {@link MetricValuesAggregator}.
+ */
+public class MetricValuesAggregatorTest {
+
+  @Test
+  public void testAggregation() {
+    Map<String, String> tags1 = ImmutableMap.of("namespace", "ns1");
+    Map<String, String> tags2 = ImmutableMap.of("namespace", "ns2");
+
+    MetricValuesAggregator aggregator = new MetricValuesAggregator();
+    Assert.assertTrue(aggregator.isEmpty());
+
+    // Counters of the same tags and timestamp are summed up
+    aggregator.add(new MetricValues(tags1, "counter", 10L, 1L, MetricType.COUNTER));
+    aggregator.add(new MetricValues(tags1, "counter", 10L, 2L, MetricType.COUNTER));
+    // Different timestamp or tags are aggregated separately
+    aggregator.add(new MetricValues(tags1, "counter", 11L, 4L, MetricType.COUNTER));
+    aggregator.add(new MetricValues(new HashMap<>(tags2), "counter", 10L, 8L, MetricType.COUNTER));
+    // A gauge overrides previous values, and following counters are added to it
+    aggregator.add(new MetricValues(tags2, "gauge", 10L, 5L, MetricType.COUNTER));
+    aggregator.add(new MetricValues(tags2, "gauge", 10L, 3L, MetricType.GAUGE));
+    aggregator.add(new MetricValues(tags2, "gauge", 10L, 2L, MetricType.COUNTER));
+
+    Assert.assertEquals(7, aggregator.getRecordsCount());
+    Assert.assertEquals(10L, aggregator.getLastTimestamp());
+
+    List<MetricValues> aggregates = aggregator.getAggregates();
+    Assert.assertEquals(3, aggregates.size());
+    assertMetrics(aggregates.get(0), tags1, 10L, ImmutableMap.of("counter", 3L), MetricType.COUNTER);
+    assertMetrics(aggregates.get(1), tags1, 11L, ImmutableMap.of("counter", 4L), MetricType.COUNTER);
+    Assert.assertEquals(tags2, aggregates.get(2).getTags());
+    for (MetricValue metricValue : aggregates.get(2).getMetrics()) {
+      if ("counter".equals(metricValue.getName())) {
+        Assert.assertEquals(MetricType.COUNTER, metricValue.getType());
+        Assert.assertEquals(8L, metricValue.getValue());
+      } else {
+        Assert.assertEquals(MetricType.GAUGE, metricValue.getType());
+        Assert.assertEquals(5L, metricValue.getValue());
+      }
+    }
+
+    aggregator.clear();
+    Assert.assertTrue(aggregator.isEmpty());
+    Assert.assertTrue(aggregator.getAggregates().isEmpty());
+  }
+
+  private void assertMetrics(MetricValues metricValues, Map<String, String> tags,
+                             long timestamp, Map<String, Long> expected, MetricType type) {
+    Assert.assertEquals(tags, metricValues.getTags());
+    Assert.assertEquals(timestamp, metricValues.getTimestamp());
+    Assert.assertEquals(expected.size(), metricValues.getMetrics().size());
+    for (MetricValue metricValue : metricValues.getMetrics()) {
+      Assert.assertEquals(expected.get(metricValue.getName()), Long.valueOf(metricValue.getValue()));
+      Assert.assertEquals(type, metricValue.getType());
+    }
+  }
+}